@@ -0,0 +1,136 @@
+package nl.minicom.evenexus.benchmark;
+
+import java.sql.Timestamp;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import javax.inject.Inject;
+
+import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
+
+import org.hibernate.SQLQuery;
+import org.hibernate.Session;
+
+/**
+ * The {@link BenchmarkData} class generates synthetic wallet transactions for the benchmarks. The
+ * transactions alternate between buying and selling, and are spread evenly over {@link #TYPES} types
+ * and one transaction per minute, starting at {@link #START}. The generated data only depends on
+ * the amount of transactions, so results of different runs can be compared.
+ *
+ * @author michael
+ */
+public class BenchmarkData {
+
+	/**
+	 * The amount of different item types which are traded.
+	 */
+	public static final int TYPES = 500;
+
+	/**
+	 * The character which owns the generated transactions.
+	 */
+	public static final long CHARACTER_ID = 1;
+
+	/**
+	 * The time of the first generated transaction.
+	 */
+	public static final Timestamp START = Timestamp.valueOf("2010-01-01 00:00:00");
+
+	/**
+	 * The amount of rows which are inserted in one database transaction.
+	 */
+	private static final int CHUNK_SIZE = 50000;
+
+	private final Database database;
+
+	@Inject
+	public BenchmarkData(Database database) {
+		this.database = database;
+	}
+
+	/**
+	 * This method inserts the generated transactions into the database.
+	 *
+	 * @param transactions
+	 * 		The amount of transactions to generate.
+	 */
+	public void generateTransactions(int transactions) {
+		for (int first = 1; first <= transactions; first += CHUNK_SIZE) {
+			insertTransactions(first, Math.min(transactions, first + CHUNK_SIZE - 1));
+		}
+	}
+
+	@Transactional
+	void insertTransactions(int first, int last) {
+		String sql = new StringBuilder()
+		.append("INSERT INTO transactions (transactionId, characterId, transactionDateTime, quantity, remaining, ")
+		.append("	typeName, typeId, price, taxes, clientId, clientName, stationId, stationName, isPersonal) ")
+		.append("SELECT X, ?, DATEADD('MINUTE', X, ?), 10, 10, 'Type ' || MOD(X, ?), MOD(X, ?), ")
+		.append("	CASEWHEN(MOD(X / ?, 2) = 0, -100, 110), -1, 1, 'Client', 1, 'Station', 1 ")
+		.append("FROM SYSTEM_RANGE(?, ?)")
+		.toString();
+
+		Session session = database.getCurrentSession();
+		SQLQuery query = session.createSQLQuery(sql);
+		query.setLong(0, CHARACTER_ID);
+		query.setTimestamp(1, START);
+		query.setInteger(2, TYPES);
+		query.setInteger(3, TYPES);
+		query.setInteger(4, TYPES);
+		query.setInteger(5, first);
+		query.setInteger(6, last);
+		query.executeUpdate();
+	}
+
+	/**
+	 * This method generates a WalletTransactions API document, in the same format as the API.
+	 *
+	 * @param rows
+	 * 		The amount of rows in the document.
+	 *
+	 * @param firstId
+	 * 		The id of the oldest transaction in the document.
+	 *
+	 * @return
+	 * 		The generated document.
+	 */
+	public static String createTransactionDocument(int rows, long firstId) {
+		DateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		format.setTimeZone(TimeZone.getTimeZone("Europe/London"));
+
+		StringBuilder builder = new StringBuilder()
+		.append("<?xml version='1.0' encoding='UTF-8'?>\n")
+		.append("<eveapi version=\"2\">\n")
+		.append("  <currentTime>2012-06-01 12:00:00</currentTime>\n")
+		.append("  <result>\n")
+		.append("    <rowset name=\"transactions\" key=\"transactionID\" columns=\"transactionDateTime,")
+		.append("transactionID,quantity,typeName,typeID,price,clientID,clientName,stationID,stationName,")
+		.append("transactionType,transactionFor\">\n");
+
+		// The API returns the newest transactions first.
+		for (long id = firstId + rows - 1; id >= firstId; id--) {
+			long typeId = id % TYPES;
+			boolean buy = (id / TYPES) % 2 == 0;
+			builder.append("      <row transactionDateTime=\"")
+			.append(format.format(new Date(START.getTime() + id * 60000)))
+			.append("\" transactionID=\"").append(id)
+			.append("\" quantity=\"10\" typeName=\"Type ").append(typeId)
+			.append("\" typeID=\"").append(typeId)
+			.append("\" price=\"").append(buy ? "100.00" : "110.00")
+			.append("\" clientID=\"1\" clientName=\"Client\" stationID=\"1\" stationName=\"Station\" ")
+			.append("transactionType=\"").append(buy ? "buy" : "sell")
+			.append("\" transactionFor=\"personal\" />\n");
+		}
+
+		return builder
+		.append("    </rowset>\n")
+		.append("  </result>\n")
+		.append("  <cachedUntil>2012-06-01 13:00:00</cachedUntil>\n")
+		.append("</eveapi>\n")
+		.toString();
+	}
+
+}
@@ -0,0 +1,106 @@
+package nl.minicom.evenexus.benchmark;
+
+import javax.inject.Inject;
+
+import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
+import nl.minicom.evenexus.persistence.versioning.RevisionExecutor;
+import nl.minicom.evenexus.persistence.versioning.StructureUpgrader;
+
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * The {@link BenchmarkDatabase} is the JMH state which holds an in-memory database, filled with the
+ * amount of transactions of the "transactions" parameter by the {@link BenchmarkData} generator.
+ * The parameter ranges from 10k to 10M transactions. The largest sizes need a larger heap, and are
+ * not run by default. They can be selected on the command line, for example:
+ * <code>mvn -P benchmark verify -Djmh.transactions=10000000 -Djmh.jvmArgs=-Xmx8g</code>
+ *
+ * @author michael
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+	@Param({ "10000", "100000", "1000000", "10000000" })
+	private int transactions;
+
+	private Injector injector;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		injector = Guice.createInjector(new BenchmarkModule());
+		injector.getInstance(Maintenance.class).dropDatabase();
+		injector.getInstance(RevisionExecutor.class).execute(new StructureUpgrader());
+		injector.getInstance(BenchmarkData.class).generateTransactions(transactions);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		injector.getInstance(Maintenance.class).dropDatabase();
+	}
+
+	/**
+	 * @return
+	 * 		The amount of generated transactions.
+	 */
+	public int getTransactions() {
+		return transactions;
+	}
+
+	/**
+	 * @param type
+	 * 		The type of the object to get.
+	 *
+	 * @return
+	 * 		An object created by the {@link Injector} of the benchmark, which uses the in-memory database.
+	 */
+	public <T> T getInstance(Class<T> type) {
+		return injector.getInstance(type);
+	}
+
+	/**
+	 * @param sql
+	 * 		The statements to execute, in one database transaction. They are used to undo the
+	 * 		changes of a benchmark before the next iteration.
+	 */
+	public void execute(String... sql) {
+		injector.getInstance(Maintenance.class).execute(sql);
+	}
+
+	/**
+	 * The {@link Maintenance} class executes statements on the benchmark database.
+	 */
+	public static class Maintenance {
+
+		private final Database database;
+
+		@Inject
+		public Maintenance(Database database) {
+			this.database = database;
+		}
+
+		@Transactional
+		void dropDatabase() {
+			execute("DROP ALL OBJECTS");
+		}
+
+		@Transactional
+		void execute(String... sql) {
+			Session session = database.getCurrentSession();
+			for (String statement : sql) {
+				session.createSQLQuery(statement).executeUpdate();
+			}
+		}
+
+	}
+
+}
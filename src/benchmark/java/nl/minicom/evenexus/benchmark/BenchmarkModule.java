@@ -0,0 +1,32 @@
+package nl.minicom.evenexus.benchmark;
+
+import java.io.IOException;
+
+import nl.minicom.evenexus.TestModule;
+import nl.minicom.evenexus.utils.SettingsManager;
+
+import com.google.inject.AbstractModule;
+
+/**
+ * The {@link BenchmarkModule} configures the in-memory test database, and a {@link SettingsManager}
+ * which does not depend on the GUI, so the benchmarks can run on machines without a display.
+ *
+ * @author michael
+ */
+public class BenchmarkModule extends AbstractModule {
+
+	@Override
+	protected void configure() {
+		install(new TestModule());
+
+		try {
+			SettingsManager settingsManager = new SettingsManager(null);
+			settingsManager.initialize();
+			bind(SettingsManager.class).toInstance(settingsManager);
+		}
+		catch (IOException e) {
+			addError(e);
+		}
+	}
+
+}
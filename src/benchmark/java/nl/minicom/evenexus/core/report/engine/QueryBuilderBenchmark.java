@@ -0,0 +1,48 @@
+package nl.minicom.evenexus.core.report.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import nl.minicom.evenexus.core.report.persistence.QueryBuilder;
+import nl.minicom.evenexus.core.report.persistence.Select;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures generating the SQL of a report with all items and three groups, with
+ * {@link Select#writeTranslation(QueryBuilder)}.
+ *
+ * @author michael
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBuilderBenchmark {
+
+	private ReportExecutor executor;
+
+	@Setup
+	public void setup() {
+		executor = new ReportExecutor(null, ReportExecutorBenchmark.createModel());
+	}
+
+	@Benchmark
+	public QueryBuilder writeTranslation() {
+		Select select = executor.createDataSelect();
+		QueryBuilder builder = new QueryBuilder();
+		select.writeTranslation(builder);
+		return builder;
+	}
+
+}
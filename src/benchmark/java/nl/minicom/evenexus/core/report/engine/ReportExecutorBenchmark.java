@@ -0,0 +1,63 @@
+package nl.minicom.evenexus.core.report.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import nl.minicom.evenexus.benchmark.BenchmarkDatabase;
+import nl.minicom.evenexus.core.report.definition.ReportDefinition;
+import nl.minicom.evenexus.core.report.definition.components.ReportItem;
+import nl.minicom.evenexus.persistence.Database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures querying the data of a report, grouped by month, week and day, and creating the
+ * {@link Dataset} of its top level with {@link ReportExecutor#createDataSet(String[])}.
+ *
+ * @author michael
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportExecutorBenchmark {
+
+	private Database database;
+	private ReportModel model;
+
+	@Setup(Level.Trial)
+	public void setup(BenchmarkDatabase benchmarkDatabase) {
+		database = benchmarkDatabase.getInstance(Database.class);
+		model = createModel();
+	}
+
+	@Benchmark
+	public Dataset createDataSet() {
+		// Every executor queries the data once, and caches it for drilling down.
+		return new ReportExecutor(database.getCurrentSession(), model).createDataSet(new String[0]);
+	}
+
+	static ReportModel createModel() {
+		ReportDefinition definition = new ReportDefinition();
+		ReportModel model = new ReportModel();
+		for (ReportItem item : definition.getItems()) {
+			model.addItem(item);
+		}
+		model.addGroup(definition.getGroup(ReportDefinition.GROUP_MONTH));
+		model.addGroup(definition.getGroup(ReportDefinition.GROUP_WEEK));
+		model.addGroup(definition.getGroup(ReportDefinition.GROUP_DAY));
+		return model;
+	}
+
+}
@@ -0,0 +1,163 @@
+package nl.minicom.evenexus.eveapi.importers.implementations;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import nl.minicom.evenexus.benchmark.BenchmarkData;
+import nl.minicom.evenexus.benchmark.BenchmarkDatabase;
+import nl.minicom.evenexus.eveapi.ApiClient;
+import nl.minicom.evenexus.eveapi.ApiParser;
+import nl.minicom.evenexus.eveapi.ApiServerManager;
+import nl.minicom.evenexus.eveapi.importers.FeeContextFactory;
+import nl.minicom.evenexus.eveapi.importers.ImportManager;
+import nl.minicom.evenexus.eveapi.importers.ImporterJob;
+import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
+import nl.minicom.evenexus.inventory.InventoryManager;
+import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.dao.ApiKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures importing a generated WalletTransactions document on top of the transactions which are already
+ * stored, along the same path as a scheduled import: the document is streamed from a byte stream through
+ * the {@link ApiParser}, and persisted page by page by the {@link TransactionImporter}. The imported rows
+ * and the import log are deleted before every iteration, so every iteration inserts all rows.
+ *
+ * @author michael
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TransactionImporterBenchmark {
+
+	/**
+	 * The amount of rows in the document. The API returns at most 2560 rows per request.
+	 */
+	@Param({ "2560" })
+	private int rows;
+
+	private BenchmarkDatabase database;
+	private HeadlessTransactionImporter importer;
+	private ApiKey apiKey;
+
+	@Setup(Level.Trial)
+	public void setup(BenchmarkDatabase database) throws Exception {
+		this.database = database;
+		this.importer = database.getInstance(HeadlessTransactionImporter.class);
+		this.apiKey = new ApiKey();
+		this.apiKey.setCharacterId(BenchmarkData.CHARACTER_ID);
+
+		// The newest page contains the generated rows, and there are no older pages to walk.
+		String newest = BenchmarkData.createTransactionDocument(rows, database.getTransactions() + 1);
+		String older = BenchmarkData.createTransactionDocument(0, 0);
+		database.getInstance(DocumentApiClient.class).setDocuments(newest.getBytes("UTF-8"), older.getBytes("UTF-8"));
+	}
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		database.execute("DELETE FROM transactions WHERE transactionId > " + database.getTransactions(),
+				"DELETE FROM importlogger");
+	}
+
+	@Benchmark
+	public void importApi() throws Exception {
+		importer.importApi(apiKey);
+	}
+
+	/**
+	 * A {@link TransactionImporter} without a {@link BugReportDialog}, as the dialog cannot be created
+	 * on a machine without a display.
+	 */
+	public static class HeadlessTransactionImporter extends TransactionImporter {
+
+		private final Provider<HeadlessApiParser> headlessApiParserProvider;
+
+		@Inject
+		public HeadlessTransactionImporter(Database database,
+				Provider<ApiParser> apiParserProvider,
+				Provider<ImporterJob> importerJobProvider,
+				ImportManager importManager,
+				InventoryManager inventoryManager,
+				FeeContextFactory feeContextFactory,
+				Provider<HeadlessApiParser> headlessApiParserProvider) {
+
+			super(database, apiParserProvider, importerJobProvider, importManager, inventoryManager,
+					feeContextFactory, null);
+			this.headlessApiParserProvider = headlessApiParserProvider;
+		}
+
+		@Override
+		protected ApiParser createApiParser() {
+			return headlessApiParserProvider.get();
+		}
+
+		@Override
+		public void importApi(ApiKey apiKey) throws Exception {
+			super.importApi(apiKey);
+		}
+
+	}
+
+	/**
+	 * An {@link ApiParser} without a {@link BugReportDialog}, which reads its documents from the
+	 * {@link DocumentApiClient}.
+	 */
+	public static class HeadlessApiParser extends ApiParser {
+
+		@Inject
+		public HeadlessApiParser(ApiServerManager apiServerManager, DocumentApiClient apiClient, Database database) {
+			super(apiServerManager, apiClient, database, null);
+		}
+
+	}
+
+	/**
+	 * An {@link ApiClient} which serves generated documents from memory, instead of requesting them from
+	 * the API server.
+	 */
+	@Singleton
+	public static class DocumentApiClient extends ApiClient {
+
+		private volatile byte[] newest;
+		private volatile byte[] older;
+
+		/**
+		 * @param newest
+		 * 		The document which is returned for the newest page.
+		 *
+		 * @param older
+		 * 		The document which is returned for all older pages.
+		 */
+		public void setDocuments(byte[] newest, byte[] older) {
+			this.newest = newest;
+			this.older = older;
+		}
+
+		@Override
+		public InputStream open(String url) {
+			return new ByteArrayInputStream(url.contains("beforeTransID=") ? older : newest);
+		}
+
+	}
+
+}
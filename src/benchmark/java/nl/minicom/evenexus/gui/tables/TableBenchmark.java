@@ -0,0 +1,93 @@
+package nl.minicom.evenexus.gui.tables;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import nl.minicom.evenexus.benchmark.BenchmarkDatabase;
+import nl.minicom.evenexus.gui.tables.columns.ColumnModel;
+import nl.minicom.evenexus.gui.tables.columns.models.TransactionColumnModel;
+import nl.minicom.evenexus.gui.tables.datamodel.IPeriodFilter;
+import nl.minicom.evenexus.gui.tables.datamodel.implementations.TransactionTableDataModel;
+import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.utils.SettingsManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the work {@link Table#reload()} does on its background thread for the transactions table:
+ * loading all rows of a period into a {@link TableData}, or only the first page into a
+ * {@link PagedTableData} when all transactions are shown. Creating the {@link Table} itself
+ * requires a display, so the rows are created in the same way as the table does.
+ *
+ * @author michael
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableBenchmark {
+
+	/**
+	 * A period which includes all generated transactions.
+	 */
+	private static final int ALL_DAYS = 100 * 365;
+
+	private static final Executor DIRECT = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private ColumnModel columnModel;
+	private TransactionTableDataModel periodModel;
+	private TransactionTableDataModel pagedModel;
+
+	@Setup(Level.Trial)
+	public void setup(BenchmarkDatabase database) {
+		SettingsManager settingsManager = database.getInstance(SettingsManager.class);
+		columnModel = new TransactionColumnModel(settingsManager);
+		columnModel.initialize();
+
+		periodModel = createDataModel(database, settingsManager);
+		periodModel.setPeriod(ALL_DAYS);
+		pagedModel = createDataModel(database, settingsManager);
+		pagedModel.setPeriod(IPeriodFilter.ALL);
+	}
+
+	private TransactionTableDataModel createDataModel(BenchmarkDatabase database, SettingsManager settingsManager) {
+		TransactionTableDataModel model = new TransactionTableDataModel(settingsManager,
+				database.getInstance(Database.class), null);
+		model.initialize();
+		return model;
+	}
+
+	@Benchmark
+	public Object reload() {
+		return TableData.create(columnModel, periodModel.getFields(), periodModel.reload());
+	}
+
+	@Benchmark
+	public Object reloadPaged() {
+		Runnable pageListener = new Runnable() {
+			@Override
+			public void run() {
+				// Nothing to repaint.
+			}
+		};
+		return new PagedTableData(columnModel, pagedModel, DIRECT, pageListener);
+	}
+
+}
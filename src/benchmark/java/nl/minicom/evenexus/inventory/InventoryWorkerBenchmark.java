@@ -0,0 +1,60 @@
+package nl.minicom.evenexus.inventory;
+
+import java.util.concurrent.TimeUnit;
+
+import nl.minicom.evenexus.benchmark.BenchmarkData;
+import nl.minicom.evenexus.benchmark.BenchmarkDatabase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures matching all generated transactions with the {@link InventoryWorker}, one worker per type,
+ * like the {@link InventoryManager} does. The matches are undone before every iteration.
+ *
+ * @author michael
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InventoryWorkerBenchmark {
+
+	private BenchmarkDatabase database;
+
+	@Setup(Level.Trial)
+	public void setup(BenchmarkDatabase database) {
+		this.database = database;
+	}
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		database.execute(
+				"DELETE FROM transactionMatches",
+				"DELETE FROM profits",
+				"DELETE FROM matchwatermarks",
+				"DELETE FROM dailytotals",
+				"UPDATE transactions SET remaining = quantity");
+	}
+
+	@Benchmark
+	public void match() {
+		for (long typeId = 0; typeId < BenchmarkData.TYPES; typeId++) {
+			InventoryWorker worker = database.getInstance(InventoryWorker.class);
+			worker.initialize(typeId);
+			worker.call();
+		}
+	}
+
+}
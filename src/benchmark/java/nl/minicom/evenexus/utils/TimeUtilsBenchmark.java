@@ -0,0 +1,88 @@
+package nl.minicom.evenexus.utils;
+
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares parsing API times and reading the server time with the {@link Calendar} based
+ * implementations which {@link TimeUtils} used before.
+ *
+ * @author michael
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeUtilsBenchmark {
+
+	private static final int TIMES = 1024;
+
+	private String[] times;
+	private int index;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		times = new String[TIMES];
+		for (int i = 0; i < TIMES; i++) {
+			times[i] = String.format("%04d-%02d-%02d %02d:%02d:%02d", 2003 + random.nextInt(10),
+					1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24),
+					random.nextInt(60), random.nextInt(60));
+		}
+	}
+
+	private String next() {
+		index = (index + 1) & (TIMES - 1);
+		return times[index];
+	}
+
+	@Benchmark
+	public long parseServerTime() throws ParseException {
+		return TimeUtils.parseServerTime(next());
+	}
+
+	@Benchmark
+	public long parseWithCalendar() {
+		String dateTime = next();
+		Calendar calendar = new GregorianCalendar();
+		calendar.setTimeZone(TimeZone.getTimeZone("Europe/London"));
+		calendar.set(
+				Integer.parseInt(dateTime.substring(0, 4)),
+				Integer.parseInt(dateTime.substring(5, 7)) - 1,
+				Integer.parseInt(dateTime.substring(8, 10)),
+				Integer.parseInt(dateTime.substring(11, 13)),
+				Integer.parseInt(dateTime.substring(14, 16)),
+				Integer.parseInt(dateTime.substring(17, 19))
+		);
+		return calendar.getTime().getTime();
+	}
+
+	@Benchmark
+	public long getServerTime() {
+		return TimeUtils.getServerTime();
+	}
+
+	@Benchmark
+	public long getServerTimeWithCalendar() {
+		Calendar calendar = GregorianCalendar.getInstance(TimeZone.getTimeZone("Europe/London"));
+		return calendar.getTime().getTime();
+	}
+
+}
@@ -38,7 +38,7 @@ public final class Main {
 		frame.setVisible(true);
 		
 		LOG.info("Creating Guice injector...");
-		frame.update(9, 0, "Creating Guice injector...");
+		frame.update(Application.STAGES, 0, "Creating Guice injector...");
 		final Injector injector = Guice.createInjector(new ApplicationModule());
 		final Application application = injector.getInstance(Application.class);
 		
@@ -1,6 +1,14 @@
 package nl.minicom.evenexus.core;
 
+import java.lang.management.ManagementFactory;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -35,6 +43,16 @@ public class Application {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(Application.class);
 	
+	/**
+	 * The number of progress steps shown while initializing.
+	 */
+	public static final int STAGES = 7;
+	
+	/**
+	 * The amount of minutes between two log dumps of the {@link Transactional} method metrics.
+	 */
+	private static final long METRICS_LOG_INTERVAL = 10;
+	
 	private final Database database;
 	private final SettingsManager settingsManager;
 	private final InventoryManager inventoryManager;
@@ -43,8 +61,9 @@ public class Application {
 	private final ProxyManager proxyManager;
 	private final ImportManager importManager;
 	private final Gui gui;
+	private final ExecutorService startupExecutor;
 	
-	private boolean initialized = false;
+	private volatile boolean initialized = false;
 	
 	/**
 	 * This constructs a new {@link Application} object.
@@ -86,10 +105,25 @@ public class Application {
 		this.proxyManager = proxyManager;
 		this.importManager = importManager;
 		this.gui = gui;
+		this.startupExecutor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+			
+			private final AtomicInteger counter = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Startup-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 	}
 	
 	/**
-	 * This method initializes the {@link Application} object.
+	 * This method initializes the {@link Application} object. Stages which do not depend on the database 
+	 * (program settings, proxy settings and translations) are run concurrently with the database upgrade. 
+	 * This method returns as soon as the database structure and content are up to date, so that the GUI
+	 * can be shown. Inventory matching and the scheduling of importers are deferred until 
+	 * {@link #initializeGui()} has shown the GUI.
 	 * 
 	 * @param progressManager
 	 * 		A {@link ProgressManager} to keep track of the progress while initializing.
@@ -102,57 +136,99 @@ public class Application {
 	 */
 	public void initialize(final ProgressManager progressManager, String[] args) throws Exception {
 		Preconditions.checkArgument(!initialized, "This class has already been initialized!");
+		long start = System.currentTimeMillis();
 		
-		// 0. Initialize program settings.
-		LOG.info("Reading program settings...");
-		progressManager.update(9, 1, "Reading program settings...");
-		settingsManager.initialize();
+		// 0. Initialize program and proxy settings, and translations in the background.
+		progressManager.update(STAGES, 1, "Reading program settings...");
+		Future<?> settings = startupExecutor.submit(new Stage("Reading program settings") {
+			@Override
+			protected void execute() throws Exception {
+				settingsManager.initialize();
+				proxyManager.initialize();
+			}
+		});
+		Future<?> translations = startupExecutor.submit(new Stage("Initializing ResourceBundles") {
+			@Override
+			protected void execute() {
+				translator.initialize(Locale.ENGLISH);
+			}
+		});
 		
 		// 1. Establishing database connection
-		LOG.info("Establishing database connection...");
-		progressManager.update(9, 2, "Establishing database connection...");
-		database.getCurrentSession();
-		
-		// 2. Preparing proxy settings.
-		LOG.info("Initializing proxy settings...");
-		progressManager.update(9, 3, "Initializing proxy settings...");
-		proxyManager.initialize();
-		
-		// 3. Check database structure & upgrade.
-		LOG.info("Checking database structure consistency...");
-		progressManager.update(9, 4, "Checking database structure consistency");
-		revisionExecutor.execute(new StructureUpgrader());
-		revisionExecutor.execute(new ContentUpgrader());
-		
-		progressManager.update(9, 4, "Initializing ResourceBundles");
-		translator.initialize(Locale.ENGLISH);
-		
-		// 4. Create inventory manager.
-		LOG.info("Initializing inventory manager...");
-		progressManager.update(9, 5, "Initializing inventory manager...");
-		inventoryManager.requestTransactionProcessing();
-		
-		// 5. Initializing importers.
-		LOG.info("Initializing API importers...");
-		progressManager.update(9, 6, "Initializing API importers...");
-		importManager.initialize();
-		
-		// 6. Preparing program shutdown hook.
-		LOG.info("Preparing program shutdown hook...");
-		progressManager.update(9, 7, "Preparing program shutdown hook...");
-		Runtime.getRuntime().addShutdownHook(new ShutdownThread(settingsManager));
-		
-		// 7. Completing initialization.
-		LOG.info("Completing initialization...");
-		progressManager.update(9, 8, "Completing initialization...");
+		progressManager.update(STAGES, 2, "Establishing database connection...");
+		new Stage("Establishing database connection") {
+			@Override
+			protected void execute() {
+				database.getCurrentSession();
+				database.getTransactionMetrics().publish(ManagementFactory.getPlatformMBeanServer(), 
+						METRICS_LOG_INTERVAL, TimeUnit.MINUTES);
+			}
+		}.run();
+		
+		// 2. Check database structure & upgrade.
+		progressManager.update(STAGES, 3, "Checking database structure consistency...");
+		new Stage("Checking database structure consistency") {
+			@Override
+			protected void execute() throws Exception {
+				revisionExecutor.execute(new StructureUpgrader());
+				revisionExecutor.execute(new ContentUpgrader());
+			}
+		}.run();
+		
+		// 3. Waiting for the background stages.
+		progressManager.update(STAGES, 4, "Initializing ResourceBundles...");
+		await(settings);
+		await(translations);
+		
+		// 4. Preparing program shutdown hook.
+		progressManager.update(STAGES, 5, "Preparing program shutdown hook...");
+		Runtime.getRuntime().addShutdownHook(new ShutdownThread(settingsManager, database, importManager));
+		
+		// 5. Completing initialization.
+		progressManager.update(STAGES, 6, "Completing initialization...");
 		initialized = true;
+		LOG.info("Initialized application in " + (System.currentTimeMillis() - start) + " ms");
 	}
 
 	/**
-	 * This method initializes the GUI.
+	 * This method initializes the GUI. Once the GUI is shown, the inventory manager starts matching
+	 * unprocessed transactions, and the API importers are scheduled.
 	 */
 	public void initializeGui() {
-		gui.initialize();
+		Preconditions.checkArgument(initialized, "This class has not yet been initialized!");
+		
+		new Stage("Initializing GUI") {
+			@Override
+			protected void execute() {
+				gui.initialize();
+			}
+		}.run();
+		
+		startupExecutor.execute(new Stage("Initializing inventory manager") {
+			@Override
+			protected void execute() {
+				inventoryManager.requestTransactionProcessing();
+			}
+		});
+		startupExecutor.execute(new Stage("Initializing API importers") {
+			@Override
+			protected void execute() {
+				importManager.initialize();
+			}
+		});
+		startupExecutor.shutdown();
+	}
+	
+	private void await(Future<?> stage) throws Exception {
+		try {
+			stage.get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
 	}
 
 	/**
@@ -193,4 +269,37 @@ public class Application {
 		return "unknown";
 	}
 	
-}
\ No newline at end of file
+	/**
+	 * A {@link Stage} is a single step of the initialization of the {@link Application}, 
+	 * which logs how long it took to complete. Checked exceptions are rethrown as 
+	 * {@link IllegalStateException}s.
+	 */
+	private abstract static class Stage implements Runnable {
+		
+		private final String name;
+		
+		private Stage(String name) {
+			this.name = name;
+		}
+		
+		@Override
+		public void run() {
+			LOG.info(name + "...");
+			long start = System.currentTimeMillis();
+			try {
+				execute();
+			}
+			catch (RuntimeException e) {
+				throw e;
+			}
+			catch (Exception e) {
+				throw new IllegalStateException(name + " failed", e);
+			}
+			LOG.info(name + " completed in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		
+		protected abstract void execute() throws Exception;
+		
+	}
+	
+}
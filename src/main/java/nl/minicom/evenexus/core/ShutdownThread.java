@@ -1,6 +1,8 @@
 package nl.minicom.evenexus.core;
 
 
+import nl.minicom.evenexus.eveapi.importers.ImportManager;
+import nl.minicom.evenexus.persistence.Database;
 import nl.minicom.evenexus.utils.SettingsManager;
 
 import org.slf4j.Logger;
@@ -19,22 +21,48 @@ public class ShutdownThread extends Thread {
 	private static final Logger LOG = LoggerFactory.getLogger(ShutdownThread.class);
 	
 	private final SettingsManager settingsManager;
+	private final Database database;
+	private final ImportManager importManager;
 	
 	/**
 	 * This contructs a new {@link ShutdownThread} object.
 	 * 
 	 * @param settingsManager
 	 * 		The {@link SettingsManager}.
+	 * 
+	 * @param database
+	 * 		The {@link Database}.
+	 * 
+	 * @param importManager
+	 * 		The {@link ImportManager}.
 	 */
-	public ShutdownThread(SettingsManager settingsManager) {
+	public ShutdownThread(SettingsManager settingsManager, Database database, ImportManager importManager) {
 		this.settingsManager = settingsManager;
+		this.database = database;
+		this.importManager = importManager;
 	}
 
 	@Override
 	public void run() {
 		try {
 			//Save all gui related information.
-			settingsManager.save();
+			settingsManager.close();
+		}
+		catch (Exception e) {
+			LOG.error(e.getLocalizedMessage(), e);
+		}
+		
+		try {
+			database.logCacheStatistics();
+			database.logConnectionStatistics();
+			database.getTransactionMetrics().logStatistics();
+		}
+		catch (Exception e) {
+			LOG.error(e.getLocalizedMessage(), e);
+		}
+		
+		try {
+			importManager.logStatistics();
 		}
 		catch (Exception e) {
 			LOG.error(e.getLocalizedMessage(), e);
@@ -0,0 +1,224 @@
+package nl.minicom.evenexus.core.report.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.minicom.evenexus.core.report.definition.components.utils.Aggregate;
+
+/**
+ * The {@link ReportCube} class holds the grouped data of a report in memory. Every grouping is stored
+ * as a column of dictionary codes, and every report item as a column of primitive doubles. Drilling down
+ * into the report is answered by grouping these columns in memory, instead of querying the database again.
+ *
+ * Rows are expected to be added in order of their group values, so that the groups of every
+ * drill-down level are returned in that same order.
+ *
+ * <p>This class is not thread-safe!</p>
+ *
+ * @author Michael
+ */
+public class ReportCube {
+
+	public static final String TOTAL = "Total";
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	private final Aggregate[] aggregates;
+	private final List<Map<String, Integer>> codesByValue;
+	private final List<List<String>> valuesByCode;
+
+	private int[][] groupCodes;
+	private double[][] measures;
+	private int rows;
+
+	/**
+	 * This constructor creates a new empty {@link ReportCube} object.
+	 *
+	 * @param groups		The amount of groupings in the report.
+	 * @param aggregates	The {@link Aggregate} of every report item, in order of the report items.
+	 */
+	public ReportCube(int groups, Aggregate[] aggregates) {
+		this.aggregates = aggregates.clone();
+		this.codesByValue = new ArrayList<Map<String, Integer>>();
+		this.valuesByCode = new ArrayList<List<String>>();
+		for (int i = 0; i < groups; i++) {
+			codesByValue.add(new HashMap<String, Integer>());
+			valuesByCode.add(new ArrayList<String>());
+		}
+
+		this.groupCodes = new int[groups][INITIAL_CAPACITY];
+		this.measures = new double[aggregates.length][INITIAL_CAPACITY];
+		this.rows = 0;
+	}
+
+	/**
+	 * @return	The amount of rows in this {@link ReportCube}.
+	 */
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * This method adds a row to the {@link ReportCube}.
+	 *
+	 * @param groupValues	The value of every grouping.
+	 * @param values		The value of every report item, or {@link Double#NaN} if there is no value.
+	 */
+	public void addRow(String[] groupValues, double[] values) {
+		if (groupValues.length != groupCodes.length || values.length != measures.length) {
+			throw new IllegalArgumentException("Row does not match the layout of the cube.");
+		}
+
+		ensureCapacity(rows + 1);
+		for (int i = 0; i < groupValues.length; i++) {
+			groupCodes[i][rows] = encode(i, groupValues[i]);
+		}
+		for (int i = 0; i < values.length; i++) {
+			measures[i][rows] = values[i];
+		}
+		rows++;
+	}
+
+	/**
+	 * This method returns a {@link Dataset} for one drill-down level of the report. When there are
+	 * groupings left below the specified group values, the {@link Dataset} contains one key for every
+	 * value of the next grouping. Otherwise it contains the single key {@link #TOTAL}. The dataset
+	 * index of every value is the index of the report item.
+	 *
+	 * @param groupValues	The values of the groupings which have already been drilled into.
+	 * @return				The aggregated {@link Dataset}.
+	 */
+	public Dataset createDataSet(String[] groupValues) {
+		Dataset dataset = new Dataset();
+		if (groupValues.length > groupCodes.length) {
+			throw new IllegalArgumentException("Cannot drill down deeper than the amount of groupings.");
+		}
+
+		int[] filter = new int[groupValues.length];
+		for (int i = 0; i < groupValues.length; i++) {
+			Integer code = codesByValue.get(i).get(groupValues[i]);
+			if (code == null) {
+				return dataset;
+			}
+			filter[i] = code;
+		}
+
+		int level = groupValues.length;
+		int buckets = 1;
+		if (level < groupCodes.length) {
+			buckets = valuesByCode.get(level).size();
+		}
+
+		double[][] results = new double[measures.length][buckets];
+		int[][] counts = new int[measures.length][buckets];
+		int[] order = new int[buckets];
+		int groups = 0;
+		boolean[] seen = new boolean[buckets];
+
+		for (int row = 0; row < rows; row++) {
+			if (!matches(row, filter)) {
+				continue;
+			}
+
+			int bucket = 0;
+			if (level < groupCodes.length) {
+				bucket = groupCodes[level][row];
+			}
+			if (!seen[bucket]) {
+				seen[bucket] = true;
+				order[groups++] = bucket;
+			}
+
+			for (int i = 0; i < measures.length; i++) {
+				double value = measures[i][row];
+				if (!Double.isNaN(value)) {
+					results[i][bucket] = accumulate(aggregates[i], results[i][bucket], value, counts[i][bucket]);
+					counts[i][bucket]++;
+				}
+			}
+		}
+
+		for (int i = 0; i < groups; i++) {
+			int bucket = order[i];
+			String key = TOTAL;
+			if (level < groupCodes.length) {
+				key = valuesByCode.get(level).get(bucket);
+			}
+
+			for (int j = 0; j < measures.length; j++) {
+				if (counts[j][bucket] > 0 || aggregates[j] == Aggregate.COUNT) {
+					dataset.setValue(key, j, finish(aggregates[j], results[j][bucket], counts[j][bucket]));
+				}
+			}
+		}
+
+		return dataset;
+	}
+
+	private boolean matches(int row, int[] filter) {
+		for (int i = 0; i < filter.length; i++) {
+			if (groupCodes[i][row] != filter[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private double accumulate(Aggregate aggregate, double current, double value, int count) {
+		if (count == 0) {
+			return aggregate == Aggregate.COUNT ? 1 : value;
+		}
+
+		switch (aggregate) {
+			case SUM:
+			case AVG:
+				return current + value;
+			case MIN:
+				return Math.min(current, value);
+			case MAX:
+				return Math.max(current, value);
+			case COUNT:
+				return current + 1;
+			default:
+				return value;
+		}
+	}
+
+	private double finish(Aggregate aggregate, double result, int count) {
+		if (aggregate == Aggregate.AVG && count > 0) {
+			return result / count;
+		}
+		return result;
+	}
+
+	private int encode(int group, String value) {
+		Map<String, Integer> codes = codesByValue.get(group);
+		Integer code = codes.get(value);
+		if (code == null) {
+			List<String> values = valuesByCode.get(group);
+			code = values.size();
+			values.add(value);
+			codes.put(value, code);
+		}
+		return code;
+	}
+
+	private void ensureCapacity(int capacity) {
+		int current = measures.length > 0 ? measures[0].length : groupCodes.length > 0 ? groupCodes[0].length : 0;
+		if (capacity <= current) {
+			return;
+		}
+
+		int newCapacity = Math.max(capacity, current * 2);
+		for (int i = 0; i < groupCodes.length; i++) {
+			groupCodes[i] = Arrays.copyOf(groupCodes[i], newCapacity);
+		}
+		for (int i = 0; i < measures.length; i++) {
+			measures[i] = Arrays.copyOf(measures[i], newCapacity);
+		}
+	}
+
+}
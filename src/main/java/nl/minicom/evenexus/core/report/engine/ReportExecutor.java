@@ -5,17 +5,16 @@ import java.util.List;
 
 import nl.minicom.evenexus.core.report.definition.components.ReportGroup;
 import nl.minicom.evenexus.core.report.definition.components.ReportItem;
+import nl.minicom.evenexus.core.report.definition.components.utils.Aggregate;
 import nl.minicom.evenexus.core.report.persistence.QueryBuilder;
 import nl.minicom.evenexus.core.report.persistence.Select;
-import nl.minicom.evenexus.core.report.persistence.expressions.And;
 import nl.minicom.evenexus.core.report.persistence.expressions.Column;
-import nl.minicom.evenexus.core.report.persistence.expressions.Equals;
 import nl.minicom.evenexus.core.report.persistence.expressions.Expression;
 import nl.minicom.evenexus.core.report.persistence.expressions.Table;
 import nl.minicom.evenexus.core.report.persistence.expressions.Value;
 
 import org.hibernate.HibernateException;
-import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 
@@ -28,7 +27,7 @@ public class ReportExecutor {
 	
 	private final ReportModel model;
 	private final Session session;
-	private Table table;
+	private ReportCube cube;
 
 	/**
 	 * This constructor creates a new {@link ReportExecutor} based on a 
@@ -40,7 +39,7 @@ public class ReportExecutor {
 	public ReportExecutor(Session session, ReportModel model) {
 		this.model = model;
 		this.session = session;
-		this.table = null;
+		this.cube = null;
 	}
 
 	/**
@@ -51,91 +50,74 @@ public class ReportExecutor {
 	}
 	
 	/**
-	 * This method returns a {@link Dataset} object containing the queried
-	 * result for an array of specified ReportGroup object values.
+	 * This method returns a {@link Dataset} object containing the aggregated
+	 * result for an array of specified ReportGroup object values. The report data
+	 * is queried only once, after which every drill-down level is answered from 
+	 * an in-memory {@link ReportCube}.
 	 * 
 	 * @param groupValues			The specified values to which the data must hold.
 	 * @return						The {@link Dataset} containing data from the query.
 	 * @throws HibernateException	Will be thrown if the query is invalid.
 	 */
-	public Dataset createDataSet(Expression[] groupValues) throws HibernateException {
-		ensureReportTableExists();
-		
-		Select select = new Select(table);
+	public Dataset createDataSet(String[] groupValues) throws HibernateException {
+		ensureReportCubeExists();
+		return cube.createDataSet(groupValues);
+	}
 		
-		// Add field for grouping		
-		if (groupValues.length < model.getReportGroups().size()) {
-			ReportGroup group = model.getReportGroups().get(groupValues.length);
-			select.addExpression(new Column(group.getKey()), group.getKey());
-			select.addGroup(new Column(group.getKey()));
-			select.addOrder(new Column(group.getKey()));
-		}
-
-		// Filter on selected groupings
-		Expression condition = null;
-		for (int i = 0; i < groupValues.length; i++) {
-			ReportGroup group = model.getReportGroups().get(i);
-			Expression groupCondition = new Equals(new Column(group.getKey()), groupValues[i]);
-			
-			if (condition == null) {
-				condition = groupCondition;
-			}
-			else {
-				condition = new And(condition, groupCondition);
-			}
+	private void ensureReportCubeExists() throws HibernateException {
+		if (cube != null) {
+			return;
 		}
-		select.setCondition(condition);
 		
-		// Add report item aliasses
-		for (ReportItem item : model.getReportItems()) {
-			select.addExpression(item.getAggregate().createExpression(new Column(item.getKey())), item.getKey());
+		List<ReportGroup> groups = getReportGroups();
+		List<ReportItem> items = new ArrayList<ReportItem>(model.getReportItems());
+		
+		Aggregate[] aggregates = new Aggregate[items.size()];
+		for (int i = 0; i < items.size(); i++) {
+			aggregates[i] = items.get(i).getAggregate();
 		}
 		
 		QueryBuilder builder = new QueryBuilder();
-		select.writeTranslation(builder);
-		
-		Dataset dataset = new Dataset();
-		SQLQuery statement = builder.createStatement(session);
+		createDataSelect().writeTranslation(builder);
 		
-		ScrollableResults results = null;
+		ReportCube reportCube = new ReportCube(groups.size(), aggregates);
+		ScrollableResults results = builder.createStatement(session).scroll(ScrollMode.FORWARD_ONLY);
 		try {
-			results = statement.scroll();
-			String[] aliases = statement.getReturnAliases();
-			
-			if (results.first()) {
-				do {
-					String key = results.getString(1);
-					for (int i = 0; i <= aliases.length; i++) {
-						dataset.setValue(key, i, results.getDouble(i));
-					}
+			String[] groupValues = new String[groups.size()];
+			double[] values = new double[items.size()];
+			while (results.next()) {
+				Object[] row = results.get();
+				for (int i = 0; i < groupValues.length; i++) {
+					groupValues[i] = row[i] == null ? "" : row[i].toString();
 				}
-				while (results.next());
+				for (int i = 0; i < values.length; i++) {
+					Number value = (Number) row[groupValues.length + i];
+					values[i] = value == null ? Double.NaN : value.doubleValue();
+				}
+				reportCube.addRow(groupValues, values);
 			}
 		}
-		catch (HibernateException e) {
-			throw e;
-		}
 		finally {
 			results.close();
 		}
 		
-		return dataset;
+		cube = reportCube;
 	}
-		
-	private void ensureReportTableExists() throws HibernateException {
-		if (table == null) {
-			table = new Table("report_" + System.currentTimeMillis());
-			
-			QueryBuilder builder = new QueryBuilder();
-			builder.append("CREATE TABLE " + table.getTableName() + " AS (");
-			createDataSelect().writeTranslation(builder);
-			builder.append(")");
-			
-			builder.createStatement(session).executeUpdate();
+	
+	/**
+	 * @return	The {@link ReportGroup}s of the {@link ReportModel} which have been set, in order.
+	 */
+	private List<ReportGroup> getReportGroups() {
+		List<ReportGroup> groups = new ArrayList<ReportGroup>();
+		for (ReportGroup group : model.getReportGroups()) {
+			if (group != null) {
+				groups.add(group);
+			}
 		}
+		return groups;
 	}
 	
-	private Select createDataSelect() {
+	Select createDataSelect() {
 		if (model.getReportItems().isEmpty()) {
 			throw new IllegalArgumentException("Cannot create a report with 0 report items.");
 		}
@@ -154,9 +136,10 @@ public class ReportExecutor {
 		
 		// Create group query.
 		Select rootQuery = new Select(parentSubQuery, "report_data");
-		for (ReportGroup group : model.getReportGroups()) {
+		for (ReportGroup group : getReportGroups()) {
 			rootQuery.addExpression(new Column(group.getKey()), group.getKey());
 			rootQuery.addGroup(new Column(group.getKey()));
+			rootQuery.addOrder(new Column(group.getKey()));
 		}
 		for (ReportItem item : model.getReportItems()) {
 			Expression expression = item.getAggregate().createExpression(new Column(item.getKey()));
@@ -171,7 +154,7 @@ public class ReportExecutor {
 		Select subSelect = new Select(tableToReportOn);
 		
 		// Add fields for groupings
-		for (ReportGroup group : model.getReportGroups()) {
+		for (ReportGroup group : getReportGroups()) {
 			subSelect.addExpression(group.getExpression(tableToReportOn), group.getKey());
 		}
 		
@@ -0,0 +1,336 @@
+package nl.minicom.evenexus.eveapi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ApiClient} requests documents from the API server, and keeps a cache of the responses on disk.
+ * Responses are requested with gzip compression, and connections are kept alive between requests by fully
+ * reading every response.
+ *
+ * A response is only cached when its document has been parsed and {@link #cache(InputStream, long)} is called
+ * with the time the API server has declared it to be valid. Cached responses are keyed by their URL, without
+ * the verification code. The expiry time of a cached response is stored as the last modified time of its file.
+ * Expired responses are deleted when they are requested again, and the whole cache is pruned of expired
+ * responses and abandoned temporary files at most once every {@link #PRUNE_INTERVAL} milliseconds.
+ *
+ * <p>This class is thread-safe!</p>
+ *
+ * @author michael
+ */
+@Singleton
+public class ApiClient {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ApiClient.class);
+
+	private static final String CACHE_FOLDER = "cache";
+	private static final int TIMEOUT = 60000;
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The minimum time (in milliseconds) between two prunes of the cache folder.
+	 */
+	static final long PRUNE_INTERVAL = 3600000;
+
+	/**
+	 * The minimum age (in milliseconds) of a temporary file, before it is considered to be abandoned.
+	 */
+	private static final long TEMPORARY_FILE_AGE = 3600000;
+
+	private final File folder;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private final AtomicLong nextPrune;
+
+	/**
+	 * This constructs a new {@link ApiClient} object, which caches responses in the default folder.
+	 */
+	@Inject
+	public ApiClient() {
+		this(new File(CACHE_FOLDER));
+	}
+
+	/**
+	 * This constructs a new {@link ApiClient} object.
+	 *
+	 * @param folder
+	 * 		The folder to cache responses in.
+	 */
+	public ApiClient(File folder) {
+		this.folder = folder;
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+		this.nextPrune = new AtomicLong();
+	}
+
+	/**
+	 * This method opens the document at the specified URL. If a valid cached response exists, that
+	 * response is returned instead of requesting the document from the API server.
+	 *
+	 * @param url
+	 * 		The URL of the document.
+	 *
+	 * @return
+	 * 		An {@link InputStream} of the (decompressed) document, which must be closed by the caller.
+	 *
+	 * @throws IOException
+	 * 		If the document could not be requested.
+	 */
+	public InputStream open(String url) throws IOException {
+		long now = System.currentTimeMillis();
+		long prune = nextPrune.get();
+		if (now >= prune && nextPrune.compareAndSet(prune, now + PRUNE_INTERVAL)) {
+			prune();
+		}
+
+		File file = getCacheFile(url);
+		long expires = file.lastModified();
+		if (expires > now) {
+			try {
+				InputStream input = new FileInputStream(file);
+				hits.incrementAndGet();
+				LOG.debug("Using cached response for: " + removeVerificationCode(url));
+				return input;
+			}
+			catch (IOException e) {
+				LOG.warn(e.getLocalizedMessage(), e);
+			}
+		}
+		else if (expires > 0 && !file.delete()) {
+			LOG.warn("Could not delete expired response: " + file.getAbsolutePath());
+		}
+
+		misses.incrementAndGet();
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setRequestProperty("Accept-Encoding", "gzip");
+		connection.setConnectTimeout(TIMEOUT);
+		connection.setReadTimeout(TIMEOUT);
+
+		InputStream input = connection.getInputStream();
+		if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+			input = new GZIPInputStream(input);
+		}
+
+		if (!folder.exists() && !folder.mkdirs()) {
+			LOG.warn("Could not create cache folder: " + folder.getAbsolutePath());
+			return input;
+		}
+		return new CachingInputStream(input, file);
+	}
+
+	/**
+	 * This method caches a response which was opened using {@link #open(String)}, after it has been parsed.
+	 * Responses which were read from the cache are not cached again.
+	 *
+	 * @param input
+	 * 		The {@link InputStream} returned by {@link #open(String)}.
+	 *
+	 * @param validFor
+	 * 		The time (in milliseconds) the response remains valid.
+	 */
+	public void cache(InputStream input, long validFor) {
+		if (input instanceof CachingInputStream && validFor > 0) {
+			try {
+				((CachingInputStream) input).commit(System.currentTimeMillis() + validFor);
+			}
+			catch (IOException e) {
+				LOG.warn(e.getLocalizedMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * This method deletes all expired responses, and temporary files of responses which were
+	 * never committed, from the cache folder.
+	 *
+	 * @return
+	 * 		The number of deleted files.
+	 */
+	public int prune() {
+		File[] files = folder.listFiles();
+		if (files == null) {
+			return 0;
+		}
+
+		int deleted = 0;
+		long now = System.currentTimeMillis();
+		for (File file : files) {
+			String name = file.getName();
+			boolean expired = name.endsWith(".xml") && file.lastModified() <= now;
+			boolean abandoned = name.endsWith(".tmp") && file.lastModified() <= now - TEMPORARY_FILE_AGE;
+			if (expired || abandoned) {
+				if (file.delete()) {
+					deleted++;
+				}
+				else {
+					LOG.warn("Could not delete: " + file.getAbsolutePath());
+				}
+			}
+		}
+
+		if (deleted > 0) {
+			LOG.info("Pruned " + deleted + " files from the response cache.");
+		}
+		return deleted;
+	}
+
+	/**
+	 * @return
+	 * 		The number of documents which were read from the cache.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return
+	 * 		The number of documents which were requested from the API server.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private File getCacheFile(String url) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] hash = digest.digest(removeVerificationCode(url).getBytes("UTF-8"));
+
+			StringBuilder name = new StringBuilder();
+			for (byte b : hash) {
+				name.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+			}
+			return new File(folder, name.append(".xml").toString());
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String removeVerificationCode(String url) {
+		return url.replaceAll("([?&])vCode=[^&]*&?", "$1").replaceAll("[?&]$", "");
+	}
+
+	/**
+	 * The {@link CachingInputStream} copies everything which is read from the API server to a temporary file.
+	 * When the response is committed, the temporary file replaces the cached response.
+	 */
+	private static class CachingInputStream extends FilterInputStream {
+
+		private final File file;
+		private final File temporaryFile;
+		private final OutputStream output;
+		private boolean closed = false;
+
+		private CachingInputStream(InputStream input, File file) throws IOException {
+			super(input);
+			this.file = file;
+			this.temporaryFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			this.output = new FileOutputStream(temporaryFile);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int value = super.read();
+			if (value >= 0) {
+				output.write(value);
+			}
+			return value;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				output.write(buffer, offset, read);
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long length) throws IOException {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long skipped = 0;
+			while (skipped < length) {
+				int read = read(buffer, 0, (int) Math.min(buffer.length, length - skipped));
+				if (read < 0) {
+					break;
+				}
+				skipped += read;
+			}
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		private void commit(long expires) throws IOException {
+			synchronized (this) {
+				drain();
+				output.close();
+				if (file.exists() && !file.delete()) {
+					throw new IOException("Could not replace cached response: " + file.getAbsolutePath());
+				}
+				if (!temporaryFile.renameTo(file) || !file.setLastModified(expires)) {
+					throw new IOException("Could not cache response: " + file.getAbsolutePath());
+				}
+			}
+		}
+
+		/**
+		 * Reads the remainder of the response, so that the connection can be reused.
+		 */
+		private void drain() throws IOException {
+			if (!closed) {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				while (read(buffer, 0, buffer.length) >= 0) {
+					continue;
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			synchronized (this) {
+				if (closed) {
+					return;
+				}
+				try {
+					drain();
+				}
+				finally {
+					closed = true;
+					output.close();
+					super.close();
+					if (temporaryFile.exists() && !temporaryFile.delete()) {
+						LOG.warn("Could not delete: " + temporaryFile.getAbsolutePath());
+					}
+				}
+			}
+		}
+
+	}
+
+}
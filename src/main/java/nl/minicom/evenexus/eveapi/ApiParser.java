@@ -1,19 +1,16 @@
 package nl.minicom.evenexus.eveapi;
 
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.InputStream;
 import java.sql.Timestamp;
+import java.text.ParseException;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 
 import javax.inject.Inject;
+import javax.xml.stream.XMLStreamException;
 
 import nl.minicom.evenexus.eveapi.exceptions.ApiFailureException;
 import nl.minicom.evenexus.eveapi.exceptions.JournalsExhaustedException;
@@ -51,38 +48,49 @@ public class ApiParser {
 		}
 		if (hasErrors) {
 			int errorCode = Integer.parseInt(errorNode.getAttribute("code"));
-			switch (errorCode) {
-				case 101: 	throw new TransactionsExhaustedException();
-				case 103: 	throw new JournalsExhaustedException();
-				case 117: 	throw new MarketOrdersExhaustedException();
-				case 200: 	throw new SecurityNotHighEnoughException();
-				default:	throw new ApiFailureException((String) node.get("error").get(0));
-			}			
+			throwApiError(errorCode, (String) node.get("error").get(0));
 		}
 		return hasRoot && !hasErrors;
 	}
+	
+	static void throwApiError(int errorCode, String message) throws Exception {
+		switch (errorCode) {
+			case 101: 	throw new TransactionsExhaustedException();
+			case 103: 	throw new JournalsExhaustedException();
+			case 117: 	throw new MarketOrdersExhaustedException();
+			case 200: 	throw new SecurityNotHighEnoughException();
+			default:	throw new ApiFailureException(message);
+		}
+	}
 
 	/**
 	 * An enumeration of queryable API services. A service consists of an URL
 	 * (where to send the request to) and a cooldownMinutes (how many minutes
-	 * have to be between requests)
+	 * have to be between requests). When several imports are waiting to be run,
+	 * the ones with the lowest priority value are run first.
 	 */
 	
 	public enum Api {
-		CHAR_LIST(1),
-		CHAR_BALANCE(2),
-		CHAR_SKILLS(3),
-		CHAR_STANDINGS(4),
-		CHAR_WALLET_TRANSACTIONS(5),
-		CHAR_WALLET_JOURNAL(6),
-		CHAR_MARKET_ORDERS(7), 
-		EVE_REF_TYPE(8),
-		KEY_INFO(9);
+		CHAR_LIST(1, 4),
+		CHAR_BALANCE(2, 3),
+		CHAR_SKILLS(3, 3),
+		CHAR_STANDINGS(4, 3),
+		CHAR_WALLET_TRANSACTIONS(5, 0),
+		CHAR_WALLET_JOURNAL(6, 1),
+		CHAR_MARKET_ORDERS(7, 2), 
+		EVE_REF_TYPE(8, 4),
+		KEY_INFO(9, 4);
 		
 		private long importerID;
+		private int priority;
 		
-		private Api(long importerID) {
+		private Api(long importerID, int priority) {
 			this.importerID = importerID;
+			this.priority = priority;
+		}
+		
+		public int getPriority() {
+			return priority;
 		}
 		
 		public long getImporterId() {
@@ -92,12 +100,16 @@ public class ApiParser {
 
 	private final BugReportDialog dialog;
 	private final ApiServerManager apiServerManager;
+	private final ApiClient apiClient;
 	private final Database database;
 	
 	@Inject
-	public ApiParser(ApiServerManager apiServerManager, Database database, BugReportDialog dialog) {
+	public ApiParser(ApiServerManager apiServerManager, ApiClient apiClient, Database database, 
+			BugReportDialog dialog) {
+		
 		this.dialog = dialog;
 		this.apiServerManager = apiServerManager;
+		this.apiClient = apiClient;
 		this.database = database;
 	}
 	
@@ -106,6 +118,99 @@ public class ApiParser {
 	}
 	
 	public Node parseApi(Api api, ApiKey apiKey, Map<String, String> additionalArguments, boolean ignoreCooldown) {
+		final Importer importer = getImporter(api.getImporterId());
+		String url = createRequestURL(importer, apiKey, additionalArguments, ignoreCooldown);
+		if (url != null) {
+			return parseAPI(url, importer.getPath(), api.getImporterId());
+		}
+		return null;
+	}
+	
+	/**
+	 * This method requests the specified API, and streams every row of the response to the 
+	 * {@link ApiRowHandler} while it is being downloaded.
+	 * 
+	 * @param api
+	 * 		The {@link Api} to request.
+	 * 
+	 * @param apiKey
+	 * 		The {@link ApiKey} to use, or null if the API does not require one.
+	 * 
+	 * @param handler
+	 * 		The {@link ApiRowHandler} which receives the rows.
+	 * 
+	 * @return
+	 * 		True if the API was requested and parsed, or false if it was still on cooldown or could not be read.
+	 * 
+	 * @throws Exception
+	 * 		If the API reported an error, or the {@link ApiRowHandler} failed to process a row.
+	 */
+	public boolean parseApi(Api api, ApiKey apiKey, ApiRowHandler handler) throws Exception {
+		return parseApi(api, apiKey, null, false, handler);
+	}
+	
+	/**
+	 * This method requests the specified API, and streams every row of the response to the 
+	 * {@link ApiRowHandler} while it is being downloaded.
+	 * 
+	 * @param api
+	 * 		The {@link Api} to request.
+	 * 
+	 * @param apiKey
+	 * 		The {@link ApiKey} to use, or null if the API does not require one.
+	 * 
+	 * @param additionalArguments
+	 * 		Additional request arguments, or null if there are none.
+	 * 
+	 * @param ignoreCooldown
+	 * 		True if the API should be requested even if it is still on cooldown.
+	 * 
+	 * @param handler
+	 * 		The {@link ApiRowHandler} which receives the rows.
+	 * 
+	 * @return
+	 * 		True if the API was requested and parsed, or false if it was still on cooldown or could not be read.
+	 * 
+	 * @throws Exception
+	 * 		If the API reported an error, or the {@link ApiRowHandler} failed to process a row.
+	 */
+	public boolean parseApi(Api api, ApiKey apiKey, Map<String, String> additionalArguments, 
+			boolean ignoreCooldown, ApiRowHandler handler) throws Exception {
+		
+		final Importer importer = getImporter(api.getImporterId());
+		String url = createRequestURL(importer, apiKey, additionalArguments, ignoreCooldown);
+		if (url == null) {
+			return false;
+		}
+		
+		ApiStreamParser parser = new ApiStreamParser(handler);
+		try {
+			LOG.debug("Streaming: " + apiServerManager.getApiServer() + importer.getPath());
+			InputStream input = apiClient.open(url);
+			try {
+				parser.parse(input);
+				apiClient.cache(input, getValidity(parser.getCurrentTime(), parser.getCachedUntil()));
+			}
+			finally {
+				input.close();
+			}
+		}
+		catch (IOException e) {
+			LOG.warn(e.getLocalizedMessage(), e);
+			return false;
+		}
+		catch (XMLStreamException e) {
+			LOG.warn(e.getLocalizedMessage(), e);
+			return false;
+		}
+		
+		updateCooldown(parser.getCurrentTime(), parser.getCachedUntil(), api.getImporterId());
+		return true;
+	}
+	
+	private String createRequestURL(Importer importer, ApiKey apiKey, 
+			Map<String, String> additionalArguments, boolean ignoreCooldown) {
+		
 		Map<String, String> arguments = new TreeMap<String, String>();
 		if (apiKey != null) {
 			arguments.put("keyID", Long.toString(apiKey.getKeyId()));
@@ -118,17 +223,15 @@ public class ApiParser {
 			allArguments.putAll(additionalArguments);
 		}
 		
-		final Importer importer = getImporter(api.getImporterId());
-		
 		String urlWithAdditionalArguments = createURL(allArguments, importer.getPath());
 		if (apiKey != null) {
 			if (checkIfWeNeedToImportAndIfSoUpdateCooldown(importer, apiKey.getCharacterId(), ignoreCooldown)) {
-				return parseAPI(urlWithAdditionalArguments, importer.getPath(), api.getImporterId());
+				return urlWithAdditionalArguments;
 			}
 		}
 		else {
 			if (checkIfWeNeedToImportAndIfSoUpdateCooldown(importer, 0, ignoreCooldown)) {
-				return parseAPI(urlWithAdditionalArguments, importer.getPath(), api.getImporterId());
+				return urlWithAdditionalArguments;
 			}
 		}
 		return null;
@@ -186,14 +289,20 @@ public class ApiParser {
 		
 		try {
 			LOG.debug("Requesting: " + hostURL + importerPath);
-			File xmlFile = downloadFile(url);
-			if (xmlFile == null) {
-				throw new IOException("Could not find: " + hostURL + importerPath);
+			InputStream input = apiClient.open(url);
+			try {
+				XmlParser parser = new XmlParser();
+				root = parser.parse(input);
+				boolean hasErrors = root.get("error") != null;
+				if (!hasErrors && root.get("currentTime") != null && root.get("cachedUntil") != null) {
+					String currentTime = root.get("currentTime").get(0).toString();
+					String cachedUntil = root.get("cachedUntil").get(0).toString();
+					apiClient.cache(input, getValidity(currentTime, cachedUntil));
+				}
+			}
+			finally {
+				input.close();
 			}
-			
-			XmlParser parser = new XmlParser();
-			root = parser.parse(xmlFile);
-			xmlFile.delete();
 			
 			updateCooldown(root, importerId);
 		}
@@ -208,19 +317,9 @@ public class ApiParser {
 	protected void updateCooldown(Node root, long importerId) {
 		try {
 			if (isAvailable(root)) {
-				try {
-					Session session = database.getCurrentSession();
-					Importer object = (Importer) session.get(Importer.class, importerId);
-					Timestamp current = TimeUtils.convertToTimestamp(root.get("currentTime").get(0).toString());
-					Timestamp until = TimeUtils.convertToTimestamp(root.get("cachedUntil").get(0).toString());
-					long diffMin = (until.getTime() - current.getTime()) + 3 * 60000;
-					object.setCooldown(diffMin);
-					session.saveOrUpdate(object);
-				}
-				catch (Throwable e) {
-					LOG.error(e.getLocalizedMessage(), e);
-					dialog.setVisible(true);
-				}
+				String currentTime = root.get("currentTime").get(0).toString();
+				String cachedUntil = root.get("cachedUntil").get(0).toString();
+				updateCooldown(currentTime, cachedUntil, importerId);
 			}
 		} 
 		catch (Exception e) {
@@ -229,30 +328,47 @@ public class ApiParser {
 		}
 	}
 
-	private File downloadFile(String urlString) throws IOException {
-		URL url = new URL(urlString);
-		URLConnection urlConn = url.openConnection();
-		InputStreamReader inStream = new InputStreamReader(urlConn.getInputStream());
-		BufferedReader buff = new BufferedReader(inStream);
-		
-		StringBuilder builder = new StringBuilder();
-		while (true) {
-			String nextLine = buff.readLine();
-			if (nextLine != null) {
-				builder.append(nextLine + "\n");
-			}
-			else {
-				break;
-			}
+	@Transactional
+	protected void updateCooldown(String currentTime, String cachedUntil, long importerId) {
+		try {
+			Session session = database.getCurrentSession();
+			Importer object = (Importer) session.get(Importer.class, importerId);
+			Timestamp current = TimeUtils.convertToTimestamp(currentTime);
+			Timestamp until = TimeUtils.convertToTimestamp(cachedUntil);
+			long diffMin = (until.getTime() - current.getTime()) + 3 * 60000;
+			object.setCooldown(diffMin);
+			session.saveOrUpdate(object);
+		}
+		catch (Throwable e) {
+			LOG.error(e.getLocalizedMessage(), e);
+			dialog.setVisible(true);
+		}
+	}
+
+	/**
+	 * @param currentTime
+	 * 		The current time, according to the API server.
+	 * 
+	 * @param cachedUntil
+	 * 		The time until which the API server caches the document.
+	 * 
+	 * @return
+	 * 		The time (in milliseconds) for which the document remains valid, or 0 if it is unknown.
+	 */
+	private long getValidity(String currentTime, String cachedUntil) {
+		if (currentTime == null || cachedUntil == null) {
+			return 0;
 		}
 		
-		File result = File.createTempFile("EveNexus", ".xml");
-		FileWriter out = new FileWriter(result, false);
-		out.write(builder.toString());
-		out.close();
-		inStream.close();
-		
-		return result;
+		try {
+			Timestamp current = TimeUtils.convertToTimestamp(currentTime);
+			Timestamp until = TimeUtils.convertToTimestamp(cachedUntil);
+			return until.getTime() - current.getTime();
+		}
+		catch (ParseException e) {
+			LOG.warn(e.getLocalizedMessage(), e);
+			return 0;
+		}
 	}
 
 }
@@ -0,0 +1,49 @@
+package nl.minicom.evenexus.eveapi;
+
+import java.util.Map;
+
+/**
+ * The {@link ApiRow} class represents a single row element of an API response, together with the 
+ * name of the rowset it was found in.
+ *
+ * @author michael
+ */
+public class ApiRow {
+
+	private final String rowset;
+	private final Map<String, String> attributes;
+
+	/**
+	 * This constructs a new {@link ApiRow} object.
+	 * 
+	 * @param rowset
+	 * 		The name of the rowset this row belongs to, or null if it has no name.
+	 * 
+	 * @param attributes
+	 * 		The attributes of this row.
+	 */
+	public ApiRow(String rowset, Map<String, String> attributes) {
+		this.rowset = rowset;
+		this.attributes = attributes;
+	}
+
+	/**
+	 * @return
+	 * 		The name of the rowset this row belongs to, or null if it has no name.
+	 */
+	public String getRowset() {
+		return rowset;
+	}
+
+	/**
+	 * @param name
+	 * 		The name of the attribute.
+	 * 
+	 * @return
+	 * 		The value of the attribute, or null if this row has no such attribute.
+	 */
+	public String getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+}
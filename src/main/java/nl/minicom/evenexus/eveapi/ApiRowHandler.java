@@ -0,0 +1,27 @@
+package nl.minicom.evenexus.eveapi;
+
+/**
+ * The {@link ApiRowHandler} receives the rows of an API response one at a time, while the response 
+ * is still being downloaded.
+ *
+ * @author michael
+ */
+public interface ApiRowHandler {
+
+	/**
+	 * This method is called for every row in the API response, in document order.
+	 * 
+	 * @param row
+	 * 		The {@link ApiRow}.
+	 * 
+	 * @throws Exception
+	 * 		If the row could not be processed. This aborts the parsing of the response.
+	 */
+	void onRow(ApiRow row) throws Exception;
+
+	/**
+	 * This method is called once all rows have been handled, or when parsing was aborted.
+	 */
+	void onFinished();
+
+}
@@ -0,0 +1,118 @@
+package nl.minicom.evenexus.eveapi;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The {@link ApiStreamParser} reads an API response straight from an {@link InputStream}, and hands 
+ * every row to an {@link ApiRowHandler} as soon as it has been read. Unlike the tree based parsing in 
+ * {@link ApiParser}, the response is never held in memory as a whole.
+ *
+ * @author michael
+ */
+final class ApiStreamParser {
+
+	private static final String ROWSET = "rowset";
+	private static final String ROW = "row";
+	private static final String ERROR = "error";
+	private static final String CURRENT_TIME = "currentTime";
+	private static final String CACHED_UNTIL = "cachedUntil";
+
+	private final XMLInputFactory factory;
+	private final ApiRowHandler handler;
+
+	private String currentTime;
+	private String cachedUntil;
+
+	/**
+	 * This constructs a new {@link ApiStreamParser} object.
+	 * 
+	 * @param handler
+	 * 		The {@link ApiRowHandler} which receives the rows.
+	 */
+	ApiStreamParser(ApiRowHandler handler) {
+		this.handler = handler;
+		this.factory = XMLInputFactory.newInstance();
+		this.factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		this.factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+	}
+
+	/**
+	 * This method parses the API response, and passes every row to the {@link ApiRowHandler}.
+	 * 
+	 * @param input
+	 * 		The {@link InputStream} containing the API response.
+	 * 
+	 * @throws XMLStreamException
+	 * 		If the response is not well-formed.
+	 * 
+	 * @throws Exception
+	 * 		If the API reported an error, or the {@link ApiRowHandler} failed to process a row.
+	 */
+	void parse(InputStream input) throws Exception {
+		LinkedList<String> rowsets = new LinkedList<String>();
+		XMLStreamReader reader = factory.createXMLStreamReader(input);
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String tag = reader.getLocalName();
+					if (ROW.equals(tag)) {
+						handler.onRow(new ApiRow(rowsets.peek(), readAttributes(reader)));
+					}
+					else if (ROWSET.equals(tag)) {
+						rowsets.push(reader.getAttributeValue(null, "name"));
+					}
+					else if (ERROR.equals(tag)) {
+						int errorCode = Integer.parseInt(reader.getAttributeValue(null, "code"));
+						ApiParser.throwApiError(errorCode, reader.getElementText());
+					}
+					else if (CURRENT_TIME.equals(tag)) {
+						currentTime = reader.getElementText();
+					}
+					else if (CACHED_UNTIL.equals(tag)) {
+						cachedUntil = reader.getElementText();
+					}
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT && ROWSET.equals(reader.getLocalName())) {
+					rowsets.pop();
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	private Map<String, String> readAttributes(XMLStreamReader reader) {
+		Map<String, String> attributes = new HashMap<String, String>();
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		}
+		return attributes;
+	}
+
+	/**
+	 * @return
+	 * 		The server time at which the response was created, or null if it was not in the response.
+	 */
+	String getCurrentTime() {
+		return currentTime;
+	}
+
+	/**
+	 * @return
+	 * 		The time until which the response is cached, or null if it was not in the response.
+	 */
+	String getCachedUntil() {
+		return cachedUntil;
+	}
+
+}
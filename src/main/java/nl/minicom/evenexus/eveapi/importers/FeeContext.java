@@ -0,0 +1,80 @@
+package nl.minicom.evenexus.eveapi.importers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link FeeContext} calculates the broker fees and sales tax of a single character. The standings 
+ * which determine the broker fee at a station are only looked up the first time that station is seen.
+ * {@link FeeContext}s are handed out by the {@link FeeContextFactory}.
+ *
+ * @author michael
+ */
+public class FeeContext {
+
+	private final FeeContextFactory factory;
+	private final long characterId;
+	private final int brokerRelation;
+	private final int accounting;
+	private final Map<Long, Double> brokerFees;
+
+	/**
+	 * This constructs a new {@link FeeContext} object.
+	 * 
+	 * @param factory
+	 * 		The {@link FeeContextFactory} which is used to look up standings.
+	 * 
+	 * @param characterId
+	 * 		The id of the character.
+	 * 
+	 * @param brokerRelation
+	 * 		The level of the broker relation skill.
+	 * 
+	 * @param accounting
+	 * 		The level of the accounting skill.
+	 */
+	FeeContext(FeeContextFactory factory, long characterId, int brokerRelation, int accounting) {
+		this.factory = factory;
+		this.characterId = characterId;
+		this.brokerRelation = brokerRelation;
+		this.accounting = accounting;
+		this.brokerFees = new ConcurrentHashMap<Long, Double>();
+	}
+
+	/**
+	 * @param stationId
+	 * 		The id of the station.
+	 * 
+	 * @return
+	 * 		The broker fee of this character at the specified station, as a fraction of the price.
+	 */
+	public double getBrokerFee(long stationId) {
+		Double brokerFee = brokerFees.get(stationId);
+		if (brokerFee == null) {
+			double corporationStanding = factory.getCorporationStanding(characterId, stationId);
+			double factionStanding = factory.getFactionStanding(characterId, stationId);
+			
+			brokerFee = 0.01 - 0.0005 * brokerRelation 
+					/ Math.pow(2.0, 0.14 * factionStanding + 0.06 * corporationStanding);
+			brokerFees.put(stationId, brokerFee);
+		}
+		return brokerFee;
+	}
+
+	/**
+	 * @return
+	 * 		The sales tax of this character, as a fraction of the price.
+	 */
+	public double getSalesTax() {
+		return 0.01 - 0.0005 * accounting;
+	}
+
+	/**
+	 * @return
+	 * 		The id of the character.
+	 */
+	public long getCharacterId() {
+		return characterId;
+	}
+
+}
@@ -0,0 +1,151 @@
+package nl.minicom.evenexus.eveapi.importers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.dao.MapRegion;
+import nl.minicom.evenexus.persistence.dao.Skill;
+import nl.minicom.evenexus.persistence.dao.SkillIdentifier;
+import nl.minicom.evenexus.persistence.dao.Standing;
+import nl.minicom.evenexus.persistence.dao.StandingIdentifier;
+import nl.minicom.evenexus.persistence.dao.Station;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
+
+import org.hibernate.Session;
+
+/**
+ * The {@link FeeContextFactory} hands out a {@link FeeContext} per character, and keeps it around 
+ * between imports. The {@link FeeContext} of a character has to be invalidated whenever the skills 
+ * or standings of that character have been imported.
+ *
+ * @author michael
+ */
+@Singleton
+public class FeeContextFactory {
+	
+	private static final long BROKER_RELATIONS = 3446;
+	private static final long ACCOUNTING = 16622;
+
+	private final Database database;
+	private final Map<Long, FeeContext> contexts;
+	
+	/**
+	 * This constructs a new {@link FeeContextFactory} object.
+	 * 
+	 * @param database
+	 * 		The {@link Database}.
+	 */
+	@Inject
+	public FeeContextFactory(Database database) {
+		this.database = database;
+		this.contexts = new ConcurrentHashMap<Long, FeeContext>();
+	}
+	
+	/**
+	 * @param characterId
+	 * 		The id of the character.
+	 * 
+	 * @return
+	 * 		The {@link FeeContext} of the specified character.
+	 */
+	public FeeContext getFeeContext(long characterId) {
+		FeeContext context = contexts.get(characterId);
+		if (context == null) {
+			int brokerRelation = getSkillLevel(characterId, BROKER_RELATIONS);
+			int accounting = getSkillLevel(characterId, ACCOUNTING);
+			context = new FeeContext(this, characterId, brokerRelation, accounting);
+			contexts.put(characterId, context);
+		}
+		return context;
+	}
+	
+	/**
+	 * This method discards the {@link FeeContext} of a character, so that its skills and 
+	 * standings will be looked up again.
+	 * 
+	 * @param characterId
+	 * 		The id of the character.
+	 */
+	public void invalidate(long characterId) {
+		contexts.remove(characterId);
+	}
+	
+	/**
+	 * This method returns the level of the specified skill.
+	 * 
+	 * @param characterId
+	 * 		The id of the character.
+	 * 
+	 * @param skillId
+	 * 		The id of the skill.
+	 * 
+	 * @return
+	 * 		The level of the specified skill, or 0 if the character does not have it.
+	 */
+	@Transactional
+	protected int getSkillLevel(long characterId, long skillId) {
+		Session session = database.getCurrentSession();
+		Skill skill = (Skill) session.get(Skill.class, new SkillIdentifier(characterId, skillId));
+		if (skill != null) {
+			return skill.getLevel();
+		}
+		return 0;
+	}
+
+	/**
+	 * This method retrieves the corporation's standing of this character with a certain station's owner.
+	 * 
+	 * @param characterId
+	 * 		The id of the character.
+	 * 
+	 * @param stationId
+	 * 		The station id.
+	 * 
+	 * @return
+	 * 		The corporation's standing of this character with a certain station's owner.
+	 */
+	@Transactional
+	protected double getCorporationStanding(long characterId, long stationId) {
+		Session session = database.getCurrentSession();
+		Station station = (Station) session.get(Station.class, stationId);
+		if (station != null) {
+			StandingIdentifier id = new StandingIdentifier(characterId, station.getCorporationId());
+			Standing standing = (Standing) session.get(Standing.class, id);
+			if (standing != null) {
+				return standing.getStanding().doubleValue();
+			}
+		}
+		return 0.0;
+	}
+
+	/**
+	 * This method retrieves the faction standings for a certain region.
+	 * 
+	 * @param characterId
+	 * 		The id of the character.
+	 * 
+	 * @param mapRegionId
+	 * 		The id of the region.
+	 * 
+	 * @return
+	 * 		The faction standing of this character with this region's empire.
+	 */
+	@Transactional
+	protected double getFactionStanding(long characterId, long mapRegionId) {
+		Session session = database.getCurrentSession();
+		MapRegion region = (MapRegion) session.get(MapRegion.class, mapRegionId);
+		if (region != null) {
+			StandingIdentifier id = new StandingIdentifier(characterId, region.getFactionId());
+			Standing standing = (Standing) session.get(Standing.class, id);
+			if (standing != null) {
+				return standing.getStanding().doubleValue();
+			}
+		}
+		return 0.0;
+	}
+
+}
@@ -1,9 +1,23 @@
 package nl.minicom.evenexus.eveapi.importers;
 
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.Timer;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -23,46 +37,122 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
+/**
+ * The {@link ImportManager} schedules all importers. A single timer thread decides when an importer
+ * is due, after which its run is queued for a small, fixed pool of workers. Queued runs are picked up
+ * in order of the priority of their {@link Api} (so transactions are imported before journals, and
+ * journals before market orders), and then in the order in which they were queued. The first run of
+ * every importer is delayed by a random amount of time, so that the importers of different characters
+ * do not all become due at the same moment.
+ *
+ * @author michael
+ */
 @Singleton
-public class ImportManager extends Timer {
-	
+public class ImportManager {
+
 	private static final Logger LOG = LoggerFactory.getLogger(ImportManager.class);
-	
+
+	/**
+	 * The maximum number of imports which are run at the same time.
+	 */
+	private static final int WORKERS = 2;
+
+	/**
+	 * The number of threads which notify the {@link ImportListener}s.
+	 */
+	private static final int NOTIFIERS = 2;
+
+	/**
+	 * The maximum random delay (in milliseconds) which is added to the first run of an importer.
+	 */
+	private static final long MAX_JITTER = 60000;
+
+	/**
+	 * The interval (in milliseconds) at which the {@link ImportStatistics} are logged.
+	 */
+	private static final long STATISTICS_INTERVAL = 1800000;
+
 	private final Database database;
 	private final Provider<RefTypeImporter> refTypeImporterProvider;
 	private final Provider<CharacterImporter> characterImporterProvider;
 	private final Multimap<Api, ImportListener> listeners;
-	
+
+	private final ScheduledExecutorService timer;
+	private final ThreadPoolExecutor workers;
+	private final ThreadPoolExecutor notifier;
+	private final ThreadPoolExecutor downloader;
+	private final Set<ImporterTask> pending;
+	private final ImportStatistics statistics;
+	private final AtomicLong sequence;
+	private final Random random;
+
 	@Inject
 	public ImportManager(Database database,
-			Provider<RefTypeImporter> refTypeImporterProvider, 
+			Provider<RefTypeImporter> refTypeImporterProvider,
 			Provider<CharacterImporter> characterImporterProvider) {
-		
+
 		this.database = database;
 		this.refTypeImporterProvider = refTypeImporterProvider;
 		this.characterImporterProvider = characterImporterProvider;
 		this.listeners = HashMultimap.create();
+
+		this.timer = new ScheduledThreadPoolExecutor(1, createThreadFactory("ImportTimer"));
+		this.workers = new ThreadPoolExecutor(WORKERS, WORKERS, 1, TimeUnit.MINUTES,
+				new PriorityBlockingQueue<Runnable>(), createThreadFactory("Importer"));
+		this.workers.allowCoreThreadTimeOut(true);
+		this.notifier = new ThreadPoolExecutor(NOTIFIERS, NOTIFIERS, 1, TimeUnit.MINUTES,
+				new LinkedBlockingQueue<Runnable>(), createThreadFactory("ImportListener"));
+		this.notifier.allowCoreThreadTimeOut(true);
+		this.downloader = new ThreadPoolExecutor(WORKERS, WORKERS, 1, TimeUnit.MINUTES,
+				new LinkedBlockingQueue<Runnable>(), createThreadFactory("ImportDownloader"));
+		this.downloader.allowCoreThreadTimeOut(true);
+
+		this.pending = Collections.newSetFromMap(new ConcurrentHashMap<ImporterTask, Boolean>());
+		this.statistics = new ImportStatistics();
+		this.sequence = new AtomicLong();
+		this.random = new Random();
+	}
+
+	private static ThreadFactory createThreadFactory(final String name) {
+		return new ThreadFactory() {
+
+			private final AtomicInteger counter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
 	}
-	
+
 	public void initialize() {
 		synchronized (this) {
 			createCharacterImporters();
 			createGeneralImporters();
+
+			timer.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					logStatistics();
+				}
+			}, STATISTICS_INTERVAL, STATISTICS_INTERVAL, TimeUnit.MILLISECONDS);
 		}
 	}
-	
+
 	private void createGeneralImporters() {
 		scheduleImporter(refTypeImporterProvider.get());
 	}
-	
+
 	private void scheduleImporter(ImporterTask task) {
 		long nextRun = task.getNextRun(0) + 5000;
 		if (nextRun < TimeUtils.getServerTime()) {
 			nextRun = TimeUtils.getServerTime() + 5000;
 		}
-		
+
 		long importerId = task.getApi().getImporterId();
-		scheduleAtFixedRate(task, nextRun - TimeUtils.getServerTime(), task.getImporter(importerId).getCooldown());
+		nextRun = schedule(task, nextRun - TimeUtils.getServerTime(), task.getImporter(importerId).getCooldown());
 		LOG.info("Scheduling " + task.getImporter(importerId).getName() + " importer at: " + new Date(nextRun));
 	}
 
@@ -72,7 +162,7 @@ public class ImportManager extends Timer {
 		synchronized (this) {
 			Session session = database.getCurrentSession();
 			List<ApiKey> apiKeys = session.createCriteria(ApiKey.class).list();
-			
+
 			for (ApiKey apiKey : apiKeys) {
 				addCharacterImporter(apiKey);
 			}
@@ -87,25 +177,168 @@ public class ImportManager extends Timer {
 		}
 	}
 
+	/**
+	 * This method schedules an importer to run repeatedly. A random delay of at most {@link #MAX_JITTER}
+	 * milliseconds is added to the first run.
+	 *
+	 * @param task
+	 * 		The {@link ImporterTask} to schedule.
+	 *
+	 * @param delay
+	 * 		The minimum delay (in milliseconds) before the first run.
+	 *
+	 * @param period
+	 * 		The time (in milliseconds) between two runs.
+	 *
+	 * @return
+	 * 		The server time (in milliseconds) of the first run.
+	 */
+	public long schedule(final ImporterTask task, long delay, long period) {
+		long jitteredDelay = Math.max(0, delay) + (long) (random.nextDouble() * MAX_JITTER);
+		timer.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					enqueue(task);
+				}
+				catch (RuntimeException e) {
+					LOG.error(e.getLocalizedMessage(), e);
+				}
+			}
+		}, jitteredDelay, period, TimeUnit.MILLISECONDS);
+
+		return TimeUtils.getServerTime() + jitteredDelay;
+	}
+
+	/**
+	 * This method queues a run of an importer for the workers, unless its previous run is still
+	 * queued or running.
+	 *
+	 * @param task
+	 * 		The {@link ImporterTask} to run.
+	 */
+	void enqueue(ImporterTask task) {
+		if (!pending.add(task)) {
+			LOG.info("Skipping " + task.getName() + " importer, its previous run has not finished yet");
+			statistics.recordSkipped(task.getApi());
+			return;
+		}
+		workers.execute(new QueuedImport(task, sequence.incrementAndGet()));
+	}
+
+	/**
+	 * This method downloads the next page of a running import in the background, so that it can be
+	 * downloaded while the worker is still persisting the current page. At most one download per
+	 * worker runs at the same time. The session which the download opens is closed once it is done.
+	 *
+	 * @param download
+	 * 		The {@link Callable} which downloads the page.
+	 *
+	 * @return
+	 * 		A {@link Future} of the downloaded page.
+	 */
+	public <T> Future<T> download(Callable<T> download) {
+		return downloader.submit(database.closeSessionAfter(download));
+	}
+
 	public void addListener(Api api, ImportListener listener) {
 		synchronized (this) {
 			listeners.put(api, listener);
 		}
 	}
 
+	/**
+	 * This method notifies the listeners of the specified {@link Api} that an import has completed.
+	 * The listeners are run on a small pool of notifier threads, so a slow listener does not hold up
+	 * the listeners of the next import, without starting a new thread for every listener.
+	 * The session which a listener opens is closed once it returns.
+	 *
+	 * @param api
+	 * 		The {@link Api} which has been imported.
+	 */
 	protected void triggerImportCompleteEvent(Api api) {
 		synchronized (this) {
 			for (final ImportListener listener : listeners.get(api)) {
-				Runnable runner = new Runnable() {
+				notifier.execute(database.closeSessionAfter(new Runnable() {
 					@Override
 					public void run() {
-						listener.onImportComplete();
+						try {
+							listener.onImportComplete();
+						}
+						catch (RuntimeException e) {
+							LOG.error(e.getLocalizedMessage(), e);
+						}
 					}
-				};
-				
-				new Thread(runner).start();
+				}));
+			}
+		}
+	}
+
+	/**
+	 * @return
+	 * 		The number of imports which are waiting for a worker.
+	 */
+	public int getQueueSize() {
+		return workers.getQueue().size();
+	}
+
+	/**
+	 * @return
+	 * 		The {@link ImportStatistics} of this {@link ImportManager}.
+	 */
+	public ImportStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * This method logs the number of queued imports and the {@link ImportStatistics}.
+	 */
+	public void logStatistics() {
+		LOG.info("Import queue: " + getQueueSize() + " waiting, " + workers.getActiveCount() + " running"
+				+ statistics);
+	}
+
+	/**
+	 * A single queued run of an {@link ImporterTask}.
+	 */
+	private class QueuedImport implements Runnable, Comparable<QueuedImport> {
+
+		private final ImporterTask task;
+		private final long sequence;
+		private final long queued;
+
+		private QueuedImport(ImporterTask task, long sequence) {
+			this.task = task;
+			this.sequence = sequence;
+			this.queued = System.currentTimeMillis();
+		}
+
+		@Override
+		public void run() {
+			long started = System.currentTimeMillis();
+			try {
+				task.createJob().run();
+			}
+			finally {
+				database.closeCurrentSession();
+				pending.remove(task);
+				statistics.recordRun(task.getApi(), started - queued, System.currentTimeMillis() - started);
 			}
 		}
+
+		@Override
+		public int compareTo(QueuedImport other) {
+			int priority = task.getApi().getPriority();
+			int otherPriority = other.task.getApi().getPriority();
+			if (priority != otherPriority) {
+				return priority < otherPriority ? -1 : 1;
+			}
+			if (sequence != other.sequence) {
+				return sequence < other.sequence ? -1 : 1;
+			}
+			return 0;
+		}
+
 	}
-	
+
 }
@@ -0,0 +1,140 @@
+package nl.minicom.evenexus.eveapi.importers;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import nl.minicom.evenexus.eveapi.ApiParser.Api;
+
+/**
+ * The {@link ImportStatistics} class keeps track of the imports which have been run by the
+ * {@link ImportManager}. For every {@link Api} it records how long imports waited in the queue
+ * before a worker picked them up, how long they took to run, and how many runs were skipped
+ * because the previous run had not finished yet.
+ *
+ * <p>This class is thread-safe!</p>
+ *
+ * @author michael
+ */
+public class ImportStatistics {
+
+	private final Map<Api, Statistic> statistics = new EnumMap<Api, Statistic>(Api.class);
+
+	/**
+	 * This method records an import which has been run.
+	 *
+	 * @param api
+	 * 		The {@link Api} which was imported.
+	 *
+	 * @param waitTime
+	 * 		The time (in milliseconds) the import waited in the queue.
+	 *
+	 * @param runTime
+	 * 		The time (in milliseconds) it took to run the import.
+	 */
+	synchronized void recordRun(Api api, long waitTime, long runTime) {
+		Statistic statistic = get(api);
+		statistic.runs++;
+		statistic.totalWaitTime += waitTime;
+		statistic.maxWaitTime = Math.max(statistic.maxWaitTime, waitTime);
+		statistic.totalRunTime += runTime;
+		statistic.maxRunTime = Math.max(statistic.maxRunTime, runTime);
+	}
+
+	/**
+	 * This method records an import which was skipped, because the previous run of the same importer
+	 * was still queued or running.
+	 *
+	 * @param api
+	 * 		The {@link Api} which was skipped.
+	 */
+	synchronized void recordSkipped(Api api) {
+		get(api).skipped++;
+	}
+
+	private Statistic get(Api api) {
+		Statistic statistic = statistics.get(api);
+		if (statistic == null) {
+			statistic = new Statistic();
+			statistics.put(api, statistic);
+		}
+		return statistic;
+	}
+
+	/**
+	 * @return
+	 * 		A copy of the recorded {@link Statistic} of every {@link Api} which has been imported.
+	 */
+	public synchronized Map<Api, Statistic> getStatistics() {
+		Map<Api, Statistic> copy = new EnumMap<Api, Statistic>(Api.class);
+		for (Entry<Api, Statistic> entry : statistics.entrySet()) {
+			copy.put(entry.getKey(), entry.getValue().copy());
+		}
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (Entry<Api, Statistic> entry : getStatistics().entrySet()) {
+			builder.append("\n\t").append(entry.getKey()).append(": ").append(entry.getValue());
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * The {@link Statistic} class holds the recorded statistics of a single {@link Api}.
+	 */
+	public static class Statistic {
+
+		private long runs;
+		private long skipped;
+		private long totalWaitTime;
+		private long maxWaitTime;
+		private long totalRunTime;
+		private long maxRunTime;
+
+		private Statistic copy() {
+			Statistic copy = new Statistic();
+			copy.runs = runs;
+			copy.skipped = skipped;
+			copy.totalWaitTime = totalWaitTime;
+			copy.maxWaitTime = maxWaitTime;
+			copy.totalRunTime = totalRunTime;
+			copy.maxRunTime = maxRunTime;
+			return copy;
+		}
+
+		public long getRuns() {
+			return runs;
+		}
+
+		public long getSkipped() {
+			return skipped;
+		}
+
+		public long getAverageWaitTime() {
+			return runs == 0 ? 0 : totalWaitTime / runs;
+		}
+
+		public long getMaxWaitTime() {
+			return maxWaitTime;
+		}
+
+		public long getAverageRunTime() {
+			return runs == 0 ? 0 : totalRunTime / runs;
+		}
+
+		public long getMaxRunTime() {
+			return maxRunTime;
+		}
+
+		@Override
+		public String toString() {
+			return runs + " runs, " + skipped + " skipped, wait " + getAverageWaitTime() + " ms avg / "
+					+ maxWaitTime + " ms max, run " + getAverageRunTime() + " ms avg / " + maxRunTime + " ms max";
+		}
+
+	}
+
+}
@@ -11,9 +11,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-public class ImporterThread extends Thread {
+/**
+ * An {@link ImporterJob} is a single run of an {@link ImporterTask}, which is queued by the 
+ * {@link ImportManager} until one of its workers is available.
+ * 
+ * @author michael
+ */
+public class ImporterJob implements Runnable {
 	
-	private static final Logger LOG = LoggerFactory.getLogger(ImporterThread.class);
+	private static final Logger LOG = LoggerFactory.getLogger(ImporterJob.class);
 	
 	private final BugReportDialog dialog;
 	
@@ -21,7 +27,7 @@ public class ImporterThread extends Thread {
 	private ApiKey apiKey;
 	
 	@Inject
-	public ImporterThread(BugReportDialog dialog) {
+	public ImporterJob(BugReportDialog dialog) {
 		this.dialog = dialog;
 	}
 	
@@ -29,7 +35,7 @@ public class ImporterThread extends Thread {
 		this.importer = importer;
 		this.apiKey = apiKey;
 	}
-
+	
 	@Override
 	public void run() {
 		try {
@@ -47,7 +53,7 @@ public class ImporterThread extends Thread {
 	}
 	
 	public String toString() {
-		return "Import thread: " + importer.getName();
+		return "Import job: " + importer.getName();
 	}
 	
 }
@@ -2,13 +2,20 @@ package nl.minicom.evenexus.eveapi.importers;
 
 import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.util.TimerTask;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 
 import nl.minicom.evenexus.eveapi.ApiParser;
 import nl.minicom.evenexus.eveapi.ApiParser.Api;
+import nl.minicom.evenexus.eveapi.ApiRow;
+import nl.minicom.evenexus.eveapi.ApiRowHandler;
 import nl.minicom.evenexus.persistence.Database;
 import nl.minicom.evenexus.persistence.dao.ApiKey;
 import nl.minicom.evenexus.persistence.dao.ImportLog;
@@ -17,22 +24,30 @@ import nl.minicom.evenexus.persistence.dao.Importer;
 import nl.minicom.evenexus.persistence.interceptor.Transactional;
 import nl.minicom.evenexus.utils.TimeUtils;
 
+import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.Restrictions;
+import org.mortbay.xml.XmlParser.Attribute;
 import org.mortbay.xml.XmlParser.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-public abstract class ImporterTask extends TimerTask {
+public abstract class ImporterTask {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(ImporterTask.class);
+	
+	/**
+	 * The amount of inserts which are sent to the database in one JDBC batch. 
+	 * This should match the hibernate.jdbc.batch_size setting.
+	 */
+	private static final int BATCH_SIZE = 50;
 
 	private final Api type;
 	private final Database database;
 	private final ImportManager importManager;
 	private final Provider<ApiParser> apiParserProvider;
-	private final Provider<ImporterThread> importerThreadProvider;
+	private final Provider<ImporterJob> importerJobProvider;
 	private final long minimumDelay;
 	
 	private ApiKey apiKey;
@@ -40,17 +55,17 @@ public abstract class ImporterTask extends TimerTask {
 	@Inject
 	protected ImporterTask(Database database, 
 			Provider<ApiParser> apiParserProvider, 
-			Provider<ImporterThread> importerThreadProvider,
+			Provider<ImporterJob> importerJobProvider,
 			ImportManager importManager, 
 			Api type) {
 		
-		this (database, apiParserProvider, importerThreadProvider, importManager, type, 0);
+		this (database, apiParserProvider, importerJobProvider, importManager, type, 0);
 	}
 	
 	@Inject
 	protected ImporterTask(Database database, 
 			Provider<ApiParser> apiParserProvider, 
-			Provider<ImporterThread> importerThreadProvider,
+			Provider<ImporterJob> importerJobProvider,
 			ImportManager importManager, 
 			Api type, 
 			long minimumDelay) {
@@ -59,16 +74,135 @@ public abstract class ImporterTask extends TimerTask {
 		this.database = database;
 		this.importManager = importManager;
 		this.apiParserProvider = apiParserProvider;
-		this.importerThreadProvider = importerThreadProvider;
+		this.importerJobProvider = importerJobProvider;
 		this.minimumDelay = minimumDelay;
 	}
 	
 	public abstract void parseApi(Node root, ApiKey apiKey) throws Exception;
+	
+	/**
+	 * Importers which can process the rows of the API response while it is still being downloaded 
+	 * override this method. When it returns null, the whole response is parsed first and passed to 
+	 * {@link #parseApi(Node, ApiKey)}.
+	 * 
+	 * @param apiKey
+	 * 		The {@link ApiKey} which is used for this import.
+	 * 
+	 * @return
+	 * 		The {@link ApiRowHandler} which processes the rows, or null if this importer does not stream.
+	 */
+	protected ApiRowHandler createRowHandler(ApiKey apiKey) {
+		return null;
+	}
+	
+	/**
+	 * This method passes the rows of a parsed rowset to an {@link ApiRowHandler}, so streaming 
+	 * importers can process a parsed response in the same way. The rows are passed in reverse 
+	 * document order.
+	 * 
+	 * @param rowset
+	 * 		The rowset {@link Node}.
+	 * 
+	 * @param handler
+	 * 		The {@link ApiRowHandler} which processes the rows.
+	 * 
+	 * @throws Exception
+	 * 		If the {@link ApiRowHandler} failed to process a row.
+	 */
+	protected final void parseRows(Node rowset, ApiRowHandler handler) throws Exception {
+		try {
+			String name = rowset.getAttribute("name");
+			for (int i = rowset.size() - 1; i >= 0; i--) {
+				if (rowset.get(i) instanceof Node) {
+					Node row = (Node) rowset.get(i);
+					if (row.getTag().equals("row")) {
+						handler.onRow(new ApiRow(name, getAttributes(row)));
+					}
+				}
+			}
+		}
+		finally {
+			handler.onFinished();
+		}
+	}
+	
+	/**
+	 * This method looks up which of the specified ids are already stored, using a single query.
+	 * It should be called from within a transaction.
+	 * 
+	 * @param entityClass
+	 * 		The entity class.
+	 * 
+	 * @param idProperty
+	 * 		The name of the id property of the entity.
+	 * 
+	 * @param ids
+	 * 		The ids to look up.
+	 * 
+	 * @return
+	 * 		The ids which are already stored.
+	 */
+	@SuppressWarnings("unchecked")
+	protected Set<Long> listExistingIds(Class<?> entityClass, String idProperty, Collection<Long> ids) {
+		Set<Long> existing = new HashSet<Long>();
+		if (ids.isEmpty()) {
+			return existing;
+		}
+		
+		StringBuilder query = new StringBuilder();
+		query.append("SELECT e." + idProperty + " ");
+		query.append("FROM " + entityClass.getSimpleName() + " AS e ");
+		query.append("WHERE e." + idProperty + " IN (:ids)");
+		
+		Session session = database.getCurrentSession();
+		Query q = session.createQuery(query.toString());
+		q.setParameterList("ids", ids);
+		
+		existing.addAll((List<Long>) q.list());
+		return existing;
+	}
+	
+	/**
+	 * This method saves new entities, flushing them to the database in JDBC batches. 
+	 * It should be called from within a transaction.
+	 * 
+	 * @param entities
+	 * 		The new entities to save.
+	 */
+	protected void saveInBatches(List<?> entities) {
+		Session session = database.getCurrentSession();
+		for (int i = 0; i < entities.size(); i++) {
+			session.save(entities.get(i));
+			if ((i + 1) % BATCH_SIZE == 0) {
+				session.flush();
+				session.clear();
+			}
+		}
+	}
+	
+	private Map<String, String> getAttributes(Node row) {
+		Map<String, String> attributes = new HashMap<String, String>();
+		Attribute[] rowAttributes = row.getAttributes();
+		if (rowAttributes != null) {
+			for (Attribute attribute : rowAttributes) {
+				attributes.put(attribute.getName(), attribute.getValue());
+			}
+		}
+		return attributes;
+	}
 
 	protected Database getDatabase() {
 		return database;
 	}
 	
+	protected ApiParser createApiParser() {
+		return apiParserProvider.get();
+	}
+	
+	protected ImportManager getImportManager() {
+		return importManager;
+	}
+	
 	protected final void triggerImportCompleteEvent() {
 		importManager.triggerImportCompleteEvent(type);
 	}
@@ -77,11 +211,14 @@ public abstract class ImporterTask extends TimerTask {
 		this.apiKey = apiKey;
 	}
 
-	@Override
-	public final void run() {
-		ImporterThread thread = importerThreadProvider.get();
-		thread.initialize(this, apiKey);
-		thread.start();
+	/**
+	 * @return
+	 * 		A new {@link ImporterJob} which runs this importer once.
+	 */
+	public final ImporterJob createJob() {
+		ImporterJob job = importerJobProvider.get();
+		job.initialize(this, apiKey);
+		return job;
 	}
 	
 	protected void runImporter(ApiKey apiKey) throws Exception {
@@ -92,16 +229,39 @@ public abstract class ImporterTask extends TimerTask {
 			LOG.info("Running " + getName() + " importer");
 		}
 		
-		ApiParser parser = apiParserProvider.get();
-		Node root = parser.parseApi(type, apiKey);
-		if (ApiParser.isAvailable(root)) {
-			parseApi(root, apiKey);
-		}
-		
+		importApi(apiKey);
 		updateLastRun(apiKey);
 		triggerImportCompleteEvent();
 	}
 	
+	/**
+	 * This method requests the API of this importer once, and imports the response.
+	 * 
+	 * @param apiKey
+	 * 		The {@link ApiKey} which is used for this import.
+	 * 
+	 * @throws Exception
+	 * 		If the API reported an error, or the response could not be imported.
+	 */
+	protected void importApi(ApiKey apiKey) throws Exception {
+		ApiParser parser = apiParserProvider.get();
+		ApiRowHandler handler = createRowHandler(apiKey);
+		if (handler != null) {
+			try {
+				parser.parseApi(type, apiKey, handler);
+			}
+			finally {
+				handler.onFinished();
+			}
+		}
+		else {
+			Node root = parser.parseApi(type, apiKey);
+			if (ApiParser.isAvailable(root)) {
+				parseApi(root, apiKey);
+			}
+		}
+	}
+	
 	private void updateLastRun(ApiKey apiKey) throws SQLException {
 		Session session = database.getCurrentSession();
 		long importerId = type.getImporterId();
@@ -0,0 +1,65 @@
+package nl.minicom.evenexus.eveapi.importers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.minicom.evenexus.eveapi.ApiRow;
+import nl.minicom.evenexus.eveapi.ApiRowHandler;
+
+/**
+ * The {@link PagedRowHandler} is an {@link ApiRowHandler} which collects the streamed rows into pages, 
+ * so that every page can be persisted in a single database transaction instead of one transaction per row.
+ *
+ * @author michael
+ */
+public abstract class PagedRowHandler implements ApiRowHandler {
+
+	/**
+	 * The maximum amount of rows the API returns in a single wallet page.
+	 */
+	public static final int PAGE_SIZE = 2560;
+
+	private final List<ApiRow> page = new ArrayList<ApiRow>();
+	private int inserted = 0;
+
+	@Override
+	public final void onRow(ApiRow row) {
+		page.add(row);
+		if (page.size() >= PAGE_SIZE) {
+			flush();
+		}
+	}
+
+	@Override
+	public final void onFinished() {
+		flush();
+		onFinished(inserted);
+	}
+
+	private void flush() {
+		if (!page.isEmpty()) {
+			inserted += persistPage(new ArrayList<ApiRow>(page));
+			page.clear();
+		}
+	}
+
+	/**
+	 * This method persists a page of rows.
+	 * 
+	 * @param rows
+	 * 		The rows of the page.
+	 * 
+	 * @return
+	 * 		The amount of rows which were inserted.
+	 */
+	protected abstract int persistPage(List<ApiRow> rows);
+
+	/**
+	 * This method is called once all pages have been persisted.
+	 * 
+	 * @param inserted
+	 * 		The total amount of rows which were inserted.
+	 */
+	protected abstract void onFinished(int inserted);
+
+}
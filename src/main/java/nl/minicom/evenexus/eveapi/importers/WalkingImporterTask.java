@@ -0,0 +1,256 @@
+package nl.minicom.evenexus.eveapi.importers;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.inject.Provider;
+
+import nl.minicom.evenexus.eveapi.ApiParser;
+import nl.minicom.evenexus.eveapi.ApiParser.Api;
+import nl.minicom.evenexus.eveapi.ApiRow;
+import nl.minicom.evenexus.eveapi.ApiRowHandler;
+import nl.minicom.evenexus.eveapi.exceptions.JournalsExhaustedException;
+import nl.minicom.evenexus.eveapi.exceptions.TransactionsExhaustedException;
+import nl.minicom.evenexus.eveapi.exceptions.WarnableException;
+import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.dao.ApiKey;
+import nl.minicom.evenexus.persistence.dao.ImportLog;
+import nl.minicom.evenexus.persistence.dao.ImportLogIdentifier;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
+import nl.minicom.evenexus.utils.TimeUtils;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link WalkingImporterTask} imports a wallet API which returns its rows in pages, newest rows first.
+ * When a page is full and contains no rows which were already stored, the next (older) page is requested,
+ * until a page is found which overlaps with the rows which were imported before.
+ *
+ * After every persisted page the id of its oldest row is stored as a checkpoint in the {@link ImportLog}.
+ * When the application is stopped during a walk, the next run resumes the walk from that checkpoint.
+ * While a page is being persisted, the next page is already downloaded by the {@link ImportManager}.
+ *
+ * @author michael
+ */
+public abstract class WalkingImporterTask extends ImporterTask {
+
+	private static final Logger LOG = LoggerFactory.getLogger(WalkingImporterTask.class);
+
+	protected WalkingImporterTask(Database database,
+			Provider<ApiParser> apiParserProvider,
+			Provider<ImporterJob> importerJobProvider,
+			ImportManager importManager,
+			Api type) {
+
+		super(database, apiParserProvider, importerJobProvider, importManager, type);
+	}
+
+	@Override
+	protected abstract PagedRowHandler createRowHandler(ApiKey apiKey);
+
+	/**
+	 * @param row
+	 * 		The {@link ApiRow}.
+	 *
+	 * @return
+	 * 		The id of the row. Older rows have lower ids.
+	 *
+	 * @throws NumberFormatException
+	 * 		If the row has no valid id.
+	 */
+	protected abstract long getRowId(ApiRow row);
+
+	/**
+	 * @param beforeId
+	 * 		The id of the oldest row which has been walked so far.
+	 *
+	 * @return
+	 * 		The request arguments which select the page of rows before the specified id.
+	 */
+	protected abstract Map<String, String> createWalkArguments(long beforeId);
+
+	@Override
+	protected void importApi(ApiKey apiKey) throws Exception {
+		PagedRowHandler handler = createRowHandler(apiKey);
+		int inserted = 0;
+		try {
+			Long beforeId = getCheckpoint(apiKey);
+			boolean checkpointed = beforeId != null;
+			if (checkpointed) {
+				LOG.info("Resuming " + getName() + " import before id: " + beforeId);
+			}
+
+			List<ApiRow> page;
+			try {
+				page = createDownload(apiKey, beforeId, false).call();
+			}
+			catch (WarnableException e) {
+				if (checkpointed && finishWalk(e, apiKey)) {
+					return;
+				}
+				throw e;
+			}
+			while (page != null) {
+				Long oldestId = getOldestId(page);
+				Future<List<ApiRow>> next = null;
+				if (oldestId != null && page.size() >= PagedRowHandler.PAGE_SIZE) {
+					next = getImportManager().download(createDownload(apiKey, oldestId, true));
+				}
+
+				int pageInserted = handler.persistPage(page);
+				inserted += pageInserted;
+				if (next == null || pageInserted < page.size()) {
+					if (next != null) {
+						next.cancel(false);
+					}
+					if (checkpointed) {
+						saveCheckpoint(apiKey, null);
+					}
+					return;
+				}
+
+				saveCheckpoint(apiKey, oldestId);
+				checkpointed = true;
+				page = await(next, apiKey);
+			}
+		}
+		finally {
+			handler.onFinished(inserted);
+		}
+	}
+
+	/**
+	 * This method waits for the next page to be downloaded.
+	 *
+	 * @return
+	 * 		The rows of the next page, or null if it could not be downloaded. In that case
+	 * 		the walk is resumed from the last checkpoint when the importer runs again.
+	 */
+	private List<ApiRow> await(Future<List<ApiRow>> download, ApiKey apiKey) throws Exception {
+		try {
+			return download.get();
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (finishWalk(cause, apiKey)) {
+				return null;
+			}
+			else if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * This method finishes the walk when the API reports that no older rows can be requested.
+	 *
+	 * @return
+	 * 		True if the walk has finished, or false if the cause is another error.
+	 */
+	private boolean finishWalk(Throwable cause, ApiKey apiKey) {
+		if (cause instanceof TransactionsExhaustedException || cause instanceof JournalsExhaustedException) {
+			LOG.info(((WarnableException) cause).createWarningMessage() + " Finished walking " + getName());
+			saveCheckpoint(apiKey, null);
+			return true;
+		}
+		return false;
+	}
+
+	private Long getOldestId(List<ApiRow> rows) {
+		Long oldestId = null;
+		for (ApiRow row : rows) {
+			try {
+				long id = getRowId(row);
+				if (oldestId == null || id < oldestId) {
+					oldestId = id;
+				}
+			}
+			catch (NumberFormatException e) {
+				LOG.warn(e.getLocalizedMessage(), e);
+			}
+		}
+		return oldestId;
+	}
+
+	private Callable<List<ApiRow>> createDownload(final ApiKey apiKey, final Long beforeId,
+			final boolean ignoreCooldown) {
+
+		return new Callable<List<ApiRow>>() {
+			@Override
+			public List<ApiRow> call() throws Exception {
+				Map<String, String> arguments = new TreeMap<String, String>();
+				arguments.put("rowCount", Integer.toString(PagedRowHandler.PAGE_SIZE));
+				if (beforeId != null) {
+					arguments.putAll(createWalkArguments(beforeId));
+				}
+
+				final List<ApiRow> rows = new ArrayList<ApiRow>();
+				ApiRowHandler collector = new ApiRowHandler() {
+					@Override
+					public void onRow(ApiRow row) {
+						rows.add(row);
+					}
+
+					@Override
+					public void onFinished() {
+						// Rows are persisted by the walk, once the whole page has been downloaded.
+					}
+				};
+
+				ApiParser parser = createApiParser();
+				if (parser.parseApi(getApi(), apiKey, arguments, ignoreCooldown, collector)) {
+					return rows;
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * @param apiKey
+	 * 		The {@link ApiKey} which is used for this import.
+	 *
+	 * @return
+	 * 		The id of the oldest row which was imported by an unfinished walk, or null if no walk is in progress.
+	 */
+	protected Long getCheckpoint(ApiKey apiKey) {
+		ImportLog log = getImportLog(getApi().getImporterId(), apiKey.getCharacterId());
+		if (log == null) {
+			return null;
+		}
+		return log.getCheckpoint();
+	}
+
+	/**
+	 * This method stores the checkpoint of the walk in the {@link ImportLog}.
+	 *
+	 * @param apiKey
+	 * 		The {@link ApiKey} which is used for this import.
+	 *
+	 * @param checkpoint
+	 * 		The id of the oldest row which has been imported, or null if the walk has finished.
+	 */
+	@Transactional
+	protected void saveCheckpoint(ApiKey apiKey, Long checkpoint) {
+		Session session = getDatabase().getCurrentSession();
+		ImportLogIdentifier id = new ImportLogIdentifier(getApi().getImporterId(), apiKey.getCharacterId());
+		ImportLog log = (ImportLog) session.get(ImportLog.class, id);
+		if (log == null) {
+			log = new ImportLog(id);
+			log.setLastRun(new Timestamp(TimeUtils.getServerTime()));
+		}
+
+		log.setCheckpoint(checkpoint);
+		session.saveOrUpdate(log);
+	}
+
+}
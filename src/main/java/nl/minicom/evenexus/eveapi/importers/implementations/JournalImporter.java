@@ -2,15 +2,23 @@ package nl.minicom.evenexus.eveapi.importers.implementations;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 
 import nl.minicom.evenexus.eveapi.ApiParser;
 import nl.minicom.evenexus.eveapi.ApiParser.Api;
+import nl.minicom.evenexus.eveapi.ApiRow;
 import nl.minicom.evenexus.eveapi.importers.ImportManager;
-import nl.minicom.evenexus.eveapi.importers.ImporterTask;
-import nl.minicom.evenexus.eveapi.importers.ImporterThread;
+import nl.minicom.evenexus.eveapi.importers.ImporterJob;
+import nl.minicom.evenexus.eveapi.importers.PagedRowHandler;
+import nl.minicom.evenexus.eveapi.importers.WalkingImporterTask;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.persistence.Database;
 import nl.minicom.evenexus.persistence.dao.ApiKey;
@@ -18,13 +26,12 @@ import nl.minicom.evenexus.persistence.dao.WalletJournal;
 import nl.minicom.evenexus.persistence.interceptor.Transactional;
 import nl.minicom.evenexus.utils.TimeUtils;
 
-import org.hibernate.Session;
 import org.mortbay.xml.XmlParser.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-public class JournalImporter extends ImporterTask {
+public class JournalImporter extends WalkingImporterTask {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(JournalImporter.class);
 	
@@ -36,95 +43,141 @@ public class JournalImporter extends ImporterTask {
 	public JournalImporter(
 			Database database, 
 			Provider<ApiParser> apiParserProvider, 
-			Provider<ImporterThread> importerThreadProvider, 
+			Provider<ImporterJob> importerJobProvider, 
 			ImportManager importManager,
 			BugReportDialog dialog) {
 		
-		super(database, apiParserProvider, importerThreadProvider, importManager, Api.CHAR_WALLET_JOURNAL);
+		super(database, apiParserProvider, importerJobProvider, importManager, Api.CHAR_WALLET_JOURNAL);
 		this.dialog = dialog;
 	}
 
 	@Override
-	public void parseApi(Node root, ApiKey apiKey) {
-		synchronized (this) {
-			isReady = false;
-			
-			int inserted = 0;
-			final Node node = root.get("result").get("rowset");
-			for (int i = node.size() - 1; i >= 0; i--) {
-				if (processRow(node, i)) {
-					inserted++;
+	public void parseApi(Node root, ApiKey apiKey) throws Exception {
+		parseRows(root.get("result").get("rowset"), createRowHandler(apiKey));
+	}
+	
+	@Override
+	protected PagedRowHandler createRowHandler(ApiKey apiKey) {
+		setReady(false);
+		
+		return new PagedRowHandler() {
+			@Override
+			protected int persistPage(List<ApiRow> rows) {
+				try {
+					return persistChangeData(rows);
+				}
+				catch (Exception e) {
+					LOG.error(e.getLocalizedMessage(), e);
+					dialog.setVisible(true);
 				}
+				return 0;
 			}
 			
-			LOG.info("Inserted " + inserted + " new journal entries.");
-			isReady = true;
-		}
+			@Override
+			protected void onFinished(int inserted) {
+				LOG.info("Inserted " + inserted + " new journal entries.");
+				setReady(true);
+			}
+		};
+	}
+	
+	@Override
+	protected long getRowId(ApiRow row) {
+		return Long.parseLong(row.getAttribute("refID"));
 	}
 
-	private boolean processRow(Node root, int i) {
-		if (root.get(i) instanceof Node) {
-			Node row = (Node) root.get(i);
-			if (row.getTag().equals("row")) {
-				return persistChangeData(row);
-			}
+	@Override
+	protected Map<String, String> createWalkArguments(long beforeId) {
+		// Older API servers only understand the beforeRefID argument.
+		Map<String, String> arguments = new HashMap<String, String>();
+		arguments.put("fromID", Long.toString(beforeId));
+		arguments.put("beforeRefID", Long.toString(beforeId));
+		return arguments;
+	}
+	
+	private void setReady(boolean isReady) {
+		synchronized (this) {
+			this.isReady = isReady;
 		}
-		
-		return false;
 	}
 
+	/**
+	 * This method persists a page of journal entries to the database in a single transaction. 
+	 * Journal entries which are already stored are skipped.
+	 * 
+	 * @param rows
+	 * 		The {@link ApiRow}s containing the journal data.
+	 * 
+	 * @return
+	 * 		The amount of journal entries which were persisted.
+	 */
 	@Transactional
-	boolean persistChangeData(Node row) {
-		Session session = getDatabase().getCurrentSession();
+	int persistChangeData(List<ApiRow> rows) {
+		Map<Long, ApiRow> rowsById = new LinkedHashMap<Long, ApiRow>();
+		for (ApiRow row : rows) {
+			try {
+				rowsById.put(Long.parseLong(row.getAttribute("refID")), row);
+			}
+			catch (NumberFormatException e) {
+				LOG.error(e.getLocalizedMessage(), e);
+				dialog.setVisible(true);
+			}
+		}
 		
-		try {			
-			long refId = Long.parseLong(row.getAttribute("refID"));
-			int journalTypeId = Integer.parseInt(row.getAttribute("refTypeID")); 
-			Timestamp currentTime = TimeUtils.convertToTimestamp(row.getAttribute("date"));
-			String ownerName1 = row.getAttribute("ownerName1");
-			long ownerId1 = Long.parseLong(row.getAttribute("ownerID1"));
-			String ownerName2 = row.getAttribute("ownerName2");
-			long ownerId2 = Long.parseLong(row.getAttribute("ownerID2"));
-			String argName1 = row.getAttribute("argName1");
-			long argId1 = Long.parseLong(row.getAttribute("argID1"));
-			BigDecimal amount = BigDecimal.valueOf(Double.parseDouble(row.getAttribute("amount")));
-			BigDecimal balance = BigDecimal.valueOf(Double.parseDouble(row.getAttribute("balance")));
-			String reason = row.getAttribute("reason");	
-			long taxReceiverId = getTaxReceiverId(row);
-			BigDecimal taxAmount = getTaxAmount(row);
-			
-			WalletJournal journal = (WalletJournal) session.get(WalletJournal.class, refId);
-			if (journal == null) {
-				journal = new WalletJournal();
-				journal.setRefId(refId);
-				journal.setJournalTypeId(journalTypeId);
-				journal.setDate(currentTime);
-				journal.setOwnerName1(ownerName1);
-				journal.setOwnerId1(ownerId1);
-				journal.setOwnerName2(ownerName2);
-				journal.setOwnerId2(ownerId2);
-				journal.setArgName1(argName1);
-				journal.setArgId1(argId1);
-				journal.setAmount(amount);
-				journal.setBalance(balance);
-				journal.setReason(reason);
-				journal.setTaxReceiverId(taxReceiverId);
-				journal.setTaxAmount(taxAmount);
-				
-				getDatabase().getCurrentSession().save(journal);
-				
-				return true;
+		Set<Long> existing = listExistingIds(WalletJournal.class, WalletJournal.REF_ID, rowsById.keySet());
+		
+		List<WalletJournal> journals = new ArrayList<WalletJournal>();
+		for (Map.Entry<Long, ApiRow> entry : rowsById.entrySet()) {
+			if (!existing.contains(entry.getKey())) {
+				try {
+					journals.add(createJournal(entry.getValue()));
+				} 
+				catch (Exception e) {
+					LOG.error(e.getLocalizedMessage(), e);
+					dialog.setVisible(true);
+				}
 			}
-		} 
-		catch (Exception e) {
-			LOG.error(e.getLocalizedMessage(), e);
-			dialog.setVisible(true);
 		}
 		
-		return false;
+		saveInBatches(journals);
+		return journals.size();
+	}
+	
+	private WalletJournal createJournal(ApiRow row) throws Exception {
+		long refId = Long.parseLong(row.getAttribute("refID"));
+		int journalTypeId = Integer.parseInt(row.getAttribute("refTypeID")); 
+		Timestamp currentTime = TimeUtils.convertToTimestamp(row.getAttribute("date"));
+		String ownerName1 = row.getAttribute("ownerName1");
+		long ownerId1 = Long.parseLong(row.getAttribute("ownerID1"));
+		String ownerName2 = row.getAttribute("ownerName2");
+		long ownerId2 = Long.parseLong(row.getAttribute("ownerID2"));
+		String argName1 = row.getAttribute("argName1");
+		long argId1 = Long.parseLong(row.getAttribute("argID1"));
+		BigDecimal amount = BigDecimal.valueOf(Double.parseDouble(row.getAttribute("amount")));
+		BigDecimal balance = BigDecimal.valueOf(Double.parseDouble(row.getAttribute("balance")));
+		String reason = row.getAttribute("reason");	
+		long taxReceiverId = getTaxReceiverId(row);
+		BigDecimal taxAmount = getTaxAmount(row);
+		
+		WalletJournal journal = new WalletJournal();
+		journal.setRefId(refId);
+		journal.setJournalTypeId(journalTypeId);
+		journal.setDate(currentTime);
+		journal.setOwnerName1(ownerName1);
+		journal.setOwnerId1(ownerId1);
+		journal.setOwnerName2(ownerName2);
+		journal.setOwnerId2(ownerId2);
+		journal.setArgName1(argName1);
+		journal.setArgId1(argId1);
+		journal.setAmount(amount);
+		journal.setBalance(balance);
+		journal.setReason(reason);
+		journal.setTaxReceiverId(taxReceiverId);
+		journal.setTaxAmount(taxAmount);
+		return journal;
 	}
 
-	private BigDecimal getTaxAmount(Node row) {
+	private BigDecimal getTaxAmount(ApiRow row) {
 		BigDecimal taxAmount = BigDecimal.ZERO;
 		String taxAmountString = row.getAttribute("taxAmount");
 		if (taxAmountString != null && !taxAmountString.isEmpty()) {
@@ -133,7 +186,7 @@ public class JournalImporter extends ImporterTask {
 		return taxAmount;
 	}
 
-	private long getTaxReceiverId(Node row) {
+	private long getTaxReceiverId(ApiRow row) {
 		long taxReceiverId = 0L;
 		String taxReceiverIdString = row.getAttribute("taxReceiverID");
 		if (taxReceiverIdString != null && !taxReceiverIdString.isEmpty()) {
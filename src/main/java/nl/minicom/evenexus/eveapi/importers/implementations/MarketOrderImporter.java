@@ -9,8 +9,8 @@ import javax.inject.Provider;
 import nl.minicom.evenexus.eveapi.ApiParser;
 import nl.minicom.evenexus.eveapi.ApiParser.Api;
 import nl.minicom.evenexus.eveapi.importers.ImportManager;
+import nl.minicom.evenexus.eveapi.importers.ImporterJob;
 import nl.minicom.evenexus.eveapi.importers.ImporterTask;
-import nl.minicom.evenexus.eveapi.importers.ImporterThread;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.persistence.Database;
 import nl.minicom.evenexus.persistence.dao.ApiKey;
@@ -35,11 +35,11 @@ public class MarketOrderImporter extends ImporterTask {
 	public MarketOrderImporter(
 			Database database, 
 			Provider<ApiParser> apiParserProvider, 
-			Provider<ImporterThread> importerThreadProvider, 
+			Provider<ImporterJob> importerJobProvider, 
 			ImportManager importManager,
 			BugReportDialog dialog) {
 		
-		super(database, apiParserProvider, importerThreadProvider, importManager, Api.CHAR_MARKET_ORDERS);
+		super(database, apiParserProvider, importerJobProvider, importManager, Api.CHAR_MARKET_ORDERS);
 		this.dialog = dialog;
 	}
 
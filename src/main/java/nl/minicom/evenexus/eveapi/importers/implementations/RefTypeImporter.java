@@ -6,8 +6,8 @@ import javax.inject.Provider;
 import nl.minicom.evenexus.eveapi.ApiParser;
 import nl.minicom.evenexus.eveapi.ApiParser.Api;
 import nl.minicom.evenexus.eveapi.importers.ImportManager;
+import nl.minicom.evenexus.eveapi.importers.ImporterJob;
 import nl.minicom.evenexus.eveapi.importers.ImporterTask;
-import nl.minicom.evenexus.eveapi.importers.ImporterThread;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.persistence.Database;
 import nl.minicom.evenexus.persistence.dao.ApiKey;
@@ -31,11 +31,11 @@ public class RefTypeImporter extends ImporterTask {
 	public RefTypeImporter(
 			Database database, 
 			Provider<ApiParser> apiParserProvider, 
-			Provider<ImporterThread> importerThreadProvider, 
+			Provider<ImporterJob> importerJobProvider, 
 			ImportManager importManager,
 			BugReportDialog dialog) {
 		
-		super(database, apiParserProvider, importerThreadProvider, importManager, Api.EVE_REF_TYPE);
+		super(database, apiParserProvider, importerJobProvider, importManager, Api.EVE_REF_TYPE);
 		this.dialog = dialog;
 	}
 
@@ -6,9 +6,10 @@ import javax.inject.Provider;
 
 import nl.minicom.evenexus.eveapi.ApiParser;
 import nl.minicom.evenexus.eveapi.ApiParser.Api;
+import nl.minicom.evenexus.eveapi.importers.FeeContextFactory;
 import nl.minicom.evenexus.eveapi.importers.ImportManager;
+import nl.minicom.evenexus.eveapi.importers.ImporterJob;
 import nl.minicom.evenexus.eveapi.importers.ImporterTask;
-import nl.minicom.evenexus.eveapi.importers.ImporterThread;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.persistence.Database;
 import nl.minicom.evenexus.persistence.dao.ApiKey;
@@ -24,6 +25,7 @@ public class SkillImporter extends ImporterTask {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(SkillImporter.class);
 	
+	private final FeeContextFactory feeContextFactory;
 	private final BugReportDialog dialog;
 	
 	private volatile boolean isReady = true;
@@ -32,11 +34,13 @@ public class SkillImporter extends ImporterTask {
 	public SkillImporter(
 			Database database, 
 			Provider<ApiParser> apiParserProvider, 
-			Provider<ImporterThread> importerThreadProvider, 
+			Provider<ImporterJob> importerJobProvider, 
 			ImportManager importManager,
+			FeeContextFactory feeContextFactory,
 			BugReportDialog dialog) {
 		
-		super(database, apiParserProvider, importerThreadProvider, importManager, Api.CHAR_SKILLS);
+		super(database, apiParserProvider, importerJobProvider, importManager, Api.CHAR_SKILLS);
+		this.feeContextFactory = feeContextFactory;
 		this.dialog = dialog;
 	}
 
@@ -55,6 +59,7 @@ public class SkillImporter extends ImporterTask {
 					}
 				}
 			}
+			feeContextFactory.invalidate(apiKey.getCharacterId());
 			isReady = true;
 		}
 	}
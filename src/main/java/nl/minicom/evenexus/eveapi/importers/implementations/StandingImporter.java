@@ -8,9 +8,10 @@ import javax.inject.Provider;
 
 import nl.minicom.evenexus.eveapi.ApiParser;
 import nl.minicom.evenexus.eveapi.ApiParser.Api;
+import nl.minicom.evenexus.eveapi.importers.FeeContextFactory;
 import nl.minicom.evenexus.eveapi.importers.ImportManager;
+import nl.minicom.evenexus.eveapi.importers.ImporterJob;
 import nl.minicom.evenexus.eveapi.importers.ImporterTask;
-import nl.minicom.evenexus.eveapi.importers.ImporterThread;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.persistence.Database;
 import nl.minicom.evenexus.persistence.dao.ApiKey;
@@ -26,6 +27,7 @@ public class StandingImporter extends ImporterTask {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(StandingImporter.class);
 	
+	private final FeeContextFactory feeContextFactory;
 	private final BugReportDialog dialog;
 
 	private volatile boolean isReady = true;
@@ -34,11 +36,13 @@ public class StandingImporter extends ImporterTask {
 	public StandingImporter(
 			Database database, 
 			Provider<ApiParser> apiParserProvider, 
-			Provider<ImporterThread> importerThreadProvider, 
+			Provider<ImporterJob> importerJobProvider, 
 			ImportManager importManager,
+			FeeContextFactory feeContextFactory,
 			BugReportDialog dialog) {
 		
-		super(database, apiParserProvider, importerThreadProvider, importManager, Api.CHAR_STANDINGS);
+		super(database, apiParserProvider, importerJobProvider, importManager, Api.CHAR_STANDINGS);
+		this.feeContextFactory = feeContextFactory;
 		this.dialog = dialog;
 	}
 
@@ -58,6 +62,7 @@ public class StandingImporter extends ImporterTask {
 					}
 				}
 			}
+			feeContextFactory.invalidate(characterId);
 			isReady = true;
 		}
 	}
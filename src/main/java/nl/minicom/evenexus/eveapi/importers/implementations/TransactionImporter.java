@@ -3,25 +3,31 @@ package nl.minicom.evenexus.eveapi.importers.implementations;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 
 import nl.minicom.evenexus.eveapi.ApiParser;
 import nl.minicom.evenexus.eveapi.ApiParser.Api;
+import nl.minicom.evenexus.eveapi.ApiRow;
+import nl.minicom.evenexus.eveapi.importers.FeeContext;
+import nl.minicom.evenexus.eveapi.importers.FeeContextFactory;
 import nl.minicom.evenexus.eveapi.importers.ImportManager;
-import nl.minicom.evenexus.eveapi.importers.ImporterTask;
-import nl.minicom.evenexus.eveapi.importers.ImporterThread;
+import nl.minicom.evenexus.eveapi.importers.ImporterJob;
+import nl.minicom.evenexus.eveapi.importers.PagedRowHandler;
+import nl.minicom.evenexus.eveapi.importers.WalkingImporterTask;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.inventory.InventoryManager;
+import nl.minicom.evenexus.inventory.MatchWatermarks;
+import nl.minicom.evenexus.persistence.DailyTotals;
 import nl.minicom.evenexus.persistence.Database;
 import nl.minicom.evenexus.persistence.dao.ApiKey;
-import nl.minicom.evenexus.persistence.dao.MapRegion;
-import nl.minicom.evenexus.persistence.dao.Skill;
-import nl.minicom.evenexus.persistence.dao.SkillIdentifier;
-import nl.minicom.evenexus.persistence.dao.Standing;
-import nl.minicom.evenexus.persistence.dao.StandingIdentifier;
-import nl.minicom.evenexus.persistence.dao.Station;
 import nl.minicom.evenexus.persistence.dao.WalletTransaction;
 import nl.minicom.evenexus.persistence.interceptor.Transactional;
 import nl.minicom.evenexus.utils.TimeUtils;
@@ -37,11 +43,12 @@ import org.slf4j.LoggerFactory;
  *
  * @author michael
  */
-public class TransactionImporter extends ImporterTask {
+public class TransactionImporter extends WalkingImporterTask {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(TransactionImporter.class);
 	
 	private final InventoryManager inventoryManager;
+	private final FeeContextFactory feeContextFactory;
 	private final BugReportDialog dialog;
 	
 	/**
@@ -53,8 +60,8 @@ public class TransactionImporter extends ImporterTask {
 	 * @param apiParserProvider
 	 * 		A provider of {@link ApiParser}s.
 	 * 
-	 * @param importerThreadProvider
-	 * 		A provider of {@link ImporterThread} objects.
+	 * @param importerJobProvider
+	 * 		A provider of {@link ImporterJob} objects.
 	 * 
 	 * @param importManager
 	 * 		The {@link ImportManager}.
@@ -62,6 +69,9 @@ public class TransactionImporter extends ImporterTask {
 	 * @param inventoryManager
 	 * 		The {@link ImportManager}.
 	 * 
+	 * @param feeContextFactory
+	 * 		The {@link FeeContextFactory}.
+	 * 
 	 * @param dialog
 	 * 		The {@link BugReportDialog}.
 	 */
@@ -69,201 +79,180 @@ public class TransactionImporter extends ImporterTask {
 	public TransactionImporter(
 			Database database, 
 			Provider<ApiParser> apiParserProvider, 
-			Provider<ImporterThread> importerThreadProvider, 
+			Provider<ImporterJob> importerJobProvider, 
 			ImportManager importManager,
 			InventoryManager inventoryManager, 
+			FeeContextFactory feeContextFactory,
 			BugReportDialog dialog) {
 		
-		super(database, apiParserProvider, importerThreadProvider, importManager, Api.CHAR_WALLET_TRANSACTIONS);
+		super(database, apiParserProvider, importerJobProvider, importManager, Api.CHAR_WALLET_TRANSACTIONS);
 		
 		this.inventoryManager = inventoryManager;
+		this.feeContextFactory = feeContextFactory;
 		this.dialog = dialog;
 	}
 
 	@Override
-	public void parseApi(Node node, ApiKey apiKey) {
-		int inserted = 0;
-		
-		final int brokerRelation = getSkillLevel(apiKey.getCharacterId(), 3446);
-		final int accounting = getSkillLevel(apiKey.getCharacterId(), 16622);
-		final Node root = node.get("result").get("rowset");
-		for (int i = root.size() - 1; i >= 0; i--) {
-			if (processRow(root, i, apiKey, brokerRelation, accounting)) {
-				inserted++;
-			}
-		}
-		
-		LOG.info("Inserted " + inserted + " new transactions.");
+	public void parseApi(Node node, ApiKey apiKey) throws Exception {
+		parseRows(node.get("result").get("rowset"), createRowHandler(apiKey));
 	}
 	
-	private int getSkillLevel(long characterId, long skillId) {
-		int level = 0;
-		Skill skill = getSkill(new SkillIdentifier(characterId, skillId));
-		if (skill != null) {
-			level = skill.getLevel();
-		}
+	@Override
+	protected PagedRowHandler createRowHandler(final ApiKey apiKey) {
+		final FeeContext fees = feeContextFactory.getFeeContext(apiKey.getCharacterId());
 		
-		return level;
+		return new PagedRowHandler() {
+			@Override
+			protected int persistPage(List<ApiRow> rows) {
+				try {
+					return persistChangeData(rows, apiKey, fees);
+				}
+				catch (Exception e) {
+					LOG.error(e.getLocalizedMessage(), e);
+					dialog.setVisible(true);
+				}
+				return 0;
+			}
+			
+			@Override
+			protected void onFinished(int inserted) {
+				LOG.info("Inserted " + inserted + " new transactions.");
+			}
+		};
 	}
 	
-	/**
-	 * This method returns the level of the specified skill.
-	 * 
-	 * @param id
-	 * 		The identifier of the skill and character.
-	 * 
-	 * @return
-	 * 		The level of the specified skill.
-	 */
-	@Transactional
-	Skill getSkill(final SkillIdentifier id) {
-		Session session = getDatabase().getCurrentSession();
-		return (Skill) session.get(Skill.class, id);
+	@Override
+	protected long getRowId(ApiRow row) {
+		return Long.parseLong(row.getAttribute("transactionID"));
 	}
 
-	private boolean processRow(Node root, int i, ApiKey apiKey, int brokerRelation, int accounting) {
-		if (root.get(i) instanceof Node) {
-			Node row = (Node) root.get(i);
-			if (row.getTag().equals("row")) {
-				return persistChangeData(row, apiKey, brokerRelation, accounting);
-			}
-		}
-		return false;
+	@Override
+	protected Map<String, String> createWalkArguments(long beforeId) {
+		// Older API servers only understand the beforeTransID argument.
+		Map<String, String> arguments = new HashMap<String, String>();
+		arguments.put("fromID", Long.toString(beforeId));
+		arguments.put("beforeTransID", Long.toString(beforeId));
+		return arguments;
 	}
-
+	
 	/**
-	 * This method persists a new wallet transaction to the database.
+	 * This method persists a page of wallet transactions to the database in a single transaction. 
+	 * Transactions which are already stored are skipped. The {@link DailyTotals} of the days of the 
+	 * new transactions are recalculated, and the {@link MatchWatermarks} of their types are lowered 
+	 * if required, in the same transaction.
 	 * 
-	 * @param row
-	 * 		The {@link Node} containing the transaction data.
+	 * @param rows
+	 * 		The {@link ApiRow}s containing the transaction data.
 	 * 
 	 * @param apiKey
-	 * 		The apiKey used to retrieve this transaction from the API.
-	 * 
-	 * @param brokerRelation
-	 * 		The level of the broker relation skill.
+	 * 		The apiKey used to retrieve these transactions from the API.
 	 * 
-	 * @param accounting
-	 * 		The level of the accounting skill.
+	 * @param fees
+	 * 		The {@link FeeContext} of the character.
 	 * 
 	 * @return
-	 * 		True if the transaction was persisted, or false if it was not.
+	 * 		The amount of transactions which were persisted.
 	 */
 	@Transactional
-	boolean persistChangeData(Node row, ApiKey apiKey, int brokerRelation, int accounting) {
-		Session session = getDatabase().getCurrentSession();
-
-		try {
-			Timestamp currentTime = TimeUtils.convertToTimestamp(row.getAttribute("transactionDateTime"));
-			long transactionID = Long.parseLong(row.getAttribute("transactionID")); 
-			long quantity = Long.parseLong(row.getAttribute("quantity")); 
-			String typeName = row.getAttribute("typeName");
-			long typeId = Long.parseLong(row.getAttribute("typeID"));
-			BigDecimal price = BigDecimal.valueOf(Float.parseFloat(row.getAttribute("price"))); 
-			long clientId = Long.parseLong(row.getAttribute("clientID")); 
-			String clientName = row.getAttribute("clientName");
-			long stationId = Long.parseLong(row.getAttribute("stationID")); 
-			String stationName = row.getAttribute("stationName");
-			boolean isBuy = ("buy").equals(row.getAttribute("transactionType")); 
-			boolean isPersonal = ("personal").equals(row.getAttribute("transactionFor"));
-			
-			double corporationStanding = getCorporationStanding(apiKey, stationId);
-			double factionStanding = getFactionStanding(apiKey, stationId);
-			
-			double brokerFees = (0.01 - 0.0005 * brokerRelation / Math.pow(2.0, 0.14 * factionStanding + 0.06 * corporationStanding));
-			double marketTax = 0.0;
-			if (!isBuy) {
-				marketTax += 0.01 - 0.0005 * accounting;
+	int persistChangeData(List<ApiRow> rows, ApiKey apiKey, FeeContext fees) {
+		Map<Long, ApiRow> rowsById = new LinkedHashMap<Long, ApiRow>();
+		for (ApiRow row : rows) {
+			try {
+				rowsById.put(Long.parseLong(row.getAttribute("transactionID")), row);
 			}
-			
-			WalletTransaction transaction = (WalletTransaction) session.get(WalletTransaction.class, transactionID);
-			if (transaction == null) {
-				BigDecimal actualPrice = price;
-				if (isBuy) {
-					actualPrice = price.negate();
+			catch (NumberFormatException e) {
+				LOG.error(e.getLocalizedMessage(), e);
+				dialog.setVisible(true);
+			}
+		}
+		
+		Set<Long> existing = listExistingIds(WalletTransaction.class, WalletTransaction.TRANSACTION_ID, 
+				rowsById.keySet());
+		
+		List<WalletTransaction> transactions = new ArrayList<WalletTransaction>();
+		for (Map.Entry<Long, ApiRow> entry : rowsById.entrySet()) {
+			if (!existing.contains(entry.getKey())) {
+				try {
+					transactions.add(createTransaction(entry.getValue(), apiKey, fees));
+				} 
+				catch (Exception e) {
+					LOG.error(e.getLocalizedMessage(), e);
+					dialog.setVisible(true);
 				}
-				
-				transaction = new WalletTransaction();
-				transaction.setTransactionId(transactionID);
-				transaction.setTransactionDateTime(currentTime);
-				transaction.setCharacterId(apiKey.getCharacterId());
-				transaction.setQuantity(quantity);
-				transaction.setRemaining(quantity);
-				transaction.setTypeName(typeName);
-				transaction.setTypeId(typeId);
-				transaction.setPrice(actualPrice);
-				transaction.setTaxes(BigDecimal.valueOf(brokerFees + marketTax).multiply(price.abs()).negate());
-				transaction.setClientId(clientId);
-				transaction.setClientName(clientName);
-				transaction.setStationId(stationId);
-				transaction.setStationName(stationName);
-				transaction.setPersonal(isPersonal);
-				
-				session.save(transaction);
-				
-				return true;
 			}
-		} 
-		catch (Exception e) {
-			LOG.error(e.getLocalizedMessage(), e);
-			dialog.setVisible(true);
 		}
 		
-		return false;
+		saveInBatches(transactions);
+		MatchWatermarks.lower(getDatabase().getCurrentSession(), transactions);
+		updateDailyTotals(transactions, apiKey);
+		return transactions.size();
 	}
-
-	/**
-	 * This method retrieves the corporation's standing of this character with a certain station's owner.
-	 * 
-	 * @param apiKey
-	 * 		The {@link ApiKey} containing the character id.
-	 * 
-	 * @param stationId
-	 * 		The station id.
-	 * 
-	 * @return
-	 * 		The corporation's standing of this character with a certain station's owner.
-	 */
-	@Transactional
-	double getCorporationStanding(ApiKey apiKey, long stationId) {
-		Session session = getDatabase().getCurrentSession();
-		Station station = (Station) session.get(Station.class, stationId);
-		if (station != null) {
-			long characterId = apiKey.getCharacterId();
-			StandingIdentifier id = new StandingIdentifier(characterId, station.getCorporationId());
-			Standing standing = (Standing) session.get(Standing.class, id);
-			if (standing != null) {
-				return standing.getStanding().doubleValue();
+	
+	private void updateDailyTotals(List<WalletTransaction> transactions, ApiKey apiKey) {
+		if (transactions.isEmpty()) {
+			return;
+		}
+		
+		Timestamp from = transactions.get(0).getTransactionDateTime();
+		Timestamp to = from;
+		for (WalletTransaction transaction : transactions) {
+			Timestamp time = transaction.getTransactionDateTime();
+			if (time.before(from)) {
+				from = time;
+			}
+			if (time.after(to)) {
+				to = time;
 			}
 		}
-		return 0.0;
-	}
-
-	/**
-	 * This method retrieves the faction standings for a certain region.
-	 * 
-	 * @param apiKey
-	 * 		The {@link ApiKey} containing the character id.
-	 * 
-	 * @param mapRegionId
-	 * 		The id of the region.
-	 * 
-	 * @return
-	 * 		The faction standing of this character with this region's empire.
-	 */
-	@Transactional
-	double getFactionStanding(ApiKey apiKey, long mapRegionId) {
+		
 		Session session = getDatabase().getCurrentSession();
-		MapRegion region = (MapRegion) session.get(MapRegion.class, mapRegionId);
-		if (region != null) {
-			long characterId = apiKey.getCharacterId();
-			StandingIdentifier id = new StandingIdentifier(characterId, region.getFactionId());
-			Standing standing = (Standing) session.get(Standing.class, id);
-			return standing.getStanding().doubleValue();
-		}
-		return 0.0;
+		session.flush();
+		DailyTotals.refreshTransactions(session, apiKey.getCharacterId(), from, to);
 	}
 	
+	private WalletTransaction createTransaction(ApiRow row, ApiKey apiKey, FeeContext fees) throws Exception {
+		Timestamp currentTime = TimeUtils.convertToTimestamp(row.getAttribute("transactionDateTime"));
+		long transactionID = Long.parseLong(row.getAttribute("transactionID")); 
+		long quantity = Long.parseLong(row.getAttribute("quantity")); 
+		String typeName = row.getAttribute("typeName");
+		long typeId = Long.parseLong(row.getAttribute("typeID"));
+		BigDecimal price = BigDecimal.valueOf(Float.parseFloat(row.getAttribute("price"))); 
+		long clientId = Long.parseLong(row.getAttribute("clientID")); 
+		String clientName = row.getAttribute("clientName");
+		long stationId = Long.parseLong(row.getAttribute("stationID")); 
+		String stationName = row.getAttribute("stationName");
+		boolean isBuy = ("buy").equals(row.getAttribute("transactionType")); 
+		boolean isPersonal = ("personal").equals(row.getAttribute("transactionFor"));
+		
+		double brokerFees = fees.getBrokerFee(stationId);
+		double marketTax = 0.0;
+		if (!isBuy) {
+			marketTax += fees.getSalesTax();
+		}
+		
+		BigDecimal actualPrice = price;
+		if (isBuy) {
+			actualPrice = price.negate();
+		}
+		
+		WalletTransaction transaction = new WalletTransaction();
+		transaction.setTransactionId(transactionID);
+		transaction.setTransactionDateTime(currentTime);
+		transaction.setCharacterId(apiKey.getCharacterId());
+		transaction.setQuantity(quantity);
+		transaction.setRemaining(quantity);
+		transaction.setTypeName(typeName);
+		transaction.setTypeId(typeId);
+		transaction.setPrice(actualPrice);
+		transaction.setTaxes(BigDecimal.valueOf(brokerFees + marketTax).multiply(price.abs()).negate());
+		transaction.setClientId(clientId);
+		transaction.setClientName(clientName);
+		transaction.setStationId(stationId);
+		transaction.setStationName(stationName);
+		transaction.setPersonal(isPersonal);
+		return transaction;
+	}
+
 	@Override
 	public final boolean isReady() {
 		return inventoryManager.isIdle();
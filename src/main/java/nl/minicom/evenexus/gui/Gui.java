@@ -30,6 +30,7 @@ import nl.minicom.evenexus.gui.utils.GuiListener;
 import nl.minicom.evenexus.gui.utils.dialogs.AboutDialog;
 import nl.minicom.evenexus.gui.utils.dialogs.ExportDatabaseDialog;
 import nl.minicom.evenexus.gui.utils.dialogs.ImportDatabaseDialog;
+import nl.minicom.evenexus.inventory.InventoryManager;
 import nl.minicom.evenexus.utils.SettingsManager;
 
 import org.slf4j.Logger;
@@ -48,6 +49,7 @@ public class Gui extends JFrame {
 	private static final int WIDTH = 850;
 	
 	private final SettingsManager settingsManager;
+	private final InventoryManager inventoryManager;
 	
 	private final DashboardPanel dashboardPanel;
 	private final JournalsPanel journalsPanel;
@@ -67,6 +69,7 @@ public class Gui extends JFrame {
 
 	@Inject
 	public Gui(SettingsManager settingsManager,
+			InventoryManager inventoryManager,
 			DashboardPanel dashboardPanel,
 			JournalsPanel journalsPanel,
 			TransactionsPanel transactionPanel,
@@ -81,6 +84,7 @@ public class Gui extends JFrame {
 			Provider<AboutDialog> aboutDialogProvider) {
 		
 		this.settingsManager = settingsManager;
+		this.inventoryManager = inventoryManager;
 		this.dashboardPanel = dashboardPanel;
 		this.journalsPanel = journalsPanel;
 		this.transactionPanel = transactionPanel;
@@ -207,6 +211,15 @@ public class Gui extends JFrame {
 			}
 		});
 		
+		JMenuItem rebuildMenu = new JMenuItem("Rebuild profits", Icon.getIcon("/img/16/pie_chart.png"));
+		applicationMenu.add(rebuildMenu);
+		rebuildMenu.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent arg0) {
+				inventoryManager.requestProfitRebuild();
+			}
+		});
+		
 		applicationMenu.addSeparator();
 		
 		JMenuItem exitMenu = new JMenuItem("Exit", Icon.getIcon("/img/16/remove.png"));
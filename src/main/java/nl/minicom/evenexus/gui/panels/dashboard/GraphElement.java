@@ -6,7 +6,7 @@ import org.jfree.chart.renderer.xy.XYItemRenderer;
 
 public interface GraphElement {
 	
-	void reload() throws SQLException;
+	void reload(int period) throws SQLException;
 	
 	boolean isVisible();
 	
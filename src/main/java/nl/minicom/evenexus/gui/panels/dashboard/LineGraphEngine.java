@@ -67,7 +67,7 @@ public class LineGraphEngine extends ChartPanel {
 			for (int i = 0; i < elements.size(); i++) {
 				GraphElement element = elements.get(i);
 				if (element.isVisible()) {
-					element.reload();
+					element.reload(period);
 					collection.addSeries(createDataset(element));
 					element.setRenderer(renderer, count);
 					count++;
@@ -3,20 +3,16 @@ package nl.minicom.evenexus.gui.panels.dashboard;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.geom.Ellipse2D;
-import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.Map;
 import java.util.TreeMap;
 
 import javax.inject.Inject;
 
-import nl.minicom.evenexus.persistence.Database;
-import nl.minicom.evenexus.persistence.dao.Profit;
-import nl.minicom.evenexus.persistence.interceptor.Transactional;
+import nl.minicom.evenexus.persistence.DailyTotals;
 import nl.minicom.evenexus.utils.SettingsManager;
+import nl.minicom.evenexus.utils.TimeUtils;
 
-import org.hibernate.SQLQuery;
-import org.hibernate.ScrollableResults;
-import org.hibernate.Session;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
 
 public class ProfitGraphElement implements GraphElement {
@@ -24,15 +20,15 @@ public class ProfitGraphElement implements GraphElement {
 	private static final String VISIBLE_SETTING = SettingsManager.DASHBOARD_GRAPH_PROFITS_VISIBLE;
 
 	private final SettingsManager settingsManager;
-	private final Database database;
+	private final DailyTotals dailyTotals;
 	
 	private final Map<Integer, Double> data;
 	
 	@Inject
-	public ProfitGraphElement(SettingsManager settingsManager, Database database) {
+	public ProfitGraphElement(SettingsManager settingsManager, DailyTotals dailyTotals) {
 		this.data = new TreeMap<Integer, Double>();
 		this.settingsManager = settingsManager;
-		this.database = database;
+		this.dailyTotals = dailyTotals;
 	}
 
 	@Override
@@ -46,38 +42,12 @@ public class ProfitGraphElement implements GraphElement {
 	}
 
 	@Override
-	@Transactional
-	public void reload() {
-		Session session = database.getCurrentSession();
-
-		StringBuilder queryBuilder = new StringBuilder();
-		queryBuilder.append("SELECT ");
-		queryBuilder.append("	SUM(" + Profit.TOTAL_NET_PROFIT + "), ");
-		queryBuilder.append("	day ");
-		queryBuilder.append("FROM (");
-		queryBuilder.append("	SELECT ");
-		queryBuilder.append("		" + Profit.TOTAL_NET_PROFIT + ", ");
-		queryBuilder.append("		" + Profit.DATE + ", ");
-		queryBuilder.append("		DAY_OF_YEAR(CURRENT_TIMESTAMP()) - DAY_OF_YEAR(" + Profit.DATE + ") AS day ");
-		queryBuilder.append("	FROM profits ");
-		queryBuilder.append("	WHERE " + Profit.DATE + " > DATEADD('DAY', ?, CURRENT_TIMESTAMP())");
-		queryBuilder.append(") ");
-		queryBuilder.append("GROUP BY day ");
-		queryBuilder.append("ORDER BY day ASC");
+	public void reload(int period) {
+		Timestamp now = new Timestamp(TimeUtils.getServerTime());
+		Map<Integer, Double> totals = dailyTotals.listDailyTotals(DailyTotals.PROFIT, period, now);
 		
-		SQLQuery query = session.createSQLQuery(queryBuilder.toString());
-		query.setLong(0, -28);
-
-		ScrollableResults result = query.scroll();
-		if (result.first()) {
-			data.clear();
-			do {
-				double profit = ((BigDecimal) result.get(0)).doubleValue();
-				int daysAgo = (Integer) result.get(1);
-				data.put(daysAgo, profit);
-			}
-			while (result.next());
-		}
+		data.clear();
+		data.putAll(totals);
 	}
 
 	@Override
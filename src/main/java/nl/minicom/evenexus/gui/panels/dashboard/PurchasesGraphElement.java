@@ -3,20 +3,16 @@ package nl.minicom.evenexus.gui.panels.dashboard;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.geom.Ellipse2D;
-import java.math.BigDecimal;
-import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.Map;
 import java.util.TreeMap;
 
 import javax.inject.Inject;
 
-import nl.minicom.evenexus.persistence.Database;
-import nl.minicom.evenexus.persistence.dao.WalletTransaction;
+import nl.minicom.evenexus.persistence.DailyTotals;
 import nl.minicom.evenexus.utils.SettingsManager;
+import nl.minicom.evenexus.utils.TimeUtils;
 
-import org.hibernate.SQLQuery;
-import org.hibernate.ScrollableResults;
-import org.hibernate.Session;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
 
 public class PurchasesGraphElement implements GraphElement {
@@ -24,15 +20,15 @@ public class PurchasesGraphElement implements GraphElement {
 	private static final String VISIBLE_SETTING = SettingsManager.DASHBOARD_GRAPH_PURCHASES_VISIBLE;
 
 	private final SettingsManager settingsManager;
-	private final Database database;
+	private final DailyTotals dailyTotals;
 	
 	private final Map<Integer, Double> data;
 	
 	@Inject
-	public PurchasesGraphElement(SettingsManager settingsManager, Database database) {
+	public PurchasesGraphElement(SettingsManager settingsManager, DailyTotals dailyTotals) {
 		this.data = new TreeMap<Integer, Double>();
 		this.settingsManager = settingsManager;
-		this.database = database;
+		this.dailyTotals = dailyTotals;
 	}
 	
 	@Override
@@ -46,40 +42,13 @@ public class PurchasesGraphElement implements GraphElement {
 	}
 
 	@Override
-	public void reload() throws SQLException {
-		Session session = database.getCurrentSession();
-		String dateField = WalletTransaction.TRANSACTION_DATE_TIME;
+	public void reload(int period) {
+		Timestamp now = new Timestamp(TimeUtils.getServerTime());
+		Map<Integer, Double> totals = dailyTotals.listDailyTotals(DailyTotals.PURCHASES, period, now);
 		
-		StringBuilder queryBuilder = new StringBuilder();
-		queryBuilder.append("SELECT ");
-		queryBuilder.append("	ABS(SUM(quantity * (price + taxes))), ");
-		queryBuilder.append("	day ");
-		queryBuilder.append("FROM (");
-		queryBuilder.append("	SELECT ");
-		queryBuilder.append("		" + WalletTransaction.QUANTITY + " AS quantity, ");
-		queryBuilder.append("		" + WalletTransaction.PRICE + " AS price, ");
-		queryBuilder.append("		" + WalletTransaction.TAXES + " AS taxes, ");
-		queryBuilder.append("		DAY_OF_YEAR(CURRENT_TIMESTAMP()) - DAY_OF_YEAR(" + dateField + ") AS day ");
-		queryBuilder.append("	FROM transactions ");
-		queryBuilder.append("	WHERE " + WalletTransaction.PRICE + " < 0.00 ");
-		queryBuilder.append("		AND " + dateField + " > DATEADD('DAY', ?, CURRENT_TIMESTAMP())");
-		queryBuilder.append(") ");
-		queryBuilder.append("GROUP BY day ");
-		queryBuilder.append("ORDER BY day ASC");
-		
-		SQLQuery query = session.createSQLQuery(queryBuilder.toString());
-
-		query.setLong(0, -28);
-
-		ScrollableResults result = query.scroll();
-		if (result.first()) {
-			data.clear();
-			do {
-				double purchases = ((BigDecimal) result.get(0)).doubleValue();
-				int daysAgo = (Integer) result.get(1);
-				data.put(daysAgo, purchases);
-			}
-			while (result.next());
+		data.clear();
+		for (Map.Entry<Integer, Double> entry : totals.entrySet()) {
+			data.put(entry.getKey(), Math.abs(entry.getValue()));
 		}
 	}
 
@@ -3,19 +3,16 @@ package nl.minicom.evenexus.gui.panels.dashboard;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.geom.Ellipse2D;
-import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.Map;
 import java.util.TreeMap;
 
 import javax.inject.Inject;
 
-import nl.minicom.evenexus.persistence.Database;
-import nl.minicom.evenexus.persistence.dao.WalletTransaction;
+import nl.minicom.evenexus.persistence.DailyTotals;
 import nl.minicom.evenexus.utils.SettingsManager;
+import nl.minicom.evenexus.utils.TimeUtils;
 
-import org.hibernate.SQLQuery;
-import org.hibernate.ScrollableResults;
-import org.hibernate.Session;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
 
 public class TaxesGraphElement implements GraphElement {
@@ -23,14 +20,14 @@ public class TaxesGraphElement implements GraphElement {
 	private static final String VISIBLE_SETTING = SettingsManager.DASHBOARD_GRAPH_VISIBLE;
 
 	private final SettingsManager settingsManager;
-	private final Database database;
+	private final DailyTotals dailyTotals;
 	private final Map<Integer, Double> data;
 	
 	@Inject
-	public TaxesGraphElement(SettingsManager settingsManager, Database database) {
+	public TaxesGraphElement(SettingsManager settingsManager, DailyTotals dailyTotals) {
 		this.data = new TreeMap<Integer, Double>();
 		this.settingsManager = settingsManager;
-		this.database = database;
+		this.dailyTotals = dailyTotals;
 	}
 	
 	@Override
@@ -44,37 +41,13 @@ public class TaxesGraphElement implements GraphElement {
 	}
 
 	@Override
-	public void reload() {
-		Session session = database.getCurrentSession();
-		String dateField = WalletTransaction.TRANSACTION_DATE_TIME;
+	public void reload(int period) {
+		Timestamp now = new Timestamp(TimeUtils.getServerTime());
+		Map<Integer, Double> totals = dailyTotals.listDailyTotals(DailyTotals.TAXES, period, now);
 		
-		StringBuilder queryBuilder = new StringBuilder()
-		.append("SELECT ")
-		.append("	ABS(SUM(quantity * taxes)), ")
-		.append("	day ")
-		.append("FROM (")
-		.append("	SELECT ")
-		.append("		" + WalletTransaction.QUANTITY + " AS quantity, ")
-		.append("		" + WalletTransaction.TAXES + " AS taxes, ")
-		.append("		DAY_OF_YEAR(CURRENT_TIMESTAMP()) - DAY_OF_YEAR(" + dateField + ") AS day ")
-		.append("	FROM transactions ")
-		.append("	WHERE " + dateField + " > DATEADD('DAY', ?, CURRENT_TIMESTAMP()) ")
-		.append(") ")
-		.append("GROUP BY day ")
-		.append("ORDER BY day ASC");
-		
-		SQLQuery query = session.createSQLQuery(queryBuilder.toString());
-		query.setLong(0, -28);
-
-		ScrollableResults result = query.scroll();
-		if (result.first()) {
-			data.clear();
-			do {
-				double taxes = ((BigDecimal) result.get(0)).doubleValue();
-				int daysAgo = (Integer) result.get(1);
-				data.put(daysAgo, taxes);
-			}
-			while (result.next());
+		data.clear();
+		for (Map.Entry<Integer, Double> entry : totals.entrySet()) {
+			data.put(entry.getKey(), Math.abs(entry.getValue()));
 		}
 	}
 
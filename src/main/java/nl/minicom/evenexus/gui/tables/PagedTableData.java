@@ -0,0 +1,197 @@
+package nl.minicom.evenexus.gui.tables;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javax.swing.SwingUtilities;
+
+import nl.minicom.evenexus.gui.tables.columns.ColumnModel;
+import nl.minicom.evenexus.gui.tables.datamodel.IPagedTableDataModel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link PagedTableData} class holds the rows of a {@link Table} whose {@link IPagedTableDataModel}
+ * loads its rows in pages. Only the number of rows is known up front. Pages are loaded in the background
+ * when one of their rows is first requested, and the least recently used pages are dropped when more than
+ * {@link #MAX_PAGES} pages are held. Until a page has been loaded, its rows are empty.
+ *
+ * The key of the last row of every loaded page is remembered, so that (re)loading the next page can
+ * continue right after that key. Only pages which are reached without passing the previous page (for
+ * instance by dragging the scroll bar) are loaded by offset.
+ *
+ * <p>This class is thread-safe!</p>
+ *
+ * @author michael
+ */
+final class PagedTableData implements TableRows {
+
+	static final int PAGE_SIZE = 200;
+
+	private static final int MAX_PAGES = 25;
+
+	private static final Logger LOG = LoggerFactory.getLogger(PagedTableData.class);
+
+	private final ColumnModel columnModel;
+	private final IPagedTableDataModel dataModel;
+	private final Executor executor;
+	private final Runnable pageListener;
+	private final int rows;
+
+	private final Map<Integer, TableData> pages;
+	private final Map<Integer, Object[]> lastKeys;
+	private final Map<Integer, Long> requests;
+	private long requestCount = 0;
+	private volatile boolean discarded = false;
+
+	/**
+	 * This constructs a new {@link PagedTableData} object.
+	 *
+	 * @param columnModel
+	 * 		The {@link ColumnModel} describing the columns of the {@link Table}.
+	 *
+	 * @param dataModel
+	 * 		The {@link IPagedTableDataModel} to load the pages from.
+	 *
+	 * @param executor
+	 * 		The {@link Executor} to load the pages on.
+	 *
+	 * @param pageListener
+	 * 		The {@link Runnable} to run on the Event Dispatch Thread, whenever a page has been loaded.
+	 */
+	PagedTableData(ColumnModel columnModel, IPagedTableDataModel dataModel, Executor executor,
+			Runnable pageListener) {
+
+		this.columnModel = columnModel;
+		this.dataModel = dataModel;
+		this.executor = executor;
+		this.pageListener = pageListener;
+		this.rows = dataModel.count();
+
+		this.lastKeys = new HashMap<Integer, Object[]>();
+		this.requests = new HashMap<Integer, Long>();
+		this.pages = new LinkedHashMap<Integer, TableData>(MAX_PAGES + 1, 0.75f, true) {
+			private static final long serialVersionUID = -2866127453211408478L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, TableData> eldest) {
+				return size() > MAX_PAGES;
+			}
+		};
+
+		if (rows > 0) {
+			loadPage(0);
+		}
+	}
+
+	@Override
+	public int size() {
+		return rows;
+	}
+
+	@Override
+	public boolean hasColumn(int column) {
+		return column >= 0 && column < columnModel.getSize();
+	}
+
+	@Override
+	public Object getValue(int row, int column) {
+		TableData page = getPage(row / PAGE_SIZE);
+		int index = row % PAGE_SIZE;
+		if (page == null || index >= page.size()) {
+			return "";
+		}
+		return page.getValue(index, column);
+	}
+
+	@Override
+	public Map<String, Object> getRow(int row) {
+		TableData page = getPage(row / PAGE_SIZE);
+		int index = row % PAGE_SIZE;
+		if (page == null || index >= page.size()) {
+			return Collections.emptyMap();
+		}
+		return page.getRow(index);
+	}
+
+	/**
+	 * This method stops loading pages for this {@link PagedTableData} object, because the {@link Table}
+	 * no longer displays it.
+	 */
+	void discard() {
+		discarded = true;
+	}
+
+	private TableData getPage(final int page) {
+		synchronized (this) {
+			TableData data = pages.get(page);
+			if (data != null || requests.containsKey(page) || discarded) {
+				return data;
+			}
+			requests.put(page, ++requestCount);
+		}
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (!isWanted(page)) {
+					return;
+				}
+
+				try {
+					loadPage(page);
+				}
+				catch (Exception e) {
+					LOG.error(e.getLocalizedMessage(), e);
+					store(page, TableData.EMPTY, null);
+				}
+				SwingUtilities.invokeLater(pageListener);
+			}
+		});
+		return null;
+	}
+
+	private boolean isWanted(int page) {
+		synchronized (this) {
+			// Pages requested this long ago would already have been dropped again by now.
+			Long request = requests.get(page);
+			if (discarded || request == null || requestCount - request >= MAX_PAGES) {
+				requests.remove(page);
+				return false;
+			}
+			return true;
+		}
+	}
+
+	private void loadPage(int page) {
+		Object[] after = null;
+		if (page > 0) {
+			synchronized (this) {
+				after = lastKeys.get(page - 1);
+			}
+		}
+
+		List<Object[]> values = dataModel.loadPage(after, page * PAGE_SIZE, PAGE_SIZE);
+		Object[] lastKey = null;
+		if (!values.isEmpty()) {
+			lastKey = dataModel.getKey(values.get(values.size() - 1));
+		}
+		store(page, TableData.create(columnModel, dataModel.getFields(), values), lastKey);
+	}
+
+	private void store(int page, TableData data, Object[] lastKey) {
+		synchronized (this) {
+			pages.put(page, data);
+			requests.remove(page);
+			if (lastKey != null) {
+				lastKeys.put(page, lastKey);
+			}
+		}
+	}
+
+}
@@ -2,14 +2,19 @@ package nl.minicom.evenexus.gui.tables;
 
 
 import java.awt.Color;
-import java.util.ArrayList;
+import java.awt.Cursor;
 import java.util.Enumeration;
-import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.swing.JTable;
+import javax.swing.SwingUtilities;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableModel;
@@ -17,6 +22,7 @@ import javax.swing.table.TableModel;
 import nl.minicom.evenexus.gui.tables.columns.Column;
 import nl.minicom.evenexus.gui.tables.columns.ColumnModel;
 import nl.minicom.evenexus.gui.tables.columns.listeners.TableColumnResizeModelListener;
+import nl.minicom.evenexus.gui.tables.datamodel.IPagedTableDataModel;
 import nl.minicom.evenexus.gui.tables.datamodel.ITableDataModel;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 
@@ -30,20 +36,42 @@ public class Table extends JTable {
 
 	private static final Logger LOG = LoggerFactory.getLogger(Table.class);
 
-	private final List<Map<String, Object>> data;
+	private static final ThreadPoolExecutor LOADER = createLoader();
+
 	private final BugReportDialog dialog;
 	
 	private ColumnModel columnModel;
 	private ITableDataModel tableDataModel;
 	
+	private volatile TableRows data = TableData.EMPTY;
+	private volatile int[] visibleColumns = new int[0];
 	private volatile boolean isInitialized = false;
+	private volatile boolean loading = false;
+	private volatile long generation = 0;
+	private Future<?> pendingLoad;
 	
 	@Inject
 	public Table(BugReportDialog dialog) {
-		this.data = new ArrayList<Map<String, Object>>();
 		this.dialog = dialog;
 	}
 	
+	private static ThreadPoolExecutor createLoader() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 1, TimeUnit.MINUTES, 
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			
+			private final AtomicInteger counter = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "TableLoader-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
 	public void initialize(ITableDataModel tableDataModel, ColumnModel columns) {
 		synchronized (this) {
 			if (isInitialized) {
@@ -69,7 +97,8 @@ public class Table extends JTable {
 		}
 	}
 	
-	private void updateColumns() {		
+	private void updateColumns() {
+		updateVisibleColumns();
 		for (int i = 0; i < columnModel.getSize(); i++) {
 			Column column = columnModel.get(i);
 			if (column.isVisible() && isRemoved(column)) {
@@ -104,6 +133,21 @@ public class Table extends JTable {
 		}
 	}
 
+	private void updateVisibleColumns() {
+		columnModel.synchronize();
+		int[] columns = new int[columnModel.getVisibleSize()];
+		for (int i = 0; i < columnModel.getSize(); i++) {
+			Column column = columnModel.get(i);
+			if (column.isVisible()) {
+				int index = columnModel.getVisibleIndex(column);
+				if (index >= 0 && index < columns.length) {
+					columns[index] = i;
+				}
+			}
+		}
+		visibleColumns = columns;
+	}
+
 	private boolean isRemoved(Column column) {
 		for (int i = 0; i < getColumnCount(); i++) {
 			if (getColumnModel().getColumn(i).getHeaderValue().equals(column.getName())) {
@@ -123,53 +167,155 @@ public class Table extends JTable {
 		}
 	}
 	
+	/**
+	 * This method reloads the data of this {@link Table}. The data is queried on a background thread, 
+	 * after which the new rows are swapped in on the Event Dispatch Thread. While loading, the table 
+	 * shows a wait cursor. When a newer reload is requested before an older one has finished, the 
+	 * older one is cancelled (if it has not started yet) or its result is discarded. When the data model
+	 * is an {@link IPagedTableDataModel} which is currently paged, only the first page is loaded up front.
+	 */
 	public final void reload() {
 		synchronized (this) {
 			if (!isInitialized) {
 				return;
 			}
 			
-			try {
-				data.clear();
-				String[] fields = tableDataModel.getFields();
-				List<Object[]> values = tableDataModel.reload();
-				for (Object[] value : values) {
-					Map<String, Object> row = new TreeMap<String, Object>();
-					for (int i = 0; i < columnModel.getSize(); i++) {
-						Column column = columnModel.get(i);
-						int index = indexOf(fields, column.getColumn());
-						if (index >= 0) {
-							row.put(column.getName(), value[index]);
-						}
+			final long loadGeneration = ++generation;
+			if (pendingLoad != null) {
+				pendingLoad.cancel(false);
+			}
+			
+			invokeOnEventDispatchThread(new Runnable() {
+				@Override
+				public void run() {
+					setLoading(true);
+				}
+			});
+			
+			pendingLoad = LOADER.submit(new Runnable() {
+				@Override
+				public void run() {
+					load(loadGeneration);
+				}
+			});
+		}
+	}
+	
+	private void load(final long loadGeneration) {
+		if (loadGeneration != generation) {
+			return;
+		}
+		
+		try {
+			final TableRows rows = createRows();
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					publish(loadGeneration, rows);
+				}
+			});
+		}
+		catch (Exception e) {
+			LOG.error(e.getLocalizedMessage(), e);
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					if (isCurrent(loadGeneration)) {
+						setLoading(false);
+						dialog.setVisible(true);
 					}
-					data.add(row);
 				}
-				
-				updateColumns();
-				revalidate();
-				repaint();
-			}
-			catch (Exception e) {
-				LOG.error(e.getLocalizedMessage(), e);
-				dialog.setVisible(true);
-			}
+			});
 		}
 	}
 	
-	private int indexOf(String[] fields, String fieldName) {
-		for (int i = 0; i < fields.length; i++) {
-			String field = fields[i];
-			if (field.equalsIgnoreCase(fieldName)) {
-				return i;
+	private TableRows createRows() {
+		if (tableDataModel instanceof IPagedTableDataModel && ((IPagedTableDataModel) tableDataModel).isPaged()) {
+			return new PagedTableData(columnModel, (IPagedTableDataModel) tableDataModel, LOADER, new Runnable() {
+				@Override
+				public void run() {
+					repaint();
+				}
+			});
+		}
+		return TableData.create(columnModel, tableDataModel.getFields(), tableDataModel.reload());
+	}
+	
+	private void publish(long loadGeneration, TableRows rows) {
+		TableRows previous;
+		synchronized (this) {
+			if (loadGeneration != generation) {
+				discard(rows);
+				return;
 			}
+			previous = data;
+			data = rows;
+			pendingLoad = null;
+		}
+		discard(previous);
+		
+		// Paged rows are only sorted by the data model, as sorting them here would load every page.
+		if (rows instanceof PagedTableData) {
+			setRowSorter(null);
+		}
+		else if (getRowSorter() == null) {
+			setAutoCreateRowSorter(true);
+		}
+		else {
+			getRowSorter().allRowsChanged();
+		}
+		
+		setLoading(false);
+		updateColumns();
+		revalidate();
+		repaint();
+	}
+	
+	private void discard(TableRows rows) {
+		if (rows instanceof PagedTableData) {
+			((PagedTableData) rows).discard();
+		}
+	}
+	
+	private boolean isCurrent(long loadGeneration) {
+		synchronized (this) {
+			return loadGeneration == generation;
+		}
+	}
+	
+	private void setLoading(boolean loading) {
+		this.loading = loading;
+		if (loading) {
+			setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+		}
+		else {
+			setCursor(null);
+		}
+	}
+	
+	/**
+	 * @return	True if the data of this {@link Table} is currently being (re)loaded.
+	 */
+	public boolean isLoading() {
+		return loading;
+	}
+	
+	private void invokeOnEventDispatchThread(Runnable runnable) {
+		if (SwingUtilities.isEventDispatchThread()) {
+			runnable.run();
+		}
+		else {
+			SwingUtilities.invokeLater(runnable);
 		}
-		return -1;
 	}
 	
 	public void delete(int selectedIndex) {
 		synchronized (this) {
 			try {
-				delete(data.get(selectedIndex));
+				TableRows current = data;
+				if (selectedIndex >= 0 && selectedIndex < current.size()) {
+					delete(current.getRow(selectedIndex));
+				}
 			}
 			catch (Exception e) {
 				LOG.error(e.getLocalizedMessage(), e);
@@ -205,21 +351,13 @@ public class Table extends JTable {
 			
 			@Override
 			public Object getValueAt(int row, int columnIndex) {
-				if (data == null || data.size() <= row) {
-					return "";
-				}
-				
-				Map<String, Object> rowMap = data.get(row);
-				if (rowMap == null || rowMap.size() <= columnIndex || columnModel.getVisibleSize() <= columnIndex) {
-					return "";
-				}
-				
-				Column column = columnModel.getVisible(columnIndex);
-				if (column == null || column.getName() == null) {
+				TableRows current = data;
+				int[] columns = visibleColumns;
+				if (current.size() <= row || columns.length <= columnIndex || !current.hasColumn(columns[columnIndex])) {
 					return "";
 				}
 				
-				return rowMap.get(column.getName());
+				return current.getValue(row, columns[columnIndex]);
 			}
 			
 			@Override
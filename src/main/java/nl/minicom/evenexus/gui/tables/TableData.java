@@ -0,0 +1,208 @@
+package nl.minicom.evenexus.gui.tables;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import nl.minicom.evenexus.gui.tables.columns.Column;
+import nl.minicom.evenexus.gui.tables.columns.ColumnModel;
+
+/**
+ * The {@link TableData} class holds the rows of a {@link Table} in a compact, column oriented way.
+ * Every {@link Column} of the {@link ColumnModel} is stored in its own array. Columns which only contain
+ * {@link Long} or {@link Double} values are stored as primitive arrays, all other columns as an array of
+ * the original values. The field of every {@link Column} is resolved once, when the data is created.
+ *
+ * <p>This class is immutable and thus thread-safe!</p>
+ *
+ * @author michael
+ */
+final class TableData implements TableRows {
+
+	static final TableData EMPTY = new TableData(new String[0], new ColumnData[0], 0);
+
+	private final String[] names;
+	private final ColumnData[] columns;
+	private final int rows;
+
+	private TableData(String[] names, ColumnData[] columns, int rows) {
+		this.names = names;
+		this.columns = columns;
+		this.rows = rows;
+	}
+
+	/**
+	 * This method creates a new {@link TableData} object.
+	 *
+	 * @param columnModel
+	 * 		The {@link ColumnModel} describing the columns of the {@link Table}.
+	 *
+	 * @param fields
+	 * 		The fields of the rows, as returned by the data model.
+	 *
+	 * @param values
+	 * 		The rows, as returned by the data model.
+	 *
+	 * @return
+	 * 		The created {@link TableData} object.
+	 */
+	static TableData create(ColumnModel columnModel, String[] fields, List<Object[]> values) {
+		int rows = values.size();
+		String[] names = new String[columnModel.getSize()];
+		ColumnData[] columns = new ColumnData[columnModel.getSize()];
+		for (int i = 0; i < columns.length; i++) {
+			Column column = columnModel.get(i);
+			names[i] = column.getName();
+
+			int field = indexOf(fields, column.getColumn());
+			if (field < 0) {
+				columns[i] = new EmptyColumn();
+			}
+			else if (containsOnly(values, field, Long.class)) {
+				columns[i] = new LongColumn(values, field);
+			}
+			else if (containsOnly(values, field, Double.class)) {
+				columns[i] = new DoubleColumn(values, field);
+			}
+			else {
+				columns[i] = new ObjectColumn(values, field);
+			}
+		}
+		return new TableData(names, columns, rows);
+	}
+
+	private static int indexOf(String[] fields, String fieldName) {
+		for (int i = 0; i < fields.length; i++) {
+			if (fields[i].equalsIgnoreCase(fieldName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean containsOnly(List<Object[]> values, int field, Class<?> type) {
+		boolean found = false;
+		for (Object[] row : values) {
+			Object value = row[field];
+			if (value != null) {
+				if (value.getClass() != type) {
+					return false;
+				}
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public int size() {
+		return rows;
+	}
+
+	@Override
+	public boolean hasColumn(int column) {
+		return column >= 0 && column < columns.length;
+	}
+
+	@Override
+	public Object getValue(int row, int column) {
+		return columns[column].get(row);
+	}
+
+	@Override
+	public Map<String, Object> getRow(int row) {
+		Map<String, Object> values = new TreeMap<String, Object>();
+		for (int i = 0; i < columns.length; i++) {
+			if (!(columns[i] instanceof EmptyColumn)) {
+				values.put(names[i], columns[i].get(row));
+			}
+		}
+		return values;
+	}
+
+	private interface ColumnData {
+		Object get(int row);
+	}
+
+	private static final class EmptyColumn implements ColumnData {
+		@Override
+		public Object get(int row) {
+			return null;
+		}
+	}
+
+	private static final class LongColumn implements ColumnData {
+
+		private final long[] values;
+		private final BitSet nulls;
+
+		private LongColumn(List<Object[]> rows, int field) {
+			this.values = new long[rows.size()];
+			this.nulls = new BitSet();
+			for (int i = 0; i < values.length; i++) {
+				Object value = rows.get(i)[field];
+				if (value == null) {
+					nulls.set(i);
+				}
+				else {
+					values[i] = (Long) value;
+				}
+			}
+		}
+
+		@Override
+		public Object get(int row) {
+			if (nulls.get(row)) {
+				return null;
+			}
+			return values[row];
+		}
+	}
+
+	private static final class DoubleColumn implements ColumnData {
+
+		private final double[] values;
+		private final BitSet nulls;
+
+		private DoubleColumn(List<Object[]> rows, int field) {
+			this.values = new double[rows.size()];
+			this.nulls = new BitSet();
+			for (int i = 0; i < values.length; i++) {
+				Object value = rows.get(i)[field];
+				if (value == null) {
+					nulls.set(i);
+				}
+				else {
+					values[i] = (Double) value;
+				}
+			}
+		}
+
+		@Override
+		public Object get(int row) {
+			if (nulls.get(row)) {
+				return null;
+			}
+			return values[row];
+		}
+	}
+
+	private static final class ObjectColumn implements ColumnData {
+
+		private final Object[] values;
+
+		private ObjectColumn(List<Object[]> rows, int field) {
+			this.values = new Object[rows.size()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = rows.get(i)[field];
+			}
+		}
+
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+	}
+
+}
@@ -0,0 +1,51 @@
+package nl.minicom.evenexus.gui.tables;
+
+import java.util.Map;
+
+import nl.minicom.evenexus.gui.tables.columns.Column;
+import nl.minicom.evenexus.gui.tables.columns.ColumnModel;
+
+/**
+ * The {@link TableRows} interface describes the rows which are displayed by a {@link Table}.
+ *
+ * @author michael
+ */
+interface TableRows {
+
+	/**
+	 * @return
+	 * 		The number of rows.
+	 */
+	int size();
+
+	/**
+	 * @param column
+	 * 		The index of the {@link Column} in the {@link ColumnModel}.
+	 *
+	 * @return
+	 * 		True if these rows contain the specified {@link Column}.
+	 */
+	boolean hasColumn(int column);
+
+	/**
+	 * @param row
+	 * 		The index of the row.
+	 *
+	 * @param column
+	 * 		The index of the {@link Column} in the {@link ColumnModel}.
+	 *
+	 * @return
+	 * 		The value of the specified cell.
+	 */
+	Object getValue(int row, int column);
+
+	/**
+	 * @param row
+	 * 		The index of the row.
+	 *
+	 * @return
+	 * 		The values of the specified row, by name of the {@link Column}.
+	 */
+	Map<String, Object> getRow(int row);
+
+}
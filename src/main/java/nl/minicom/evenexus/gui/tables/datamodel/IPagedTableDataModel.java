@@ -0,0 +1,53 @@
+package nl.minicom.evenexus.gui.tables.datamodel;
+
+import java.util.List;
+
+/**
+ * The {@link IPagedTableDataModel} interface describes an {@link ITableDataModel} which can load its rows
+ * in pages, instead of all at once. The rows are ordered descending on a unique key, so that every page
+ * can be queried starting right after the key of the last row of the previous page.
+ *
+ * @author michael
+ */
+public interface IPagedTableDataModel extends ITableDataModel {
+
+	/**
+	 * @return
+	 * 		True if the rows should currently be loaded in pages, false if they should be loaded at once
+	 * 		using {@link #reload()}.
+	 */
+	boolean isPaged();
+
+	/**
+	 * @return
+	 * 		The total number of rows matching the current filters.
+	 */
+	int count();
+
+	/**
+	 * This method loads one page of rows.
+	 *
+	 * @param after
+	 * 		The key of the last row before the requested page, or null if that key is not known.
+	 *
+	 * @param offset
+	 * 		The index of the first row of the requested page. This is only used when the key is not known.
+	 *
+	 * @param size
+	 * 		The maximum number of rows to load.
+	 *
+	 * @return
+	 * 		The rows of the requested page.
+	 */
+	List<Object[]> loadPage(Object[] after, int offset, int size);
+
+	/**
+	 * @param row
+	 * 		A row returned by {@link #loadPage(Object[], int, int)}.
+	 *
+	 * @return
+	 * 		The key of the specified row.
+	 */
+	Object[] getKey(Object[] row);
+
+}
@@ -2,6 +2,7 @@ package nl.minicom.evenexus.gui.tables.datamodel;
 
 public interface IPeriodFilter {
 
+	int ALL = 0;
 	int DAY = 1;
 	int WEEK = 7;
 	int TWO_WEEKS = 14;
@@ -0,0 +1,149 @@
+package nl.minicom.evenexus.gui.tables.datamodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The {@link TypeNameFilter} class implements the type name filter of an {@link ITableDataModel}.
+ * It remembers the rows of the last query. When the type name is changed into one which narrows the
+ * type name of that query (for instance while typing), the new rows are filtered from the remembered
+ * rows in memory instead of querying the database again.
+ *
+ * Reloads without a change of the type name (for instance after an import) always query the database.
+ *
+ * @author michael
+ */
+public class TypeNameFilter {
+
+	/**
+	 * The {@link Query} interface describes the query of a data model, for a certain type name pattern.
+	 */
+	public interface Query {
+
+		/**
+		 * @param typeNamePattern
+		 * 		The LIKE pattern to match the lower case type name with. Wildcards in the type name 
+		 * 		are escaped with a backslash, so the query has to use <code>ESCAPE '\'</code>.
+		 *
+		 * @return
+		 * 		The queried rows.
+		 */
+		List<Object[]> execute(String typeNamePattern);
+
+	}
+
+	private final int typeNameIndex;
+
+	private String typeName = "";
+	private boolean changed = false;
+
+	private String loadedTypeName = null;
+	private Object loadedParameters = null;
+	private List<Object[]> loadedRows = null;
+
+	/**
+	 * This constructs a new {@link TypeNameFilter} object.
+	 *
+	 * @param typeNameIndex
+	 * 		The index of the type name in the queried rows.
+	 */
+	public TypeNameFilter(int typeNameIndex) {
+		this.typeNameIndex = typeNameIndex;
+	}
+
+	/**
+	 * This method sets the type name to filter on.
+	 *
+	 * @param name
+	 * 		The (partial) type name, or null to show all types.
+	 */
+	public synchronized void setTypeName(String name) {
+		String newTypeName = "";
+		if (name != null) {
+			newTypeName = name.toLowerCase(Locale.US);
+		}
+
+		if (!newTypeName.equals(typeName)) {
+			typeName = newTypeName;
+			changed = true;
+		}
+	}
+
+	/**
+	 * @return
+	 * 		The LIKE pattern to match the lower case type name with, for the current type name.
+	 */
+	public synchronized String getPattern() {
+		return toPattern(typeName);
+	}
+
+	/**
+	 * This method loads the rows for the current type name.
+	 *
+	 * @param parameters
+	 * 		The other parameters of the query (for instance the period), or null. Rows are only
+	 * 		filtered in memory when these are equal to the parameters of the previous query.
+	 *
+	 * @param query
+	 * 		The {@link Query} to execute when the rows can not be filtered in memory.
+	 *
+	 * @return
+	 * 		The rows matching the current type name.
+	 */
+	public List<Object[]> load(Object parameters, Query query) {
+		String name;
+		List<Object[]> rows = null;
+		synchronized (this) {
+			name = typeName;
+			if (changed && loadedRows != null && name.contains(loadedTypeName)
+					&& isEqual(parameters, loadedParameters)) {
+				rows = loadedRows;
+			}
+			changed = false;
+		}
+
+		if (rows != null) {
+			return refine(rows, name);
+		}
+
+		rows = query.execute(toPattern(name));
+		synchronized (this) {
+			loadedTypeName = name;
+			loadedParameters = parameters;
+			loadedRows = rows;
+		}
+		return rows;
+	}
+
+	private String toPattern(String name) {
+		StringBuilder builder = new StringBuilder("%");
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c == '\\' || c == '%' || c == '_') {
+				builder.append('\\');
+			}
+			builder.append(c);
+		}
+		return builder.append('%').toString();
+	}
+
+	private List<Object[]> refine(List<Object[]> rows, String name) {
+		List<Object[]> result = new ArrayList<Object[]>();
+		for (Object[] row : rows) {
+			Object value = row[typeNameIndex];
+			if (value != null && value.toString().toLowerCase(Locale.US).contains(name)) {
+				result.add(row);
+			}
+		}
+		return result;
+	}
+
+	private boolean isEqual(Object first, Object second) {
+		if (first == null) {
+			return second == null;
+		}
+		return first.equals(second);
+	}
+
+}
@@ -38,6 +38,7 @@ public class AccountTableDataModel implements ITableDataModel {
 	}
 	
 	@Override
+	@Transactional
 	public List<Object[]> reload() {
 		StringBuilder builder = new StringBuilder();
 		builder.append("SELECT ");
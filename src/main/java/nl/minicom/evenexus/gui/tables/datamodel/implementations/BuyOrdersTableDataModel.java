@@ -3,15 +3,16 @@ package nl.minicom.evenexus.gui.tables.datamodel.implementations;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 import javax.inject.Inject;
 
 import nl.minicom.evenexus.gui.tables.datamodel.ITableDataModel;
 import nl.minicom.evenexus.gui.tables.datamodel.ITypeNameFilter;
+import nl.minicom.evenexus.gui.tables.datamodel.TypeNameFilter;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
 
 import org.hibernate.HibernateException;
 import org.hibernate.SQLQuery;
@@ -29,10 +30,34 @@ public class BuyOrdersTableDataModel implements ITableDataModel, ITypeNameFilter
 	
 	private static final Logger LOG = LoggerFactory.getLogger(BuyOrdersTableDataModel.class);
 
+	/**
+	 * The SQL query which loads the active buy orders. Its only parameter is the type name pattern.
+	 */
+	public static final String QUERY = new StringBuilder()
+	.append("SELECT ")
+	.append("marketorders.volentered AS volentered, ")
+	.append("marketorders.volremaining AS volremaining, ")
+	.append("marketorders.minvolume AS minvolume, ")
+	.append("marketorders.escrow AS escrow, ")
+	.append("marketorders.issued AS issued, ")
+	.append("marketorders.price AS price, ")
+	.append("marketorders.bid AS bid, ")
+	.append("invtypes.typeName AS typeName, ")
+	.append("price * -1 AS orderPrice, ")
+	.append("stastations.stationName AS stationName ")
+	.append("FROM marketorders, invtypes, stastations ")
+	.append("WHERE marketorders.bid = 1 ")
+	.append("AND marketorders.orderState = 0 ")
+	.append("AND LCASE(invtypes.typeName) LIKE ? ESCAPE '\\' ")
+	.append("AND marketorders.typeID = invtypes.typeID ")
+	.append("AND marketorders.stationID = stastations.stationID ")
+	.append("ORDER BY invtypes.typeName ASC, stastations.stationName ASC")
+	.toString();
+
 	private final Database database;
 	private final BugReportDialog dialog;
 	
-	private String typeName;
+	private final TypeNameFilter typeNameFilter = new TypeNameFilter(7);
 	
 	/**
 	 * This constructs a new {@link BuyOrdersTableDataModel} object.
@@ -51,9 +76,15 @@ public class BuyOrdersTableDataModel implements ITableDataModel, ITypeNameFilter
 	}
 	
 	@Override
+	@Transactional
 	public List<Object[]> reload() {
 		try {
-			return loadTable();
+			return typeNameFilter.load(null, new TypeNameFilter.Query() {
+				@Override
+				public List<Object[]> execute(String typeNamePattern) {
+					return loadTable(typeNamePattern);
+				}
+			});
 		}
 		catch (HibernateException e) {
 			LOG.error(e.getLocalizedMessage(), e);
@@ -62,32 +93,11 @@ public class BuyOrdersTableDataModel implements ITableDataModel, ITypeNameFilter
 		}
 	}
 
-	private List<Object[]> loadTable() throws HibernateException {
-		final String sql = new StringBuilder()
-		.append("SELECT ")
-		.append("marketorders.volentered AS volentered, ")
-		.append("marketorders.volremaining AS volremaining, ")
-		.append("marketorders.minvolume AS minvolume, ")
-		.append("marketorders.escrow AS escrow, ")
-		.append("marketorders.issued AS issued, ")
-		.append("marketorders.price AS price, ")
-		.append("marketorders.bid AS bid, ")
-		.append("invtypes.typeName AS typeName, ")
-		.append("price * -1 AS orderPrice, ")
-		.append("stastations.stationName AS stationName ")
-		.append("FROM marketorders, invtypes, stastations ")
-		.append("WHERE marketorders.bid = 1 ")
-		.append("AND marketorders.orderState = 0 ")
-		.append("AND LCASE(invtypes.typeName) LIKE ? ")
-		.append("AND marketorders.typeID = invtypes.typeID ")
-		.append("AND marketorders.stationID = stastations.stationID ")
-		.append("ORDER BY invtypes.typeName ASC, stastations.stationName ASC")
-		.toString();
-		
+	private List<Object[]> loadTable(String typeNamePattern) throws HibernateException {
 		List<Object[]> result = new ArrayList<Object[]>();
 		Session session = database.getCurrentSession();
-		SQLQuery query = session.createSQLQuery(sql);
-		query.setString(0, typeName);
+		SQLQuery query = session.createSQLQuery(QUERY);
+		query.setString(0, typeNamePattern);
 		ScrollableResults resultSet = query.scroll();
 		if (resultSet.first()) {
 			do {
@@ -116,11 +126,7 @@ public class BuyOrdersTableDataModel implements ITableDataModel, ITypeNameFilter
 
 	@Override
 	public final void setTypeName(String name) {
-		if (name == null || name.isEmpty()) {
-			typeName = "%";
-			return;
-		}
-		typeName = "%" + name.toLowerCase(Locale.US) + "%";
+		typeNameFilter.setTypeName(name);
 	}
 
 	@Override
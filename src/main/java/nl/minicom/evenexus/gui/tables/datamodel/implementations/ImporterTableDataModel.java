@@ -10,6 +10,7 @@ import javax.inject.Inject;
 import nl.minicom.evenexus.gui.tables.datamodel.ITableDataModel;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
 
 import org.hibernate.HibernateException;
 import org.hibernate.SQLQuery;
@@ -33,6 +34,7 @@ public class ImporterTableDataModel implements ITableDataModel {
 	}
 	
 	@Override
+	@Transactional
 	public List<Object[]> reload() {
 		try {
 			return createQuery();			
@@ -7,10 +7,11 @@ import java.util.Map;
 
 import javax.inject.Inject;
 
+import nl.minicom.evenexus.gui.tables.datamodel.IPagedTableDataModel;
 import nl.minicom.evenexus.gui.tables.datamodel.IPeriodFilter;
-import nl.minicom.evenexus.gui.tables.datamodel.ITableDataModel;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
 import nl.minicom.evenexus.utils.SettingsManager;
 
 import org.hibernate.HibernateException;
@@ -21,27 +22,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-public class JournalTableDataModel implements ITableDataModel, IPeriodFilter {
-	
+public class JournalTableDataModel implements IPagedTableDataModel, IPeriodFilter {
+
 	private static final Logger LOG = LoggerFactory.getLogger(JournalTableDataModel.class);
 
 	private final Database database;
 	private final BugReportDialog dialog;
 	private final SettingsManager settingsManager;
-	
+
 	private int period;
-	
+
 	@Inject
 	public JournalTableDataModel(SettingsManager settingsManager, Database database, BugReportDialog dialog) {
 		this.database = database;
 		this.settingsManager = settingsManager;
 		this.dialog = dialog;
 	}
-	
+
 	@Override
+	@Transactional
 	public List<Object[]> reload() {
 		try {
-			return loadTable();			
+			return loadTable(null, 0, 0);
 		}
 		catch (HibernateException e) {
 			LOG.error(e.getLocalizedMessage(), e);
@@ -50,28 +52,68 @@ public class JournalTableDataModel implements ITableDataModel, IPeriodFilter {
 		}
 	}
 
-	private List<Object[]> loadTable() throws HibernateException {
-		final String sql = new StringBuilder()
-		.append("SELECT ")
-		.append("journal.date AS date, ")
-		.append("journal.ownername1 AS ownername1, ")
-		.append("journal.ownername2 AS ownername2, ")
-		.append("journal.argname1 AS argname1, ")
-		.append("journal.amount AS amount, ")
-		.append("journal.balance AS balance, ")
-		.append("journal.reason AS reason, ")
-		.append("journal.taxamount AS taxamount, ")
-		.append("reftypes.description AS description ")
-		.append("FROM journal, reftypes ")
-		.append("WHERE journal.journalTypeID = reftypes.refTypeID ")
-		.append("AND journal.date > DATEADD('DAY', ?, CURRENT_TIMESTAMP()) ")
-		.append("ORDER BY journal.date DESC, journal.refID DESC")
-		.toString();
-		
+	@Override
+	public boolean isPaged() {
+		return period == IPeriodFilter.ALL;
+	}
+
+	@Override
+	@Transactional
+	public int count() {
+		try {
+			final String sql = new StringBuilder()
+			.append("SELECT COUNT(*) ")
+			.append("FROM journal, reftypes ")
+			.append(createFilter(period != IPeriodFilter.ALL))
+			.toString();
+
+			SQLQuery query = database.getCurrentSession().createSQLQuery(sql);
+			setFilterParameters(query);
+			return ((Number) query.uniqueResult()).intValue();
+		}
+		catch (HibernateException e) {
+			LOG.error(e.getLocalizedMessage(), e);
+			dialog.setVisible(true);
+			throw e;
+		}
+	}
+
+	@Override
+	@Transactional
+	public List<Object[]> loadPage(Object[] after, int offset, int size) {
+		try {
+			return loadTable(after, offset, size);
+		}
+		catch (HibernateException e) {
+			LOG.error(e.getLocalizedMessage(), e);
+			dialog.setVisible(true);
+			throw e;
+		}
+	}
+
+	@Override
+	public Object[] getKey(Object[] row) {
+		return new Object[] { row[0], row[9] };
+	}
+
+	private List<Object[]> loadTable(Object[] after, int offset, int size) throws HibernateException {
+		String sql = createQuery(period != IPeriodFilter.ALL, after != null, size > 0);
+
 		List<Object[]> result = new ArrayList<Object[]>();
 		Session session = database.getCurrentSession();
 		SQLQuery query = session.createSQLQuery(sql);
-		query.setLong(0, period * -1);
+		int index = setFilterParameters(query);
+		if (after != null) {
+			query.setParameter(index++, after[0]);
+			query.setParameter(index++, after[0]);
+			query.setParameter(index++, after[0]);
+			query.setParameter(index++, after[1]);
+		}
+		if (size > 0) {
+			query.setInteger(index++, size);
+			query.setInteger(index++, after == null ? offset : 0);
+		}
+
 		ScrollableResults resultSet = query.scroll();
 		if (resultSet.first()) {
 			do {
@@ -82,11 +124,73 @@ public class JournalTableDataModel implements ITableDataModel, IPeriodFilter {
 		return result;
 	}
 
+	/**
+	 * This method builds the SQL query which loads (a page of) the journal table. The parameters are the 
+	 * negated period in days (if filtered by period), the date and id of the last row of the previous page 
+	 * (three times the date, if paged by key), and the limit and offset (if paged). The redundant upper 
+	 * bound on the date lets the database seek the index on date.
+	 * 
+	 * @param filterPeriod
+	 * 		True if only the journal entries of the last days should be loaded.
+	 * 
+	 * @param after
+	 * 		True if the page starts after the key of the last row of the previous page.
+	 * 
+	 * @param paged
+	 * 		True if the amount of loaded rows is limited.
+	 * 
+	 * @return
+	 * 		The SQL query.
+	 */
+	public static String createQuery(boolean filterPeriod, boolean after, boolean paged) {
+		StringBuilder builder = new StringBuilder()
+		.append("SELECT ")
+		.append("journal.date AS date, ")
+		.append("journal.ownername1 AS ownername1, ")
+		.append("journal.ownername2 AS ownername2, ")
+		.append("journal.argname1 AS argname1, ")
+		.append("journal.amount AS amount, ")
+		.append("journal.balance AS balance, ")
+		.append("journal.reason AS reason, ")
+		.append("journal.taxamount AS taxamount, ")
+		.append("reftypes.description AS description, ")
+		.append("journal.refID AS refid ")
+		.append("FROM journal, reftypes ")
+		.append(createFilter(filterPeriod));
+
+		if (after) {
+			builder.append("AND journal.date <= ? ")
+			.append("AND (journal.date < ? OR (journal.date = ? AND journal.refID < ?)) ");
+		}
+		builder.append("ORDER BY journal.date DESC, journal.refID DESC");
+		if (paged) {
+			builder.append(" LIMIT ? OFFSET ?");
+		}
+		return builder.toString();
+	}
+
+	private static String createFilter(boolean filterPeriod) {
+		StringBuilder builder = new StringBuilder()
+		.append("WHERE journal.journalTypeID = reftypes.refTypeID ");
+		if (filterPeriod) {
+			builder.append("AND journal.date > DATEADD('DAY', ?, CURRENT_TIMESTAMP()) ");
+		}
+		return builder.toString();
+	}
+
+	private int setFilterParameters(SQLQuery query) {
+		int index = 0;
+		if (period != IPeriodFilter.ALL) {
+			query.setLong(index++, period * -1);
+		}
+		return index;
+	}
+
 	@Override
 	public String[] getFields() {
 		return new String[] {
-				"date", "ownername1", "ownername2", "argname1", "amount", 
-				"balance", "reason", "taxamount", "description"
+				"date", "ownername1", "ownername2", "argname1", "amount",
+				"balance", "reason", "taxamount", "description", "refid"
 		};
 	}
 
@@ -3,18 +3,19 @@ package nl.minicom.evenexus.gui.tables.datamodel.implementations;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 import javax.inject.Inject;
 
+import nl.minicom.evenexus.gui.tables.datamodel.IPagedTableDataModel;
 import nl.minicom.evenexus.gui.tables.datamodel.IPeriodFilter;
-import nl.minicom.evenexus.gui.tables.datamodel.ITableDataModel;
 import nl.minicom.evenexus.gui.tables.datamodel.ITypeNameFilter;
+import nl.minicom.evenexus.gui.tables.datamodel.TypeNameFilter;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.persistence.Database;
 import nl.minicom.evenexus.persistence.dao.Profit;
 import nl.minicom.evenexus.persistence.dao.ProfitIdentifier;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
 import nl.minicom.evenexus.utils.SettingsManager;
 
 import org.hibernate.HibernateException;
@@ -25,33 +26,78 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-public class ProfitTableDataModel implements ITableDataModel, ITypeNameFilter, IPeriodFilter {
+public class ProfitTableDataModel implements IPagedTableDataModel, ITypeNameFilter, IPeriodFilter {
 
 	private static final Logger LOG = LoggerFactory.getLogger(ProfitTableDataModel.class);
 
 	private final Database database;
 	private final BugReportDialog dialog;
 	private final SettingsManager settingsManager;
-	
+
 	private int period;
-	private String typeName;
-	
+	private final TypeNameFilter typeNameFilter = new TypeNameFilter(0);
+
 	@Inject
 	public ProfitTableDataModel(SettingsManager settingsManager, Database database, BugReportDialog dialog) {
 		this.database = database;
 		this.dialog = dialog;
 		this.settingsManager = settingsManager;
 	}
-	
+
 	public void initialize() {
 		setTypeName(null);
 		setPeriod(settingsManager.loadInt(SettingsManager.FILTER_PROFIT_PERIOD, IPeriodFilter.WEEK));
 	}
-	
+
 	@Override
+	@Transactional
 	public List<Object[]> reload() {
 		try {
-			return loadTable();			
+			return typeNameFilter.load(period, new TypeNameFilter.Query() {
+				@Override
+				public List<Object[]> execute(String typeNamePattern) {
+					return loadTable(typeNamePattern, null, 0, 0);
+				}
+			});
+		}
+		catch (HibernateException e) {
+			LOG.error(e.getLocalizedMessage(), e);
+			dialog.setVisible(true);
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean isPaged() {
+		return period == IPeriodFilter.ALL;
+	}
+
+	@Override
+	@Transactional
+	public int count() {
+		try {
+			final String sql = new StringBuilder()
+			.append("SELECT COUNT(*) ")
+			.append("FROM profits ")
+			.append(createFilter())
+			.toString();
+
+			SQLQuery query = database.getCurrentSession().createSQLQuery(sql);
+			setFilterParameters(query, typeNameFilter.getPattern());
+			return ((Number) query.uniqueResult()).intValue();
+		}
+		catch (HibernateException e) {
+			LOG.error(e.getLocalizedMessage(), e);
+			dialog.setVisible(true);
+			throw e;
+		}
+	}
+
+	@Override
+	@Transactional
+	public List<Object[]> loadPage(Object[] after, int offset, int size) {
+		try {
+			return loadTable(typeNameFilter.getPattern(), after, offset, size);
 		}
 		catch (HibernateException e) {
 			LOG.error(e.getLocalizedMessage(), e);
@@ -60,9 +106,16 @@ public class ProfitTableDataModel implements ITableDataModel, ITypeNameFilter, I
 		}
 	}
 
-	private List<Object[]> loadTable() throws HibernateException {
+	@Override
+	public Object[] getKey(Object[] row) {
+		return new Object[] { row[1], row[11], row[12] };
+	}
+
+	private List<Object[]> loadTable(String typeNamePattern, Object[] after, int offset, int size)
+			throws HibernateException {
+
 		// TODO refactor to work with objects?
-		final String sql = new StringBuilder()
+		StringBuilder builder = new StringBuilder()
 		.append("SELECT ")
 		.append(Profit.TYPE_NAME + ", ")
 		.append(Profit.DATE + ", ")
@@ -74,18 +127,41 @@ public class ProfitTableDataModel implements ITableDataModel, ITypeNameFilter, I
 		.append(Profit.TOTAL_TAXES + ", ")
 		.append(Profit.TOTAL_NET_PROFIT + ", ")
 		.append(Profit.PERCENTAL_GROSS_PROFIT + ", ")
-		.append(Profit.PERCENTAL_NET_PROFIT + " ")
+		.append(Profit.PERCENTAL_NET_PROFIT + ", ")
+		.append(ProfitIdentifier.SELL_TRANSACTION_ID + ", ")
+		.append(ProfitIdentifier.BUY_TRANSACTION_ID + " ")
 		.append("FROM profits ")
-		.append("WHERE LCASE(" + Profit.TYPE_NAME + ") LIKE ? ")
-		.append("AND " + Profit.DATE + " > DATEADD('DAY', ?, CURRENT_TIMESTAMP()) ")
-		.append("ORDER BY " + Profit.DATE + " DESC, " + ProfitIdentifier.SELL_TRANSACTION_ID + " DESC")
-		.toString();
-		
+		.append(createFilter());
+
+		if (after != null) {
+			builder.append("AND (" + Profit.DATE + " < ? ")
+			.append("OR (" + Profit.DATE + " = ? AND " + ProfitIdentifier.SELL_TRANSACTION_ID + " < ?) ")
+			.append("OR (" + Profit.DATE + " = ? AND " + ProfitIdentifier.SELL_TRANSACTION_ID + " = ? ")
+			.append("AND " + ProfitIdentifier.BUY_TRANSACTION_ID + " < ?)) ");
+		}
+		builder.append("ORDER BY " + Profit.DATE + " DESC, " + ProfitIdentifier.SELL_TRANSACTION_ID + " DESC, ")
+		.append(ProfitIdentifier.BUY_TRANSACTION_ID + " DESC");
+		if (size > 0) {
+			builder.append(" LIMIT ? OFFSET ?");
+		}
+
 		List<Object[]> result = new ArrayList<Object[]>();
 		Session session = database.getCurrentSession();
-		SQLQuery query = session.createSQLQuery(sql);
-		query.setString(0, typeName);
-		query.setLong(1, period * -1);
+		SQLQuery query = session.createSQLQuery(builder.toString());
+		int index = setFilterParameters(query, typeNamePattern);
+		if (after != null) {
+			query.setParameter(index++, after[0]);
+			query.setParameter(index++, after[0]);
+			query.setParameter(index++, after[1]);
+			query.setParameter(index++, after[0]);
+			query.setParameter(index++, after[1]);
+			query.setParameter(index++, after[2]);
+		}
+		if (size > 0) {
+			query.setInteger(index++, size);
+			query.setInteger(index++, after == null ? offset : 0);
+		}
+
 		ScrollableResults resultSet = query.scroll();
 		if (resultSet.first()) {
 			do {
@@ -96,6 +172,24 @@ public class ProfitTableDataModel implements ITableDataModel, ITypeNameFilter, I
 		return result;
 	}
 
+	private String createFilter() {
+		StringBuilder builder = new StringBuilder()
+		.append("WHERE LCASE(" + Profit.TYPE_NAME + ") LIKE ? ESCAPE '\\' ");
+		if (period != IPeriodFilter.ALL) {
+			builder.append("AND " + Profit.DATE + " > DATEADD('DAY', ?, CURRENT_TIMESTAMP()) ");
+		}
+		return builder.toString();
+	}
+
+	private int setFilterParameters(SQLQuery query, String typeNamePattern) {
+		int index = 0;
+		query.setString(index++, typeNamePattern);
+		if (period != IPeriodFilter.ALL) {
+			query.setLong(index++, period * -1);
+		}
+		return index;
+	}
+
 	@Override
 	public String[] getFields() {
 		return new String[] {
@@ -109,17 +203,15 @@ public class ProfitTableDataModel implements ITableDataModel, ITypeNameFilter, I
 				Profit.TOTAL_TAXES,
 				Profit.TOTAL_NET_PROFIT,
 				Profit.PERCENTAL_GROSS_PROFIT,
-				Profit.PERCENTAL_NET_PROFIT
+				Profit.PERCENTAL_NET_PROFIT,
+				ProfitIdentifier.SELL_TRANSACTION_ID,
+				ProfitIdentifier.BUY_TRANSACTION_ID
 			};
 	}
 
 	@Override
 	public final void setTypeName(String name) {
-		if (name == null || name.isEmpty()) {
-			typeName = "%";
-			return;
-		}
-		typeName = "%" + name.toLowerCase(Locale.US) + "%";
+		typeNameFilter.setTypeName(name);
 	}
 
 	@Override
@@ -3,15 +3,16 @@ package nl.minicom.evenexus.gui.tables.datamodel.implementations;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 import javax.inject.Inject;
 
 import nl.minicom.evenexus.gui.tables.datamodel.ITableDataModel;
 import nl.minicom.evenexus.gui.tables.datamodel.ITypeNameFilter;
+import nl.minicom.evenexus.gui.tables.datamodel.TypeNameFilter;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
 
 import org.hibernate.HibernateException;
 import org.hibernate.SQLQuery;
@@ -25,10 +26,33 @@ public class SellOrdersTableDataModel implements ITableDataModel, ITypeNameFilte
 	
 	private static final Logger LOG = LoggerFactory.getLogger(SellOrdersTableDataModel.class);
 
+	/**
+	 * The SQL query which loads the active sell orders. Its only parameter is the type name pattern.
+	 */
+	public static final String QUERY = new StringBuilder()
+	.append("SELECT ")
+	.append("marketorders.volentered AS volentered, ")
+	.append("marketorders.volremaining AS volremaining, ")
+	.append("marketorders.minvolume AS minvolume, ")
+	.append("marketorders.escrow AS escrow, ")
+	.append("marketorders.price AS price, ")
+	.append("marketorders.bid AS bid, ")
+	.append("marketorders.issued AS issued, ")
+	.append("invtypes.typeName AS typeName, ")
+	.append("stastations.stationName AS stationName ")
+	.append("FROM marketorders, invtypes, stastations ")
+	.append("WHERE marketorders.bid = 0 ")
+	.append("AND marketorders.orderState = 0 ")
+	.append("AND LCASE(invtypes.typeName) LIKE ? ESCAPE '\\' ")
+	.append("AND marketorders.typeID = invtypes.typeID ")
+	.append("AND marketorders.stationID = stastations.stationID ")
+	.append("ORDER BY invtypes.typeName ASC, stastations.stationName ASC")
+	.toString();
+
 	private final Database database;
 	private final BugReportDialog dialog;
 	
-	private String typeName;
+	private final TypeNameFilter typeNameFilter = new TypeNameFilter(7);
 	
 	@Inject
 	public SellOrdersTableDataModel(Database database, BugReportDialog dialog) {
@@ -38,9 +62,15 @@ public class SellOrdersTableDataModel implements ITableDataModel, ITypeNameFilte
 	}
 	
 	@Override
+	@Transactional
 	public List<Object[]> reload() {
 		try {
-			return loadTable();
+			return typeNameFilter.load(null, new TypeNameFilter.Query() {
+				@Override
+				public List<Object[]> execute(String typeNamePattern) {
+					return loadTable(typeNamePattern);
+				}
+			});
 		}
 		catch (HibernateException e) {
 			LOG.error(e.getLocalizedMessage(), e);
@@ -49,31 +79,11 @@ public class SellOrdersTableDataModel implements ITableDataModel, ITypeNameFilte
 		}
 	}
 
-	private List<Object[]> loadTable() throws HibernateException {
-		final String sql = new StringBuilder()
-		.append("SELECT ")
-		.append("marketorders.volentered AS volentered, ")
-		.append("marketorders.volremaining AS volremaining, ")
-		.append("marketorders.minvolume AS minvolume, ")
-		.append("marketorders.escrow AS escrow, ")
-		.append("marketorders.price AS price, ")
-		.append("marketorders.bid AS bid, ")
-		.append("marketorders.issued AS issued, ")
-		.append("invtypes.typeName AS typeName, ")
-		.append("stastations.stationName AS stationName ")
-		.append("FROM marketorders, invtypes, stastations ")
-		.append("WHERE marketorders.bid = 0 ")
-		.append("AND marketorders.orderState = 0 ")
-		.append("AND LCASE(invtypes.typeName) LIKE ? ")
-		.append("AND marketorders.typeID = invtypes.typeID ")
-		.append("AND marketorders.stationID = stastations.stationID ")
-		.append("ORDER BY invtypes.typeName ASC, stastations.stationName ASC")
-		.toString();
-		
+	private List<Object[]> loadTable(String typeNamePattern) throws HibernateException {
 		List<Object[]> result = new ArrayList<Object[]>();
 		Session session = database.getCurrentSession();
-		SQLQuery query = session.createSQLQuery(sql);
-		query.setString(0, typeName);
+		SQLQuery query = session.createSQLQuery(QUERY);
+		query.setString(0, typeNamePattern);
 		ScrollableResults resultSet = query.scroll();
 		if (resultSet.first()) {
 			do {
@@ -101,11 +111,7 @@ public class SellOrdersTableDataModel implements ITableDataModel, ITypeNameFilte
 
 	@Override
 	public final void setTypeName(String name) {
-		if (name == null || name.isEmpty()) {
-			typeName = "%";
-			return;
-		}
-		typeName = "%" + name.toLowerCase(Locale.US) + "%";
+		typeNameFilter.setTypeName(name);
 	}
 
 	@Override
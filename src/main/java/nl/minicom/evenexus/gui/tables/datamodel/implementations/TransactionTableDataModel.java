@@ -3,16 +3,17 @@ package nl.minicom.evenexus.gui.tables.datamodel.implementations;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 import javax.inject.Inject;
 
+import nl.minicom.evenexus.gui.tables.datamodel.IPagedTableDataModel;
 import nl.minicom.evenexus.gui.tables.datamodel.IPeriodFilter;
-import nl.minicom.evenexus.gui.tables.datamodel.ITableDataModel;
 import nl.minicom.evenexus.gui.tables.datamodel.ITypeNameFilter;
+import nl.minicom.evenexus.gui.tables.datamodel.TypeNameFilter;
 import nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog;
 import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
 import nl.minicom.evenexus.utils.SettingsManager;
 
 import org.hibernate.HibernateException;
@@ -23,33 +24,39 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-public class TransactionTableDataModel implements ITableDataModel, ITypeNameFilter, IPeriodFilter {
+public class TransactionTableDataModel implements IPagedTableDataModel, ITypeNameFilter, IPeriodFilter {
 
 	private static final Logger LOG = LoggerFactory.getLogger(TransactionTableDataModel.class);
 
 	private final Database database;
 	private final BugReportDialog dialog;
 	private final SettingsManager settingsManager;
-	
+
 	private long period;
-	private String typeName;
-	
+	private final TypeNameFilter typeNameFilter = new TypeNameFilter(2);
+
 	@Inject
 	public TransactionTableDataModel(SettingsManager settingsManager, Database database, BugReportDialog dialog) {
 		this.database = database;
 		this.dialog = dialog;
 		this.settingsManager = settingsManager;
 	}
-	
-	public void initialize() {	
+
+	public void initialize() {
 		setTypeName(null);
 		setPeriod(settingsManager.loadInt(SettingsManager.FILTER_TRANSACTION_PERIOD, IPeriodFilter.WEEK));
 	}
-	
+
 	@Override
+	@Transactional
 	public List<Object[]> reload() {
 		try {
-			return loadTable();
+			return typeNameFilter.load(period, new TypeNameFilter.Query() {
+				@Override
+				public List<Object[]> execute(String typeNamePattern) {
+					return loadTable(typeNamePattern, null, 0, 0);
+				}
+			});
 		}
 		catch (HibernateException e) {
 			LOG.error(e.getLocalizedMessage(), e);
@@ -58,29 +65,70 @@ public class TransactionTableDataModel implements ITableDataModel, ITypeNameFilt
 		}
 	}
 
-	private List<Object[]> loadTable() throws HibernateException {
-		final String sql = new StringBuilder()
-		.append("SELECT ")
-		.append("transactionDateTime, ")
-		.append("quantity, ")
-		.append("typeName, ")
-		.append("price, ")
-		.append("taxes * quantity AS totaltax, ")
-		.append("quantity * price AS totalnotax, ")
-		.append("(price + taxes) * quantity AS totalwithtax, ")
-		.append("clientName, ")
-		.append("stationName ")
-		.append("FROM transactions ")
-		.append("WHERE LCASE(typeName) LIKE ? ")
-		.append("AND transactionDateTime > DATEADD('DAY', ?, CURRENT_TIMESTAMP()) ")
-		.append("ORDER BY transactionDateTime DESC, transactionID DESC")
-		.toString();
-		
+	@Override
+	public boolean isPaged() {
+		return period == IPeriodFilter.ALL;
+	}
+
+	@Override
+	@Transactional
+	public int count() {
+		try {
+			final String sql = new StringBuilder()
+			.append("SELECT COUNT(*) ")
+			.append("FROM transactions ")
+			.append(createFilter(period != IPeriodFilter.ALL))
+			.toString();
+
+			SQLQuery query = database.getCurrentSession().createSQLQuery(sql);
+			setFilterParameters(query, typeNameFilter.getPattern());
+			return ((Number) query.uniqueResult()).intValue();
+		}
+		catch (HibernateException e) {
+			LOG.error(e.getLocalizedMessage(), e);
+			dialog.setVisible(true);
+			throw e;
+		}
+	}
+
+	@Override
+	@Transactional
+	public List<Object[]> loadPage(Object[] after, int offset, int size) {
+		try {
+			return loadTable(typeNameFilter.getPattern(), after, offset, size);
+		}
+		catch (HibernateException e) {
+			LOG.error(e.getLocalizedMessage(), e);
+			dialog.setVisible(true);
+			throw e;
+		}
+	}
+
+	@Override
+	public Object[] getKey(Object[] row) {
+		return new Object[] { row[0], row[9] };
+	}
+
+	private List<Object[]> loadTable(String typeNamePattern, Object[] after, int offset, int size)
+			throws HibernateException {
+
+		String sql = createQuery(period != IPeriodFilter.ALL, after != null, size > 0);
+
 		List<Object[]> result = new ArrayList<Object[]>();
 		Session session = database.getCurrentSession();
 		SQLQuery query = session.createSQLQuery(sql);
-		query.setString(0, typeName);
-		query.setLong(1, period * -1);
+		int index = setFilterParameters(query, typeNamePattern);
+		if (after != null) {
+			query.setParameter(index++, after[0]);
+			query.setParameter(index++, after[0]);
+			query.setParameter(index++, after[0]);
+			query.setParameter(index++, after[1]);
+		}
+		if (size > 0) {
+			query.setInteger(index++, size);
+			query.setInteger(index++, after == null ? offset : 0);
+		}
+
 		ScrollableResults resultSet = query.scroll();
 		if (resultSet.first()) {
 			do {
@@ -91,21 +139,80 @@ public class TransactionTableDataModel implements ITableDataModel, ITypeNameFilt
 		return result;
 	}
 
+	/**
+	 * This method builds the SQL query which loads (a page of) the transaction table. The parameters are 
+	 * the type name pattern, the negated period in days (if filtered by period), the time and id of the 
+	 * last row of the previous page (three times the time, if paged by key), and the limit and offset 
+	 * (if paged). The redundant upper bound on the time lets the database seek the index on time.
+	 * 
+	 * @param filterPeriod
+	 * 		True if only the transactions of the last days should be loaded.
+	 * 
+	 * @param after
+	 * 		True if the page starts after the key of the last row of the previous page.
+	 * 
+	 * @param paged
+	 * 		True if the amount of loaded rows is limited.
+	 * 
+	 * @return
+	 * 		The SQL query.
+	 */
+	public static String createQuery(boolean filterPeriod, boolean after, boolean paged) {
+		StringBuilder builder = new StringBuilder()
+		.append("SELECT ")
+		.append("transactionDateTime, ")
+		.append("quantity, ")
+		.append("typeName, ")
+		.append("price, ")
+		.append("taxes * quantity AS totaltax, ")
+		.append("quantity * price AS totalnotax, ")
+		.append("(price + taxes) * quantity AS totalwithtax, ")
+		.append("clientName, ")
+		.append("stationName, ")
+		.append("transactionID ")
+		.append("FROM transactions ")
+		.append(createFilter(filterPeriod));
+
+		if (after) {
+			builder.append("AND transactionDateTime <= ? ")
+			.append("AND (transactionDateTime < ? OR (transactionDateTime = ? AND transactionID < ?)) ");
+		}
+		builder.append("ORDER BY transactionDateTime DESC, transactionID DESC");
+		if (paged) {
+			builder.append(" LIMIT ? OFFSET ?");
+		}
+		return builder.toString();
+	}
+
+	private static String createFilter(boolean filterPeriod) {
+		StringBuilder builder = new StringBuilder()
+		.append("WHERE LCASE(typeName) LIKE ? ESCAPE '\\' ");
+		if (filterPeriod) {
+			builder.append("AND transactionDateTime > DATEADD('DAY', ?, CURRENT_TIMESTAMP()) ");
+		}
+		return builder.toString();
+	}
+
+	private int setFilterParameters(SQLQuery query, String typeNamePattern) {
+		int index = 0;
+		query.setString(index++, typeNamePattern);
+		if (period != IPeriodFilter.ALL) {
+			query.setLong(index++, period * -1);
+		}
+		return index;
+	}
+
 	@Override
 	public String[] getFields() {
-		return new String[] { 
+		return new String[] {
 				"transactiondatetime", "quantity", "typename", "price", "totaltax",
-				"totalnotax", "totalwithtax", "clientname", "stationname"
+				"totalnotax", "totalwithtax", "clientname", "stationname", "transactionid"
 		};
 	}
 
 	@Override
 	public final void setTypeName(String name) {
-		if (name == null || name.isEmpty()) {
-			typeName = "%";
-			return;
-		}
-		typeName = "%" + name.toLowerCase(Locale.US) + "%";
+		typeNameFilter.setTypeName(name);
 	}
 
 	@Override
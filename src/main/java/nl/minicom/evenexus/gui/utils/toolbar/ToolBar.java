@@ -15,6 +15,7 @@ import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.Timer;
 
 import nl.minicom.evenexus.gui.GuiConstants;
 import nl.minicom.evenexus.gui.panels.dashboard.LineGraphEngine;
@@ -34,6 +35,8 @@ public class ToolBar extends JPanel {
 
 	private static final long serialVersionUID = 8807977497143764318L;
 	
+	private static final int TYPE_NAME_DELAY = 250;
+	
 	private final SettingsManager settingsManager;
 
 	/**
@@ -73,6 +76,29 @@ public class ToolBar extends JPanel {
 		final JTextField itemField = new JTextField();
 		itemField.setBounds(0, 21, 251, GuiConstants.TEXT_FIELD_HEIGHT);
 		filterPanel.add(itemField);
+		
+		// Only filter the tables once the user has stopped typing for a moment.
+		final Timer filterTimer = new Timer(TYPE_NAME_DELAY, new ActionListener() {
+			private String typeName = "";
+			
+			@Override
+			public void actionPerformed(ActionEvent arg0) {
+				String text = itemField.getText();
+				if (text.equals(typeName)) {
+					return;
+				}
+				
+				typeName = text;
+				for (Table table : tables) {
+					if (table.getDataModel() instanceof ITypeNameFilter) {
+						((ITypeNameFilter) table.getDataModel()).setTypeName(text);
+						table.reload();
+					}
+				}
+			}
+		});
+		filterTimer.setRepeats(false);
+		
 		itemField.addKeyListener(new KeyListener() {
 			@Override
 			public void keyTyped(KeyEvent arg0) {
@@ -81,12 +107,7 @@ public class ToolBar extends JPanel {
 			
 			@Override
 			public void keyReleased(KeyEvent arg0) {
-				for (Table table : tables) {
-					if (table.getDataModel() instanceof ITypeNameFilter) {
-						((ITypeNameFilter) table.getDataModel()).setTypeName(itemField.getText());
-						table.reload();
-					}
-				}
+				filterTimer.restart();
 			}
 			
 			@Override
@@ -126,12 +147,14 @@ public class ToolBar extends JPanel {
 		dateList.add(" 7 days");
 		dateList.add("14 days");
 		dateList.add("28 days");
+		dateList.add("All time");
 		
 		final Vector<Integer> dateValueList = new Vector<Integer>();
 		dateValueList.add(IPeriodFilter.DAY);
 		dateValueList.add(IPeriodFilter.WEEK);
 		dateValueList.add(IPeriodFilter.TWO_WEEKS);
 		dateValueList.add(IPeriodFilter.FOUR_WEEKS);
+		dateValueList.add(IPeriodFilter.ALL);
 		
 		final JComboBox dateField = new JComboBox(dateList);
 		dateField.setBounds(0, 21, 201, GuiConstants.COMBO_BOX_HEIGHT);
@@ -11,12 +11,15 @@ public class InventoryEvent {
 	public static final String IDLE_MESSAGE = "Idle";
 	public static final String RUNNING_MESSAGE = "Parsing transactions...";
 	
+	public static final long NO_TYPE = -1;
+	
 	public static final InventoryEvent STARTING = new InventoryEvent(false, RUNNING_MESSAGE, 0.0);
 	public static final InventoryEvent IDLE = new InventoryEvent(true, IDLE_MESSAGE, 0.0);
 	
 	private final String state;
 	private final double progress;
 	private final boolean finished;
+	private final long typeId;
 	
 	/**
 	 * This constructs a new {@link InventoryEvent} object.
@@ -31,9 +34,29 @@ public class InventoryEvent {
 	 * 		The total progress (0.0 to 1.0).
 	 */
 	InventoryEvent(boolean finished, String state, double progress) {
+		this(finished, state, progress, NO_TYPE);
+	}
+	
+	/**
+	 * This constructs a new {@link InventoryEvent} object for a single type.
+	 * 
+	 * @param finished
+	 * 		True if the matching has completed.
+	 * 
+	 * @param state
+	 * 		A {@link String} message describing the state.
+	 * 
+	 * @param progress
+	 * 		The total progress (0.0 to 1.0).
+	 * 
+	 * @param typeId
+	 * 		The id of the type which was processed.
+	 */
+	InventoryEvent(boolean finished, String state, double progress, long typeId) {
 		this.finished = finished;
 		this.state = state;
 		this.progress = progress;
+		this.typeId = typeId;
 	}
 
 	/**
@@ -60,4 +83,13 @@ public class InventoryEvent {
 		return finished;
 	}
 
+	/**
+	 * @return
+	 * 		The id of the type this {@link InventoryEvent} applies to, 
+	 * 		or {@link #NO_TYPE} if it applies to the matching process as a whole.
+	 */
+	public long getTypeId() {
+		return typeId;
+	}
+
 }
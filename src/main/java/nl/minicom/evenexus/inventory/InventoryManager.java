@@ -1,12 +1,19 @@
 package nl.minicom.evenexus.inventory;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -19,32 +26,70 @@ import nl.minicom.evenexus.eveapi.importers.ImportListener;
 import nl.minicom.evenexus.eveapi.importers.ImportManager;
 import nl.minicom.evenexus.persistence.Database;
 import nl.minicom.evenexus.persistence.interceptor.Transactional;
+import nl.minicom.evenexus.utils.SettingsManager;
 
 import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The {@link InventoryManager} is responsible for matching the unprocessed transactions of every type.
+ * Types are independent of each other, so when parallel matching is enabled multiple {@link InventoryWorker}s
+ * run at the same time. Types are submitted in order of the number of open transactions, largest first, 
+ * so the biggest jobs do not end up running on their own at the tail of a run.
+ * 
+ * Matching runs and profit rebuilds are run one after another on a single job thread, so a rebuild 
+ * of the profits table never overlaps with the {@link InventoryWorker}s of a matching run.
+ * 
+ * @author michael
+ */
 @Singleton
 public class InventoryManager {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(InventoryManager.class);
 	
+	/**
+	 * The HQL query which lists the ids of all types which still have open transactions, together with
+	 * the number of open transactions, largest first.
+	 */
+	public static final String UNPROCESSED_TYPES_QUERY = new StringBuilder()
+	.append("select t.typeId, count(t.transactionId) from WalletTransaction t ")
+	.append("where t.remaining > 0 ")
+	.append("group by t.typeId ")
+	.append("order by count(t.transactionId) desc")
+	.toString();
+	
 	private final Database database;
+	private final SettingsManager settingsManager;
 	private final Provider<InventoryWorker> workerProvider;
+	private final ProfitTable profitTable;
 	private final ThreadPoolExecutor executor;
+	private final ExecutorService jobs;
 	private final List<InventoryListener> listeners;
 	
-	private State state = State.IDLE;
+	private volatile State state = State.IDLE;
 	
 	@Inject
 	public InventoryManager(ImportManager importManager, 
 			Provider<InventoryWorker> workerProvider, 
-			Database database) {
+			ProfitTable profitTable,
+			Database database,
+			SettingsManager settingsManager) {
 		
 		this.workerProvider = workerProvider;
+		this.profitTable = profitTable;
 		this.database = database;
+		this.settingsManager = settingsManager;
 		this.executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>());
-		this.listeners = new ArrayList<InventoryListener>();
+		this.jobs = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "InventoryManager");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.listeners = new CopyOnWriteArrayList<InventoryListener>();
 		
 		executor.setRejectedExecutionHandler(new RejectedExecutionHandler() {
 			@Override
@@ -56,60 +101,129 @@ public class InventoryManager {
 		importManager.addListener(Api.CHAR_WALLET_TRANSACTIONS, new ImportListener() {
 			@Override
 			public void onImportComplete() {
-				processUnprocessedTransactions();
+				requestTransactionProcessing();
 			}
 		});
 	}
 	
+	/**
+	 * This method queues a run which matches the unprocessed transactions of every type.
+	 */
 	public void requestTransactionProcessing() {
-		new Thread(new Runnable() {
+		jobs.execute(database.closeSessionAfter(new Runnable() {
 			@Override
 			public void run() {
 				processUnprocessedTransactions();
 			}
-		}).start();
+		}));
+	}
+	
+	/**
+	 * This method queues a rebuild of the complete profits table. Listeners are notified
+	 * when the rebuild starts and when it has completed.
+	 */
+	public void requestProfitRebuild() {
+		jobs.execute(database.closeSessionAfter(new Runnable() {
+			@Override
+			public void run() {
+				rebuildProfits();
+			}
+		}));
+	}
+	
+	private void rebuildProfits() {
+		state = State.RUNNING;
+		try {
+			triggerEvent(InventoryEvent.STARTING);
+			try {
+				profitTable.rebuild();
+			}
+			catch (RuntimeException e) {
+				LOG.error("Failed to rebuild profits table!", e);
+			}
+			triggerEvent(InventoryEvent.IDLE);
+		}
+		finally {
+			state = State.IDLE;
+		}
 	}
 	
 	private void processUnprocessedTransactions() {
-		synchronized (state) {
-			state = State.RUNNING;
-			
-			Collection<Future<?>> futures = new LinkedList<Future<?>>();
+		state = State.RUNNING;
+		try {
 			List<Number> typeIds = queryUnprocessedTypeIds();
 			
 			if (!typeIds.isEmpty()) {
 				triggerEvent(InventoryEvent.STARTING);
+				resizeExecutor(typeIds.size());
 				
+				CompletionService<String> completionService = new ExecutorCompletionService<String>(executor);
+				Map<Future<String>, Long> submitted = new HashMap<Future<String>, Long>();
 				for (Number typeId : typeIds) {
 					InventoryWorker worker = workerProvider.get();
 					worker.initialize(typeId.longValue());
-					Future<?> future = executor.submit(worker);
-					futures.add(future);
+					submitted.put(completionService.submit(database.closeSessionAfter(worker)), typeId.longValue());
 				}
 				
 				double count = 0;
-				for (Future<?> future : futures) {
+				for (int i = 0; i < submitted.size(); i++) {
+					Future<String> future = null;
 					try {
+						future = completionService.take();
 						count++;
-						triggerEvent(new InventoryEvent(false, "Processed transactions for: " + future.get(), count / futures.size()));
-					} catch (Exception e) {
+						triggerEvent(new InventoryEvent(false, "Processed transactions for: " + future.get(), 
+								count / submitted.size(), submitted.get(future)));
+					}
+					catch (InterruptedException e) {
 						LOG.error(e.getLocalizedMessage(), e);
+						Thread.currentThread().interrupt();
+						break;
+					}
+					catch (ExecutionException e) {
+						LOG.error("Failed to match transactions for type: " + submitted.get(future), e.getCause());
 					}
 				}
 				
 				triggerEvent(InventoryEvent.IDLE);
 			}
 		}
+		finally {
+			state = State.IDLE;
+		}
+	}
+	
+	private void resizeExecutor(int jobs) {
+		int threads = 1;
+		if (settingsManager.loadBoolean(SettingsManager.INVENTORY_PARALLEL_MATCHING, true)) {
+			int processors = Runtime.getRuntime().availableProcessors();
+			threads = Math.max(1, settingsManager.loadInt(SettingsManager.INVENTORY_MATCHING_THREADS, processors));
+		}
 		
-		state = State.IDLE;
+		threads = Math.min(threads, jobs);
+		if (threads > executor.getMaximumPoolSize()) {
+			executor.setMaximumPoolSize(threads);
+			executor.setCorePoolSize(threads);
+		}
+		else {
+			executor.setCorePoolSize(threads);
+			executor.setMaximumPoolSize(threads);
+		}
 	}
 	
+	/**
+	 * @return
+	 * 		The ids of all types which still have open transactions, ordered by 
+	 * 		the number of open transactions (largest first).
+	 */
 	@Transactional
 	@SuppressWarnings("unchecked")
 	List<Number> queryUnprocessedTypeIds() {
 		Session session = database.getCurrentSession();
-		String query = "select distinct(t.typeId) from WalletTransaction t where t.remaining > 0";
-		return (List<Number>) session.createQuery(query).list();
+		List<Number> typeIds = new ArrayList<Number>();
+		for (Object[] row : (List<Object[]>) session.createQuery(UNPROCESSED_TYPES_QUERY).list()) {
+			typeIds.add((Number) row[0]);
+		}
+		return typeIds;
 	}
 	
 	private void triggerEvent(InventoryEvent event) {
@@ -119,21 +233,15 @@ public class InventoryManager {
 	}
 
 	public void addListener(InventoryListener listener) {
-		synchronized (state) {
-			listeners.add(listener);
-		}
+		listeners.add(listener);
 	}
 	
 	public final boolean isRunning() {
-		synchronized (state) {
-			return state == State.RUNNING;
-		}
+		return state == State.RUNNING;
 	}
 	
 	public final boolean isIdle() {
-		synchronized (state) {
-			return state == State.IDLE;
-		}
+		return state == State.IDLE;
 	}
 
 	public enum State {
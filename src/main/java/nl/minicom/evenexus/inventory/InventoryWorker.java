@@ -1,25 +1,29 @@
 package nl.minicom.evenexus.inventory;
 
-import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 import java.util.concurrent.Callable;
 
 import javax.inject.Inject;
 
+import nl.minicom.evenexus.persistence.DailyTotals;
 import nl.minicom.evenexus.persistence.Database;
 import nl.minicom.evenexus.persistence.dao.Item;
+import nl.minicom.evenexus.persistence.dao.MatchWatermark;
 import nl.minicom.evenexus.persistence.dao.TransactionMatch;
-import nl.minicom.evenexus.persistence.dao.TransactionMatchIdentifier;
 import nl.minicom.evenexus.persistence.dao.WalletTransaction;
 import nl.minicom.evenexus.persistence.interceptor.Transactional;
 
+import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.jdbc.Work;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,9 +31,30 @@ public class InventoryWorker implements Callable<String> {
 
 	private static final Logger LOG = LoggerFactory.getLogger(InventoryWorker.class);
 	
+	/**
+	 * The HQL query which lists the {@link TransactionMatch}es of a type, of which the buy or the sell 
+	 * transaction took place at or after a point in time. The first parameter is the id of the type, 
+	 * the other two are that point in time.
+	 */
+	public static final String INVALID_MATCHES_QUERY = new StringBuilder()
+	.append("SELECT ")
+	.append("	m ")
+	.append("FROM ")
+	.append("	TransactionMatch AS m, ")
+	.append("	WalletTransaction AS s, ")
+	.append("	WalletTransaction AS b ")
+	.append("WHERE ")
+	.append("	s.typeId = ? AND ")
+	.append("	(s.transactionId = m.key.sellTransactionId AND b.transactionId = m.key.buyTransactionId) AND ")
+	.append("	(s.transactionDateTime >= ? OR b.transactionDateTime >= ?) ")
+	.append("ORDER BY ")
+	.append("	s.transactionDateTime DESC, s.transactionId DESC")
+	.toString();
+	
 	private final Database database;
 	
 	private long typeId = -1;
+	private Timestamp profitsChangedSince = null;
 	
 	@Inject
 	public InventoryWorker(Database database) {
@@ -49,19 +74,22 @@ public class InventoryWorker implements Callable<String> {
 		// Drop transactionMatches of the past days for this typeId, and reset remaining flag for wallet transactions.
 		revertMostRecentTransactionsIfRequired();
 		
-		final Queue<WalletTransaction> buyTransactions = queryRemainingBuyTransactions();
-		final Queue<WalletTransaction> sellTransactions = queryRemainingSellTransactions();
+		final TransactionBuffer buyTransactions = loadRemainingTransactions(true);
+		final TransactionBuffer sellTransactions = loadRemainingTransactions(false);
 		
-		if (!sellTransactions.isEmpty()) {
+		if (sellTransactions.size() > 0) {
 			LOG.info("Matching " + sellTransactions.size() + " unprocessed transactions for type: " + typeId);
-		}
-		
-		while (!sellTransactions.isEmpty()) {
-			if (match(buyTransactions, sellTransactions)) {
-				break;
+			
+			MatchingEngine engine = new MatchingEngine(buyTransactions, sellTransactions);
+			engine.run();
+			persistMatchingResults(engine);
+			if (engine.getMatchCount() > 0) {
+				markProfitsChanged(new Timestamp(sellTransactions.getMinute(0)));
 			}
 		}
 		
+		updateWatermark();
+		updateDailyTotals();
 		return getName();
 	}
 	
@@ -80,7 +108,7 @@ public class InventoryWorker implements Callable<String> {
 		return item.getTypeName();
 	}
 
-	private void revertMostRecentTransactionsIfRequired() {
+	void revertMostRecentTransactionsIfRequired() {
 		Timestamp timestamp = getEarliestMatchErrorTimestamp();
 		if (timestamp != null) {
 			List<TransactionMatch> matches = listInvalidMatches(timestamp);
@@ -106,28 +134,38 @@ public class InventoryWorker implements Callable<String> {
 		session.update(buy);
 		session.update(sell);
 		session.delete(match);
+		MatchWatermarks.lower(session, typeId, buy.getTransactionDateTime(), buy.getTransactionId());
+		MatchWatermarks.lower(session, typeId, sell.getTransactionDateTime(), sell.getTransactionId());
+		ProfitTable.delete(session, match.getBuyTransactionId(), match.getSellTransactionId());
+		markProfitsChanged(sell.getTransactionDateTime());
+	}
+	
+	void markProfitsChanged(Timestamp time) {
+		if (profitsChangedSince == null || time.before(profitsChangedSince)) {
+			profitsChangedSince = time;
+		}
+	}
+	
+	/**
+	 * This method recalculates the {@link DailyTotals} of this type, from the earliest 
+	 * day on which a profit was added or removed.
+	 */
+	@Transactional
+	void updateDailyTotals() {
+		if (profitsChangedSince != null) {
+			DailyTotals.refreshProfits(database.getCurrentSession(), typeId, profitsChangedSince);
+			profitsChangedSince = null;
+		}
 	}
 	
 	@Transactional
 	@SuppressWarnings("unchecked")
 	List<TransactionMatch> listInvalidMatches(Timestamp timestamp) {
-		StringBuilder query = new StringBuilder();
-		query.append("SELECT ");
-		query.append("	m ");
-		query.append("FROM ");
-		query.append("	TransactionMatch AS m, ");
-		query.append("	WalletTransaction AS s, ");
-		query.append("	WalletTransaction AS b ");
-		query.append("WHERE ");
-		query.append("	(s.transactionId = m.key.sellTransactionId AND b.transactionId = m.key.buyTransactionId) AND ");
-		query.append("	(s.transactionDateTime >= ? OR b.transactionDateTime >= ?) ");
-		query.append("ORDER BY ");
-		query.append("	s.transactionDateTime DESC, s.transactionId DESC");
-		
 		Session session = database.getCurrentSession();
-		Query q = session.createQuery(query.toString());
-		q.setTimestamp(0, timestamp);
+		Query q = session.createQuery(INVALID_MATCHES_QUERY);
+		q.setLong(0, typeId);
 		q.setTimestamp(1, timestamp);
+		q.setTimestamp(2, timestamp);
 		
 		return (List<TransactionMatch>) q.list();
 	}
@@ -139,7 +177,7 @@ public class InventoryWorker implements Callable<String> {
 		State previousSellState = null;
 		Timestamp sellMismatch = null;
 		
-		List<WalletTransaction> transactions = listTransactionsInAscendingOrder();
+		List<WalletTransaction> transactions = listTransactionsInAscendingOrder(getValidWatermark());
 		for (WalletTransaction transaction : transactions) {
 			long remaining = transaction.getRemaining();
 			long quantity = transaction.getQuantity();
@@ -201,110 +239,210 @@ public class InventoryWorker implements Callable<String> {
 		return null;
 	}
 
+	/**
+	 * This method lists the transactions of this type which still need to be checked for matching errors.
+	 * 
+	 * @param watermark
+	 * 		The {@link MatchWatermark} of this type, or null to list all transactions.
+	 * 
+	 * @return
+	 * 		The transactions after the watermark, in ascending order of time.
+	 */
 	@Transactional
 	@SuppressWarnings("unchecked")
-	List<WalletTransaction> listTransactionsInAscendingOrder() {
+	List<WalletTransaction> listTransactionsInAscendingOrder(MatchWatermark watermark) {
 		Session session = database.getCurrentSession();
-		return session.createCriteria(WalletTransaction.class)
+		Criteria criteria = session.createCriteria(WalletTransaction.class)
 				.add(Restrictions.eq(WalletTransaction.TYPE_ID, typeId))
 				.addOrder(Order.asc(WalletTransaction.TRANSACTION_DATE_TIME))
-				.list();
+				.addOrder(Order.asc(WalletTransaction.TRANSACTION_ID));
+		
+		if (watermark != null) {
+			Timestamp transactionDateTime = watermark.getTransactionDateTime();
+			long transactionId = watermark.getTransactionId();
+			criteria.add(Restrictions.not(MatchWatermarks.isBefore(transactionDateTime, transactionId, true)));
+		}
+		
+		return criteria.list();
 	}
 	
+	/**
+	 * This method loads the {@link MatchWatermark} of this type. The watermark is lowered by 
+	 * {@link MatchWatermarks} whenever it becomes stale, so it can be used without verifying it.
+	 * 
+	 * @return
+	 * 		The {@link MatchWatermark} of this type, or null if there is no watermark.
+	 */
 	@Transactional
-	boolean match(Queue<WalletTransaction> buys, Queue<WalletTransaction> sales) {
-		WalletTransaction buyTransaction = buys.peek();
-		WalletTransaction sellTransaction = sales.peek();
+	MatchWatermark getValidWatermark() {
+		Session session = database.getCurrentSession();
+		return (MatchWatermark) session.get(MatchWatermark.class, typeId);
+	}
+	
+	/**
+	 * This method moves the {@link MatchWatermark} of this type up to the most recent transaction 
+	 * which precedes the oldest transaction that has not been completely matched yet.
+	 */
+	@Transactional
+	void updateWatermark() {
+		Session session = database.getCurrentSession();
+		WalletTransaction firstOpen = (WalletTransaction) session.createCriteria(WalletTransaction.class)
+				.add(Restrictions.eq(WalletTransaction.TYPE_ID, typeId))
+				.add(Restrictions.gt(WalletTransaction.REMAINING, 0L))
+				.addOrder(Order.asc(WalletTransaction.TRANSACTION_DATE_TIME))
+				.addOrder(Order.asc(WalletTransaction.TRANSACTION_ID))
+				.setMaxResults(1)
+				.uniqueResult();
 		
-		if (sellTransaction == null) {
-			// There are no (valid) sell orders left to process.
-			return true;
-		}
+		Criteria criteria = session.createCriteria(WalletTransaction.class)
+				.add(Restrictions.eq(WalletTransaction.TYPE_ID, typeId))
+				.addOrder(Order.desc(WalletTransaction.TRANSACTION_DATE_TIME))
+				.addOrder(Order.desc(WalletTransaction.TRANSACTION_ID))
+				.setMaxResults(1);
 		
-		if (buyTransaction == null) {
-			/*
-			 *  The buy order queue has been depleted. This
-			 *  makes it impossible to match transactions.
-			 */
-			return true;
+		if (firstOpen != null) {
+			Timestamp transactionDateTime = firstOpen.getTransactionDateTime();
+			long transactionId = firstOpen.getTransactionId();
+			criteria.add(MatchWatermarks.isBefore(transactionDateTime, transactionId, false));
 		}
 		
-		if (buyTransaction.beforeOrEquals(sellTransaction)) {
-			long buyRemaining = buyTransaction.getRemaining();
-			long sellRemaining = sellTransaction.getRemaining();
-			
-			if (sellRemaining > buyRemaining) {
-				buyTransaction.setRemaining(0);
-				long diff = sellRemaining - buyRemaining;
-				sellTransaction.setRemaining(diff);
-				persistTransactionMatch(buyTransaction, sellTransaction, buyRemaining);
-			}
-			else if (sellRemaining < buyRemaining) {
-				long diff = buyRemaining - sellRemaining;
-				buyTransaction.setRemaining(diff);
-				sellTransaction.setRemaining(0);
-				persistTransactionMatch(buyTransaction, sellTransaction, sellRemaining);
+		WalletTransaction lastSettled = (WalletTransaction) criteria.uniqueResult();
+		MatchWatermark watermark = (MatchWatermark) session.get(MatchWatermark.class, typeId);
+		if (lastSettled == null) {
+			if (watermark != null) {
+				session.delete(watermark);
 			}
-			else if (sellRemaining == buyRemaining) {
-				buyTransaction.setRemaining(0);
-				sellTransaction.setRemaining(0);
-				persistTransactionMatch(buyTransaction, sellTransaction, sellRemaining);
-			}
-		}
-		else {
-			sellTransaction.setRemaining(0);
-		}
-
-		Session session = database.getCurrentSession();
-		session.update(buyTransaction);
-		session.update(sellTransaction);
-
-		if (buyTransaction.getRemaining() == 0) {
-			buys.remove();
+			return;
 		}
 		
-		if (sellTransaction.getRemaining() == 0) {
-			sales.remove();
+		if (watermark == null) {
+			watermark = new MatchWatermark();
+			watermark.setTypeId(typeId);
 		}
 		
-		return false;
+		watermark.setTransactionDateTime(lastSettled.getTransactionDateTime());
+		watermark.setTransactionId(lastSettled.getTransactionId());
+		session.saveOrUpdate(watermark);
 	}
-
-	@Transactional
-	void persistTransactionMatch(WalletTransaction buy, WalletTransaction sell, long amount) {
-		TransactionMatch match = new TransactionMatch();
-		match.setKey(new TransactionMatchIdentifier(buy.getTransactionId(), sell.getTransactionId()));
-		match.setQuantity(amount);
-
-		database.getCurrentSession().saveOrUpdate(match);
+	
+	/**
+	 * This method builds the SQL query which lists the id, time and remaining quantity of one side of 
+	 * the open transactions of a type, in ascending order of time. Its only parameter is the type id.
+	 * 
+	 * @param buy
+	 * 		True to list the buy transactions, false to list the sell transactions.
+	 * 
+	 * @return
+	 * 		The SQL query.
+	 */
+	public static String createRemainingTransactionsQuery(boolean buy) {
+		return new StringBuilder()
+		.append("SELECT transactionId, transactionDateTime, remaining ")
+		.append("FROM transactions ")
+		.append("WHERE typeId = ? AND remaining > 0 AND price " + (buy ? "<" : ">") + " 0 ")
+		.append("ORDER BY transactionDateTime ASC, transactionId ASC")
+		.toString();
 	}
-
+	
+	/**
+	 * This method loads one side of the open transactions of this type into a {@link TransactionBuffer}.
+	 * 
+	 * @param buy
+	 * 		True to load the buy transactions, false to load the sell transactions.
+	 * 
+	 * @return
+	 * 		The open transactions, in ascending order of time.
+	 */
 	@Transactional
-	@SuppressWarnings("unchecked")
-	Queue<WalletTransaction> queryRemainingBuyTransactions() {
-		Session session = database.getCurrentSession();
-		return new LinkedList<WalletTransaction>(
-				session.createCriteria(WalletTransaction.class)
-				.add(Restrictions.eq(WalletTransaction.TYPE_ID, typeId))
-				.add(Restrictions.gt(WalletTransaction.REMAINING, 0L))
-				.add(Restrictions.lt(WalletTransaction.PRICE, BigDecimal.ZERO))
-				.addOrder(Order.asc(WalletTransaction.TRANSACTION_DATE_TIME))
-				.list()
-		);
+	TransactionBuffer loadRemainingTransactions(final boolean buy) {
+		final TransactionBuffer buffer = new TransactionBuffer();
+		final String sql = createRemainingTransactionsQuery(buy);
+		
+		database.getCurrentSession().doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				PreparedStatement statement = connection.prepareStatement(sql);
+				try {
+					statement.setLong(1, typeId);
+					ResultSet resultSet = statement.executeQuery();
+					while (resultSet.next()) {
+						buffer.add(resultSet.getLong(1), resultSet.getTimestamp(2).getTime(), resultSet.getLong(3));
+					}
+					resultSet.close();
+				}
+				finally {
+					statement.close();
+				}
+			}
+		});
+		
+		return buffer;
 	}
 	
+	/**
+	 * This method writes the changed remaining quantities and the new {@link TransactionMatch}es 
+	 * produced by the {@link MatchingEngine} to the database, using batched statements in a single transaction.
+	 * The profits of the new {@link TransactionMatch}es are stored in the {@link ProfitTable} as well.
+	 * 
+	 * @param engine
+	 * 		The {@link MatchingEngine} which has been run.
+	 */
 	@Transactional
-	@SuppressWarnings("unchecked")
-	Queue<WalletTransaction> queryRemainingSellTransactions() {
-		Session session = database.getCurrentSession();
-		return new LinkedList<WalletTransaction>(
-				session.createCriteria(WalletTransaction.class)
-				.add(Restrictions.eq(WalletTransaction.TYPE_ID, typeId))
-				.add(Restrictions.gt(WalletTransaction.REMAINING, 0L))
-				.add(Restrictions.gt(WalletTransaction.PRICE, BigDecimal.ZERO))
-				.addOrder(Order.asc(WalletTransaction.TRANSACTION_DATE_TIME))
-				.list()
-		);
+	void persistMatchingResults(final MatchingEngine engine) {
+		database.getCurrentSession().doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				PreparedStatement update = connection.prepareStatement(
+						"UPDATE transactions SET remaining = ? WHERE transactionId = ?");
+				try {
+					addRemainingUpdates(update, engine.getBuys());
+					addRemainingUpdates(update, engine.getSells());
+					update.executeBatch();
+				}
+				finally {
+					update.close();
+				}
+				
+				PreparedStatement merge = connection.prepareStatement(
+						"MERGE INTO transactionMatches (buyTransactionId, sellTransactionId, quantity) "
+						+ "KEY (buyTransactionId, sellTransactionId) VALUES (?, ?, ?)");
+				try {
+					for (int i = 0; i < engine.getMatchCount(); i++) {
+						merge.setLong(1, engine.getMatchBuyId(i));
+						merge.setLong(2, engine.getMatchSellId(i));
+						merge.setLong(3, engine.getMatchQuantity(i));
+						merge.addBatch();
+					}
+					merge.executeBatch();
+				}
+				finally {
+					merge.close();
+				}
+				
+				PreparedStatement profits = ProfitTable.prepareMerge(connection);
+				try {
+					for (int i = 0; i < engine.getMatchCount(); i++) {
+						profits.setLong(1, engine.getMatchBuyId(i));
+						profits.setLong(2, engine.getMatchSellId(i));
+						profits.addBatch();
+					}
+					profits.executeBatch();
+				}
+				finally {
+					profits.close();
+				}
+			}
+		});
+	}
+	
+	private void addRemainingUpdates(PreparedStatement statement, TransactionBuffer buffer) throws SQLException {
+		for (int i = 0; i < buffer.size(); i++) {
+			if (buffer.isChanged(i)) {
+				statement.setLong(1, buffer.getRemaining(i));
+				statement.setLong(2, buffer.getId(i));
+				statement.addBatch();
+			}
+		}
 	}
 
 	private enum State {
@@ -0,0 +1,124 @@
+package nl.minicom.evenexus.inventory;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import nl.minicom.evenexus.persistence.dao.MatchWatermark;
+import nl.minicom.evenexus.persistence.dao.WalletTransaction;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+
+/**
+ * The {@link MatchWatermarks} class keeps the {@link MatchWatermark}s valid. All transactions up to and 
+ * including a watermark must be completely matched. When a transaction at or before the watermark is 
+ * imported, or when one of its matches is reverted, this no longer holds and the watermark is lowered 
+ * to the transaction preceding it. This way the {@link InventoryWorker} can trust a stored watermark, 
+ * without having to verify it against the whole history of the type.
+ *
+ * @author michael
+ */
+public final class MatchWatermarks {
+
+	private MatchWatermarks() {
+		// Prevent instantiation.
+	}
+	
+	/**
+	 * This method lowers the {@link MatchWatermark}s of the types of newly imported transactions, 
+	 * if any of those transactions is not more recent than the watermark of its type.
+	 * 
+	 * @param session
+	 * 		The current {@link Session}.
+	 * 
+	 * @param transactions
+	 * 		The imported {@link WalletTransaction}s.
+	 */
+	public static void lower(Session session, Collection<WalletTransaction> transactions) {
+		Map<Long, WalletTransaction> earliest = new HashMap<Long, WalletTransaction>();
+		for (WalletTransaction transaction : transactions) {
+			WalletTransaction current = earliest.get(transaction.getTypeId());
+			if (current == null || isBefore(transaction.getTransactionDateTime(), transaction.getTransactionId(), 
+					current.getTransactionDateTime(), current.getTransactionId())) {
+				earliest.put(transaction.getTypeId(), transaction);
+			}
+		}
+		
+		for (WalletTransaction transaction : earliest.values()) {
+			lower(session, transaction.getTypeId(), transaction.getTransactionDateTime(), 
+					transaction.getTransactionId());
+		}
+	}
+	
+	/**
+	 * This method lowers the {@link MatchWatermark} of a type to the transaction preceding the specified 
+	 * transaction, if the watermark is not before that transaction. The watermark is removed if there 
+	 * is no preceding transaction.
+	 * 
+	 * @param session
+	 * 		The current {@link Session}.
+	 * 
+	 * @param typeId
+	 * 		The type of the transaction.
+	 * 
+	 * @param transactionDateTime
+	 * 		The time of the transaction which is no longer completely matched.
+	 * 
+	 * @param transactionId
+	 * 		The id of the transaction which is no longer completely matched.
+	 */
+	static void lower(Session session, long typeId, Timestamp transactionDateTime, long transactionId) {
+		MatchWatermark watermark = (MatchWatermark) session.get(MatchWatermark.class, typeId);
+		if (watermark == null || isBefore(watermark.getTransactionDateTime(), watermark.getTransactionId(), 
+				transactionDateTime, transactionId)) {
+			return;
+		}
+		
+		WalletTransaction previous = (WalletTransaction) session.createCriteria(WalletTransaction.class)
+				.add(Restrictions.eq(WalletTransaction.TYPE_ID, typeId))
+				.add(isBefore(transactionDateTime, transactionId, false))
+				.addOrder(Order.desc(WalletTransaction.TRANSACTION_DATE_TIME))
+				.addOrder(Order.desc(WalletTransaction.TRANSACTION_ID))
+				.setMaxResults(1)
+				.uniqueResult();
+		
+		if (previous == null) {
+			session.delete(watermark);
+		}
+		else {
+			watermark.setTransactionDateTime(previous.getTransactionDateTime());
+			watermark.setTransactionId(previous.getTransactionId());
+			session.update(watermark);
+		}
+	}
+	
+	/**
+	 * @return
+	 * 		A {@link Criterion} which selects the transactions before the specified transaction.
+	 */
+	static Criterion isBefore(Timestamp transactionDateTime, long transactionId, boolean inclusive) {
+		Criterion sameTime;
+		if (inclusive) {
+			sameTime = Restrictions.le(WalletTransaction.TRANSACTION_ID, transactionId);
+		}
+		else {
+			sameTime = Restrictions.lt(WalletTransaction.TRANSACTION_ID, transactionId);
+		}
+		
+		return Restrictions.or(
+				Restrictions.lt(WalletTransaction.TRANSACTION_DATE_TIME, transactionDateTime),
+				Restrictions.and(
+						Restrictions.eq(WalletTransaction.TRANSACTION_DATE_TIME, transactionDateTime), 
+						sameTime));
+	}
+	
+	private static boolean isBefore(Timestamp time, long id, Timestamp otherTime, long otherId) {
+		int comparison = time.compareTo(otherTime);
+		return comparison < 0 || (comparison == 0 && id < otherId);
+	}
+	
+}
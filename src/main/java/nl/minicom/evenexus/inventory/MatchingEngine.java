@@ -0,0 +1,145 @@
+package nl.minicom.evenexus.inventory;
+
+import java.util.Arrays;
+
+/**
+ * The {@link MatchingEngine} matches the open buy and sell transactions of a single type in memory.
+ * It follows exactly the same FIFO rules as the per-row matching in {@link InventoryWorker}, but keeps all
+ * state in primitive arrays so the results can be written back to the database in one go.
+ *
+ * @author michael
+ */
+final class MatchingEngine {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final TransactionBuffer buys;
+	private final TransactionBuffer sells;
+
+	private long[] matchBuyIds;
+	private long[] matchSellIds;
+	private long[] matchQuantities;
+	private int matches;
+
+	/**
+	 * This constructs a new {@link MatchingEngine} object.
+	 *
+	 * @param buys
+	 * 		The open buy transactions, in ascending order of time.
+	 *
+	 * @param sells
+	 * 		The open sell transactions, in ascending order of time.
+	 */
+	MatchingEngine(TransactionBuffer buys, TransactionBuffer sells) {
+		this.buys = buys;
+		this.sells = sells;
+		this.matchBuyIds = new long[INITIAL_CAPACITY];
+		this.matchSellIds = new long[INITIAL_CAPACITY];
+		this.matchQuantities = new long[INITIAL_CAPACITY];
+		this.matches = 0;
+	}
+
+	/**
+	 * This method walks through the buy and sell transactions, and matches them in FIFO order.
+	 * A sell transaction which took place before the oldest open buy transaction can never be
+	 * matched, and is marked as exhausted.
+	 */
+	void run() {
+		int buy = 0;
+		int sell = 0;
+
+		while (sell < sells.size() && buy < buys.size()) {
+			long buyRemaining = buys.getRemaining(buy);
+			long sellRemaining = sells.getRemaining(sell);
+
+			if (buys.getMinute(buy) <= sells.getMinute(sell)) {
+				long quantity = Math.min(buyRemaining, sellRemaining);
+				buys.setRemaining(buy, buyRemaining - quantity);
+				sells.setRemaining(sell, sellRemaining - quantity);
+				addMatch(buys.getId(buy), sells.getId(sell), quantity);
+			}
+			else {
+				sells.setRemaining(sell, 0);
+			}
+
+			if (buys.getRemaining(buy) == 0) {
+				buy++;
+			}
+			if (sells.getRemaining(sell) == 0) {
+				sell++;
+			}
+		}
+	}
+
+	private void addMatch(long buyId, long sellId, long quantity) {
+		if (matches == matchBuyIds.length) {
+			int newCapacity = matchBuyIds.length * 2;
+			matchBuyIds = Arrays.copyOf(matchBuyIds, newCapacity);
+			matchSellIds = Arrays.copyOf(matchSellIds, newCapacity);
+			matchQuantities = Arrays.copyOf(matchQuantities, newCapacity);
+		}
+
+		matchBuyIds[matches] = buyId;
+		matchSellIds[matches] = sellId;
+		matchQuantities[matches] = quantity;
+		matches++;
+	}
+
+	/**
+	 * @return
+	 * 		The buy transactions.
+	 */
+	TransactionBuffer getBuys() {
+		return buys;
+	}
+
+	/**
+	 * @return
+	 * 		The sell transactions.
+	 */
+	TransactionBuffer getSells() {
+		return sells;
+	}
+
+	/**
+	 * @return
+	 * 		The number of matches which were made.
+	 */
+	int getMatchCount() {
+		return matches;
+	}
+
+	/**
+	 * @param index
+	 * 		The index of the match.
+	 *
+	 * @return
+	 * 		The id of the buy transaction of the match.
+	 */
+	long getMatchBuyId(int index) {
+		return matchBuyIds[index];
+	}
+
+	/**
+	 * @param index
+	 * 		The index of the match.
+	 *
+	 * @return
+	 * 		The id of the sell transaction of the match.
+	 */
+	long getMatchSellId(int index) {
+		return matchSellIds[index];
+	}
+
+	/**
+	 * @param index
+	 * 		The index of the match.
+	 *
+	 * @return
+	 * 		The matched quantity.
+	 */
+	long getMatchQuantity(int index) {
+		return matchQuantities[index];
+	}
+
+}
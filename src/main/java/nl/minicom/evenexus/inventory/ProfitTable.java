@@ -0,0 +1,153 @@
+package nl.minicom.evenexus.inventory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.inject.Inject;
+
+import nl.minicom.evenexus.persistence.DailyTotals;
+import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.dao.TransactionMatch;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
+
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ProfitTable} maintains the materialized profits table. This table contains one row for
+ * every {@link TransactionMatch}, together with the prices, taxes and profits of the matched transactions,
+ * so that readers do not have to join the matches with the transactions themselves.
+ *
+ * The {@link InventoryWorker} keeps the table up to date while matching. The whole table can be
+ * rebuilt with {@link #rebuild()}.
+ *
+ * @author michael
+ */
+public class ProfitTable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProfitTable.class);
+
+	private static final String COLUMNS = new StringBuilder()
+	.append("buyTransactionId, sellTransactionId, typeId, typeName, date, quantity, buyPrice, sellPrice, ")
+	.append("taxes, grossProfit, netProfit, totalTaxes, totalGrossProfit, totalNetProfit, ")
+	.append("percentalGrossProfit, percentalNetProfit")
+	.toString();
+
+	private static final String SELECT = new StringBuilder()
+	.append("SELECT b.transactionId, s.transactionId, s.typeId, s.typeName, ")
+	.append("	s.transactionDateTime, tm.quantity, b.price, s.price, ")
+	.append("	(b.taxes + s.taxes), ")
+	.append("	(b.price + s.price), ")
+	.append("	(b.price + s.price + b.taxes + s.taxes), ")
+	.append("	(b.taxes + s.taxes) * tm.quantity, ")
+	.append("	tm.quantity * (b.price + s.price), ")
+	.append("	(b.price + s.price + b.taxes + s.taxes) * tm.quantity, ")
+	.append("	(b.price + s.price) / ABS(b.price) * 100, ")
+	.append("	(b.price + s.price + b.taxes + s.taxes) / ABS(b.price) * 100 ")
+	.append("FROM transactionMatches tm ")
+	.append("INNER JOIN transactions b ON tm.buyTransactionId = b.transactionId ")
+	.append("INNER JOIN transactions s ON tm.sellTransactionId = s.transactionId ")
+	.toString();
+
+	private static final String MERGE = new StringBuilder()
+	.append("MERGE INTO profits (" + COLUMNS + ") ")
+	.append("KEY (buyTransactionId, sellTransactionId) ")
+	.append(SELECT)
+	.append("WHERE tm.buyTransactionId = ? AND tm.sellTransactionId = ?")
+	.toString();
+
+	private static final String DELETE = "DELETE FROM profits WHERE buyTransactionId = ? AND sellTransactionId = ?";
+
+	private final Database database;
+
+	/**
+	 * This constructs a new {@link ProfitTable} object.
+	 *
+	 * @param database
+	 * 		The {@link Database}.
+	 */
+	@Inject
+	public ProfitTable(Database database) {
+		this.database = database;
+	}
+
+	/**
+	 * This method recalculates the complete profits table from the stored {@link TransactionMatch}es,
+	 * and the profits in the {@link DailyTotals}.
+	 */
+	@Transactional
+	public void rebuild() {
+		LOG.info("Rebuilding profits table...");
+		Session session = database.getCurrentSession();
+		session.doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				Statement statement = connection.createStatement();
+				try {
+					statement.executeUpdate("DELETE FROM profits");
+					int rows = statement.executeUpdate("INSERT INTO profits (" + COLUMNS + ") " + SELECT);
+					LOG.info("Rebuilt profits table with " + rows + " entries.");
+				}
+				finally {
+					statement.close();
+				}
+			}
+		});
+		DailyTotals.rebuildProfits(session);
+	}
+
+	/**
+	 * This method prepares a statement which (re)calculates the profit of a single {@link TransactionMatch}.
+	 * The first parameter is the id of the buy transaction, the second the id of the sell transaction.
+	 *
+	 * @param connection
+	 * 		The {@link Connection} to use.
+	 *
+	 * @return
+	 * 		The {@link PreparedStatement}.
+	 *
+	 * @throws SQLException
+	 * 		If the statement could not be prepared.
+	 */
+	static PreparedStatement prepareMerge(Connection connection) throws SQLException {
+		return connection.prepareStatement(MERGE);
+	}
+
+	/**
+	 * This method removes the profit of a single {@link TransactionMatch}.
+	 *
+	 * @param session
+	 * 		The current {@link Session}.
+	 *
+	 * @param buyTransactionId
+	 * 		The id of the buy transaction.
+	 *
+	 * @param sellTransactionId
+	 * 		The id of the sell transaction.
+	 */
+	static void delete(Session session, long buyTransactionId, long sellTransactionId) {
+		execute(session, DELETE, buyTransactionId, sellTransactionId);
+	}
+
+	private static void execute(Session session, final String sql, final long buyId, final long sellId) {
+		session.doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				PreparedStatement statement = connection.prepareStatement(sql);
+				try {
+					statement.setLong(1, buyId);
+					statement.setLong(2, sellId);
+					statement.executeUpdate();
+				}
+				finally {
+					statement.close();
+				}
+			}
+		});
+	}
+
+}
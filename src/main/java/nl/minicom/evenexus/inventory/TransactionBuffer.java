@@ -0,0 +1,155 @@
+package nl.minicom.evenexus.inventory;
+
+import java.util.Arrays;
+
+/**
+ * The {@link TransactionBuffer} holds one side (buy or sell) of the open transactions of a single type
+ * in primitive arrays, ordered in the way they should be matched.
+ *
+ * @author michael
+ */
+final class TransactionBuffer {
+
+	private static final int INITIAL_CAPACITY = 64;
+	private static final long MINUTE = 60000L;
+
+	private long[] ids;
+	private long[] minutes;
+	private long[] remaining;
+	private long[] original;
+	private int size;
+
+	/**
+	 * This constructs a new empty {@link TransactionBuffer} object.
+	 */
+	TransactionBuffer() {
+		this.ids = new long[INITIAL_CAPACITY];
+		this.minutes = new long[INITIAL_CAPACITY];
+		this.remaining = new long[INITIAL_CAPACITY];
+		this.original = new long[INITIAL_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * This method appends a transaction to the end of this buffer.
+	 *
+	 * @param transactionId
+	 * 		The id of the transaction.
+	 *
+	 * @param transactionDateTime
+	 * 		The time of the transaction in milliseconds.
+	 *
+	 * @param remainingQuantity
+	 * 		The quantity of the transaction which has not yet been matched.
+	 */
+	void add(long transactionId, long transactionDateTime, long remainingQuantity) {
+		ensureCapacity(size + 1);
+		ids[size] = transactionId;
+		minutes[size] = truncateToMinute(transactionDateTime);
+		remaining[size] = remainingQuantity;
+		original[size] = remainingQuantity;
+		size++;
+	}
+
+	/**
+	 * @return
+	 * 		The number of transactions in this buffer.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param index
+	 * 		The index of the transaction.
+	 *
+	 * @return
+	 * 		The id of the transaction.
+	 */
+	long getId(int index) {
+		return ids[index];
+	}
+
+	/**
+	 * @param index
+	 * 		The index of the transaction.
+	 *
+	 * @return
+	 * 		The time of the transaction, truncated to whole minutes.
+	 */
+	long getMinute(int index) {
+		return minutes[index];
+	}
+
+	/**
+	 * @param index
+	 * 		The index of the transaction.
+	 *
+	 * @return
+	 * 		The currently remaining quantity of the transaction.
+	 */
+	long getRemaining(int index) {
+		return remaining[index];
+	}
+
+	/**
+	 * This method sets the remaining quantity of a transaction.
+	 *
+	 * @param index
+	 * 		The index of the transaction.
+	 *
+	 * @param value
+	 * 		The new remaining quantity.
+	 */
+	void setRemaining(int index, long value) {
+		remaining[index] = value;
+	}
+
+	/**
+	 * @param index
+	 * 		The index of the transaction.
+	 *
+	 * @return
+	 * 		True if the remaining quantity differs from the quantity the transaction was loaded with.
+	 */
+	boolean isChanged(int index) {
+		return remaining[index] != original[index];
+	}
+
+	/**
+	 * @return
+	 * 		The number of transactions whose remaining quantity has changed.
+	 */
+	int countChanged() {
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (isChanged(i)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > ids.length) {
+			int newCapacity = Math.max(capacity, ids.length * 2);
+			ids = Arrays.copyOf(ids, newCapacity);
+			minutes = Arrays.copyOf(minutes, newCapacity);
+			remaining = Arrays.copyOf(remaining, newCapacity);
+			original = Arrays.copyOf(original, newCapacity);
+		}
+	}
+
+	/**
+	 * Transactions are compared on minute precision, just like {@link
+	 * nl.minicom.evenexus.persistence.dao.WalletTransaction#beforeOrEquals}.
+	 */
+	private static long truncateToMinute(long time) {
+		long remainder = time % MINUTE;
+		if (remainder < 0) {
+			remainder += MINUTE;
+		}
+		return time - remainder;
+	}
+
+}
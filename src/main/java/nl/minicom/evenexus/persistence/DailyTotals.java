@@ -0,0 +1,237 @@
+package nl.minicom.evenexus.persistence;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
+
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+
+/**
+ * The {@link DailyTotals} class maintains the dailytotals table. This table contains the sales, purchases,
+ * taxes and profits per character, type and day, so that the dashboard does not have to aggregate the
+ * raw transactions and profits every time it is reloaded.
+ *
+ * Rows are recalculated from the raw data for the affected days only: the importers do so for the
+ * days of newly imported transactions, the inventory matcher for the days of changed profits.
+ *
+ * @author michael
+ */
+public class DailyTotals {
+
+	public static final String SALES = "sales";
+	public static final String PURCHASES = "purchases";
+	public static final String TAXES = "taxes";
+	public static final String PROFIT = "profit";
+
+	private static final String MERGE_TRANSACTIONS = new StringBuilder()
+	.append("MERGE INTO dailytotals (characterId, typeId, day, sales, purchases, taxes) ")
+	.append("KEY (characterId, typeId, day) ")
+	.append("SELECT characterId, typeId, CAST(transactionDateTime AS DATE), ")
+	.append("	SUM(CASE WHEN price > 0 THEN quantity * (price + taxes) ELSE 0 END), ")
+	.append("	SUM(CASE WHEN price < 0 THEN quantity * (price + taxes) ELSE 0 END), ")
+	.append("	SUM(quantity * taxes) ")
+	.append("FROM transactions ")
+	.append("WHERE characterId = ? ")
+	.append("	AND transactionDateTime >= CAST(? AS DATE) ")
+	.append("	AND transactionDateTime < DATEADD('DAY', 1, CAST(? AS DATE)) ")
+	.append("GROUP BY characterId, typeId, CAST(transactionDateTime AS DATE)")
+	.toString();
+
+	private static final String RESET_PROFITS =
+			"UPDATE dailytotals SET profit = 0 WHERE typeId = ? AND day >= CAST(? AS DATE)";
+
+	private static final String MERGE_PROFITS = new StringBuilder()
+	.append("MERGE INTO dailytotals (characterId, typeId, day, profit) ")
+	.append("KEY (characterId, typeId, day) ")
+	.append("SELECT s.characterId, p.typeId, CAST(p.date AS DATE), SUM(p.totalNetProfit) ")
+	.append("FROM profits p ")
+	.append("INNER JOIN transactions s ON p.sellTransactionId = s.transactionId ")
+	.append("WHERE p.typeId = ? AND p.date >= CAST(? AS DATE) ")
+	.append("GROUP BY s.characterId, p.typeId, CAST(p.date AS DATE)")
+	.toString();
+
+	private static final String REBUILD_PROFITS = new StringBuilder()
+	.append("MERGE INTO dailytotals (characterId, typeId, day, profit) ")
+	.append("KEY (characterId, typeId, day) ")
+	.append("SELECT s.characterId, p.typeId, CAST(p.date AS DATE), SUM(p.totalNetProfit) ")
+	.append("FROM profits p ")
+	.append("INNER JOIN transactions s ON p.sellTransactionId = s.transactionId ")
+	.append("GROUP BY s.characterId, p.typeId, CAST(p.date AS DATE)")
+	.toString();
+
+	private final Database database;
+
+	/**
+	 * This constructs a new {@link DailyTotals} object.
+	 *
+	 * @param database
+	 * 		The {@link Database}.
+	 */
+	@Inject
+	public DailyTotals(Database database) {
+		this.database = database;
+	}
+
+	/**
+	 * This method sums one of the daily totals over all characters and types for the last days.
+	 *
+	 * @param column
+	 * 		The total to sum, one of {@link #SALES}, {@link #PURCHASES}, {@link #TAXES} or {@link #PROFIT}.
+	 *
+	 * @param period
+	 * 		The number of days (including today) to sum.
+	 *
+	 * @param now
+	 * 		The current time.
+	 *
+	 * @return
+	 * 		A {@link Map} of the number of days ago to the total of that day. Days without
+	 * 		any data are not contained in the {@link Map}.
+	 */
+	@Transactional
+	public Map<Integer, Double> listDailyTotals(String column, final int period, final Timestamp now) {
+		final Map<Integer, Double> totals = new TreeMap<Integer, Double>();
+		final String sql = new StringBuilder()
+		.append("SELECT DATEDIFF('DAY', day, CAST(? AS DATE)), SUM(" + column + ") ")
+		.append("FROM dailytotals ")
+		.append("WHERE day > DATEADD('DAY', ?, CAST(? AS DATE)) AND day <= CAST(? AS DATE) ")
+		.append("GROUP BY day")
+		.toString();
+
+		database.getCurrentSession().doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				PreparedStatement statement = connection.prepareStatement(sql);
+				try {
+					statement.setTimestamp(1, now);
+					statement.setInt(2, -period);
+					statement.setTimestamp(3, now);
+					statement.setTimestamp(4, now);
+					ResultSet resultSet = statement.executeQuery();
+					while (resultSet.next()) {
+						BigDecimal total = resultSet.getBigDecimal(2);
+						totals.put(resultSet.getInt(1), total == null ? 0.0 : total.doubleValue());
+					}
+					resultSet.close();
+				}
+				finally {
+					statement.close();
+				}
+			}
+		});
+
+		return totals;
+	}
+
+	/**
+	 * This method recalculates the sales, purchases and taxes of a character for a range of days.
+	 * All transactions in this range must already have been flushed to the database.
+	 *
+	 * @param session
+	 * 		The current {@link Session}.
+	 *
+	 * @param characterId
+	 * 		The id of the character.
+	 *
+	 * @param from
+	 * 		A time on the first day to recalculate.
+	 *
+	 * @param to
+	 * 		A time on the last day to recalculate.
+	 */
+	public static void refreshTransactions(Session session, final long characterId,
+			final Timestamp from, final Timestamp to) {
+
+		session.doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				PreparedStatement statement = connection.prepareStatement(MERGE_TRANSACTIONS);
+				try {
+					statement.setLong(1, characterId);
+					statement.setTimestamp(2, from);
+					statement.setTimestamp(3, to);
+					statement.executeUpdate();
+				}
+				finally {
+					statement.close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * This method recalculates the profits of a type from a certain day onwards.
+	 *
+	 * @param session
+	 * 		The current {@link Session}.
+	 *
+	 * @param typeId
+	 * 		The id of the type.
+	 *
+	 * @param since
+	 * 		A time on the first day to recalculate.
+	 */
+	public static void refreshProfits(Session session, final long typeId, final Timestamp since) {
+		session.doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				executeUpdate(connection, RESET_PROFITS, typeId, since);
+				executeUpdate(connection, MERGE_PROFITS, typeId, since);
+			}
+		});
+	}
+
+	/**
+	 * This method recalculates the profits of all types and all days.
+	 *
+	 * @param session
+	 * 		The current {@link Session}.
+	 */
+	public static void rebuildProfits(Session session) {
+		session.doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				PreparedStatement statement = connection.prepareStatement("UPDATE dailytotals SET profit = 0");
+				try {
+					statement.executeUpdate();
+				}
+				finally {
+					statement.close();
+				}
+
+				statement = connection.prepareStatement(REBUILD_PROFITS);
+				try {
+					statement.executeUpdate();
+				}
+				finally {
+					statement.close();
+				}
+			}
+		});
+	}
+
+	private static void executeUpdate(Connection connection, String sql, long typeId, Timestamp since)
+			throws SQLException {
+
+		PreparedStatement statement = connection.prepareStatement(sql);
+		try {
+			statement.setLong(1, typeId);
+			statement.setTimestamp(2, since);
+			statement.executeUpdate();
+		}
+		finally {
+			statement.close();
+		}
+	}
+
+}
@@ -1,10 +1,20 @@
 package nl.minicom.evenexus.persistence;
 
+import java.util.concurrent.Callable;
+
 import javax.inject.Singleton;
 
+import nl.minicom.evenexus.persistence.interceptor.TransactionMetrics;
+
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.service.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * This class is responsible for pooling a {@link Session} for every {@link Thread}.
@@ -13,24 +23,44 @@ import org.hibernate.cfg.Configuration;
  */
 @Singleton
 public class Database {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(Database.class);
 
 	private final ThreadLocal<Session> sessions;
-	private SessionFactory sessionFactory = null;
+	private final StatementCounter statementCounter;
+	private final TransactionMetrics transactionMetrics;
+	private volatile SessionFactory sessionFactory = null;
 	
 	/**
 	 * This contructs a new {@link Database} object.
 	 */
 	public Database() {
 		this.sessions = new ThreadLocal<Session>();
+		this.statementCounter = new StatementCounter();
+		this.transactionMetrics = new TransactionMetrics();
 	}
 	
+	/**
+	 * @return
+	 * 		The {@link SessionFactory}. It is built by the first thread which calls this method,
+	 * 		after which it is returned without locking.
+	 */
 	@SuppressWarnings("deprecation")
-	private void ensureInitialized() {
-		if (sessionFactory == null) {
-			Configuration config = new Configuration();
-			config.configure("hibernate.cfg.xml");
-			this.sessionFactory = config.buildSessionFactory();
+	private SessionFactory getSessionFactory() {
+		SessionFactory factory = sessionFactory;
+		if (factory == null) {
+			synchronized (this) {
+				factory = sessionFactory;
+				if (factory == null) {
+					Configuration config = new Configuration();
+					config.configure("hibernate.cfg.xml");
+					config.setInterceptor(statementCounter);
+					factory = config.buildSessionFactory();
+					sessionFactory = factory;
+				}
+			}
 		}
+		return factory;
 	}
 	
 	/**
@@ -39,15 +69,63 @@ public class Database {
 	 * 		If no (open) {@link Session} has been associated with this {@link Thread}, a new one is openend.
 	 */
 	public Session getCurrentSession() {
-		synchronized (this) {
-			ensureInitialized();
-			Session session = sessions.get();
-			if (session == null || !session.isOpen()) {
-				session = sessionFactory.openSession();
-				sessions.set(session);
-			}
-			
-			return session;
+		Session session = sessions.get();
+		if (session == null || !session.isOpen()) {
+			session = getSessionFactory().openSession();
+			sessions.set(session);
+		}
+		return session;
+	}
+	
+	/**
+	 * @return
+	 * 		The {@link Statistics} of the {@link SessionFactory}, including the hits and misses 
+	 * 		of the second-level cache.
+	 */
+	public Statistics getStatistics() {
+		return getSessionFactory().getStatistics();
+	}
+	
+	/**
+	 * @return
+	 * 		The {@link StatementCounter} which counts the entity writes and statements of every {@link Thread}.
+	 */
+	public StatementCounter getStatementCounter() {
+		return statementCounter;
+	}
+	
+	/**
+	 * @return
+	 * 		The {@link TransactionMetrics} of the {@link nl.minicom.evenexus.persistence.interceptor.Transactional} 
+	 * 		methods which use this {@link Database}.
+	 */
+	public TransactionMetrics getTransactionMetrics() {
+		return transactionMetrics;
+	}
+	
+	/**
+	 * This method logs the hits, misses and size of every second-level cache region.
+	 */
+	public void logCacheStatistics() {
+		Statistics statistics = getStatistics();
+		for (String region : statistics.getSecondLevelCacheRegionNames()) {
+			SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(region);
+			LOG.info("Cache region " + region 
+					+ " - hits: " + regionStatistics.getHitCount() 
+					+ ", misses: " + regionStatistics.getMissCount() 
+					+ ", puts: " + regionStatistics.getPutCount()
+					+ ", elements: " + regionStatistics.getElementCountInMemory());
+		}
+	}
+	
+	/**
+	 * This method logs how long threads had to wait for a connection from the connection pool.
+	 */
+	public void logConnectionStatistics() {
+		SessionFactoryImplementor factory = (SessionFactoryImplementor) getSessionFactory();
+		ConnectionProvider provider = factory.getServiceRegistry().getService(ConnectionProvider.class);
+		if (provider.isUnwrappableAs(H2ConnectionProvider.class)) {
+			LOG.info("Connection pool - " + provider.unwrap(H2ConnectionProvider.class).getStatistics());
 		}
 	}
 	
@@ -55,15 +133,62 @@ public class Database {
 	 * This method closes the calling {@link Thread}'s {@link Session}.
 	 */
 	public void closeCurrentSession() {
-		synchronized (this) {
-			Session session = sessions.get();
-			if (session != null) {
-				if (session.isOpen()) {
-					session.close();
-				}
-				sessions.remove();
+		Session session = sessions.get();
+		if (session != null) {
+			if (session.isOpen()) {
+				session.close();
 			}
+			sessions.remove();
 		}
 	}
 	
+	/**
+	 * This method wraps a task which is run on a pooled {@link Thread}, so that the {@link Session} which 
+	 * the task opened on that {@link Thread} is closed when the task ends. Otherwise the connection of 
+	 * that {@link Session} would only be returned to the pool once the {@link Thread} has died.
+	 * 
+	 * @param task
+	 * 		The task to wrap.
+	 * 
+	 * @return
+	 * 		A {@link Runnable} which runs the task, and then closes the {@link Session} of its {@link Thread}.
+	 */
+	public Runnable closeSessionAfter(final Runnable task) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					task.run();
+				}
+				finally {
+					closeCurrentSession();
+				}
+			}
+		};
+	}
+	
+	/**
+	 * This method wraps a task which is run on a pooled {@link Thread}, so that the {@link Session} which 
+	 * the task opened on that {@link Thread} is closed when the task ends.
+	 * 
+	 * @param task
+	 * 		The task to wrap.
+	 * 
+	 * @return
+	 * 		A {@link Callable} which calls the task, and then closes the {@link Session} of its {@link Thread}.
+	 */
+	public <T> Callable<T> closeSessionAfter(final Callable<T> task) {
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				try {
+					return task.call();
+				}
+				finally {
+					closeCurrentSession();
+				}
+			}
+		};
+	}
+	
 }
\ No newline at end of file
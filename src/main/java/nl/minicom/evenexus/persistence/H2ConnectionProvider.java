@@ -0,0 +1,147 @@
+package nl.minicom.evenexus.persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.hibernate.cfg.Environment;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link H2ConnectionProvider} is a {@link ConnectionProvider} which hands out connections
+ * from a {@link JdbcConnectionPool}. Unlike Hibernate's built-in pool it allows multiple threads
+ * (importers, inventory workers and the GUI) to talk to the database at the same time. The size of
+ * the pool is read from hibernate.connection.pool_size, and can be overridden with the
+ * {@value #POOL_SIZE_PROPERTY} system property. The time threads wait for a connection is recorded,
+ * so that contention on the pool shows up in the logs. Since the pool is capped, tasks on pooled threads
+ * must close their session when they end (see {@link Database#closeSessionAfter(Runnable)}), or the
+ * connection is lost to the pool when the thread dies.
+ *
+ * @author michael
+ */
+public class H2ConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+	private static final long serialVersionUID = 4719238461830197234L;
+
+	private static final Logger LOG = LoggerFactory.getLogger(H2ConnectionProvider.class);
+
+	private static final int DEFAULT_POOL_SIZE = 8;
+
+	/**
+	 * The system property which overrides the configured pool size.
+	 */
+	public static final String POOL_SIZE_PROPERTY = "evenexus.database.poolSize";
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong totalWaitTime = new AtomicLong();
+	private final AtomicLong maxWaitTime = new AtomicLong();
+
+	private JdbcConnectionPool pool;
+	private boolean autoCommit;
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void configure(Map configuration) {
+		String url = (String) configuration.get(Environment.URL);
+		String user = getString(configuration.get(Environment.USER));
+		String password = getString(configuration.get(Environment.PASS));
+		int poolSize = parseInt(configuration.get(Environment.POOL_SIZE), DEFAULT_POOL_SIZE);
+		poolSize = parseInt(System.getProperty(POOL_SIZE_PROPERTY), poolSize);
+		autoCommit = Boolean.parseBoolean((String) configuration.get(Environment.AUTOCOMMIT));
+
+		pool = JdbcConnectionPool.create(url, user, password);
+		pool.setMaxConnections(poolSize);
+
+		LOG.info("Created H2 connection pool with " + poolSize + " connections for: " + url);
+	}
+
+	private String getString(Object value) {
+		if (value == null) {
+			return "";
+		}
+		return value.toString();
+	}
+
+	private int parseInt(Object value, int defaultValue) {
+		if (value == null || value.toString().isEmpty()) {
+			return defaultValue;
+		}
+		return Integer.parseInt(value.toString());
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		long start = System.nanoTime();
+		Connection connection = pool.getConnection();
+		recordWaitTime(System.nanoTime() - start);
+		if (connection.getAutoCommit() != autoCommit) {
+			connection.setAutoCommit(autoCommit);
+		}
+		return connection;
+	}
+
+	private void recordWaitTime(long waitTime) {
+		requests.incrementAndGet();
+		totalWaitTime.addAndGet(waitTime);
+		long max = maxWaitTime.get();
+		while (waitTime > max && !maxWaitTime.compareAndSet(max, waitTime)) {
+			max = maxWaitTime.get();
+		}
+	}
+
+	/**
+	 * @return
+	 * 		A description of the number of connections which were handed out, how long threads had
+	 * 		to wait for them, and how many connections are currently in use.
+	 */
+	public String getStatistics() {
+		long count = requests.get();
+		long average = count == 0 ? 0 : totalWaitTime.get() / count;
+		return count + " connections, wait " + TimeUnit.NANOSECONDS.toMicros(average) + " us avg / " 
+				+ TimeUnit.NANOSECONDS.toMicros(maxWaitTime.get()) + " us max, " 
+				+ (pool == null ? 0 : pool.getActiveConnections()) + " active";
+	}
+
+	@Override
+	public void closeConnection(Connection connection) throws SQLException {
+		connection.close();
+	}
+
+	@Override
+	public boolean supportsAggressiveRelease() {
+		return false;
+	}
+
+	@Override
+	public void stop() {
+		if (pool != null) {
+			pool.dispose();
+			pool = null;
+		}
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public boolean isUnwrappableAs(Class unwrapType) {
+		return ConnectionProvider.class.equals(unwrapType)
+				|| H2ConnectionProvider.class.isAssignableFrom(unwrapType);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T unwrap(Class<T> unwrapType) {
+		if (isUnwrappableAs(unwrapType)) {
+			return (T) this;
+		}
+		throw new UnknownUnwrapTypeException(unwrapType);
+	}
+
+}
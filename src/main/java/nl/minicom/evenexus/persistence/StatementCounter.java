@@ -0,0 +1,71 @@
+package nl.minicom.evenexus.persistence;
+
+import java.io.Serializable;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+/**
+ * The {@link StatementCounter} is a Hibernate {@link org.hibernate.Interceptor} which counts, for 
+ * every {@link Thread}, the amount of entities which were inserted, updated or deleted and the 
+ * amount of SQL statements which were prepared. Since every {@link Thread} has its own 
+ * {@link org.hibernate.Session}, the difference between two readings of the counters tells how much 
+ * work was done in between.
+ * 
+ * @author michael
+ */
+public class StatementCounter extends EmptyInterceptor {
+
+	private static final long serialVersionUID = -4107853457219830361L;
+	
+	private static final int ENTITY_WRITES = 0;
+	private static final int STATEMENTS = 1;
+
+	private final ThreadLocal<long[]> counters = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[2];
+		}
+	};
+	
+	/**
+	 * @return
+	 * 		The amount of entities which were inserted, updated or deleted by the calling {@link Thread}.
+	 */
+	public long getEntityWrites() {
+		return counters.get()[ENTITY_WRITES];
+	}
+	
+	/**
+	 * @return
+	 * 		The amount of SQL statements which were prepared by the calling {@link Thread}.
+	 */
+	public long getStatements() {
+		return counters.get()[STATEMENTS];
+	}
+	
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		counters.get()[ENTITY_WRITES]++;
+		return false;
+	}
+	
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+			String[] propertyNames, Type[] types) {
+		counters.get()[ENTITY_WRITES]++;
+		return false;
+	}
+	
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		counters.get()[ENTITY_WRITES]++;
+	}
+	
+	@Override
+	public String onPrepareStatement(String sql) {
+		counters.get()[STATEMENTS]++;
+		return sql;
+	}
+	
+}
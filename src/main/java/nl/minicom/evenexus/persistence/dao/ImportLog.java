@@ -8,6 +8,9 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * The {@link ImportLog} class is an entity which contains information about when API importers were run.
  *
@@ -15,12 +18,14 @@ import javax.persistence.Table;
  */
 @Entity
 @Table(name = "importlogger")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class ImportLog implements Serializable {
 	
 	private static final long serialVersionUID = -7536922778053044002L;
 	
 	public static final String KEY = "key";
 	public static final String LAST_RUN = "lastRun";
+	public static final String CHECKPOINT = "checkpoint";
 
 	@Id
 	private ImportLogIdentifier key;
@@ -28,6 +33,9 @@ public class ImportLog implements Serializable {
 	@Column(name = LAST_RUN, nullable = false)
 	private Timestamp lastRun;
 	
+	@Column(name = CHECKPOINT, nullable = true)
+	private Long checkpoint;
+	
 	/**
 	 * This constructs a new {@link ImportLog} object.
 	 */
@@ -111,5 +119,25 @@ public class ImportLog implements Serializable {
 	public void setLastRun(Timestamp lastRun) {
 		this.lastRun = lastRun;
 	}
+
+	/**
+	 * @return
+	 * 		The id of the oldest row which was imported by an unfinished walk through the history 
+	 * 		of the specified character, or null if no such walk is in progress.
+	 */
+	public Long getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * This method sets the checkpoint of this {@link ImportLog} object.
+	 * 
+	 * @param checkpoint
+	 * 		The id of the oldest row which was imported by the unfinished walk, or null if the walk 
+	 * 		has finished.
+	 */
+	public void setCheckpoint(Long checkpoint) {
+		this.checkpoint = checkpoint;
+	}
 	
 }
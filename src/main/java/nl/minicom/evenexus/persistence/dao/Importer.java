@@ -7,6 +7,9 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 
 /**
  * The {@link Importer} class is an entity which contains information about API importers.
@@ -15,6 +18,7 @@ import javax.persistence.Table;
  */
 @Entity
 @Table(name = "importers")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Importer implements Serializable {
 	
 	private static final long serialVersionUID = 1380783496560770755L;
@@ -7,8 +7,14 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
 @Entity
+@Immutable
 @Table(name = "invtypes")
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 public class Item implements Serializable {
 	
 	private static final long serialVersionUID = 6386960971498786733L;
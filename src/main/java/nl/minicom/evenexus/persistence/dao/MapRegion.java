@@ -7,8 +7,14 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
 @Entity
+@Immutable
 @Table(name = "mapregions")
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 public class MapRegion implements Serializable {
 	
 	private static final long serialVersionUID = 9214480288622380091L;
@@ -0,0 +1,92 @@
+package nl.minicom.evenexus.persistence.dao;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The {@link MatchWatermark} class is an entity which marks, per type, the most recent {@link WalletTransaction}
+ * up to which all transactions have been completely matched. Transactions up to and including the watermark
+ * no longer need to be checked for matching errors.
+ *
+ * @author michael
+ */
+@Entity
+@Table(name = "matchwatermarks")
+public class MatchWatermark implements Serializable {
+
+	private static final long serialVersionUID = 3370542108416384270L;
+
+	public static final String TYPE_ID = "typeId";
+	public static final String TRANSACTION_DATE_TIME = "transactionDateTime";
+	public static final String TRANSACTION_ID = "transactionId";
+
+	@Id
+	@Column(name = TYPE_ID)
+	private long typeId;
+
+	@Column(name = TRANSACTION_DATE_TIME, nullable = false)
+	private Timestamp transactionDateTime;
+
+	@Column(name = TRANSACTION_ID, nullable = false)
+	private long transactionId;
+
+	/**
+	 * @return
+	 * 		The type id of the watermark.
+	 */
+	public long getTypeId() {
+		return typeId;
+	}
+
+	/**
+	 * This method sets the type id of the watermark.
+	 *
+	 * @param typeId
+	 * 		The type id.
+	 */
+	public void setTypeId(long typeId) {
+		this.typeId = typeId;
+	}
+
+	/**
+	 * @return
+	 * 		The time of the most recent completely matched transaction.
+	 */
+	public Timestamp getTransactionDateTime() {
+		return transactionDateTime;
+	}
+
+	/**
+	 * This method sets the time of the most recent completely matched transaction.
+	 *
+	 * @param transactionDateTime
+	 * 		The time of the transaction.
+	 */
+	public void setTransactionDateTime(Timestamp transactionDateTime) {
+		this.transactionDateTime = transactionDateTime;
+	}
+
+	/**
+	 * @return
+	 * 		The id of the most recent completely matched transaction.
+	 */
+	public long getTransactionId() {
+		return transactionId;
+	}
+
+	/**
+	 * This method sets the id of the most recent completely matched transaction.
+	 *
+	 * @param transactionId
+	 * 		The id of the transaction.
+	 */
+	public void setTransactionId(long transactionId) {
+		this.transactionId = transactionId;
+	}
+
+}
@@ -7,8 +7,12 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 @Entity
 @Table(name = "reftypes")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class RefType implements Serializable {
 
 	private static final long serialVersionUID = -4912521169103523974L;
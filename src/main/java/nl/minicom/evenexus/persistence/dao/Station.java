@@ -7,8 +7,14 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
 @Entity
+@Immutable
 @Table(name = "stastations")
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 public class Station implements Serializable {
 	
 	private static final long serialVersionUID = 1187459166827013799L;
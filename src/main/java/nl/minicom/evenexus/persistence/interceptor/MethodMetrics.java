@@ -0,0 +1,201 @@
+package nl.minicom.evenexus.persistence.interceptor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@link MethodMetrics} class collects the metrics of a single {@link Transactional} method. 
+ * All metrics are updated without locking, so they can be recorded from any {@link Thread}.
+ * 
+ * @author michael
+ */
+public class MethodMetrics implements MethodMetricsMBean {
+	
+	/**
+	 * The upper bounds (exclusive) of the latency buckets in milliseconds. The last bucket 
+	 * holds all calls which took longer than the last bound.
+	 */
+	static final long[] BUCKETS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+	
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final String name;
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong joinedCalls = new AtomicLong();
+	private final AtomicLong failedCalls = new AtomicLong();
+	private final AtomicLong totalTime = new AtomicLong();
+	private final AtomicLong maxTime = new AtomicLong();
+	private final AtomicLong flushTime = new AtomicLong();
+	private final AtomicLong entityWrites = new AtomicLong();
+	private final AtomicLong statements = new AtomicLong();
+	private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length + 1);
+	
+	/**
+	 * This constructs a new {@link MethodMetrics} object.
+	 * 
+	 * @param name
+	 * 		The name of the method.
+	 */
+	public MethodMetrics(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * This method records a single call of the method.
+	 * 
+	 * @param time
+	 * 		The duration of the call in nanoseconds.
+	 * 
+	 * @param flush
+	 * 		The time spent flushing the session in nanoseconds.
+	 * 
+	 * @param joined
+	 * 		True if the call joined a transaction which was already active.
+	 * 
+	 * @param failed
+	 * 		True if the call threw an exception.
+	 * 
+	 * @param writes
+	 * 		The amount of entities which were inserted, updated or deleted.
+	 * 
+	 * @param prepared
+	 * 		The amount of SQL statements which were prepared.
+	 */
+	public void record(long time, long flush, boolean joined, boolean failed, long writes, long prepared) {
+		calls.incrementAndGet();
+		if (joined) {
+			joinedCalls.incrementAndGet();
+		}
+		if (failed) {
+			failedCalls.incrementAndGet();
+		}
+		
+		totalTime.addAndGet(time);
+		flushTime.addAndGet(flush);
+		entityWrites.addAndGet(writes);
+		statements.addAndGet(prepared);
+		
+		long max = maxTime.get();
+		while (time > max && !maxTime.compareAndSet(max, time)) {
+			max = maxTime.get();
+		}
+		
+		histogram.incrementAndGet(getBucket(time));
+	}
+	
+	private int getBucket(long time) {
+		long millis = TimeUnit.NANOSECONDS.toMillis(time);
+		for (int i = 0; i < BUCKETS.length; i++) {
+			if (millis < BUCKETS[i]) {
+				return i;
+			}
+		}
+		return BUCKETS.length;
+	}
+	
+	@Override
+	public String getName() {
+		return name;
+	}
+	
+	@Override
+	public long getCalls() {
+		return calls.get();
+	}
+	
+	@Override
+	public long getJoinedCalls() {
+		return joinedCalls.get();
+	}
+	
+	@Override
+	public long getFailedCalls() {
+		return failedCalls.get();
+	}
+	
+	/**
+	 * @return
+	 * 		The total time spent in the method in nanoseconds.
+	 */
+	long getTotalNanos() {
+		return totalTime.get();
+	}
+	
+	@Override
+	public double getTotalTime() {
+		return totalTime.get() / NANOS_PER_MILLI;
+	}
+	
+	@Override
+	public double getAverageTime() {
+		long count = calls.get();
+		return count == 0 ? 0 : getTotalTime() / count;
+	}
+	
+	@Override
+	public double getMaxTime() {
+		return maxTime.get() / NANOS_PER_MILLI;
+	}
+	
+	@Override
+	public double getFlushTime() {
+		return flushTime.get() / NANOS_PER_MILLI;
+	}
+	
+	@Override
+	public long getEntityWrites() {
+		return entityWrites.get();
+	}
+	
+	@Override
+	public long getStatements() {
+		return statements.get();
+	}
+	
+	/**
+	 * @param bucket
+	 * 		The index of the bucket, see {@link #BUCKETS}.
+	 * 
+	 * @return
+	 * 		The amount of calls in the bucket.
+	 */
+	long getBucketCount(int bucket) {
+		return histogram.get(bucket);
+	}
+	
+	@Override
+	public String getLatencyHistogram() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < BUCKETS.length; i++) {
+			builder.append("<").append(BUCKETS[i]).append("ms: ").append(histogram.get(i)).append(", ");
+		}
+		return builder.append(">=").append(BUCKETS[BUCKETS.length - 1]).append("ms: ")
+				.append(histogram.get(BUCKETS.length))
+				.toString();
+	}
+	
+	@Override
+	public void reset() {
+		calls.set(0);
+		joinedCalls.set(0);
+		failedCalls.set(0);
+		totalTime.set(0);
+		maxTime.set(0);
+		flushTime.set(0);
+		entityWrites.set(0);
+		statements.set(0);
+		for (int i = 0; i < histogram.length(); i++) {
+			histogram.set(i, 0);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%s - calls: %d (joined: %d, failed: %d), total: %.1f ms, avg: %.3f ms, "
+				+ "max: %.1f ms, flush: %.1f ms, entity writes: %d, statements: %d, latency: [%s]",
+				name, getCalls(), getJoinedCalls(), getFailedCalls(), getTotalTime(), getAverageTime(), 
+				getMaxTime(), getFlushTime(), getEntityWrites(), getStatements(), getLatencyHistogram());
+	}
+	
+}
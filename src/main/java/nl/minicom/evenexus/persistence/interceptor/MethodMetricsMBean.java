@@ -0,0 +1,82 @@
+package nl.minicom.evenexus.persistence.interceptor;
+
+/**
+ * The management interface of {@link MethodMetrics}, through which the metrics of a 
+ * {@link Transactional} method can be inspected with JMX.
+ * 
+ * @author michael
+ */
+public interface MethodMetricsMBean {
+
+	/**
+	 * @return
+	 * 		The name of the method.
+	 */
+	String getName();
+	
+	/**
+	 * @return
+	 * 		The amount of completed calls.
+	 */
+	long getCalls();
+	
+	/**
+	 * @return
+	 * 		The amount of calls which joined a transaction which was already active.
+	 */
+	long getJoinedCalls();
+	
+	/**
+	 * @return
+	 * 		The amount of calls which threw an exception.
+	 */
+	long getFailedCalls();
+	
+	/**
+	 * @return
+	 * 		The total time spent in the method in milliseconds, including flushing and committing.
+	 */
+	double getTotalTime();
+	
+	/**
+	 * @return
+	 * 		The average time of a call in milliseconds.
+	 */
+	double getAverageTime();
+	
+	/**
+	 * @return
+	 * 		The time of the slowest call in milliseconds.
+	 */
+	double getMaxTime();
+	
+	/**
+	 * @return
+	 * 		The total time spent flushing the session in milliseconds.
+	 */
+	double getFlushTime();
+	
+	/**
+	 * @return
+	 * 		The amount of entities which were inserted, updated or deleted.
+	 */
+	long getEntityWrites();
+	
+	/**
+	 * @return
+	 * 		The amount of SQL statements which were prepared.
+	 */
+	long getStatements();
+	
+	/**
+	 * @return
+	 * 		The amount of calls per latency bucket.
+	 */
+	String getLatencyHistogram();
+	
+	/**
+	 * This method resets all metrics to zero.
+	 */
+	void reset();
+	
+}
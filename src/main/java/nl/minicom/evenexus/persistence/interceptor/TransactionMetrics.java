@@ -0,0 +1,180 @@
+package nl.minicom.evenexus.persistence.interceptor;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link TransactionMetrics} class is the registry of the {@link MethodMetrics} of every 
+ * {@link Transactional} method which has been called. Once published, every {@link MethodMetrics} 
+ * is registered as an MBean, and the slowest methods are logged periodically.
+ * 
+ * @author michael
+ */
+public class TransactionMetrics {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(TransactionMetrics.class);
+	
+	/**
+	 * The amount of methods which are logged by {@link #logStatistics()}.
+	 */
+	private static final int LOGGED_METHODS = 10;
+	
+	private static final Comparator<MethodMetrics> BY_TOTAL_TIME = new Comparator<MethodMetrics>() {
+		@Override
+		public int compare(MethodMetrics o1, MethodMetrics o2) {
+			long t1 = o1.getTotalNanos();
+			long t2 = o2.getTotalNanos();
+			return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+		}
+	};
+
+	private final ConcurrentMap<Method, MethodMetrics> metrics;
+	private volatile MBeanServer server = null;
+	private ScheduledExecutorService executor = null;
+	
+	/**
+	 * This constructs a new {@link TransactionMetrics} object.
+	 */
+	public TransactionMetrics() {
+		this.metrics = new ConcurrentHashMap<Method, MethodMetrics>();
+	}
+	
+	/**
+	 * @param method
+	 * 		The intercepted {@link Method}.
+	 * 
+	 * @return
+	 * 		The {@link MethodMetrics} of the specified {@link Method}. It is created and, 
+	 * 		when the metrics have been published, registered on the first call.
+	 */
+	public MethodMetrics getMetrics(Method method) {
+		MethodMetrics result = metrics.get(method);
+		if (result == null) {
+			MethodMetrics created = new MethodMetrics(getName(method));
+			result = metrics.putIfAbsent(method, created);
+			if (result == null) {
+				result = created;
+				register(method, created);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @return
+	 * 		The {@link MethodMetrics} of all called methods, sorted by total time (slowest first).
+	 */
+	public List<MethodMetrics> getAllMetrics() {
+		List<MethodMetrics> result = new ArrayList<MethodMetrics>(metrics.values());
+		Collections.sort(result, BY_TOTAL_TIME);
+		return result;
+	}
+	
+	/**
+	 * This method registers all current and future {@link MethodMetrics} as MBeans on the 
+	 * specified {@link MBeanServer}, and starts logging the statistics periodically.
+	 * 
+	 * @param server
+	 * 		The {@link MBeanServer} to register the MBeans on.
+	 * 
+	 * @param interval
+	 * 		The interval between two log dumps.
+	 * 
+	 * @param unit
+	 * 		The {@link TimeUnit} of the interval.
+	 */
+	public synchronized void publish(MBeanServer server, long interval, TimeUnit unit) {
+		if (this.server != null) {
+			return;
+		}
+		
+		this.server = server;
+		for (Map.Entry<Method, MethodMetrics> entry : metrics.entrySet()) {
+			register(entry.getKey(), entry.getValue());
+		}
+		
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "TransactionMetrics");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				logStatistics();
+			}
+		}, interval, interval, unit);
+	}
+	
+	/**
+	 * This method registers the {@link MethodMetrics} of a method as an MBean, if the metrics have been 
+	 * published. The fully qualified name of the declaring class is part of the {@link ObjectName}, 
+	 * since the name of the metrics only contains its simple name.
+	 */
+	private void register(Method method, MethodMetrics methodMetrics) {
+		MBeanServer mBeanServer = server;
+		if (mBeanServer == null) {
+			return;
+		}
+		
+		try {
+			ObjectName name = new ObjectName("nl.minicom.evenexus:type=Transactional,class=" 
+					+ ObjectName.quote(method.getDeclaringClass().getName()) 
+					+ ",name=" + ObjectName.quote(methodMetrics.getName()));
+			if (!mBeanServer.isRegistered(name)) {
+				mBeanServer.registerMBean(methodMetrics, name);
+			}
+		}
+		catch (JMException e) {
+			LOG.warn("Could not register metrics of " + methodMetrics.getName() + ": " + e.getLocalizedMessage());
+		}
+	}
+	
+	/**
+	 * This method logs the metrics of the {@link Transactional} methods which took the most time.
+	 */
+	public void logStatistics() {
+		List<MethodMetrics> allMetrics = getAllMetrics();
+		for (MethodMetrics methodMetrics : allMetrics.subList(0, Math.min(LOGGED_METHODS, allMetrics.size()))) {
+			LOG.info("Transactional " + methodMetrics);
+		}
+	}
+	
+	private String getName(Method method) {
+		StringBuilder builder = new StringBuilder()
+		.append(method.getDeclaringClass().getSimpleName())
+		.append('.')
+		.append(method.getName())
+		.append('(');
+		
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(parameterTypes[i].getSimpleName());
+		}
+		return builder.append(')').toString();
+	}
+	
+}
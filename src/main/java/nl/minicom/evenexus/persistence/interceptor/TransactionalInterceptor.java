@@ -3,6 +3,7 @@ package nl.minicom.evenexus.persistence.interceptor;
 import javax.inject.Inject;
 
 import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.StatementCounter;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
@@ -24,6 +25,13 @@ public class TransactionalInterceptor implements MethodInterceptor {
 	}
 	
 	public Object invoke(MethodInvocation invocation) throws Throwable {
+		StatementCounter counter = database.getStatementCounter();
+		long writes = counter.getEntityWrites();
+		long statements = counter.getStatements();
+		long start = System.nanoTime();
+		long flushTime = 0;
+		boolean failed = true;
+		
 		Session session = database.getCurrentSession();
 		
 		Object returnValue = null;
@@ -40,26 +48,51 @@ public class TransactionalInterceptor implements MethodInterceptor {
 			returnValue = invocation.proceed();
 			
 			if (session.isDirty()) {
+				long flushStart = System.nanoTime();
 				session.flush();
+				flushTime = System.nanoTime() - flushStart;
 			}
 			
 			if (!alreadyInTransaction) {
 				tx.commit();
 			}
+			failed = false;
 		}
 		catch (HibernateException e) {
 			LOG.error(e.getLocalizedMessage(), e);
-			if (tx != null && !alreadyInTransaction) {
-				tx.rollback();
-			}
 			throw e;
 		}
 		finally {
-			if (tx.wasCommitted() && !alreadyInTransaction) {
-				database.closeCurrentSession();
+			if (!alreadyInTransaction) {
+				closeSession(tx);
 			}
+			
+			MethodMetrics metrics = database.getTransactionMetrics().getMetrics(invocation.getMethod());
+			metrics.record(System.nanoTime() - start, flushTime, alreadyInTransaction, failed, 
+					counter.getEntityWrites() - writes, counter.getStatements() - statements);
 		}
 		
 		return returnValue;
 	}
+	
+	/**
+	 * This method rolls back the transaction if it was not committed, and then closes the 
+	 * {@link Session} of the calling thread, so that its connection is returned to the pool.
+	 * 
+	 * @param tx
+	 * 		The {@link Transaction} which was started by this interceptor.
+	 */
+	private void closeSession(Transaction tx) {
+		try {
+			if (tx != null && tx.isActive()) {
+				tx.rollback();
+			}
+		}
+		catch (HibernateException e) {
+			LOG.error(e.getLocalizedMessage(), e);
+		}
+		finally {
+			database.closeCurrentSession();
+		}
+	}
 }
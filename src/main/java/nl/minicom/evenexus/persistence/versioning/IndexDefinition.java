@@ -0,0 +1,64 @@
+package nl.minicom.evenexus.persistence.versioning;
+
+/**
+ * The {@link IndexDefinition} describes a secondary index of a table, so that the same index can be
+ * created by a {@link Revision} and recreated by a {@link JsonContentRevision}.
+ *
+ * @author michael
+ */
+final class IndexDefinition {
+
+	private final String name;
+	private final String table;
+	private final String[] columns;
+
+	/**
+	 * This constructs a new {@link IndexDefinition} object.
+	 *
+	 * @param name
+	 * 		The name of the index.
+	 *
+	 * @param table
+	 * 		The name of the indexed table.
+	 *
+	 * @param columns
+	 * 		The indexed columns, in order.
+	 */
+	IndexDefinition(String name, String table, String... columns) {
+		this.name = name;
+		this.table = table;
+		this.columns = columns;
+	}
+
+	/**
+	 * @return
+	 * 		The name of the index.
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * @return
+	 * 		The statement which creates the index, unless it already exists.
+	 */
+	String getCreateStatement() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("CREATE INDEX IF NOT EXISTS " + name + " ");
+		builder.append("ON `" + table + "` (");
+		for (int i = 0; i < columns.length; i++) {
+			builder.append(i == 0 ? "" : ",").append("`" + columns[i] + "`");
+		}
+		builder.append(")");
+		return builder.toString();
+	}
+
+	/**
+	 * @return
+	 * 		The statement which drops the index, if it exists.
+	 */
+	String getDropStatement() {
+		return "DROP INDEX IF EXISTS " + name;
+	}
+
+}
@@ -1,56 +1,246 @@
 package nl.minicom.evenexus.persistence.versioning;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import nl.minicom.evenexus.persistence.dao.Item;
+import nl.minicom.evenexus.persistence.dao.MapRegion;
 import nl.minicom.evenexus.persistence.dao.Station;
 
+import org.hibernate.Cache;
 import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+/**
+ * The {@link JsonContentRevision} replaces the static game data (stations and items) with the content of
+ * a JSON file, as written by the {@link ContentCreator}. When the revision is created, only the version
+ * of the content is read. The stations and items are streamed from the file when the revision is executed,
+ * and inserted using batched JDBC statements. The secondary indexes of the tables, as defined by the
+ * {@link StructureUpgrader}, are dropped during the load, and are always recreated afterwards (even when
+ * the load fails).
+ *
+ * @author michael
+ */
 public class JsonContentRevision implements IRevision {
-	
-	private final Container container;
-	
-	public JsonContentRevision(String fileName) throws Exception {
-		Gson gson = new Gson();
+
+	private static final Logger LOG = LoggerFactory.getLogger(JsonContentRevision.class);
+
+	/**
+	 * The amount of rows which are sent to the database in one JDBC batch.
+	 */
+	private static final int BATCH_SIZE = 500;
+
+	private static final String[] STATION_COLUMNS = new String[] {
+		Station.STATION_ID, Station.STATION_TYPE_ID, Station.CORPORATION_ID, Station.SOLAR_SYSTEM_ID,
+		Station.CONSTELLATION_ID, Station.REGION_ID, Station.STATION_NAME
+	};
+
+	private static final String[] ITEM_COLUMNS = new String[] {
+		Item.TYPE_ID, Item.TYPE_NAME, Item.VOLUME, Item.MARKET_GROUP_ID
+	};
+
+	private final String fileName;
+	private final int version;
+
+	public JsonContentRevision(String fileName) throws IOException {
+		this.fileName = fileName;
+		this.version = readVersion();
+	}
+
+	private JsonReader open() throws IOException {
 		InputStream in = JsonContentRevision.class.getResourceAsStream(fileName);
-		container = gson.fromJson(new InputStreamReader(in, "UTF-8"), Container.class);
+		if (in == null) {
+			throw new IOException("Could not find content: " + fileName);
+		}
+		return new JsonReader(new InputStreamReader(in, "UTF-8"));
 	}
-	
+
+	private int readVersion() throws IOException {
+		JsonReader reader = open();
+		try {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if ("versionId".equals(reader.nextName())) {
+					return reader.nextInt();
+				}
+				reader.skipValue();
+			}
+			throw new IOException("Content has no version: " + fileName);
+		}
+		finally {
+			reader.close();
+		}
+	}
+
 	@Override
 	public void execute(Session session) {
-		session.createSQLQuery("TRUNCATE TABLE stastations").executeUpdate();
-		
+		session.doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				try {
+					load(connection);
+				}
+				catch (IOException e) {
+					throw new IllegalStateException("Could not read content: " + fileName, e);
+				}
+			}
+		});
+
+		// The static content has been replaced, so drop all of it from the second-level cache.
+		Cache cache = session.getSessionFactory().getCache();
+		cache.evictEntityRegion(Station.class);
+		cache.evictEntityRegion(Item.class);
+		cache.evictEntityRegion(MapRegion.class);
+	}
+
+	private void load(Connection connection) throws SQLException, IOException {
+		JsonReader reader = open();
+		try {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if ("stations".equals(name)) {
+					loadTable(connection, reader, "stastations", STATION_COLUMNS, StructureUpgrader.STATION_INDEXES);
+				}
+				else if ("items".equals(name)) {
+					loadTable(connection, reader, "invtypes", ITEM_COLUMNS, StructureUpgrader.ITEM_INDEXES);
+				}
+				else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * This method replaces the rows of a table with the objects of a JSON array. The names of the
+	 * fields of the objects are the names of the columns. The specified indexes are dropped during the load.
+	 */
+	private void loadTable(Connection connection, JsonReader reader, String table, String[] columns,
+			List<IndexDefinition> indexes) throws SQLException, IOException {
+
+		long start = System.currentTimeMillis();
+		Map<String, Integer> indices = new LinkedHashMap<String, Integer>();
+		StringBuilder builder = new StringBuilder();
+		builder.append("INSERT INTO " + table + " (");
+		for (int i = 0; i < columns.length; i++) {
+			indices.put(columns[i], i + 1);
+			builder.append(i == 0 ? "" : ", ").append(columns[i]);
+		}
+		builder.append(") VALUES (");
+		for (int i = 0; i < columns.length; i++) {
+			builder.append(i == 0 ? "?" : ", ?");
+		}
+		builder.append(")");
+
+		Statement statement = connection.createStatement();
+		try {
+			statement.executeUpdate("TRUNCATE TABLE " + table);
+		}
+		finally {
+			statement.close();
+		}
+
+		dropIndexes(connection, indexes);
+
+		int count = 0;
+		try {
+			count = insertRows(connection, reader, builder.toString(), indices);
+		}
+		finally {
+			createIndexes(connection, indexes);
+		}
+		LOG.info("Loaded " + count + " rows into " + table + " in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	private int insertRows(Connection connection, JsonReader reader, String sql, Map<String, Integer> indices)
+			throws SQLException, IOException {
+
 		int count = 0;
-		for (Station station : container.getStations()) {
-			session.save(station);
-			count++;
-			
-			if (count % 100 == 0) {
-				session.flush();
-				session.clear();
+		PreparedStatement insert = connection.prepareStatement(sql);
+		try {
+			reader.beginArray();
+			while (reader.hasNext()) {
+				for (int i = 1; i <= indices.size(); i++) {
+					insert.setObject(i, null);
+				}
+
+				reader.beginObject();
+				while (reader.hasNext()) {
+					Integer index = indices.get(reader.nextName());
+					if (index == null) {
+						reader.skipValue();
+					}
+					else if (reader.peek() == JsonToken.NULL) {
+						reader.nextNull();
+					}
+					else {
+						insert.setString(index, reader.nextString());
+					}
+				}
+				reader.endObject();
+
+				insert.addBatch();
+				if (++count % BATCH_SIZE == 0) {
+					insert.executeBatch();
+				}
+			}
+			reader.endArray();
+			insert.executeBatch();
+		}
+		finally {
+			insert.close();
+		}
+		return count;
+	}
+
+	/**
+	 * This method drops the secondary indexes of a table, so they are not updated for every inserted row.
+	 */
+	private void dropIndexes(Connection connection, List<IndexDefinition> indexes) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			for (IndexDefinition index : indexes) {
+				statement.executeUpdate(index.getDropStatement());
 			}
 		}
-		
-		count = 0;
-		session.createSQLQuery("TRUNCATE TABLE invtypes").executeUpdate();
-		for (Item item : container.getItems()) {
-			session.save(item);
-			count++;
-			
-			if (count % 100 == 0) {
-				session.flush();
-				session.clear();
+		finally {
+			statement.close();
+		}
+	}
+
+	private void createIndexes(Connection connection, List<IndexDefinition> indexes) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			for (IndexDefinition index : indexes) {
+				statement.executeUpdate(index.getCreateStatement());
 			}
 		}
+		finally {
+			statement.close();
+		}
 	}
 
 	@Override
 	public int getRevisionNumber() {
-		return container.getVersion();
+		return version;
 	}
 
 }
@@ -1,10 +1,48 @@
 package nl.minicom.evenexus.persistence.versioning;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.hibernate.Session;
 
 
 public class StructureUpgrader extends RevisionCollection {
 
+	static final IndexDefinition ITEMS_IX_MARKET_GROUP = 
+			new IndexDefinition("invtypes_IX_marketGroupID", "invtypes", "marketGroupID");
+	
+	static final IndexDefinition STATIONS_IX_CONSTELLATION = 
+			new IndexDefinition("staStations_IX_constellation", "stastations", "constellationID");
+	
+	static final IndexDefinition STATIONS_IX_CORPORATION = 
+			new IndexDefinition("staStations_IX_corporation", "stastations", "corporationID");
+	
+	static final IndexDefinition STATIONS_IX_REGION = 
+			new IndexDefinition("staStations_IX_region", "stastations", "regionID");
+	
+	static final IndexDefinition STATIONS_IX_SYSTEM = 
+			new IndexDefinition("staStations_IX_system", "stastations", "solarSystemID");
+	
+	static final IndexDefinition STATIONS_IX_TYPE = 
+			new IndexDefinition("staStations_IX_type", "stastations", "stationTypeID");
+	
+	static final IndexDefinition STATIONS_IX_SOLAR_SYSTEM = new IndexDefinition("staStations_IX_solarSystemID", 
+			"stastations", "solarSystemID", "constellationID", "regionID");
+	
+	/**
+	 * The secondary indexes of the invtypes table, which remain after all revisions have been executed.
+	 */
+	static final List<IndexDefinition> ITEM_INDEXES = 
+			Collections.unmodifiableList(Arrays.asList(ITEMS_IX_MARKET_GROUP));
+	
+	/**
+	 * The secondary indexes of the stastations table, which remain after all revisions have been executed.
+	 */
+	static final List<IndexDefinition> STATION_INDEXES = Collections.unmodifiableList(Arrays.asList(
+			STATIONS_IX_CONSTELLATION, STATIONS_IX_CORPORATION, STATIONS_IX_REGION, 
+			STATIONS_IX_SYSTEM, STATIONS_IX_TYPE, STATIONS_IX_SOLAR_SYSTEM));
+
 	public StructureUpgrader() {
 		super("database");
 		
@@ -346,10 +384,7 @@ public class StructureUpgrader extends RevisionCollection {
 		
 		super.registerRevision(new Revision(32) {
 			public void execute(Session session) {
-				StringBuilder builder = new StringBuilder();
-				builder.append("CREATE INDEX IF NOT EXISTS invtypes_IX_marketGroupID ");
-				builder.append("ON `invtypes` (`marketGroupID`)");
-				session.createSQLQuery(builder.toString()).executeUpdate();
+				session.createSQLQuery(ITEMS_IX_MARKET_GROUP.getCreateStatement()).executeUpdate();
 			}
 		});
 		
@@ -418,19 +453,13 @@ public class StructureUpgrader extends RevisionCollection {
 		
 		super.registerRevision(new Revision(131) {
 			public void execute(Session session) {
-				StringBuilder builder = new StringBuilder();
-				builder.append("CREATE INDEX IF NOT EXISTS staStations_IX_constellation ");
-				builder.append("ON `stastations` (`constellationID`)");
-				session.createSQLQuery(builder.toString()).executeUpdate();
+				session.createSQLQuery(STATIONS_IX_CONSTELLATION.getCreateStatement()).executeUpdate();
 			}
 		});
 		
 		super.registerRevision(new Revision(132) {
 			public void execute(Session session) {
-				StringBuilder builder = new StringBuilder();
-				builder.append("CREATE INDEX IF NOT EXISTS staStations_IX_corporation ");
-				builder.append("ON `stastations` (`corporationID`)");
-				session.createSQLQuery(builder.toString()).executeUpdate();
+				session.createSQLQuery(STATIONS_IX_CORPORATION.getCreateStatement()).executeUpdate();
 			}
 		});
 		
@@ -445,37 +474,25 @@ public class StructureUpgrader extends RevisionCollection {
 		
 		super.registerRevision(new Revision(134) {
 			public void execute(Session session) {
-				StringBuilder builder = new StringBuilder();
-				builder.append("CREATE INDEX IF NOT EXISTS staStations_IX_region ");
-				builder.append("ON `stastations` (`regionID`)");
-				session.createSQLQuery(builder.toString()).executeUpdate();
+				session.createSQLQuery(STATIONS_IX_REGION.getCreateStatement()).executeUpdate();
 			}
 		});
 		
 		super.registerRevision(new Revision(135) {
 			public void execute(Session session) {
-				StringBuilder builder = new StringBuilder();
-				builder.append("CREATE INDEX IF NOT EXISTS staStations_IX_system ");
-				builder.append("ON `stastations` (`solarSystemID`)");
-				session.createSQLQuery(builder.toString()).executeUpdate();
+				session.createSQLQuery(STATIONS_IX_SYSTEM.getCreateStatement()).executeUpdate();
 			}
 		});
 		
 		super.registerRevision(new Revision(136) {
 			public void execute(Session session) {
-				StringBuilder builder = new StringBuilder();
-				builder.append("CREATE INDEX IF NOT EXISTS staStations_IX_type ");
-				builder.append("ON `stastations` (`stationTypeID`)");
-				session.createSQLQuery(builder.toString()).executeUpdate();
+				session.createSQLQuery(STATIONS_IX_TYPE.getCreateStatement()).executeUpdate();
 			}
 		});
 		
 		super.registerRevision(new Revision(137) {
 			public void execute(Session session) {
-				StringBuilder builder = new StringBuilder();
-				builder.append("CREATE INDEX IF NOT EXISTS staStations_IX_solarSystemID ");
-				builder.append("ON `stastations` (`solarSystemID`,`constellationID`,`regionID`)");
-				session.createSQLQuery(builder.toString()).executeUpdate();
+				session.createSQLQuery(STATIONS_IX_SOLAR_SYSTEM.getCreateStatement()).executeUpdate();
 			}
 		});
 		
@@ -878,7 +895,156 @@ public class StructureUpgrader extends RevisionCollection {
 				session.createSQLQuery("ALTER TABLE invtypes DROP COLUMN chanceOfDuplicating").executeUpdate();
 			}
 		});
+
+		super.registerRevision(new Revision(206) {
+			@Override
+			public void execute(Session session) {
+				StringBuilder builder = new StringBuilder();
+				builder.append("CREATE TABLE IF NOT EXISTS matchwatermarks (");
+				builder.append("typeId BIGINT NOT NULL,");
+				builder.append("transactionDateTime TIMESTAMP NOT NULL,");
+				builder.append("transactionId BIGINT NOT NULL,");
+				builder.append("PRIMARY KEY (`typeId`))");
+				session.createSQLQuery(builder.toString()).executeUpdate();
+			}
+		});
+
+		// replace view for profits with a materialized table
+		super.registerRevision(new Revision(207) {
+			@Override
+			public void execute(Session session) {
+				session.createSQLQuery("DROP VIEW IF EXISTS profits").executeUpdate();
+
+				StringBuilder builder = new StringBuilder();
+				builder.append("CREATE TABLE IF NOT EXISTS profits (");
+				builder.append("buyTransactionId BIGINT NOT NULL,");
+				builder.append("sellTransactionId BIGINT NOT NULL,");
+				builder.append("typeId BIGINT NOT NULL,");
+				builder.append("typeName VARCHAR(255) NOT NULL,");
+				builder.append("date TIMESTAMP NOT NULL,");
+				builder.append("quantity BIGINT NOT NULL,");
+				builder.append("buyPrice DECIMAL(20,2) NOT NULL,");
+				builder.append("sellPrice DECIMAL(20,2) NOT NULL,");
+				builder.append("taxes DECIMAL(20,2) NOT NULL,");
+				builder.append("grossProfit DECIMAL(20,2) NOT NULL,");
+				builder.append("netProfit DECIMAL(20,2) NOT NULL,");
+				builder.append("totalTaxes DECIMAL(20,2) NOT NULL,");
+				builder.append("totalGrossProfit DECIMAL(20,2) NOT NULL,");
+				builder.append("totalNetProfit DECIMAL(20,2) NOT NULL,");
+				builder.append("percentalGrossProfit DOUBLE NOT NULL,");
+				builder.append("percentalNetProfit DOUBLE NOT NULL,");
+				builder.append("PRIMARY KEY (buyTransactionId, sellTransactionId))");
+				session.createSQLQuery(builder.toString()).executeUpdate();
+
+				session.createSQLQuery("CREATE INDEX IF NOT EXISTS profits_IX_date ON profits (date)").executeUpdate();
+				session.createSQLQuery("CREATE INDEX IF NOT EXISTS profits_IX_typeId_date ON profits (typeId, date)")
+						.executeUpdate();
+
+				String sql = new StringBuilder()
+				.append("INSERT INTO profits (buyTransactionId, sellTransactionId, typeId, typeName, date, ")
+				.append("	quantity, buyPrice, sellPrice, taxes, grossProfit, netProfit, totalTaxes, ")
+				.append("	totalGrossProfit, totalNetProfit, percentalGrossProfit, percentalNetProfit) ")
+				.append("SELECT b.transactionId, s.transactionId, s.typeId, s.typeName, ")
+				.append("	s.transactionDateTime, tm.quantity, b.price, s.price, ")
+				.append("	(b.taxes + s.taxes), ")
+				.append("	(b.price + s.price), ")
+				.append("	(b.price + s.price + b.taxes + s.taxes), ")
+				.append("	(b.taxes + s.taxes) * tm.quantity, ")
+				.append("	tm.quantity * (b.price + s.price), ")
+				.append("	(b.price + s.price + b.taxes + s.taxes) * tm.quantity, ")
+				.append("	(b.price + s.price) / ABS(b.price) * 100, ")
+				.append("	(b.price + s.price + b.taxes + s.taxes) / ABS(b.price) * 100 ")
+				.append("	FROM transactionMatches tm ")
+				.append("	INNER JOIN transactions b ON tm.buyTransactionId = b.transactionId ")
+				.append("	INNER JOIN transactions s ON tm.sellTransactionId = s.transactionId ")
+				.toString();
+
+				session.createSQLQuery(sql).executeUpdate();
+			}
+		});
+
+		// new table with daily totals for the dashboard
+		super.registerRevision(new Revision(208) {
+			@Override
+			public void execute(Session session) {
+				StringBuilder builder = new StringBuilder();
+				builder.append("CREATE TABLE IF NOT EXISTS dailytotals (");
+				builder.append("characterId BIGINT NOT NULL,");
+				builder.append("typeId BIGINT NOT NULL,");
+				builder.append("day DATE NOT NULL,");
+				builder.append("sales DECIMAL(20,2) DEFAULT 0 NOT NULL,");
+				builder.append("purchases DECIMAL(20,2) DEFAULT 0 NOT NULL,");
+				builder.append("taxes DECIMAL(20,2) DEFAULT 0 NOT NULL,");
+				builder.append("profit DECIMAL(20,2) DEFAULT 0 NOT NULL,");
+				builder.append("PRIMARY KEY (characterId, typeId, day))");
+				session.createSQLQuery(builder.toString()).executeUpdate();
+
+				session.createSQLQuery("CREATE INDEX IF NOT EXISTS dailytotals_IX_day ON dailytotals (day)")
+						.executeUpdate();
+
+				String transactions = new StringBuilder()
+				.append("INSERT INTO dailytotals (characterId, typeId, day, sales, purchases, taxes) ")
+				.append("SELECT characterId, typeId, CAST(transactionDateTime AS DATE), ")
+				.append("	SUM(CASE WHEN price > 0 THEN quantity * (price + taxes) ELSE 0 END), ")
+				.append("	SUM(CASE WHEN price < 0 THEN quantity * (price + taxes) ELSE 0 END), ")
+				.append("	SUM(quantity * taxes) ")
+				.append("FROM transactions ")
+				.append("GROUP BY characterId, typeId, CAST(transactionDateTime AS DATE)")
+				.toString();
+				session.createSQLQuery(transactions).executeUpdate();
+
+				String profits = new StringBuilder()
+				.append("MERGE INTO dailytotals (characterId, typeId, day, profit) ")
+				.append("KEY (characterId, typeId, day) ")
+				.append("SELECT s.characterId, p.typeId, CAST(p.date AS DATE), SUM(p.totalNetProfit) ")
+				.append("FROM profits p ")
+				.append("INNER JOIN transactions s ON p.sellTransactionId = s.transactionId ")
+				.append("GROUP BY s.characterId, p.typeId, CAST(p.date AS DATE)")
+				.toString();
+				session.createSQLQuery(profits).executeUpdate();
+			}
+		});
+
+		// the transaction table filters on a period and pages by time and id, with the type name as a residual filter
+		super.registerRevision(new Revision(209) {
+			@Override
+			public void execute(Session session) {
+				session.createSQLQuery("CREATE INDEX IF NOT EXISTS transactions_IX_transactionDateTime_transactionId "
+						+ "ON transactions (transactionDateTime, transactionId)").executeUpdate();
+			}
+		});
 		
+		super.registerRevision(new Revision(210) {
+			@Override
+			public void execute(Session session) {
+				StringBuilder builder = new StringBuilder();
+				builder.append("ALTER TABLE importlogger ADD COLUMN ");
+				builder.append("checkpoint BIGINT NULL");
+				session.createSQLQuery(builder.toString()).executeUpdate();
+			}
+		});
+
+		// composite indexes for the inventory, the wallet tables and the market orders, see QueryPlanTest
+		super.registerRevision(new Revision(211) {
+			@Override
+			public void execute(Session session) {
+				session.createSQLQuery("CREATE INDEX IF NOT EXISTS transactions_IX_typeId_transactionDateTime "
+						+ "ON transactions (typeId, transactionDateTime, transactionId)").executeUpdate();
+				session.createSQLQuery("CREATE INDEX IF NOT EXISTS transactions_IX_remaining_typeId "
+						+ "ON transactions (remaining, typeId)").executeUpdate();
+
+				session.createSQLQuery("CREATE INDEX IF NOT EXISTS transactionMatches_IX_sellTransactionId "
+						+ "ON transactionMatches (sellTransactionId)").executeUpdate();
+
+				session.createSQLQuery("CREATE INDEX IF NOT EXISTS journal_IX_journalTypeID_date "
+						+ "ON journal (journalTypeID, date)").executeUpdate();
+				session.createSQLQuery("DROP INDEX IF EXISTS journal_IX_journalTypeID").executeUpdate();
+
+				session.createSQLQuery("CREATE INDEX IF NOT EXISTS marketorders_IX_orderState_bid "
+						+ "ON marketorders (orderState, bid)").executeUpdate();
+			}
+		});
+
 	}
 	
 	@Override
@@ -1,6 +1,7 @@
 package nl.minicom.evenexus.utils;
 
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
@@ -12,6 +13,12 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -23,6 +30,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The {@link SettingsManager} class is responsible for loading, retrieving and storing settings.
+ * 
+ * All settings are kept in memory. Changes are written to disk by a background thread, which
+ * waits {@link #FLUSH_DELAY} milliseconds after the first change, so that a burst of changes
+ * results in a single write. The file is written to a temporary file first, which then replaces
+ * the settings file. Call {@link #flush()} to write pending changes immediately.
  *
  * @author michael
  */
@@ -30,10 +42,19 @@ import org.slf4j.LoggerFactory;
 public class SettingsManager {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(SettingsManager.class);
+	
+	/**
+	 * The time in milliseconds between the first unsaved change and writing the settings to disk.
+	 */
+	static final long FLUSH_DELAY = 1000;
+	
+	private static final int SETTINGS_VERSION_NUMBER = 1;
 		
 	private final BugReportDialog dialog;
 	private final SortedProperties settings;
 	private final File file;
+	private final AtomicBoolean dirty;
+	private final ScheduledExecutorService writer;
 	
 	private volatile boolean initialized = false;
 	
@@ -45,9 +66,22 @@ public class SettingsManager {
 	 */
 	@Inject
 	public SettingsManager(BugReportDialog dialog) {
+		this(dialog, new File("session.properties"));
+	}
+	
+	SettingsManager(BugReportDialog dialog, File file) {
 		this.dialog = dialog;
-		settings = new SortedProperties();
-		file = new File("session.properties");
+		this.file = file;
+		this.settings = new SortedProperties();
+		this.dirty = new AtomicBoolean();
+		this.writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "SettingsWriter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 	}
 	
 	/**
@@ -57,15 +91,20 @@ public class SettingsManager {
 	 * 		In case the file containing all the settings could not be read.
 	 */
 	public void initialize() throws IOException {
-		if (!file.exists()) {
-			file.createNewFile();
+		if (file.exists()) {
+			FileReader reader = new FileReader(file);
+			try {
+				settings.load(reader);
+			}
+			finally {
+				reader.close();
+			}
 		}
 		
-		FileReader reader = new FileReader(file);
-		settings.load(reader);
-		reader.close();
-		
 		initialized = true;
+		if (loadInt(SETTINGS_VERSION, SETTINGS_VERSION_NUMBER) < SETTINGS_VERSION_NUMBER) {
+			saveObject(SETTINGS_VERSION, SETTINGS_VERSION_NUMBER);
+		}
 	}
 	
 	/**
@@ -223,29 +262,51 @@ public class SettingsManager {
 			throw new IllegalStateException("SettingsManager has not yet finished initialization!");
 		}
 		
-		try {
-			settings.put(name, value);
-			save();
+		if (value.equals(settings.put(name, value))) {
+			return;
 		}
-		catch (Exception e) {
-			LOG.error(e.getLocalizedMessage(), e);
-			dialog.setVisible(true);
+		if (dirty.compareAndSet(false, true)) {
+			try {
+				writer.schedule(new Runnable() {
+					@Override
+					public void run() {
+						flush();
+					}
+				}, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+			}
+			catch (RejectedExecutionException e) {
+				LOG.warn("Setting " + name + " was changed after the settings were closed");
+			}
 		}
 	}
 	
 	/**
-	 * This method saves all settings to file.
+	 * This method writes all unsaved settings to file. The settings are written to a temporary
+	 * file first, which then replaces the settings file, so a partially written file is never read.
 	 */
-	public void save() {
+	public synchronized void flush() {
+		if (!dirty.getAndSet(false)) {
+			return;
+		}
+		
 		try {
-			int newVersion = 1;
-			if (loadInt(SETTINGS_VERSION, 1) < newVersion) {
-				saveObject(SETTINGS_VERSION, newVersion);
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			settings.store(buffer, null);
+			
+			File temp = new File(file.getPath() + ".tmp");
+			FileOutputStream out = new FileOutputStream(temp);
+			try {
+				buffer.writeTo(out);
+				out.getFD().sync();
+			}
+			finally {
+				out.close();
+			}
+			
+			// On some platforms a file cannot be renamed onto an existing file.
+			if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+				throw new IOException("Could not replace " + file + " with " + temp);
 			}
-			FileOutputStream out = new FileOutputStream(file);
-			settings.store(out, null);
-			out.flush();
-			out.close();
 		}
 		catch (Exception e) {
 			LOG.error(e.getLocalizedMessage(), e);
@@ -253,6 +314,15 @@ public class SettingsManager {
 		}
 	}
 	
+	/**
+	 * This method writes all unsaved settings to file, and stops the background writer.
+	 * Changes made after this method has been called are no longer written to file.
+	 */
+	public void close() {
+		writer.shutdownNow();
+		flush();
+	}
+	
 	/**
 	 * @return
 	 * 		The {@link String} representation of this object.
@@ -348,6 +418,9 @@ public class SettingsManager {
 	public static final String FILTER_PROFIT_PERIOD = "filter.profit.period";
 	public static final String FILTER_TRANSACTION_PERIOD = "filter.transaction.period";
 
+	public static final String INVENTORY_PARALLEL_MATCHING = "inventory.matching.parallel";
+	public static final String INVENTORY_MATCHING_THREADS = "inventory.matching.threads";
+
 	public static final String PROXY_ENABLED = "proxy.enabled";
 	public static final String PROXY_HOST = "proxy.host";
 	public static final String PROXY_PORT = "proxy.port";
@@ -13,18 +13,29 @@ import java.util.TimeZone;
  */
 public final class TimeUtils {
 	
+	/**
+	 * The time zone of the Tranquility server, in which the API reports its times.
+	 */
+	private static final TimeZone SERVER_TIME_ZONE = TimeZone.getTimeZone("Europe/London");
+	
+	private static final String API_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
+	
+	private static final long MILLIS_PER_SECOND = 1000L;
+	private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+	private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+	private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+	
 	private TimeUtils() {
 		// Prevent instantiation.
 	}
 		
 	/**
 	 * @return 
-	 * 		a time stamp in seconds resembling Reykjavic time ie. GMT+0:00 
-	 * 		and no Day Light Savings time, no matter what time zone you are in.
+	 * 		The current time in milliseconds since the epoch. This is the same instant for the 
+	 * 		server and the client, only the time zone in which it is displayed differs.
 	 */
 	public static long getServerTime() {
-		Calendar calendar = GregorianCalendar.getInstance(TimeZone.getTimeZone("Europe/London"));
-		return calendar.getTime().getTime();
+		return System.currentTimeMillis();
 	}	
 
 	/**
@@ -41,18 +52,82 @@ public final class TimeUtils {
 	 * 		When the string could not be parsed.
 	 */
 	public static Timestamp convertToTimestamp(String dateTime) throws ParseException {
-		Calendar calendar = new GregorianCalendar();
-		calendar.setTimeZone(TimeZone.getTimeZone("Europe/London"));
-		calendar.set(
-				Integer.parseInt(dateTime.substring(0, 4)),
-				Integer.parseInt(dateTime.substring(5, 7)) - 1,
-				Integer.parseInt(dateTime.substring(8, 10)),
-				Integer.parseInt(dateTime.substring(11, 13)),
-				Integer.parseInt(dateTime.substring(14, 16)),
-				Integer.parseInt(dateTime.substring(17, 19))
-		);
+		return new Timestamp(parseServerTime(dateTime));
+	}
+	
+	/**
+	 * Parses a time in the format of the API (yyyy-MM-dd HH:mm:ss) in the server time zone. 
+	 * The fields are parsed directly from the characters, and converted to milliseconds 
+	 * since the epoch without creating a {@link Calendar}.
+	 * 
+	 * @param dateTime
+	 * 		The time to parse.
+	 * 
+	 * @return
+	 * 		The parsed time in milliseconds since the epoch.
+	 * 
+	 * @throws ParseException
+	 * 		When the string does not match the format of the API.
+	 */
+	public static long parseServerTime(CharSequence dateTime) throws ParseException {
+		if (dateTime == null || dateTime.length() != API_TIME_FORMAT.length()) {
+			throw new ParseException("Time does not match " + API_TIME_FORMAT + ": " + dateTime, 0);
+		}
+		
+		int year = parseField(dateTime, 0, 4, '-');
+		int month = parseField(dateTime, 5, 2, '-');
+		int day = parseField(dateTime, 8, 2, ' ');
+		int hour = parseField(dateTime, 11, 2, ':');
+		int minute = parseField(dateTime, 14, 2, ':');
+		int second = parseField(dateTime, 17, 2, (char) 0);
+		if (month < 1 || month > 12) {
+			throw new ParseException("Invalid month: " + dateTime, 5);
+		}
+		
+		long local = daysSinceEpoch(year, month, day) * MILLIS_PER_DAY 
+				+ hour * MILLIS_PER_HOUR + minute * MILLIS_PER_MINUTE + second * MILLIS_PER_SECOND;
 		
-		return new Timestamp(calendar.getTime().getTime());		
+		// Like a Calendar, a local time which does not exist or exists twice on the day 
+		// of a daylight saving time transition is interpreted in standard time.
+		int offset = SERVER_TIME_ZONE.getOffset(local - SERVER_TIME_ZONE.getRawOffset());
+		long time = local - offset;
+		int actualOffset = SERVER_TIME_ZONE.getOffset(time);
+		if (actualOffset != offset) {
+			time = local - actualOffset;
+		}
+		return time;
+	}
+	
+	private static int parseField(CharSequence value, int start, int length, char separator) throws ParseException {
+		int result = 0;
+		for (int i = start; i < start + length; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				throw new ParseException("Time does not match " + API_TIME_FORMAT + ": " + value, i);
+			}
+			result = result * 10 + (c - '0');
+		}
+		
+		int end = start + length;
+		if (separator != 0 && value.charAt(end) != separator) {
+			throw new ParseException("Time does not match " + API_TIME_FORMAT + ": " + value, end);
+		}
+		return result;
+	}
+	
+	/**
+	 * @return
+	 * 		The number of days between 1970-01-01 and the specified date in the proleptic Gregorian 
+	 * 		calendar. Days beyond the end of the month roll over into the next month.
+	 */
+	private static long daysSinceEpoch(int year, int month, int day) {
+		// Count from March, so that the leap day is the last day of the year.
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
 	}
 	
 	/**
@@ -65,7 +140,7 @@ public final class TimeUtils {
 	 * 		The created {@link Calendar}.
 	 */
 	public static Calendar convertToCalendar(long timestamp) {
-		Calendar calendar = GregorianCalendar.getInstance(TimeZone.getTimeZone("Europe/London"));
+		Calendar calendar = GregorianCalendar.getInstance(SERVER_TIME_ZONE);
 		calendar.setTimeInMillis(timestamp);
 		return calendar;
 	}
@@ -0,0 +1,57 @@
+package nl.minicom.evenexus.core.report.engine;
+
+import java.util.Arrays;
+
+import nl.minicom.evenexus.core.report.definition.components.utils.Aggregate;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReportCubeTest {
+
+	private ReportCube cube;
+
+	@Before
+	public void setup() {
+		cube = new ReportCube(2, new Aggregate[] { Aggregate.SUM, Aggregate.AVG, Aggregate.MAX, Aggregate.COUNT });
+		cube.addRow(new String[] { "2011", "11" }, new double[] { 10, 1, 5, 1 });
+		cube.addRow(new String[] { "2011", "12" }, new double[] { 20, 3, 7, 1 });
+		cube.addRow(new String[] { "2012", "01" }, new double[] { 30, 5, 2, 1 });
+		cube.addRow(new String[] { "2012", "02" }, new double[] { Double.NaN, 7, 9, 1 });
+	}
+
+	@Test
+	public void testTopLevel() {
+		Dataset dataset = cube.createDataSet(new String[0]);
+		Assert.assertEquals(Arrays.asList("2011", "2012"), Arrays.asList(dataset.keySet().toArray()));
+
+		Assert.assertEquals(30.0, dataset.getValue("2011", 0));
+		Assert.assertEquals(2.0, dataset.getValue("2011", 1));
+		Assert.assertEquals(7.0, dataset.getValue("2011", 2));
+		Assert.assertEquals(2.0, dataset.getValue("2011", 3));
+
+		// Missing values are ignored, just like NULLs in SQL.
+		Assert.assertEquals(30.0, dataset.getValue("2012", 0));
+		Assert.assertEquals(6.0, dataset.getValue("2012", 1));
+		Assert.assertEquals(9.0, dataset.getValue("2012", 2));
+	}
+
+	@Test
+	public void testDrillDown() {
+		Dataset dataset = cube.createDataSet(new String[] { "2012" });
+		Assert.assertEquals(Arrays.asList("01", "02"), Arrays.asList(dataset.keySet().toArray()));
+		Assert.assertEquals(30.0, dataset.getValue("01", 0));
+		Assert.assertEquals(3, dataset.size("02"));
+
+		dataset = cube.createDataSet(new String[] { "2011", "12" });
+		Assert.assertEquals(1, dataset.size());
+		Assert.assertEquals(20.0, dataset.getValue(ReportCube.TOTAL, 0));
+	}
+
+	@Test
+	public void testUnknownGroupValue() {
+		Assert.assertEquals(0, cube.createDataSet(new String[] { "2010" }).size());
+	}
+
+}
@@ -0,0 +1,156 @@
+package nl.minicom.evenexus.eveapi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class ApiClientTest {
+
+	private static final String DOCUMENT = "<eveapi version=\"2\"><result /></eveapi>";
+
+	private HttpServer server;
+	private AtomicInteger requests;
+	private File folder;
+	private ApiClient client;
+	private String url;
+
+	@Before
+	public void setup() throws IOException {
+		requests = new AtomicInteger();
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				byte[] body = DOCUMENT.getBytes("UTF-8");
+				String encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				if (encoding != null && encoding.contains("gzip")) {
+					ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+					GZIPOutputStream output = new GZIPOutputStream(compressed);
+					output.write(body);
+					output.close();
+					body = compressed.toByteArray();
+					exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+				}
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream output = exchange.getResponseBody();
+				output.write(body);
+				output.close();
+			}
+		});
+		server.start();
+
+		folder = File.createTempFile("EveNexus", "cache");
+		folder.delete();
+		client = new ApiClient(folder);
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/char/WalletTransactions.xml.aspx";
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+		File[] files = folder.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		folder.delete();
+	}
+
+	@Test
+	public void testCachedResponseIsReused() throws IOException {
+		Assert.assertEquals(DOCUMENT, read(url + "?keyID=1&vCode=abc&characterID=2", 60000));
+		Assert.assertEquals(DOCUMENT, read(url + "?keyID=1&vCode=def&characterID=2", 60000));
+		Assert.assertEquals(1, requests.get());
+		Assert.assertEquals(1, client.getHits());
+		Assert.assertEquals(1, client.getMisses());
+	}
+
+	@Test
+	public void testExpiredOrUncachedResponseIsRequestedAgain() throws IOException {
+		read(url + "?keyID=1&vCode=abc", 0);
+		read(url + "?keyID=1&vCode=abc", 0);
+		Assert.assertEquals(2, requests.get());
+
+		read(url + "?keyID=2&vCode=abc", 60000);
+		read(url + "?keyID=3&vCode=abc", 60000);
+		Assert.assertEquals(4, requests.get());
+		Assert.assertEquals(0, client.getHits());
+	}
+
+	@Test
+	public void testExpiredResponseIsDeletedWhenRequested() throws IOException {
+		read(url + "?keyID=1&vCode=abc", 60000);
+		File[] cached = folder.listFiles();
+		Assert.assertEquals(1, cached.length);
+
+		Assert.assertTrue(cached[0].setLastModified(System.currentTimeMillis() - 1000));
+		read(url + "?keyID=1&vCode=abc", 0);
+		Assert.assertFalse(cached[0].exists());
+		Assert.assertEquals(2, requests.get());
+	}
+
+	@Test
+	public void testExpiredAndAbandonedFilesArePruned() throws IOException {
+		Assert.assertTrue(folder.mkdirs());
+		long now = System.currentTimeMillis();
+		File expired = createFile("expired.xml", now - 1000);
+		File valid = createFile("valid.xml", now + 60000);
+		File abandoned = createFile("abandoned.xml123.tmp", now - 2 * ApiClient.PRUNE_INTERVAL);
+		File downloading = createFile("downloading.xml456.tmp", now);
+
+		Assert.assertEquals(2, client.prune());
+		Assert.assertFalse(expired.exists());
+		Assert.assertTrue(valid.exists());
+		Assert.assertFalse(abandoned.exists());
+		Assert.assertTrue(downloading.exists());
+	}
+
+	@Test
+	public void testVerificationCodeIsRemovedFromKey() {
+		Assert.assertEquals("http://a/b?keyID=1&characterID=2",
+				ApiClient.removeVerificationCode("http://a/b?keyID=1&vCode=x&characterID=2"));
+		Assert.assertEquals("http://a/b?keyID=1", ApiClient.removeVerificationCode("http://a/b?keyID=1&vCode=x"));
+		Assert.assertEquals("http://a/b", ApiClient.removeVerificationCode("http://a/b?vCode=x"));
+	}
+
+	private File createFile(String name, long lastModified) throws IOException {
+		File file = new File(folder, name);
+		Assert.assertTrue(file.createNewFile());
+		Assert.assertTrue(file.setLastModified(lastModified));
+		return file;
+	}
+
+	private String read(String location, long validFor) throws IOException {
+		InputStream input = client.open(location);
+		try {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int read;
+			while ((read = input.read(buffer)) >= 0) {
+				output.write(buffer, 0, read);
+			}
+			client.cache(input, validFor);
+			return output.toString("UTF-8");
+		}
+		finally {
+			input.close();
+		}
+	}
+
+}
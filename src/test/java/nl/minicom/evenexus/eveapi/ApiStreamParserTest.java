@@ -0,0 +1,75 @@
+package nl.minicom.evenexus.eveapi;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.minicom.evenexus.eveapi.exceptions.TransactionsExhaustedException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ApiStreamParserTest {
+
+	@Test
+	public void testRowsAreStreamedInDocumentOrder() throws Exception {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version='1.0' encoding='UTF-8'?>");
+		xml.append("<eveapi version=\"2\">");
+		xml.append("<currentTime>2011-05-02 21:07:00</currentTime>");
+		xml.append("<result>");
+		xml.append("<rowset name=\"transactions\" key=\"transactionID\">");
+		xml.append("<row transactionID=\"2\" typeName=\"Tritanium\" />");
+		xml.append("<row transactionID=\"1\" typeName=\"Pyerite &amp; Co\" />");
+		xml.append("</rowset>");
+		xml.append("<rowset name=\"other\"><row id=\"3\" /></rowset>");
+		xml.append("</result>");
+		xml.append("<cachedUntil>2011-05-02 21:22:00</cachedUntil>");
+		xml.append("</eveapi>");
+
+		List<ApiRow> rows = new ArrayList<ApiRow>();
+		ApiStreamParser parser = new ApiStreamParser(createHandler(rows));
+		parser.parse(createStream(xml.toString()));
+
+		Assert.assertEquals(3, rows.size());
+		Assert.assertEquals("transactions", rows.get(0).getRowset());
+		Assert.assertEquals("2", rows.get(0).getAttribute("transactionID"));
+		Assert.assertEquals("Pyerite & Co", rows.get(1).getAttribute("typeName"));
+		Assert.assertNull(rows.get(1).getAttribute("price"));
+		Assert.assertEquals("other", rows.get(2).getRowset());
+		Assert.assertEquals("2011-05-02 21:07:00", parser.getCurrentTime());
+		Assert.assertEquals("2011-05-02 21:22:00", parser.getCachedUntil());
+	}
+
+	@Test(expected = TransactionsExhaustedException.class)
+	public void testErrorCodeIsThrown() throws Exception {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<eveapi version=\"2\">");
+		xml.append("<currentTime>2011-05-02 21:07:00</currentTime>");
+		xml.append("<error code=\"101\">Wallet exhausted.</error>");
+		xml.append("<cachedUntil>2011-05-02 22:07:00</cachedUntil>");
+		xml.append("</eveapi>");
+
+		new ApiStreamParser(createHandler(new ArrayList<ApiRow>())).parse(createStream(xml.toString()));
+	}
+
+	private ApiRowHandler createHandler(final List<ApiRow> rows) {
+		return new ApiRowHandler() {
+			@Override
+			public void onRow(ApiRow row) {
+				rows.add(row);
+			}
+
+			@Override
+			public void onFinished() {
+				// Nothing to do here.
+			}
+		};
+	}
+
+	private InputStream createStream(String xml) throws Exception {
+		return new ByteArrayInputStream(xml.getBytes("UTF-8"));
+	}
+
+}
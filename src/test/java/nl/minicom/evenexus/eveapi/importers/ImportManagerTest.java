@@ -0,0 +1,155 @@
+package nl.minicom.evenexus.eveapi.importers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Provider;
+
+import nl.minicom.evenexus.eveapi.ApiParser.Api;
+import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.dao.ApiKey;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mortbay.xml.XmlParser.Node;
+
+public class ImportManagerTest {
+
+	@Test
+	public void testSlowListenerDoesNotDelayOthers() throws InterruptedException {
+		ImportManager importManager = new ImportManager(new Database(), null, null);
+		
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch notified = new CountDownLatch(3);
+		importManager.addListener(Api.CHAR_WALLET_TRANSACTIONS, new ImportListener() {
+			@Override
+			public void onImportComplete() {
+				started.countDown();
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		
+		for (int i = 0; i < 3; i++) {
+			importManager.addListener(Api.CHAR_WALLET_JOURNAL, new ImportListener() {
+				@Override
+				public void onImportComplete() {
+					notified.countDown();
+				}
+			});
+		}
+		
+		try {
+			importManager.triggerImportCompleteEvent(Api.CHAR_WALLET_TRANSACTIONS);
+			Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+			
+			importManager.triggerImportCompleteEvent(Api.CHAR_WALLET_JOURNAL);
+			Assert.assertTrue(notified.await(5, TimeUnit.SECONDS));
+		}
+		finally {
+			release.countDown();
+		}
+	}
+	
+	@Test
+	public void testQueuedImportsRunInOrderOfPriority() throws InterruptedException {
+		ImportManager importManager = new ImportManager(new Database(), null, null);
+		List<String> runs = new CopyOnWriteArrayList<String>();
+		CountDownLatch blocked = new CountDownLatch(2);
+		CountDownLatch firstRelease = new CountDownLatch(1);
+		CountDownLatch secondRelease = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(5);
+		
+		try {
+			// Occupy both workers, so that the following imports are queued.
+			importManager.enqueue(new TestTask(importManager, Api.CHAR_BALANCE, "blocker-1", runs, blocked, 
+					firstRelease));
+			importManager.enqueue(new TestTask(importManager, Api.CHAR_SKILLS, "blocker-2", runs, blocked, 
+					secondRelease));
+			Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+			
+			importManager.enqueue(new TestTask(importManager, Api.CHAR_LIST, "list", runs, finished, null));
+			importManager.enqueue(new TestTask(importManager, Api.CHAR_MARKET_ORDERS, "orders", runs, finished, null));
+			importManager.enqueue(new TestTask(importManager, Api.CHAR_WALLET_JOURNAL, "journal-1", runs, finished, 
+					null));
+			importManager.enqueue(new TestTask(importManager, Api.CHAR_WALLET_TRANSACTIONS, "transactions", runs, 
+					finished, null));
+			importManager.enqueue(new TestTask(importManager, Api.CHAR_WALLET_JOURNAL, "journal-2", runs, finished, 
+					null));
+			Assert.assertEquals(5, importManager.getQueueSize());
+			
+			// Only one worker is released, so the queued imports run one after another.
+			firstRelease.countDown();
+			Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+		}
+		finally {
+			firstRelease.countDown();
+			secondRelease.countDown();
+		}
+		
+		List<String> expected = Arrays.asList("transactions", "journal-1", "journal-2", "orders", "list");
+		Assert.assertEquals(expected, runs.subList(2, runs.size()));
+	}
+	
+	/**
+	 * An {@link ImporterTask} which only records that it was run, and optionally waits until it is released.
+	 */
+	private static class TestTask extends ImporterTask {
+		
+		private final String name;
+		private final List<String> runs;
+		private final CountDownLatch started;
+		private final CountDownLatch release;
+		
+		private TestTask(ImportManager importManager, Api api, String name, List<String> runs, 
+				CountDownLatch started, CountDownLatch release) {
+			
+			super(null, null, new Provider<ImporterJob>() {
+				@Override
+				public ImporterJob get() {
+					return new ImporterJob(null);
+				}
+			}, importManager, api);
+			
+			this.name = name;
+			this.runs = runs;
+			this.started = started;
+			this.release = release;
+		}
+		
+		@Override
+		public void parseApi(Node root, ApiKey apiKey) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public String getName() {
+			return name;
+		}
+		
+		@Override
+		public boolean isReady() {
+			runs.add(name);
+			started.countDown();
+			if (release != null) {
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return false;
+		}
+		
+	}
+	
+}
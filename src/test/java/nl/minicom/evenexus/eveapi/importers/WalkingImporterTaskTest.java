@@ -0,0 +1,199 @@
+package nl.minicom.evenexus.eveapi.importers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Provider;
+
+import nl.minicom.evenexus.eveapi.ApiParser;
+import nl.minicom.evenexus.eveapi.ApiParser.Api;
+import nl.minicom.evenexus.eveapi.ApiRow;
+import nl.minicom.evenexus.eveapi.ApiRowHandler;
+import nl.minicom.evenexus.eveapi.exceptions.TransactionsExhaustedException;
+import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.dao.ApiKey;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mortbay.xml.XmlParser.Node;
+
+public class WalkingImporterTaskTest {
+
+	private List<Long> history;
+	private Set<Long> stored;
+	private List<Long> requests;
+	private Long checkpoint;
+	private Long failBefore;
+	private TestImporter importer;
+
+	@Before
+	public void setup() {
+		history = new ArrayList<Long>();
+		stored = Collections.synchronizedSet(new HashSet<Long>());
+		requests = Collections.synchronizedList(new ArrayList<Long>());
+		checkpoint = null;
+		failBefore = null;
+		importer = new TestImporter();
+	}
+
+	@Test
+	public void testWalksUntilKnownRows() throws Exception {
+		createHistory(3 * PagedRowHandler.PAGE_SIZE + 10);
+		for (long id = 1; id <= PagedRowHandler.PAGE_SIZE; id++) {
+			stored.add(id);
+		}
+
+		importer.importApi(new ApiKey());
+
+		// The fourth page is requested while the third page is persisted, but is cancelled afterwards.
+		// Depending on timing the download starts before it is cancelled.
+		Assert.assertEquals(history.size(), stored.size());
+		Assert.assertTrue(requests.size() == 3 || requests.size() == 4);
+		Assert.assertNull(checkpoint);
+	}
+
+	@Test
+	public void testSinglePageIsNotWalked() throws Exception {
+		createHistory(10);
+
+		importer.importApi(new ApiKey());
+
+		Assert.assertEquals(10, stored.size());
+		Assert.assertEquals(1, requests.size());
+		Assert.assertNull(requests.get(0));
+	}
+
+	@Test
+	public void testResumesFromCheckpoint() throws Exception {
+		createHistory(3 * PagedRowHandler.PAGE_SIZE);
+		failBefore = (long) PagedRowHandler.PAGE_SIZE + 1;
+
+		importer.importApi(new ApiKey());
+		Assert.assertEquals(Long.valueOf(PagedRowHandler.PAGE_SIZE + 1), checkpoint);
+		Assert.assertEquals(2 * PagedRowHandler.PAGE_SIZE, stored.size());
+
+		Long resumeBefore = checkpoint;
+		failBefore = null;
+		requests.clear();
+		importer.importApi(new ApiKey());
+
+		Assert.assertEquals(history.size(), stored.size());
+		Assert.assertEquals(resumeBefore, requests.get(0));
+		Assert.assertNull(checkpoint);
+	}
+
+	private void createHistory(int size) {
+		for (long id = size; id > 0; id--) {
+			history.add(id);
+		}
+	}
+
+	private class TestImporter extends WalkingImporterTask {
+
+		private TestImporter() {
+			super(null, new Provider<ApiParser>() {
+				@Override
+				public ApiParser get() {
+					return new TestParser();
+				}
+			}, null, new ImportManager(new Database(), null, null), Api.CHAR_WALLET_TRANSACTIONS);
+		}
+
+		@Override
+		protected PagedRowHandler createRowHandler(ApiKey apiKey) {
+			return new PagedRowHandler() {
+				@Override
+				protected int persistPage(List<ApiRow> rows) {
+					int inserted = 0;
+					for (ApiRow row : rows) {
+						if (stored.add(getRowId(row))) {
+							inserted++;
+						}
+					}
+					return inserted;
+				}
+
+				@Override
+				protected void onFinished(int inserted) {
+					// Nothing to do.
+				}
+			};
+		}
+
+		@Override
+		protected long getRowId(ApiRow row) {
+			return Long.parseLong(row.getAttribute("transactionID"));
+		}
+
+		@Override
+		protected Map<String, String> createWalkArguments(long beforeId) {
+			Map<String, String> arguments = new HashMap<String, String>();
+			arguments.put("fromID", Long.toString(beforeId));
+			return arguments;
+		}
+
+		@Override
+		protected Long getCheckpoint(ApiKey apiKey) {
+			return checkpoint;
+		}
+
+		@Override
+		protected void saveCheckpoint(ApiKey apiKey, Long checkpoint) {
+			WalkingImporterTaskTest.this.checkpoint = checkpoint;
+		}
+
+		@Override
+		public void parseApi(Node root, ApiKey apiKey) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+	}
+
+	private class TestParser extends ApiParser {
+
+		private TestParser() {
+			super(null, null, null, null);
+		}
+
+		@Override
+		public boolean parseApi(Api api, ApiKey apiKey, Map<String, String> additionalArguments,
+				boolean ignoreCooldown, ApiRowHandler handler) throws Exception {
+
+			Long beforeId = null;
+			if (additionalArguments.containsKey("fromID")) {
+				beforeId = Long.parseLong(additionalArguments.get("fromID"));
+			}
+			requests.add(beforeId);
+			if (beforeId != null && beforeId.equals(failBefore)) {
+				return false;
+			}
+
+			int rowCount = Integer.parseInt(additionalArguments.get("rowCount"));
+			int count = 0;
+			for (Long id : history) {
+				if ((beforeId == null || id < beforeId) && count++ < rowCount) {
+					Map<String, String> attributes = new HashMap<String, String>();
+					attributes.put("transactionID", Long.toString(id));
+					handler.onRow(new ApiRow("transactions", attributes));
+				}
+			}
+			if (count == 0) {
+				throw new TransactionsExhaustedException();
+			}
+			return true;
+		}
+
+	}
+
+}
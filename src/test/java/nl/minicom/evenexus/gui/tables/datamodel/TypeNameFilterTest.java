@@ -0,0 +1,152 @@
+package nl.minicom.evenexus.gui.tables.datamodel;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TypeNameFilterTest {
+
+	private TypeNameFilter filter;
+	private CountingQuery query;
+
+	@Before
+	public void setup() {
+		filter = new TypeNameFilter(1);
+		query = new CountingQuery();
+	}
+
+	@Test
+	public void testNarrowingIsFilteredInMemory() {
+		Assert.assertEquals(3, filter.load(7, query).size());
+
+		filter.setTypeName("Tri");
+		Assert.assertEquals(2, filter.load(7, query).size());
+
+		filter.setTypeName("Trit");
+		List<Object[]> rows = filter.load(7, query);
+		Assert.assertEquals(1, rows.size());
+		Assert.assertEquals("Tritanium", rows.get(0)[1]);
+		Assert.assertEquals(1, query.executions);
+	}
+
+	@Test
+	public void testWideningQueriesDatabase() {
+		filter.setTypeName("trit");
+		filter.load(7, query);
+
+		filter.setTypeName("tri");
+		Assert.assertEquals(2, filter.load(7, query).size());
+		Assert.assertEquals(2, query.executions);
+		Assert.assertEquals("%tri%", query.pattern);
+	}
+
+	@Test
+	public void testUnchangedFilterOrParametersQueryDatabase() {
+		filter.load(7, query);
+		filter.load(7, query);
+		Assert.assertEquals(2, query.executions);
+
+		filter.setTypeName("tri");
+		filter.load(14, query);
+		Assert.assertEquals(3, query.executions);
+	}
+
+	@Test
+	public void testWildcardsMatchTheSameRowsInDatabaseAndMemory() throws SQLException {
+		Connection connection = DriverManager.getConnection("jdbc:h2:mem:typenamefilter");
+		try {
+			Statement statement = connection.createStatement();
+			statement.execute("CREATE TABLE types (id INT, typeName VARCHAR(255))");
+			statement.execute("INSERT INTO types VALUES (0, 'A_B'), (1, 'AxB'), (2, '50% Boost'), "
+					+ "(3, '500 Boost'), (4, 'Back\\slash')");
+			statement.close();
+
+			for (String name : new String[] { "_", "a_b", "50%", "%", "\\", "k\\s" }) {
+				TypeNameFilter database = new TypeNameFilter(1);
+				database.setTypeName(name);
+				List<Object[]> expected = database.load(null, new DatabaseQuery(connection));
+
+				TypeNameFilter memory = new TypeNameFilter(1);
+				memory.load(null, new DatabaseQuery(connection));
+				memory.setTypeName(name);
+				List<Object[]> actual = memory.load(null, null);
+
+				Assert.assertEquals(name, toIds(expected), toIds(actual));
+			}
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+	private List<Object> toIds(List<Object[]> rows) {
+		List<Object> ids = new ArrayList<Object>();
+		for (Object[] row : rows) {
+			ids.add(row[0]);
+		}
+		return ids;
+	}
+
+	private static class DatabaseQuery implements TypeNameFilter.Query {
+
+		private final Connection connection;
+
+		private DatabaseQuery(Connection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public List<Object[]> execute(String typeNamePattern) {
+			try {
+				PreparedStatement statement = connection.prepareStatement(
+						"SELECT id, typeName FROM types WHERE LCASE(typeName) LIKE ? ESCAPE '\\' ORDER BY id");
+				try {
+					statement.setString(1, typeNamePattern);
+					ResultSet resultSet = statement.executeQuery();
+					List<Object[]> rows = new ArrayList<Object[]>();
+					while (resultSet.next()) {
+						rows.add(new Object[] { resultSet.getInt(1), resultSet.getString(2) });
+					}
+					return rows;
+				}
+				finally {
+					statement.close();
+				}
+			}
+			catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	private static class CountingQuery implements TypeNameFilter.Query {
+
+		private int executions = 0;
+		private String pattern;
+
+		@Override
+		public List<Object[]> execute(String typeNamePattern) {
+			executions++;
+			pattern = typeNamePattern;
+
+			String name = typeNamePattern.replace("%", "");
+			List<Object[]> rows = new ArrayList<Object[]>();
+			for (String typeName : new String[] { "Tritanium", "Trinity", "Pyerite" }) {
+				if (typeName.toLowerCase().contains(name)) {
+					rows.add(new Object[] { rows.size(), typeName });
+				}
+			}
+			return rows;
+		}
+	}
+
+}
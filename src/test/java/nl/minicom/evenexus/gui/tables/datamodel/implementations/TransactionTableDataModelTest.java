@@ -0,0 +1,121 @@
+package nl.minicom.evenexus.gui.tables.datamodel.implementations;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import nl.minicom.evenexus.TestModule;
+import nl.minicom.evenexus.gui.tables.datamodel.IPeriodFilter;
+import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.H2ConnectionProvider;
+import nl.minicom.evenexus.persistence.versioning.RevisionExecutor;
+import nl.minicom.evenexus.persistence.versioning.StructureUpgrader;
+
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+public class TransactionTableDataModelTest {
+
+	private static final int POOL_SIZE = 2;
+	private static final int LOADS = POOL_SIZE * 3;
+	private static final long TIMEOUT = 10000;
+
+	private Database database;
+	private TransactionTableDataModel dataModel;
+
+	@Before
+	public void setup() {
+		System.setProperty(H2ConnectionProvider.POOL_SIZE_PROPERTY, Integer.toString(POOL_SIZE));
+		Injector injector = Guice.createInjector(new TestModule());
+		database = injector.getInstance(Database.class);
+		execute("DROP ALL OBJECTS");
+		injector.getInstance(RevisionExecutor.class).execute(new StructureUpgrader());
+
+		execute(new StringBuilder()
+		.append("INSERT INTO transactions (transactionId, characterId, transactionDateTime, quantity, remaining, ")
+		.append("	typeName, typeId, price, taxes, clientId, clientName, stationId, stationName, isPersonal) ")
+		.append("SELECT X, 1, DATEADD('MINUTE', X, TIMESTAMP '2010-01-01 00:00:00'), 10, 10, ")
+		.append("	'Tritanium', 34, 100, 0, 1, 'Client', 1, 'Station', 1 ")
+		.append("FROM SYSTEM_RANGE(1, 10)")
+		.toString());
+
+		dataModel = injector.getInstance(HeadlessTransactionTableDataModel.class);
+		dataModel.setTypeName(null);
+		dataModel.setPeriod(IPeriodFilter.ALL);
+	}
+
+	@After
+	public void tearDown() {
+		execute("DROP ALL OBJECTS");
+		System.clearProperty(H2ConnectionProvider.POOL_SIZE_PROPERTY);
+	}
+
+	private void execute(String sql) {
+		Session session = database.getCurrentSession();
+		session.createSQLQuery(sql).executeUpdate();
+		database.closeCurrentSession();
+	}
+
+	@Test
+	public void testLoadsOnShortLivedThreadsReleaseTheirConnections() throws InterruptedException {
+		for (int i = 0; i < LOADS; i++) {
+			LoadingThread thread = new LoadingThread(dataModel);
+			thread.start();
+			thread.join(TIMEOUT);
+
+			Assert.assertFalse("Load " + i + " is waiting for a connection", thread.isAlive());
+			Assert.assertNull("Load " + i + " failed", thread.failure);
+			Assert.assertEquals(10, thread.count);
+			Assert.assertEquals(5, thread.page.size());
+		}
+	}
+
+	/**
+	 * Loads the row count and the first page of the transactions table, and then ends,
+	 * like a loader thread which has been idle for too long.
+	 */
+	private static class LoadingThread extends Thread {
+
+		private final TransactionTableDataModel dataModel;
+		private volatile int count;
+		private volatile List<Object[]> page;
+		private volatile Throwable failure;
+
+		private LoadingThread(TransactionTableDataModel dataModel) {
+			this.dataModel = dataModel;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				count = dataModel.count();
+				page = dataModel.loadPage(null, 0, 5);
+			}
+			catch (Throwable e) {
+				failure = e;
+			}
+		}
+
+	}
+
+	/**
+	 * A {@link TransactionTableDataModel} without a {@link nl.minicom.evenexus.gui.utils.dialogs.BugReportDialog}
+	 * and a {@link nl.minicom.evenexus.utils.SettingsManager}, as neither can be created without a display.
+	 */
+	public static class HeadlessTransactionTableDataModel extends TransactionTableDataModel {
+
+		@Inject
+		public HeadlessTransactionTableDataModel(Database database) {
+			super(null, database, null);
+		}
+
+	}
+
+}
@@ -1,10 +1,13 @@
 package nl.minicom.evenexus.inventory;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 import javax.inject.Inject;
 
+import nl.minicom.evenexus.persistence.DailyTotals;
 import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.dao.MatchWatermark;
 import nl.minicom.evenexus.persistence.dao.Profit;
 import nl.minicom.evenexus.persistence.dao.TransactionMatch;
 import nl.minicom.evenexus.persistence.dao.WalletTransaction;
@@ -31,6 +34,7 @@ public class InventoryTestCasePreparer {
 			session.flush();
 			session.evict(walletTransaction);
 		}
+		MatchWatermarks.lower(session, testCase.getInitialTransactions());
 		
 		for (TransactionMatch match : testCase.getInitialMatches()) {
 			session.save(match);
@@ -99,6 +103,42 @@ public class InventoryTestCasePreparer {
 		}
 	}
 	
+	@Transactional
+	@SuppressWarnings("unchecked")
+	public List<WalletTransaction> listTransactions() {
+		Session session = database.getCurrentSession();
+		return session.createCriteria(WalletTransaction.class)
+			.addOrder(Order.asc("transactionId"))
+			.list();
+	}
+	
+	@Transactional
+	@SuppressWarnings("unchecked")
+	public List<TransactionMatch> listMatches() {
+		Session session = database.getCurrentSession();
+		return session.createCriteria(TransactionMatch.class)
+			.addOrder(Order.asc("key.buyTransactionId"))
+			.addOrder(Order.asc("key.sellTransactionId"))
+			.list();
+	}
+	
+	@Transactional
+	public MatchWatermark getWatermark(long typeId) {
+		Session session = database.getCurrentSession();
+		return (MatchWatermark) session.get(MatchWatermark.class, typeId);
+	}
+	
+	@Transactional
+	public void refreshDailyTotals(long characterId, Timestamp from, Timestamp to) {
+		DailyTotals.refreshTransactions(database.getCurrentSession(), characterId, from, to);
+	}
+	
+	@Transactional
+	public void resetDailyProfits() {
+		Session session = database.getCurrentSession();
+		session.createSQLQuery("UPDATE dailytotals SET profit = 0").executeUpdate();
+	}
+	
 	@Transactional
 	public void dropDatabase() {
 		Session session = database.getCurrentSession();
@@ -4,14 +4,26 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import javax.inject.Provider;
 
 import nl.minicom.evenexus.TestModule;
+import nl.minicom.evenexus.persistence.DailyTotals;
+import nl.minicom.evenexus.persistence.dao.MatchWatermark;
+import nl.minicom.evenexus.persistence.dao.TransactionMatch;
+import nl.minicom.evenexus.persistence.dao.WalletTransaction;
 import nl.minicom.evenexus.persistence.versioning.RevisionExecutor;
 import nl.minicom.evenexus.persistence.versioning.StructureUpgrader;
 
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -24,6 +36,8 @@ public class InventoryWorkerTest {
 	
 	private Provider<InventoryWorker> workerProvider;
 	private InventoryTestCasePreparer preparer;
+	private ProfitTable profitTable;
+	private DailyTotals dailyTotals;
 	
 	@Before
 	public void setup() {
@@ -31,6 +45,8 @@ public class InventoryWorkerTest {
 		RevisionExecutor executor = injector.getInstance(RevisionExecutor.class);
 		workerProvider = injector.getProvider(InventoryWorker.class);
 		preparer = injector.getInstance(InventoryTestCasePreparer.class);
+		profitTable = injector.getInstance(ProfitTable.class);
+		dailyTotals = injector.getInstance(DailyTotals.class);
 
 		preparer.dropDatabase();
 		executor.execute(new StructureUpgrader());
@@ -56,7 +72,188 @@ public class InventoryWorkerTest {
 		testProfitMatching("/inventory/test-case-03.json");
 	}
 	
-	private void testProfitMatching(String fileName) throws IOException {
+	@Test
+	public void testMatchWatermark() {
+		InventoryTestCase testCase = new InventoryTestCase();
+		testCase.getInitialTransactions().add(createTransaction(1, Timestamp.valueOf("2011-05-02 10:00:00"), -100));
+		testCase.getInitialTransactions().add(createTransaction(2, Timestamp.valueOf("2011-05-02 11:00:00"), 150));
+		testCase.getInitialTransactions().add(createTransaction(3, Timestamp.valueOf("2011-05-02 12:00:00"), -100));
+		preparer.prepare(testCase);
+		
+		// The watermark is placed on the last transaction before the open buy transaction.
+		InventoryWorker worker = workerProvider.get();
+		worker.initialize(1L);
+		worker.call();
+		assertWatermark(2L, "2011-05-02 11:00:00");
+		
+		// Once the open buy transaction has been sold, the watermark is raised to the last transaction.
+		InventoryTestCase sale = new InventoryTestCase();
+		sale.getInitialTransactions().add(createTransaction(4, Timestamp.valueOf("2011-05-02 13:00:00"), 150));
+		preparer.prepare(sale);
+		assertWatermark(2L, "2011-05-02 11:00:00");
+		
+		worker = workerProvider.get();
+		worker.initialize(1L);
+		worker.call();
+		assertWatermark(4L, "2011-05-02 13:00:00");
+		
+		// Reverting a match lowers the watermark to the transaction before the oldest side of the match.
+		List<TransactionMatch> matches = preparer.listMatches();
+		Assert.assertEquals(2, matches.size());
+		Assert.assertEquals(3L, matches.get(1).getBuyTransactionId());
+		worker.revertMatch(matches.get(1));
+		assertWatermark(2L, "2011-05-02 11:00:00");
+		
+		// The watermark is removed when no transaction precedes the oldest side of the match.
+		Assert.assertEquals(1L, matches.get(0).getBuyTransactionId());
+		worker.revertMatch(matches.get(0));
+		Assert.assertNull(preparer.getWatermark(1L));
+	}
+	
+	@Test
+	public void testConsistencyCheckSkipsTransactionsBeforeWatermark() {
+		InventoryTestCase testCase = new InventoryTestCase();
+		testCase.getInitialTransactions().add(createTransaction(1, Timestamp.valueOf("2011-05-02 10:00:00"), -100));
+		testCase.getInitialTransactions().add(createTransaction(2, Timestamp.valueOf("2011-05-02 11:00:00"), 150));
+		testCase.getInitialTransactions().add(createTransaction(3, Timestamp.valueOf("2011-05-02 12:00:00"), -100));
+		preparer.prepare(testCase);
+		
+		InventoryWorker worker = workerProvider.get();
+		worker.initialize(1L);
+		worker.call();
+		assertWatermark(2L, "2011-05-02 11:00:00");
+		Assert.assertEquals(Arrays.asList(3L), listCheckedTransactionIds(worker));
+		
+		// Importing an older transaction lowers the watermark to the transaction preceding it.
+		InventoryTestCase olderTransaction = new InventoryTestCase();
+		olderTransaction.getInitialTransactions().add(
+				createTransaction(5, Timestamp.valueOf("2011-05-02 10:30:00"), -100));
+		preparer.prepare(olderTransaction);
+		assertWatermark(1L, "2011-05-02 10:00:00");
+		Assert.assertEquals(Arrays.asList(5L, 2L, 3L), listCheckedTransactionIds(worker));
+	}
+	
+	@Test
+	public void testInvalidMatchesAreListedPerType() {
+		InventoryTestCase testCase = new InventoryTestCase();
+		testCase.getInitialTransactions().add(createTransaction(1, 1, Timestamp.valueOf("2011-05-02 10:00:00"), -100));
+		testCase.getInitialTransactions().add(createTransaction(2, 1, Timestamp.valueOf("2011-05-02 11:00:00"), 150));
+		testCase.getInitialTransactions().add(createTransaction(3, 2, Timestamp.valueOf("2011-05-02 10:00:00"), -100));
+		testCase.getInitialTransactions().add(createTransaction(4, 2, Timestamp.valueOf("2011-05-02 11:00:00"), 150));
+		preparer.prepare(testCase);
+		
+		for (long typeId = 1; typeId <= 2; typeId++) {
+			InventoryWorker worker = workerProvider.get();
+			worker.initialize(typeId);
+			worker.call();
+		}
+		Assert.assertEquals(2, preparer.listMatches().size());
+		
+		InventoryWorker worker = workerProvider.get();
+		worker.initialize(1L);
+		List<TransactionMatch> invalidMatches = worker.listInvalidMatches(Timestamp.valueOf("2011-05-02 09:00:00"));
+		Assert.assertEquals(1, invalidMatches.size());
+		Assert.assertEquals(2L, invalidMatches.get(0).getSellTransactionId());
+	}
+	
+	private void assertWatermark(long transactionId, String transactionDateTime) {
+		MatchWatermark watermark = preparer.getWatermark(1L);
+		Assert.assertNotNull(watermark);
+		Assert.assertEquals(transactionId, watermark.getTransactionId());
+		Assert.assertEquals(Timestamp.valueOf(transactionDateTime), watermark.getTransactionDateTime());
+	}
+	
+	private List<Long> listCheckedTransactionIds(InventoryWorker worker) {
+		List<Long> transactionIds = new ArrayList<Long>();
+		for (WalletTransaction transaction : worker.listTransactionsInAscendingOrder(worker.getValidWatermark())) {
+			transactionIds.add(transaction.getTransactionId());
+		}
+		return transactionIds;
+	}
+	
+	@Test
+	public void testProfitTableRebuild() throws IOException {
+		InventoryTestCase testCase = testProfitMatching("/inventory/test-case-02.json");
+		
+		profitTable.rebuild();
+		preparer.checkTestCaseResults(testCase);
+	}
+	
+	@Test
+	public void testProfitTableRebuildRebuildsDailyProfits() {
+		Timestamp buyTime = Timestamp.valueOf("2012-01-01 10:00:00");
+		Timestamp sellTime = Timestamp.valueOf("2012-01-01 12:00:00");
+		Timestamp now = Timestamp.valueOf("2012-01-02 00:30:00");
+		
+		InventoryTestCase testCase = new InventoryTestCase();
+		testCase.getInitialTransactions().add(createTransaction(1, buyTime, -100));
+		testCase.getInitialTransactions().add(createTransaction(2, sellTime, 150));
+		preparer.prepare(testCase);
+		preparer.refreshDailyTotals(0, buyTime, sellTime);
+		
+		InventoryWorker worker = workerProvider.get();
+		worker.initialize(1L);
+		worker.call();
+		
+		preparer.resetDailyProfits();
+		Assert.assertEquals(0.0, dailyTotals.listDailyTotals(DailyTotals.PROFIT, 28, now).get(1), 0.001);
+		
+		profitTable.rebuild();
+		Assert.assertEquals(480.0, dailyTotals.listDailyTotals(DailyTotals.PROFIT, 28, now).get(1), 0.001);
+	}
+	
+	@Test
+	public void testDailyTotalsAcrossYearBoundary() {
+		Timestamp buyTime = Timestamp.valueOf("2011-12-31 12:00:00");
+		Timestamp sellTime = Timestamp.valueOf("2012-01-01 12:00:00");
+		Timestamp now = Timestamp.valueOf("2012-01-02 00:30:00");
+		
+		InventoryTestCase testCase = new InventoryTestCase();
+		testCase.getInitialTransactions().add(createTransaction(1, buyTime, -100));
+		testCase.getInitialTransactions().add(createTransaction(2, sellTime, 150));
+		preparer.prepare(testCase);
+		preparer.refreshDailyTotals(0, buyTime, sellTime);
+		
+		InventoryWorker worker = workerProvider.get();
+		worker.initialize(1L);
+		worker.call();
+		
+		Map<Integer, Double> purchases = dailyTotals.listDailyTotals(DailyTotals.PURCHASES, 28, now);
+		Assert.assertEquals(-1010.0, purchases.get(2), 0.001);
+		Assert.assertEquals(0.0, purchases.get(1), 0.001);
+		
+		Map<Integer, Double> sales = dailyTotals.listDailyTotals(DailyTotals.SALES, 28, now);
+		Assert.assertEquals(1490.0, sales.get(1), 0.001);
+		Assert.assertEquals(0.0, sales.get(2), 0.001);
+		
+		Map<Integer, Double> profits = dailyTotals.listDailyTotals(DailyTotals.PROFIT, 28, now);
+		Assert.assertEquals(480.0, profits.get(1), 0.001);
+		
+		// Days outside of the period are not returned.
+		Assert.assertEquals(Collections.singletonMap(1, 1490.0), 
+				dailyTotals.listDailyTotals(DailyTotals.SALES, 2, now));
+	}
+	
+	private WalletTransaction createTransaction(long id, Timestamp time, double price) {
+		return createTransaction(id, 1, time, price);
+	}
+	
+	private WalletTransaction createTransaction(long id, long typeId, Timestamp time, double price) {
+		WalletTransaction transaction = new WalletTransaction();
+		transaction.setTransactionId(id);
+		transaction.setTransactionDateTime(time);
+		transaction.setQuantity(10);
+		transaction.setRemaining(10);
+		transaction.setTypeName("");
+		transaction.setTypeId(typeId);
+		transaction.setPrice(BigDecimal.valueOf(price));
+		transaction.setTaxes(BigDecimal.valueOf(-1));
+		transaction.setClientName("");
+		transaction.setStationName("");
+		return transaction;
+	}
+	
+	private InventoryTestCase testProfitMatching(String fileName) throws IOException {
 		// Read test case from file.
 		InventoryTestCase testCase = parseTestCase(fileName);
 		
@@ -70,6 +267,7 @@ public class InventoryWorkerTest {
 		
 		// Check results.
 		preparer.checkTestCaseResults(testCase);
+		return testCase;
 	}
 	
 	private InventoryTestCase parseTestCase(String fileName) throws IOException {
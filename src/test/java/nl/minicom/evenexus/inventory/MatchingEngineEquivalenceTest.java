@@ -0,0 +1,149 @@
+package nl.minicom.evenexus.inventory;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Random;
+
+import javax.inject.Provider;
+
+import nl.minicom.evenexus.TestModule;
+import nl.minicom.evenexus.persistence.dao.TransactionMatch;
+import nl.minicom.evenexus.persistence.dao.WalletTransaction;
+import nl.minicom.evenexus.persistence.versioning.RevisionExecutor;
+import nl.minicom.evenexus.persistence.versioning.StructureUpgrader;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * This test verifies that the in-memory {@link MatchingEngine} produces exactly the same
+ * remaining quantities and {@link TransactionMatch}es as the original per-row matching of
+ * the {@link PerRowInventoryWorker}.
+ */
+public class MatchingEngineEquivalenceTest {
+
+	private static final long START = 1304370420000L;
+
+	private Provider<InventoryWorker> workerProvider;
+	private Provider<PerRowInventoryWorker> perRowWorkerProvider;
+	private InventoryTestCasePreparer preparer;
+	private RevisionExecutor executor;
+
+	@Before
+	public void setup() {
+		Injector injector = Guice.createInjector(new TestModule());
+		executor = injector.getInstance(RevisionExecutor.class);
+		workerProvider = injector.getProvider(InventoryWorker.class);
+		perRowWorkerProvider = injector.getProvider(PerRowInventoryWorker.class);
+		preparer = injector.getInstance(InventoryTestCasePreparer.class);
+
+		resetDatabase();
+	}
+
+	@After
+	public void tearDown() {
+		preparer.dropDatabase();
+	}
+
+	@Test
+	public void testSmallRandomTypes() {
+		for (long seed = 1; seed <= 10; seed++) {
+			testEquivalence(seed, 25);
+		}
+	}
+
+	@Test
+	public void testLargeRandomType() {
+		testEquivalence(42, 2000);
+	}
+
+	@Test
+	public void testSellsBeforeFirstBuy() {
+		InventoryTestCase testCase = new InventoryTestCase();
+		List<WalletTransaction> transactions = testCase.getInitialTransactions();
+		transactions.add(createTransaction(1, START, 10, 100.0));
+		transactions.add(createTransaction(2, START + 120000, 5, -80.0));
+		transactions.add(createTransaction(3, START + 180000, 10, 110.0));
+		transactions.add(createTransaction(4, START + 185000, 3, -90.0));
+
+		assertEquivalent(testCase);
+	}
+
+	private void testEquivalence(long seed, int size) {
+		assertEquivalent(createRandomTestCase(seed, size));
+		resetDatabase();
+	}
+
+	private void assertEquivalent(InventoryTestCase testCase) {
+		preparer.prepare(testCase);
+		InventoryWorker perRowWorker = perRowWorkerProvider.get();
+		perRowWorker.initialize(1L);
+		perRowWorker.call();
+
+		List<WalletTransaction> expectedTransactions = preparer.listTransactions();
+		List<TransactionMatch> expectedMatches = preparer.listMatches();
+
+		resetDatabase();
+
+		preparer.prepare(testCase);
+		InventoryWorker worker = workerProvider.get();
+		worker.initialize(1L);
+		worker.call();
+
+		List<WalletTransaction> transactions = preparer.listTransactions();
+		List<TransactionMatch> matches = preparer.listMatches();
+
+		Assert.assertEquals(expectedTransactions, transactions);
+		Assert.assertEquals(expectedMatches.size(), matches.size());
+		for (int i = 0; i < expectedMatches.size(); i++) {
+			Assert.assertEquals(expectedMatches.get(i), matches.get(i));
+			Assert.assertEquals(expectedMatches.get(i).getQuantity(), matches.get(i).getQuantity());
+		}
+	}
+
+	private InventoryTestCase createRandomTestCase(long seed, int size) {
+		Random random = new Random(seed);
+		InventoryTestCase testCase = new InventoryTestCase();
+
+		long time = START;
+		for (int i = 1; i <= size; i++) {
+			// Some transactions share the same minute, to exercise the minute precision comparison.
+			time += random.nextInt(4) * 20000L;
+			long quantity = 1 + random.nextInt(1000);
+			double price = 50.0 + random.nextInt(100);
+			if (random.nextBoolean()) {
+				price = -price;
+			}
+			testCase.getInitialTransactions().add(createTransaction(i, time, quantity, price));
+		}
+
+		return testCase;
+	}
+
+	private WalletTransaction createTransaction(long id, long time, long quantity, double price) {
+		WalletTransaction transaction = new WalletTransaction();
+		transaction.setTransactionId(id);
+		transaction.setTransactionDateTime(new Timestamp(time));
+		transaction.setQuantity(quantity);
+		transaction.setRemaining(quantity);
+		transaction.setTypeName("");
+		transaction.setTypeId(1);
+		transaction.setPrice(BigDecimal.valueOf(price));
+		transaction.setTaxes(BigDecimal.valueOf(1.5));
+		transaction.setClientName("");
+		transaction.setStationName("");
+		return transaction;
+	}
+
+	private void resetDatabase() {
+		preparer.dropDatabase();
+		executor.execute(new StructureUpgrader());
+	}
+
+}
@@ -0,0 +1,149 @@
+package nl.minicom.evenexus.inventory;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import javax.inject.Inject;
+
+import nl.minicom.evenexus.persistence.Database;
+import nl.minicom.evenexus.persistence.dao.TransactionMatch;
+import nl.minicom.evenexus.persistence.dao.TransactionMatchIdentifier;
+import nl.minicom.evenexus.persistence.dao.WalletTransaction;
+import nl.minicom.evenexus.persistence.interceptor.Transactional;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.jdbc.Work;
+import org.junit.Ignore;
+
+/**
+ * This {@link InventoryWorker} matches the remaining transactions one pair at a time, using a separate
+ * database transaction for every matched pair. It is the original matching implementation, and is
+ * the reference the {@link MatchingEngine} is verified against.
+ */
+@Ignore
+public class PerRowInventoryWorker extends InventoryWorker {
+
+	private final Database database;
+	
+	private long typeId = -1;
+	
+	@Inject
+	public PerRowInventoryWorker(Database database) {
+		super(database);
+		this.database = database;
+	}
+	
+	@Override
+	public void initialize(long typeId) {
+		super.initialize(typeId);
+		this.typeId = typeId;
+	}
+	
+	@Override
+	public String call() {
+		if (typeId < 0) {
+			throw new IllegalStateException("InventoryWorker not yet initialized!");
+		}
+		
+		revertMostRecentTransactionsIfRequired();
+		
+		final Queue<WalletTransaction> buyTransactions = queryRemainingTransactions(true);
+		final Queue<WalletTransaction> sellTransactions = queryRemainingTransactions(false);
+		
+		while (!sellTransactions.isEmpty()) {
+			if (match(buyTransactions, sellTransactions)) {
+				break;
+			}
+		}
+		
+		updateWatermark();
+		updateDailyTotals();
+		return getName();
+	}
+	
+	@Transactional
+	boolean match(Queue<WalletTransaction> buys, Queue<WalletTransaction> sales) {
+		WalletTransaction buyTransaction = buys.peek();
+		WalletTransaction sellTransaction = sales.peek();
+		
+		if (sellTransaction == null || buyTransaction == null) {
+			return true;
+		}
+		
+		if (buyTransaction.beforeOrEquals(sellTransaction)) {
+			long buyRemaining = buyTransaction.getRemaining();
+			long sellRemaining = sellTransaction.getRemaining();
+			long quantity = Math.min(buyRemaining, sellRemaining);
+			
+			buyTransaction.setRemaining(buyRemaining - quantity);
+			sellTransaction.setRemaining(sellRemaining - quantity);
+			persistTransactionMatch(buyTransaction, sellTransaction, quantity);
+		}
+		else {
+			sellTransaction.setRemaining(0);
+		}
+
+		Session session = database.getCurrentSession();
+		session.update(buyTransaction);
+		session.update(sellTransaction);
+
+		if (buyTransaction.getRemaining() == 0) {
+			buys.remove();
+		}
+		
+		if (sellTransaction.getRemaining() == 0) {
+			sales.remove();
+		}
+		
+		return false;
+	}
+
+	@Transactional
+	void persistTransactionMatch(final WalletTransaction buy, final WalletTransaction sell, long amount) {
+		TransactionMatch match = new TransactionMatch();
+		match.setKey(new TransactionMatchIdentifier(buy.getTransactionId(), sell.getTransactionId()));
+		match.setQuantity(amount);
+
+		Session session = database.getCurrentSession();
+		session.saveOrUpdate(match);
+		session.flush();
+		session.doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				PreparedStatement statement = ProfitTable.prepareMerge(connection);
+				try {
+					statement.setLong(1, buy.getTransactionId());
+					statement.setLong(2, sell.getTransactionId());
+					statement.executeUpdate();
+				}
+				finally {
+					statement.close();
+				}
+			}
+		});
+		markProfitsChanged(sell.getTransactionDateTime());
+	}
+
+	@Transactional
+	@SuppressWarnings("unchecked")
+	Queue<WalletTransaction> queryRemainingTransactions(boolean buy) {
+		Session session = database.getCurrentSession();
+		return new LinkedList<WalletTransaction>(
+				session.createCriteria(WalletTransaction.class)
+				.add(Restrictions.eq(WalletTransaction.TYPE_ID, typeId))
+				.add(Restrictions.gt(WalletTransaction.REMAINING, 0L))
+				.add(buy ? Restrictions.lt(WalletTransaction.PRICE, BigDecimal.ZERO) 
+						: Restrictions.gt(WalletTransaction.PRICE, BigDecimal.ZERO))
+				.addOrder(Order.asc(WalletTransaction.TRANSACTION_DATE_TIME))
+				.addOrder(Order.asc(WalletTransaction.TRANSACTION_ID))
+				.list()
+		);
+	}
+	
+}
@@ -0,0 +1,67 @@
+package nl.minicom.evenexus.persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibernate.cfg.Environment;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class H2ConnectionProviderTest {
+
+	private H2ConnectionProvider provider;
+
+	@Before
+	public void setup() {
+		provider = new H2ConnectionProvider();
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty(H2ConnectionProvider.POOL_SIZE_PROPERTY);
+		provider.stop();
+	}
+
+	@Test
+	public void testConnectionsAreCounted() throws SQLException {
+		provider.configure(createConfiguration("2"));
+
+		Connection first = provider.getConnection();
+		Connection second = provider.getConnection();
+		Assert.assertTrue(provider.getStatistics().startsWith("2 connections"));
+		Assert.assertTrue(provider.getStatistics().endsWith("2 active"));
+
+		provider.closeConnection(first);
+		provider.closeConnection(second);
+		Assert.assertTrue(provider.getStatistics().endsWith("0 active"));
+	}
+
+	@Test
+	public void testPoolSizeCanBeOverridden() throws SQLException {
+		System.setProperty(H2ConnectionProvider.POOL_SIZE_PROPERTY, "3");
+		provider.configure(createConfiguration("1"));
+
+		Connection[] connections = new Connection[3];
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = provider.getConnection();
+		}
+		Assert.assertTrue(provider.getStatistics().endsWith("3 active"));
+
+		for (Connection connection : connections) {
+			provider.closeConnection(connection);
+		}
+	}
+
+	private Map<String, String> createConfiguration(String poolSize) {
+		Map<String, String> configuration = new HashMap<String, String>();
+		configuration.put(Environment.URL, "jdbc:h2:mem:pool;MVCC=TRUE");
+		configuration.put(Environment.POOL_SIZE, poolSize);
+		configuration.put(Environment.AUTOCOMMIT, "true");
+		return configuration;
+	}
+
+}
@@ -0,0 +1,144 @@
+package nl.minicom.evenexus.persistence.interceptor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import nl.minicom.evenexus.TestModule;
+import nl.minicom.evenexus.persistence.Database;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+public class TransactionalInterceptorTest {
+
+	private Database database;
+	private Worker worker;
+	
+	@Before
+	public void setup() {
+		Injector injector = Guice.createInjector(new TestModule());
+		database = injector.getInstance(Database.class);
+		worker = injector.getInstance(Worker.class);
+	}
+	
+	@Test
+	public void testCallsAreRecordedPerMethod() {
+		for (int i = 0; i < 3; i++) {
+			worker.outer();
+		}
+		
+		MethodMetrics outer = getMetrics("Worker.outer()");
+		Assert.assertEquals(3, outer.getCalls());
+		Assert.assertEquals(0, outer.getJoinedCalls());
+		Assert.assertEquals(0, outer.getFailedCalls());
+		Assert.assertEquals(6, outer.getStatements());
+		
+		MethodMetrics inner = getMetrics("Worker.inner(int)");
+		Assert.assertEquals(3, inner.getCalls());
+		Assert.assertEquals(3, inner.getJoinedCalls());
+		Assert.assertEquals(3, inner.getStatements());
+		Assert.assertTrue(outer.getTotalTime() >= inner.getTotalTime());
+		
+		long histogramCalls = 0;
+		for (int i = 0; i <= MethodMetrics.BUCKETS.length; i++) {
+			histogramCalls += outer.getBucketCount(i);
+		}
+		Assert.assertEquals(3, histogramCalls);
+		
+		outer.reset();
+		Assert.assertEquals(0, outer.getCalls());
+		Assert.assertEquals(0, outer.getStatements());
+	}
+	
+	@Test
+	public void testFailedCallsAreRecorded() {
+		try {
+			worker.fail();
+			Assert.fail("Expected a HibernateException");
+		}
+		catch (HibernateException e) {
+			// Expected.
+		}
+		
+		MethodMetrics fail = getMetrics("Worker.fail()");
+		Assert.assertEquals(1, fail.getCalls());
+		Assert.assertEquals(1, fail.getFailedCalls());
+	}
+	
+	@Test
+	public void testSessionIsClosedAfterFailedCall() {
+		Session session = database.getCurrentSession();
+		try {
+			worker.fail();
+			Assert.fail("Expected a HibernateException");
+		}
+		catch (HibernateException e) {
+			// Expected.
+		}
+		
+		Assert.assertFalse(session.isOpen());
+	}
+	
+	@Test
+	public void testMethodsOfClassesWithTheSameSimpleNameAreRegisteredSeparately() throws Exception {
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		TransactionMetrics metrics = new TransactionMetrics();
+		metrics.publish(server, 1, TimeUnit.HOURS);
+		
+		metrics.getMetrics(java.util.Date.class.getMethod("toString"));
+		metrics.getMetrics(java.sql.Date.class.getMethod("toString"));
+		
+		ObjectName pattern = new ObjectName("nl.minicom.evenexus:type=Transactional,*");
+		Assert.assertEquals(2, server.queryNames(pattern, null).size());
+	}
+	
+	private MethodMetrics getMetrics(String name) {
+		List<MethodMetrics> allMetrics = database.getTransactionMetrics().getAllMetrics();
+		for (MethodMetrics metrics : allMetrics) {
+			if (metrics.getName().equals(name)) {
+				return metrics;
+			}
+		}
+		Assert.fail("No metrics recorded for " + name + " in " + allMetrics);
+		return null;
+	}
+	
+	public static class Worker {
+		
+		private final Database database;
+		
+		@Inject
+		public Worker(Database database) {
+			this.database = database;
+		}
+		
+		@Transactional
+		void outer() {
+			database.getCurrentSession().createSQLQuery("SELECT 1").list();
+			inner(1);
+		}
+		
+		@Transactional
+		void inner(int value) {
+			database.getCurrentSession().createSQLQuery("SELECT " + value).list();
+		}
+		
+		@Transactional
+		void fail() {
+			throw new HibernateException("Failure");
+		}
+		
+	}
+	
+}
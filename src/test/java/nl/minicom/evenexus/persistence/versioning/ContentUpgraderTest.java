@@ -0,0 +1,79 @@
+package nl.minicom.evenexus.persistence.versioning;
+
+import java.io.InputStreamReader;
+import java.sql.SQLException;
+import java.util.List;
+
+import nl.minicom.evenexus.TestModule;
+import nl.minicom.evenexus.persistence.dao.Version;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+public class ContentUpgraderTest {
+	
+	private RevisionExecutor executor;
+	private RevisionUtil util;
+	private Container content;
+	
+	@Before
+	public void setup() throws Exception {
+		Injector injector = Guice.createInjector(new TestModule());
+		executor = injector.getInstance(RevisionExecutor.class);
+		util = injector.getInstance(RevisionUtil.class);
+		util.dropDatabase();
+		executor.execute(new StructureUpgrader());
+		
+		InputStreamReader reader = new InputStreamReader(getClass().getResourceAsStream("/content.json"), "UTF-8");
+		try {
+			content = new Gson().fromJson(reader, Container.class);
+		}
+		finally {
+			reader.close();
+		}
+	}
+	
+	@After
+	public void tearDown() throws SQLException {
+		util.dropDatabase();
+	}
+	
+	@Test
+	public void testContentIsLoaded() throws Exception {
+		List<String> stationIndexes = util.listIndexNames("stastations");
+		List<String> itemIndexes = util.listIndexNames("invtypes");
+		
+		Version version = executor.execute(new ContentUpgrader());
+		
+		Assert.assertEquals(content.getVersion(), version.getRevision());
+		Assert.assertEquals(content.getStations().size(), util.countRows("stastations"));
+		Assert.assertEquals(content.getItems().size(), util.countRows("invtypes"));
+		Assert.assertEquals(stationIndexes, util.listIndexNames("stastations"));
+		Assert.assertEquals(itemIndexes, util.listIndexNames("invtypes"));
+	}
+	
+	@Test
+	public void testIndexesAreRecreatedWhenLoadFails() throws Exception {
+		List<String> stationIndexes = util.listIndexNames("stastations");
+		
+		try {
+			util.executeRevision(new JsonContentRevision("/invalid-content.json"));
+			Assert.fail("The invalid content should not have been loaded!");
+		}
+		catch (RuntimeException e) {
+			Assert.assertEquals(stationIndexes, util.listIndexNames("stastations"));
+		}
+		
+		Version version = executor.execute(new ContentUpgrader());
+		
+		Assert.assertEquals(content.getVersion(), version.getRevision());
+		Assert.assertEquals(stationIndexes, util.listIndexNames("stastations"));
+	}
+	
+}
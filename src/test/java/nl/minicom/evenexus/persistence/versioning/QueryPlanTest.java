@@ -0,0 +1,135 @@
+package nl.minicom.evenexus.persistence.versioning;
+
+import java.sql.Timestamp;
+
+import nl.minicom.evenexus.TestModule;
+import nl.minicom.evenexus.gui.tables.datamodel.implementations.BuyOrdersTableDataModel;
+import nl.minicom.evenexus.gui.tables.datamodel.implementations.JournalTableDataModel;
+import nl.minicom.evenexus.gui.tables.datamodel.implementations.SellOrdersTableDataModel;
+import nl.minicom.evenexus.gui.tables.datamodel.implementations.TransactionTableDataModel;
+import nl.minicom.evenexus.inventory.InventoryManager;
+import nl.minicom.evenexus.inventory.InventoryWorker;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * This test seeds a large database and verifies with EXPLAIN that the queries on the hot paths of the
+ * inventory, the wallet tables and the market orders use an index. The queries are built by the same
+ * code (or taken from the same constants) as in production.
+ */
+public class QueryPlanTest {
+
+	private static final int TRANSACTIONS = 30000;
+	private static final int JOURNAL = 30000;
+	private static final int ORDERS = 10000;
+	private static final int TYPES = 500;
+
+	private static final Timestamp AFTER = Timestamp.valueOf("2010-01-21 00:00:00");
+
+	private static RevisionUtil util;
+
+	@BeforeClass
+	public static void setup() throws Exception {
+		Injector injector = Guice.createInjector(new TestModule());
+		util = injector.getInstance(RevisionUtil.class);
+		util.dropDatabase();
+		injector.getInstance(RevisionExecutor.class).execute(new StructureUpgrader());
+
+		util.executeUpdate(new StringBuilder()
+		.append("INSERT INTO transactions (transactionId, characterId, transactionDateTime, quantity, remaining, ")
+		.append("	typeName, typeId, price, taxes, clientId, clientName, stationId, stationName, isPersonal) ")
+		.append("SELECT X, 1, DATEADD('MINUTE', X, TIMESTAMP '2010-01-01 00:00:00'), 10, ")
+		.append("	CASEWHEN(MOD(X, 20) = 0, 10, 0), 'Type ' || MOD(X, " + TYPES + "), MOD(X, " + TYPES + "), ")
+		.append("	CASEWHEN(MOD(X, 2) = 0, 100, -90), 0, 1, 'Client', 1, 'Station', 1 ")
+		.append("FROM SYSTEM_RANGE(1, " + TRANSACTIONS + ")")
+		.toString());
+
+		util.executeUpdate(new StringBuilder()
+		.append("INSERT INTO transactionMatches (buyTransactionId, sellTransactionId, quantity) ")
+		.append("SELECT X * 2 - 1, X * 2, 10 FROM SYSTEM_RANGE(1, " + (TRANSACTIONS / 2) + ")")
+		.toString());
+
+		util.executeUpdate(new StringBuilder()
+		.append("INSERT INTO reftypes (refTypeID, description) ")
+		.append("SELECT X, 'Ref ' || X FROM SYSTEM_RANGE(1, 100)")
+		.toString());
+		util.executeUpdate(new StringBuilder()
+		.append("INSERT INTO journal (refID, journalTypeID, date, ownerName1, ownerID1, ownerName2, ownerID2, ")
+		.append("	argName1, argID1, amount, balance, reason) ")
+		.append("SELECT X, MOD(X, 100) + 1, DATEADD('MINUTE', X, TIMESTAMP '2010-01-01 00:00:00'), ")
+		.append("	'Owner', 1, 'Owner', 2, 'Arg', 0, 100, 1000, '' ")
+		.append("FROM SYSTEM_RANGE(1, " + JOURNAL + ")")
+		.toString());
+
+		util.executeUpdate(new StringBuilder()
+		.append("INSERT INTO marketorders (orderID, charID, stationID, volEntered, volRemaining, minVolume, ")
+		.append("	orderState, typeID, range, accountKey, duration, escrow, price, bid, issued) ")
+		.append("SELECT X, 1, 1, 10, 10, 1, CASEWHEN(MOD(X, 50) = 0, 0, 2), MOD(X, " + TYPES + "), 0, 1000, ")
+		.append("	90, 0, 100, MOD(X, 2), TIMESTAMP '2010-01-01 00:00:00' ")
+		.append("FROM SYSTEM_RANGE(1, " + ORDERS + ")")
+		.toString());
+
+		util.executeUpdate("ANALYZE");
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		util.dropDatabase();
+	}
+
+	@Test
+	public void testOpenTransactionsOfType() {
+		String index = "TRANSACTIONS_IX_TYPEID_TRANSACTIONDATETIME";
+		assertPlan(index, InventoryWorker.createRemainingTransactionsQuery(true), 42L);
+		assertPlan(index, InventoryWorker.createRemainingTransactionsQuery(false), 42L);
+	}
+
+	@Test
+	public void testUnprocessedTypes() {
+		String sql = util.translate(InventoryManager.UNPROCESSED_TYPES_QUERY);
+
+		assertPlan("TRANSACTIONS_IX_REMAINING_TYPEID", sql);
+	}
+
+	@Test
+	public void testInvalidMatches() {
+		String sql = util.translate(InventoryWorker.INVALID_MATCHES_QUERY);
+
+		assertPlan("TRANSACTIONMATCHES_IX_SELLTRANSACTIONID", sql, 42L, AFTER, AFTER);
+	}
+
+	@Test
+	public void testTransactionPage() {
+		String index = "TRANSACTIONS_IX_TRANSACTIONDATETIME_TRANSACTIONID";
+		assertPlan(index, TransactionTableDataModel.createQuery(true, false, false), "%", -7L);
+		assertPlan(index, TransactionTableDataModel.createQuery(false, true, true), 
+				"%", AFTER, AFTER, AFTER, Long.MAX_VALUE, 200, 0);
+	}
+
+	@Test
+	public void testJournalPage() {
+		String index = "JOURNAL_IX_JOURNALTYPEID_DATE";
+		assertPlan(index, JournalTableDataModel.createQuery(true, false, false), -7L);
+		assertPlan(index, JournalTableDataModel.createQuery(false, true, true), 
+				AFTER, AFTER, AFTER, Long.MAX_VALUE, 200, 0);
+	}
+
+	@Test
+	public void testActiveOrders() {
+		String index = "MARKETORDERS_IX_ORDERSTATE_BID";
+		assertPlan(index, SellOrdersTableDataModel.QUERY, "%");
+		assertPlan(index, BuyOrdersTableDataModel.QUERY, "%");
+	}
+
+	private void assertPlan(String index, String sql, Object... parameters) {
+		String plan = util.explain(sql, parameters);
+		Assert.assertTrue("Expected " + index + " in plan: " + plan, plan.toUpperCase().contains(index));
+	}
+
+}
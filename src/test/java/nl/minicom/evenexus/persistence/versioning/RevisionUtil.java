@@ -1,6 +1,8 @@
 package nl.minicom.evenexus.persistence.versioning;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -9,6 +11,9 @@ import nl.minicom.evenexus.persistence.interceptor.Transactional;
 
 import org.hibernate.SQLQuery;
 import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.internal.ast.ASTQueryTranslatorFactory;
+import org.hibernate.hql.spi.QueryTranslator;
 import org.junit.Ignore;
 
 @Ignore
@@ -43,4 +48,53 @@ public class RevisionUtil {
 		return query.list().toArray();
 	}
 	
+	@Transactional
+	protected int countRows(final String tableName) {
+		Session session = database.getCurrentSession();
+		String sql = "SELECT COUNT(*) FROM " + tableName;
+		return ((Number) session.createSQLQuery(sql).uniqueResult()).intValue();
+	}
+	
+	@Transactional
+	@SuppressWarnings("unchecked")
+	protected List<String> listIndexNames(final String tableName) {
+		Session session = database.getCurrentSession();
+		String sql = "SELECT DISTINCT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = ? ORDER BY 1";
+		SQLQuery query = session.createSQLQuery(sql);
+		query.setString(0, tableName.toUpperCase());
+		return query.list();
+	}
+	
+	@Transactional
+	protected void executeRevision(final IRevision revision) {
+		Session session = database.getCurrentSession();
+		revision.execute(session);
+	}
+	
+	@Transactional
+	protected int executeUpdate(final String sql) {
+		Session session = database.getCurrentSession();
+		return session.createSQLQuery(sql).executeUpdate();
+	}
+	
+	@Transactional
+	protected String explain(final String sql, final Object... parameters) {
+		Session session = database.getCurrentSession();
+		SQLQuery query = session.createSQLQuery("EXPLAIN " + sql);
+		for (int i = 0; i < parameters.length; i++) {
+			query.setParameter(i, parameters[i]);
+		}
+		return (String) query.uniqueResult();
+	}
+	
+	@Transactional
+	protected String translate(final String hql) {
+		Session session = database.getCurrentSession();
+		SessionFactoryImplementor factory = (SessionFactoryImplementor) session.getSessionFactory();
+		Map<String, Object> empty = Collections.emptyMap();
+		QueryTranslator translator = new ASTQueryTranslatorFactory().createQueryTranslator(hql, hql, empty, factory);
+		translator.compile(empty, false);
+		return translator.getSQLString();
+	}
+	
 }
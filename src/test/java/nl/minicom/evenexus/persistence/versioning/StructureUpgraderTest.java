@@ -17,6 +17,7 @@ import nl.minicom.evenexus.persistence.dao.Importer;
 import nl.minicom.evenexus.persistence.dao.Item;
 import nl.minicom.evenexus.persistence.dao.MapRegion;
 import nl.minicom.evenexus.persistence.dao.MarketOrder;
+import nl.minicom.evenexus.persistence.dao.MatchWatermark;
 import nl.minicom.evenexus.persistence.dao.Profit;
 import nl.minicom.evenexus.persistence.dao.Skill;
 import nl.minicom.evenexus.persistence.dao.Standing;
@@ -84,6 +85,7 @@ public class StructureUpgraderTest {
 		Assert.assertTrue(structureCheck(Item.class));
 		Assert.assertTrue(structureCheck(MapRegion.class));
 		Assert.assertTrue(structureCheck(MarketOrder.class));
+		Assert.assertTrue(structureCheck(MatchWatermark.class));
 		Assert.assertTrue(structureCheck(Profit.class));
 		Assert.assertTrue(structureCheck(Skill.class));
 		Assert.assertTrue(structureCheck(Standing.class));
@@ -0,0 +1,67 @@
+package nl.minicom.evenexus.utils;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SettingsManagerTest {
+
+	private File file;
+	private SettingsManager settingsManager;
+
+	@Before
+	public void setup() throws IOException {
+		file = File.createTempFile("EveNexus", ".properties");
+		file.delete();
+		settingsManager = new SettingsManager(null, file);
+		settingsManager.initialize();
+	}
+
+	@After
+	public void tearDown() {
+		settingsManager.close();
+		file.delete();
+		new File(file.getPath() + ".tmp").delete();
+	}
+
+	@Test
+	public void testChangesAreWrittenInBackground() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			settingsManager.saveObject(SettingsManager.APPLICATION_WIDTH, i);
+		}
+		Assert.assertFalse(file.exists());
+		Assert.assertEquals(99, settingsManager.loadInt(SettingsManager.APPLICATION_WIDTH, 0));
+
+		long deadline = System.currentTimeMillis() + 10 * SettingsManager.FLUSH_DELAY;
+		while (!file.exists() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		Assert.assertEquals(99, reload().loadInt(SettingsManager.APPLICATION_WIDTH, 0));
+		Assert.assertFalse(new File(file.getPath() + ".tmp").exists());
+	}
+
+	@Test
+	public void testCloseWritesPendingChanges() throws Exception {
+		settingsManager.saveObject(SettingsManager.PROXY_HOST, "localhost");
+		settingsManager.close();
+
+		SettingsManager reloaded = reload();
+		Assert.assertEquals("localhost", reloaded.loadString(SettingsManager.PROXY_HOST, ""));
+
+		// Replacing an existing file must also work.
+		reloaded.saveObject(SettingsManager.PROXY_HOST, "remotehost");
+		reloaded.close();
+		Assert.assertEquals("remotehost", reload().loadString(SettingsManager.PROXY_HOST, ""));
+	}
+
+	private SettingsManager reload() throws IOException {
+		SettingsManager reloaded = new SettingsManager(null, file);
+		reloaded.initialize();
+		return reloaded;
+	}
+
+}
@@ -0,0 +1,98 @@
+package nl.minicom.evenexus.utils;
+
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimeUtilsTest {
+
+	private static final TimeZone LONDON = TimeZone.getTimeZone("Europe/London");
+
+	@Test
+	public void testRandomTimesMatchCalendar() throws ParseException {
+		Random random = new Random(20121018L);
+		for (int i = 0; i < 100000; i++) {
+			String dateTime = format(1970 + random.nextInt(130), 1 + random.nextInt(12), 1 + random.nextInt(28),
+					random.nextInt(24), random.nextInt(60), random.nextInt(60));
+
+			assertSameTime(dateTime);
+		}
+	}
+
+	@Test
+	public void testDaylightSavingTransitionsMatchCalendar() throws ParseException {
+		for (int year = 1996; year <= 2037; year++) {
+			// The transitions happen on the last Sunday of March and October.
+			for (int month : new int[] { 3, 10 }) {
+				for (int day = 25; day <= 31; day++) {
+					for (int hour = 0; hour < 4; hour++) {
+						for (int minute = 0; minute < 60; minute += 15) {
+							assertSameTime(format(year, month, day, hour, minute, 59));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testEndOfMonthAndLeapDays() throws ParseException {
+		for (int year = 1999; year <= 2101; year++) {
+			for (int month = 1; month <= 12; month++) {
+				for (int day = 28; day <= 31; day++) {
+					assertSameTime(format(year, month, day, 23, 59, 59));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testInvalidTimesAreRejected() {
+		String[] invalid = new String[] {
+			null, "", "2010-01-01", "2010-01-01 12:00:00.0", "2010/01/01 12:00:00", "2010-01-01T12:00:00",
+			"2010-0a-01 12:00:00", "2010-13-01 12:00:00", "2010-00-01 12:00:00"
+		};
+
+		for (String dateTime : invalid) {
+			try {
+				TimeUtils.parseServerTime(dateTime);
+				Assert.fail("Expected a ParseException for: " + dateTime);
+			}
+			catch (ParseException e) {
+				// Expected.
+			}
+		}
+	}
+
+	private void assertSameTime(String dateTime) throws ParseException {
+		Assert.assertEquals(dateTime, parseWithCalendar(dateTime), TimeUtils.parseServerTime(dateTime));
+	}
+
+	/**
+	 * This is the implementation which {@link TimeUtils#parseServerTime(CharSequence)} replaces.
+	 */
+	private long parseWithCalendar(String dateTime) {
+		Calendar calendar = new GregorianCalendar();
+		calendar.setTimeZone(LONDON);
+		calendar.set(
+				Integer.parseInt(dateTime.substring(0, 4)),
+				Integer.parseInt(dateTime.substring(5, 7)) - 1,
+				Integer.parseInt(dateTime.substring(8, 10)),
+				Integer.parseInt(dateTime.substring(11, 13)),
+				Integer.parseInt(dateTime.substring(14, 16)),
+				Integer.parseInt(dateTime.substring(17, 19))
+		);
+		calendar.set(Calendar.MILLISECOND, 0);
+		return calendar.getTimeInMillis();
+	}
+
+	private String format(int year, int month, int day, int hour, int minute, int second) {
+		return String.format("%04d-%02d-%02d %02d:%02d:%02d", year, month, day, hour, minute, second);
+	}
+
+}